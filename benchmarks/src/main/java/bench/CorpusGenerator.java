@@ -0,0 +1,524 @@
+package bench;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Generates MiniJava source for scale and stress tests: declarations of every supported type,
+// assignments, if and while blocks nested up to a maximum depth, and classes with fields and methods,
+// with a chosen share of statements replaced by lexical, syntax or semantic errors and some very
+// long lines. Every variable is declared with a unique name before it is used, so the valid lines
+// pass all three analyses. Variables declared by erroneous statements are used later like any other,
+// so an error that cascades into later lines shows up as diagnostics beyond one per error. The same
+// seed always gives the same source, and lines are written as they are generated, so the size of the
+// output is not limited by memory.
+// Usage: java -cp bin bench.CorpusGenerator [options] <file, or directory with --files>
+public class CorpusGenerator {
+
+    private static final String[] TYPES = {"byte", "short", "int", "long", "float", "double", "boolean", "char", "String"};
+    private static final String[] COMPARISONS = {"<", "<=", ">", ">=", "==", "!="};
+    private static final String[] WORDS = {"alpha", "beta", "gamma", "delta", "mini java", "tab\\there", "quote\\\"d", ""};
+    private static final String[] CHARS = {"'a'", "'Z'", "'7'", "' '", "'\\n'", "'\\''", "'\\\\'"};
+    private static final char[] UNKNOWN_CHARACTERS = {'@', '#', '`'};
+
+    // A variable in scope, by name and type
+    private static final class Variable {
+        final String name;
+        final String type;
+
+        Variable(String name, String type) {
+            this.name = name;
+            this.type = type;
+        }
+    }
+
+    private final Random random;
+    private double lexicalRatio;
+    private double syntaxRatio;
+    private double semanticRatio;
+    private int maxDepth = 3;
+    private double longLineRatio;
+    private int longLineLength = 10_000;
+
+    // Variables in scope by the index of their type in TYPES, innermost last, and for every open
+    // scope the number of variables of each type declared before it
+    private List<List<Variable>> visible = newVisible();
+    private List<int[]> scopes = new ArrayList<>();
+    private Appendable out;
+    private int written;
+    private int nextName;
+
+    public CorpusGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    // Shares of statements, between 0 and 1, replaced by an error of each kind
+    public CorpusGenerator withErrorRatios(double lexical, double syntax, double semantic) {
+        this.lexicalRatio = lexical;
+        this.syntaxRatio = syntax;
+        this.semanticRatio = semantic;
+        return this;
+    }
+
+    // How deeply blocks nest; now and then a chain of blocks reaches the full depth
+    public CorpusGenerator withMaxDepth(int depth) {
+        this.maxDepth = Math.max(0, depth);
+        return this;
+    }
+
+    // Share of declarations, between 0 and 1, whose initializer is about length characters long
+    public CorpusGenerator withLongLines(double ratio, int length) {
+        this.longLineRatio = ratio;
+        this.longLineLength = length;
+        return this;
+    }
+
+    // Writes whole top-level declarations and statements until at least the given number of lines
+    // has been written; returns the number written
+    public int write(Appendable out, int lines) throws IOException {
+        this.out = out;
+        this.written = 0;
+        visible = newVisible();
+        scopes.clear();
+        while (written < lines) {
+            double choice = random.nextDouble();
+            if (choice < 0.05) {
+                classDeclaration();
+            } else if (choice < 0.07 && maxDepth > 0) {
+                nestedChain(maxDepth);
+            } else {
+                statement(0, Math.min(maxDepth, 3));
+            }
+        }
+        return written;
+    }
+
+    public static void main(String[] args) throws IOException {
+        long seed = 1;
+        int lines = 10_000;
+        int files = 1;
+        double lexical = 0;
+        double syntax = 0;
+        double semantic = 0;
+        int depth = 3;
+        double longLines = 0;
+        int longLineLength = 10_000;
+        Path output = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-h") || arg.equals("--help")) {
+                printUsage(System.out);
+                return;
+            }
+            if (arg.startsWith("--") && i + 1 == args.length) {
+                System.err.println("Option " + arg + " expects a value");
+                System.exit(2);
+            }
+            switch (arg) {
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--lines":
+                    lines = Integer.parseInt(args[++i]);
+                    break;
+                case "--files":
+                    files = Integer.parseInt(args[++i]);
+                    break;
+                case "--lexical":
+                    lexical = Double.parseDouble(args[++i]);
+                    break;
+                case "--syntax":
+                    syntax = Double.parseDouble(args[++i]);
+                    break;
+                case "--semantic":
+                    semantic = Double.parseDouble(args[++i]);
+                    break;
+                case "--depth":
+                    depth = Integer.parseInt(args[++i]);
+                    break;
+                case "--long-lines":
+                    longLines = Double.parseDouble(args[++i]);
+                    break;
+                case "--long-line-length":
+                    longLineLength = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    output = Paths.get(arg);
+                    break;
+            }
+        }
+        if (output == null) {
+            printUsage(System.err);
+            System.exit(2);
+        }
+
+        if (files > 1) {
+            Files.createDirectories(output);
+        }
+        long total = 0;
+        for (int file = 0; file < files; file++) {
+            Path path = files > 1 ? output.resolve(String.format("Corpus%05d.java", file)) : output;
+            try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                total += new CorpusGenerator(seed + file)
+                        .withErrorRatios(lexical, syntax, semantic)
+                        .withMaxDepth(depth)
+                        .withLongLines(longLines, longLineLength)
+                        .write(writer, lines);
+            }
+        }
+        System.err.println("Wrote " + total + " lines to " + files + " file(s) in " + output);
+    }
+
+    private static void printUsage(PrintStream stream) {
+        stream.println("Usage: java -cp benchmarks/target/benchmarks.jar bench.CorpusGenerator [--seed N] [--lines N]");
+        stream.println("       [--files N] [--lexical R] [--syntax R] [--semantic R] [--depth N]");
+        stream.println("       [--long-lines R] [--long-line-length N] <file, or directory with --files>");
+    }
+
+    // A statement at the given nesting depth; blocks nest no deeper than limit
+    private void statement(int depth, int limit) throws IOException {
+        double error = random.nextDouble();
+        if (error < lexicalRatio) {
+            lexicalError(depth);
+            return;
+        }
+        error -= lexicalRatio;
+        if (error < syntaxRatio) {
+            syntaxError(depth);
+            return;
+        }
+        error -= syntaxRatio;
+        if (error < semanticRatio) {
+            semanticError(depth);
+            return;
+        }
+
+        double choice = random.nextDouble();
+        Variable target = choice >= 0.15 && choice < 0.35 ? pickAssignable(null) : null;
+        if (depth < limit && choice < 0.15) {
+            block(depth, limit, random.nextBoolean() ? "if" : "while");
+        } else if (target != null) {
+            line(depth, target.name + " = " + expression(target.type, 2) + ";");
+        } else {
+            declaration(depth);
+        }
+    }
+
+    private void declaration(int depth) throws IOException {
+        String type = TYPES[random.nextInt(TYPES.length)];
+        String name = newName("v");
+        String initializer;
+        if (random.nextDouble() < longLineRatio) {
+            type = random.nextBoolean() ? "int" : "String";
+            initializer = longExpression(type);
+        } else if (random.nextDouble() < 0.1) {
+            line(depth, type + " " + name + ";");
+            declare(name, type);
+            return;
+        } else {
+            initializer = expression(type, 2);
+        }
+        line(depth, type + " " + name + " = " + initializer + ";");
+        declare(name, type);
+    }
+
+    private void block(int depth, int limit, String keyword) throws IOException {
+        line(depth, keyword + " (" + expression("boolean", 2) + ") {");
+        enterScope();
+        int statements = 1 + random.nextInt(4);
+        for (int i = 0; i < statements; i++) {
+            statement(depth + 1, limit);
+        }
+        exitScope();
+        if (keyword.equals("if") && random.nextBoolean()) {
+            line(depth, "} else {");
+            enterScope();
+            statement(depth + 1, limit);
+            exitScope();
+        }
+        line(depth, "}");
+    }
+
+    // Blocks nested one inside the other down to the full depth, each declaring a variable. Opened
+    // and closed in loops, so depths in the thousands do not exhaust the generator's own stack.
+    private void nestedChain(int limit) throws IOException {
+        for (int depth = 0; depth < limit; depth++) {
+            line(depth, (random.nextBoolean() ? "if" : "while") + " (" + expression("boolean", 1) + ") {");
+            enterScope();
+            declaration(depth + 1);
+        }
+        statement(limit, limit);
+        for (int depth = limit - 1; depth >= 0; depth--) {
+            exitScope();
+            line(depth, "}");
+        }
+    }
+
+    // A class with fields and methods; its members see only its own fields and their parameters
+    private void classDeclaration() throws IOException {
+        List<List<Variable>> outerVisible = visible;
+        List<int[]> outerScopes = scopes;
+        visible = newVisible();
+        scopes = new ArrayList<>();
+        line(0, "class " + newName("C") + " {");
+        int fields = 1 + random.nextInt(4);
+        for (int i = 0; i < fields; i++) {
+            String type = TYPES[random.nextInt(TYPES.length)];
+            String name = newName("f");
+            line(1, type + " " + name + " = " + expression(type, 1) + ";");
+            declare(name, type);
+        }
+        int methods = 1 + random.nextInt(3);
+        for (int i = 0; i < methods; i++) {
+            method();
+        }
+        line(0, "}");
+        visible = outerVisible;
+        scopes = outerScopes;
+    }
+
+    private void method() throws IOException {
+        boolean isVoid = random.nextInt(4) == 0;
+        String returnType = isVoid ? "void" : TYPES[random.nextInt(TYPES.length)];
+        enterScope();
+        StringBuilder signature = new StringBuilder();
+        int count = random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            String type = TYPES[random.nextInt(TYPES.length)];
+            String name = newName("p");
+            declare(name, type);
+            signature.append(i == 0 ? "" : ", ").append(type).append(' ').append(name);
+        }
+        line(1, returnType + " " + newName("m") + "(" + signature + ") {");
+        int statements = 1 + random.nextInt(5);
+        for (int i = 0; i < statements; i++) {
+            statement(2, Math.min(maxDepth + 2, 4));
+        }
+        if (!isVoid) {
+            line(2, "return " + expression(returnType, 2) + ";");
+        }
+        exitScope();
+        line(1, "}");
+    }
+
+    private void lexicalError(int depth) throws IOException {
+        char unknown = UNKNOWN_CHARACTERS[random.nextInt(UNKNOWN_CHARACTERS.length)];
+        String name = newName("e");
+        line(depth, "int " + name + " = " + random.nextInt(100) + " " + unknown + " " + random.nextInt(100) + ";");
+        declare(name, "int");
+    }
+
+    // Errors confined to one statement, so the parser recovers at its semicolon
+    private void syntaxError(int depth) throws IOException {
+        String name = newName("e");
+        switch (random.nextInt(4)) {
+            case 0:
+                line(depth, "int " + name + " " + random.nextInt(100) + ";");
+                declare(name, "int");
+                break;
+            case 1:
+                line(depth, "int " + name + " = (" + random.nextInt(100) + " + ;");
+                declare(name, "int");
+                break;
+            case 2:
+                line(depth, "double = " + random.nextInt(100) + ";");
+                break;
+            default:
+                line(depth, name + " = " + random.nextInt(100) + " * * 2;");
+                break;
+        }
+    }
+
+    private void semanticError(int depth) throws IOException {
+        switch (random.nextInt(4)) {
+            case 0: {
+                String name = newName("e");
+                line(depth, "int " + name + " = \"" + WORDS[random.nextInt(WORDS.length)] + "\";");
+                declare(name, "int");
+                break;
+            }
+            case 1:
+                line(depth, newName("undeclared") + " = " + random.nextInt(100) + ";");
+                break;
+            case 2: {
+                String name = newName("e");
+                line(depth, "boolean " + name + " = " + random.nextInt(100) + " + true;");
+                declare(name, "boolean");
+                break;
+            }
+            default:
+                Variable existing = pickAssignable(null);
+                if (existing == null) {
+                    line(depth, "char " + newName("e") + " = 3.5;");
+                } else {
+                    line(depth, existing.type + " " + existing.name + " = " + expression(existing.type, 1) + ";");
+                }
+                break;
+        }
+    }
+
+    // An expression assignable to the type, built from literals and variables in scope
+    private String expression(String type, int depth) {
+        Variable variable = random.nextInt(3) == 0 ? null : pickAssignable(type);
+        switch (type) {
+            case "byte":
+                return variable != null ? variable.name : Integer.toString(random.nextInt(256) - 128);
+            case "short":
+                return variable != null ? variable.name : Integer.toString(random.nextInt(65536) - 32768);
+            case "char":
+                return variable != null ? variable.name : CHARS[random.nextInt(CHARS.length)];
+            case "boolean":
+                return condition(depth);
+            case "String":
+                if (depth > 0 && random.nextBoolean()) {
+                    String appended = TYPES[random.nextInt(TYPES.length)];
+                    return expression("String", depth - 1) + " + " + (appended.equals("boolean")
+                            ? "(" + expression(appended, 0) + ")" : expression(appended, 0));
+                }
+                return variable != null ? variable.name : "\"" + WORDS[random.nextInt(WORDS.length)] + "\"";
+            default:
+                if (depth > 0 && random.nextBoolean()) {
+                    String operator = "+-*/%".substring(random.nextInt(5)).substring(0, 1);
+                    String right = operator.equals("/") || operator.equals("%")
+                            ? Integer.toString(1 + random.nextInt(9)) : expression(type, depth - 1);
+                    return "(" + expression(type, depth - 1) + " " + operator + " " + right + ")";
+                }
+                return variable != null ? variable.name : literal(type);
+        }
+    }
+
+    private String condition(int depth) {
+        double choice = random.nextDouble();
+        if (depth > 0 && choice < 0.25) {
+            return "(" + condition(depth - 1) + (random.nextBoolean() ? " && " : " || ") + condition(depth - 1) + ")";
+        }
+        if (depth > 0 && choice < 0.35) {
+            return "!(" + condition(depth - 1) + ")";
+        }
+        if (choice < 0.75) {
+            String type = random.nextBoolean() ? "int" : "double";
+            return expression(type, Math.min(depth, 1)) + " " + COMPARISONS[random.nextInt(COMPARISONS.length)]
+                    + " " + expression(type, Math.min(depth, 1));
+        }
+        Variable variable = pickAssignable("boolean");
+        return variable != null ? variable.name : random.nextBoolean() ? "true" : "false";
+    }
+
+    private String literal(String type) {
+        switch (type) {
+            case "long":
+                return random.nextInt(100_000) + "L";
+            case "float":
+                return random.nextInt(1000) + "." + random.nextInt(100) + "f";
+            case "double":
+                return random.nextInt(1000) + "." + random.nextInt(1000);
+            default:
+                return Integer.toString(random.nextInt(1000));
+        }
+    }
+
+    // A sum or concatenation about longLineLength characters long, as one flat chain of operators
+    private String longExpression(String type) {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < longLineLength) {
+            if (text.length() > 0) {
+                text.append(" + ");
+            }
+            Variable variable = random.nextBoolean() ? pickAssignable(type) : null;
+            if (variable != null) {
+                text.append(variable.name);
+            } else {
+                text.append(type.equals("int") ? Integer.toString(random.nextInt(10)) : "\"" + WORDS[random.nextInt(WORDS.length)] + "\"");
+            }
+        }
+        return text.toString();
+    }
+
+    // A random variable in scope whose value can be assigned to the type, or any variable for a
+    // null type; null when there is none
+    private Variable pickAssignable(String type) {
+        int candidates = 0;
+        for (int i = 0; i < TYPES.length; i++) {
+            if (type == null || isAssignable(TYPES[i], type)) {
+                candidates += visible.get(i).size();
+            }
+        }
+        if (candidates == 0) {
+            return null;
+        }
+        int choice = random.nextInt(candidates);
+        for (int i = 0; i < TYPES.length; i++) {
+            if (type == null || isAssignable(TYPES[i], type)) {
+                List<Variable> variables = visible.get(i);
+                if (choice < variables.size()) {
+                    return variables.get(choice);
+                }
+                choice -= variables.size();
+            }
+        }
+        return null;
+    }
+
+    // Widening assignments as the analyzer allows them
+    private static boolean isAssignable(String from, String to) {
+        if (from.equals(to)) {
+            return true;
+        }
+        String numeric = "byte short int long float double";
+        if (from.equals("char")) {
+            return to.equals("int") || to.equals("long") || to.equals("float") || to.equals("double");
+        }
+        int fromRank = numeric.indexOf(from);
+        int toRank = numeric.indexOf(to);
+        return fromRank >= 0 && toRank >= 0 && fromRank < toRank && !(from.equals("byte") && to.equals("char"));
+    }
+
+    private static List<List<Variable>> newVisible() {
+        List<List<Variable>> visible = new ArrayList<>();
+        for (int i = 0; i < TYPES.length; i++) {
+            visible.add(new ArrayList<>());
+        }
+        return visible;
+    }
+
+    private void enterScope() {
+        int[] sizes = new int[TYPES.length];
+        for (int i = 0; i < TYPES.length; i++) {
+            sizes[i] = visible.get(i).size();
+        }
+        scopes.add(sizes);
+    }
+
+    // Forgets the variables declared since the matching enterScope
+    private void exitScope() {
+        int[] sizes = scopes.remove(scopes.size() - 1);
+        for (int i = 0; i < TYPES.length; i++) {
+            List<Variable> variables = visible.get(i);
+            variables.subList(sizes[i], variables.size()).clear();
+        }
+    }
+
+    private void declare(String name, String type) {
+        visible.get(Arrays.asList(TYPES).indexOf(type)).add(new Variable(name, type));
+    }
+
+    private String newName(String prefix) {
+        return prefix + nextName++;
+    }
+
+    private void line(int depth, String text) throws IOException {
+        for (int i = 0; i < depth; i++) {
+            out.append("    ");
+        }
+        out.append(text).append('\n');
+        written++;
+    }
+}
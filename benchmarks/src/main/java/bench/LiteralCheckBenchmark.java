@@ -0,0 +1,130 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import actions.LiteralChecker;
+import actions.SyntaxAnalyzer;
+import common.ast.AstPrinter;
+import common.ast.Node;
+import common.ast.VariableDeclaration;
+
+// Compares the per-declaration cost of the former regex literal check, which printed every
+// initializer and matched it with String.matches, against the character-scanning LiteralChecker.
+// Scores are per declaration; with -prof gc the allocation is per declaration as well.
+// Usage: java -jar benchmarks/target/benchmarks.jar LiteralCheckBenchmark -prof gc
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LiteralCheckBenchmark {
+
+    private static final int DECLARATIONS = 100_000;
+
+    private static final String[] SAMPLE_LINES = {
+        "int count = 42;",
+        "int offset = -2147483648;",
+        "long total = 9000000000L;",
+        "String name = \"mini\\tjava\";",
+        "float ratio = 3.14;",
+        "double epsilon = 1e-9;",
+        "boolean ready = true;",
+        "char initial = 'm';",
+        "char newline = '\\n';",
+        "short port = 8080;",
+        "byte flags = -7;",
+    };
+
+    private List<VariableDeclaration> declarations;
+
+    @Setup
+    public void prepare() {
+        declarations = parse(DECLARATIONS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DECLARATIONS)
+    public int regexPerDeclaration() {
+        return legacy(declarations);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DECLARATIONS)
+    public int characterScanning() {
+        return scanning(declarations);
+    }
+
+    static List<VariableDeclaration> parse(int count) {
+        StringBuilder code = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            code.append(SAMPLE_LINES[i % SAMPLE_LINES.length]).append('\n');
+        }
+        List<VariableDeclaration> declarations = new ArrayList<>();
+        for (Node item : new SyntaxAnalyzer().performSyntaxAnalysis(code.toString()).getPayload().getItems()) {
+            if (item instanceof VariableDeclaration) {
+                declarations.add((VariableDeclaration) item);
+            }
+        }
+        return declarations;
+    }
+
+    static int legacy(List<VariableDeclaration> declarations) {
+        int errors = 0;
+        for (VariableDeclaration declaration : declarations) {
+            String value = AstPrinter.print(declaration.getInitializer());
+            if (legacyTypeCheck(declaration.getType().getName(), value) != null) {
+                errors++;
+            }
+        }
+        return errors;
+    }
+
+    static int scanning(List<VariableDeclaration> declarations) {
+        int errors = 0;
+        for (VariableDeclaration declaration : declarations) {
+            if (LiteralChecker.check(declaration.getType(), declaration.getInitializer())
+                    != LiteralChecker.Verdict.VALID) {
+                errors++;
+            }
+        }
+        return errors;
+    }
+
+    // The check SemanticAnalyzer used before LiteralChecker, kept here as the baseline
+    private static String legacyTypeCheck(String dataType, String value) {
+        switch (dataType) {
+            case "byte":
+                return value.matches("-?\\d{1,3}") ? null : "Type mismatch: '" + value + "' is not a valid byte.";
+            case "short":
+                return value.matches("-?\\d{1,5}") ? null : "Type mismatch: '" + value + "' is not a valid short.";
+            case "int":
+                return value.matches("-?\\d+") ? null : "Type mismatch: '" + value + "' is not a valid int.";
+            case "float":
+                return value.matches("-?\\d+\\.\\d+") ? null : "Type mismatch: '" + value + "' is not a valid float.";
+            case "boolean":
+                return value.equals("true") || value.equals("false") ? null
+                        : "Type mismatch: '" + value + "' is not a valid boolean.";
+            case "char":
+                return value.matches("^'.'$") ? null : "Type mismatch: '" + value + "' is not a valid char.";
+            case "String":
+                return value.matches("^\".*\"$") ? null : "Type mismatch: '" + value + "' is not a valid String.";
+            default:
+                return "Unknown data type: " + dataType;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import actions.CodeRunner;
+import actions.LexicalAnalyzer;
+import actions.SemanticAnalyzer;
+import actions.SyntaxAnalyzer;
+import common.AnalysisResult;
+import common.Token;
+import common.ast.CompilationUnit;
+
+// Measures every analysis phase on its own, and the whole CodeRunner pipeline, over CorpusGenerator
+// inputs of each size, once valid and once with errors mixed in. Each phase runs on the previous
+// phase's output, prepared before timing starts. Runs are sampled, so JMH reports the latency
+// percentiles of single runs; with -prof gc it adds the bytes allocated per run and the collections.
+// Usage: java -jar benchmarks/target/benchmarks.jar PhaseBenchmark -prof gc [-p lines=1000,100000]
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PhaseBenchmark {
+
+    private static final long SEED = 1;
+
+    @Param({"1000", "100000", "1000000"})
+    public int lines;
+
+    @Param({"valid", "errors"})
+    public String input;
+
+    private String code;
+    private AnalysisResult<List<Token>> lexical;
+    private AnalysisResult<CompilationUnit> syntax;
+
+    @Setup
+    public void prepare() throws IOException {
+        code = generate(lines, input.equals("errors"));
+        lexical = new LexicalAnalyzer().analyze(code);
+        syntax = new SyntaxAnalyzer().performSyntaxAnalysis(lexical.getPayload());
+    }
+
+    @Benchmark
+    public AnalysisResult<List<Token>> lexical() {
+        return new LexicalAnalyzer().analyze(code);
+    }
+
+    @Benchmark
+    public AnalysisResult<CompilationUnit> syntax() {
+        return new SyntaxAnalyzer().performSyntaxAnalysis(lexical.getPayload());
+    }
+
+    @Benchmark
+    public AnalysisResult<CompilationUnit> semantic() {
+        return new SemanticAnalyzer().analyze(syntax.getPayload());
+    }
+
+    @Benchmark
+    public int pipeline() {
+        return new CodeRunner(code).execute().getDiagnostics().size();
+    }
+
+    // CorpusGenerator source with no errors, or with about a fifth of the statements replaced by
+    // lexical, syntax and semantic errors
+    static String generate(int lines, boolean errors) throws IOException {
+        StringBuilder code = new StringBuilder();
+        CorpusGenerator generator = new CorpusGenerator(SEED);
+        if (errors) {
+            generator.withErrorRatios(0.05, 0.05, 0.1);
+        }
+        generator.write(code, lines);
+        return code.toString();
+    }
+}
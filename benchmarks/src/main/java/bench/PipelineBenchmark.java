@@ -0,0 +1,109 @@
+package bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import actions.LexicalAnalyzer;
+import actions.PipelineCache;
+import actions.SemanticAnalyzer;
+import actions.SyntaxAnalyzer;
+import common.AnalysisResult;
+import common.Token;
+import common.ast.CompilationUnit;
+
+// Compares lexing once per phase against lexing once and sharing the token stream,
+// with and without rendering the textual reports, and serving unchanged code from the cache.
+// Usage: java -jar benchmarks/target/benchmarks.jar PipelineBenchmark -prof gc [-p lines=50000]
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+
+    private static final String[] SAMPLE_LINES = {
+        "int count = 42;",
+        "String name = \"mini java\";",
+        "float ratio = 3.14;",
+        "boolean ready = true;",
+        "char initial = 'm';",
+        "short port = 8080;",
+        "byte flags = 7;",
+    };
+
+    @Param("50000")
+    public int lines;
+
+    private String code;
+    private PipelineCache cache;
+
+    @Setup
+    public void prepare() {
+        code = generate(lines);
+        cache = new PipelineCache(1L << 30);
+        cached(cache, code);
+    }
+
+    @Benchmark
+    public int separateLexingPerPhase() {
+        return separate(code);
+    }
+
+    @Benchmark
+    public int sharedTokenStream() {
+        return shared(code, true);
+    }
+
+    @Benchmark
+    public int sharedStatusOnly() {
+        return shared(code, false);
+    }
+
+    @Benchmark
+    public int cachedUnchangedCode() {
+        return cached(cache, code);
+    }
+
+    static String generate(int lines) {
+        StringBuilder code = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            code.append(SAMPLE_LINES[i % SAMPLE_LINES.length]).append('\n');
+        }
+        return code.toString();
+    }
+
+    static int separate(String code) {
+        int length = new LexicalAnalyzer().analyze(code).render().length();
+        length += new SyntaxAnalyzer().performSyntaxAnalysis(code).render().length();
+        length += new SemanticAnalyzer().analyze(code).render().length();
+        return length;
+    }
+
+    static int shared(String code, boolean renderReports) {
+        AnalysisResult<List<Token>> lexical = new LexicalAnalyzer().analyze(code);
+        AnalysisResult<CompilationUnit> syntax = new SyntaxAnalyzer().performSyntaxAnalysis(lexical.getPayload());
+        AnalysisResult<CompilationUnit> semantic = new SemanticAnalyzer().analyze(syntax.getPayload());
+        if (!renderReports) {
+            return lexical.getErrorCount() + syntax.getErrorCount() + semantic.getErrorCount();
+        }
+        return lexical.render().length() + syntax.render().length() + semantic.render().length();
+    }
+
+    static int cached(PipelineCache cache, String code) {
+        return cache.lexical(code).render().length() + cache.syntax(code).render().length()
+                + cache.semantic(code).render().length();
+    }
+}
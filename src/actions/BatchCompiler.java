@@ -0,0 +1,268 @@
+package actions;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import common.Diagnostic;
+import common.Phase;
+
+// Runs the analysis pipeline over many files on a work-stealing pool. Each worker holds at most one
+// source file, its tokens and its tree at a time; only the compact FileResult outlives the task.
+// Results reach the listener in input order, on the calling thread, regardless of which worker
+// finishes first. Only a window of files is in flight at once, so the results that finish ahead of
+// a slow file are bounded however many files there are. A file that makes the pipeline throw gets
+// an internal error of its own, and the others are unaffected.
+public class BatchCompiler {
+
+    // Files started but not yet handed to the listener, per worker
+    private static final int IN_FLIGHT_PER_WORKER = 4;
+
+    public interface ResultListener {
+        void onResult(FileResult result);
+    }
+
+    // A compiled file and, when class files are written, the classes still to write
+    private static final class Outcome {
+        final FileResult result;
+        final CompiledProgram program;
+
+        Outcome(FileResult result, CompiledProgram program) {
+            this.result = result;
+            this.program = program;
+        }
+    }
+
+    // How a run is set up, by chaining the setters. By default it uses every processor, reads UTF-8
+    // and keeps no cache, writes no classes, dumps no intermediate code and takes no metrics.
+    public static final class Options {
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private SourceReader reader = new SourceReader();
+        private DiskCache cache;
+        private Path classOutput;
+        private boolean dumpIr;
+        private boolean measure;
+
+        public Options parallelism(int parallelism) {
+            this.parallelism = Math.max(1, parallelism);
+            return this;
+        }
+
+        public Options reader(SourceReader reader) {
+            this.reader = reader;
+            return this;
+        }
+
+        // With a cache, files whose content and analyzer version match a stored entry are not re-analyzed
+        public Options cache(DiskCache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        // With a class output directory, the classes of every file that passes are written there. Each
+        // file's top-level statements form a main class named after the file, so such files are always
+        // compiled rather than served from the cache. Classes are written in input order, and a file
+        // generating a class that an earlier file already wrote fails instead of overwriting it.
+        public Options classOutput(Path classOutput) {
+            this.classOutput = classOutput;
+            return this;
+        }
+
+        // With dumpIr, every file that passes semantic analysis also reports its intermediate code
+        // before and after optimization and the time each optimization pass took
+        public Options dumpIr(boolean dumpIr) {
+            this.dumpIr = dumpIr;
+            return this;
+        }
+
+        // With measure, every result carries PhaseMetrics for reading the file, looking it up in the
+        // cache and each phase that ran, taken on the worker thread that compiled it
+        public Options measure(boolean measure) {
+            this.measure = measure;
+            return this;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public SourceReader getReader() {
+            return reader;
+        }
+
+        // Null when no cache is kept
+        public DiskCache getCache() {
+            return cache;
+        }
+
+        // Null when no classes are written
+        public Path getClassOutput() {
+            return classOutput;
+        }
+
+        public boolean isDumpIr() {
+            return dumpIr;
+        }
+
+        public boolean isMeasure() {
+            return measure;
+        }
+    }
+
+    private final int parallelism;
+    private final SourceReader reader;
+    private final DiskCache cache;
+    private final Path classOutput;
+    private final boolean dumpIr;
+    private final boolean measure;
+
+    // The options are read once here, so changing them later does not affect this compiler
+    public BatchCompiler(Options options) {
+        this.parallelism = options.getParallelism();
+        this.reader = options.getReader();
+        this.cache = options.getCache();
+        this.classOutput = options.getClassOutput();
+        this.dumpIr = options.isDumpIr();
+        this.measure = options.isMeasure();
+    }
+
+    public void compile(List<Path> sources, ResultListener listener) {
+        if (sources.isEmpty()) {
+            return;
+        }
+        int window = parallelism * IN_FLIGHT_PER_WORKER;
+        List<ForkJoinTask<Outcome>> running = new ArrayList<>(Collections.nCopies(window, null));
+        Map<String, Path> written = new HashMap<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            int started = 0;
+            for (int next = 0; next < sources.size(); next++) {
+                while (started < sources.size() && started < next + window) {
+                    Path source = sources.get(started);
+                    running.set(started % window, pool.submit(() -> compileFile(source)));
+                    started++;
+                }
+                Outcome outcome = running.get(next % window).join();
+                listener.onResult(outcome.program == null ? outcome.result : writeClasses(outcome, written));
+                running.set(next % window, null);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Outcome compileFile(Path source) {
+        Phase[] phase = {Phase.LEXICAL};
+        try {
+            return compileFile(source, phase);
+        } catch (Throwable ex) {
+            Diagnostic error = Diagnostic.error(phase[0], "internal-error", 1, 1,
+                    "Internal compiler error in " + phase[0].getDisplayName().toLowerCase() + " analysis: " + ex);
+            return new Outcome(new FileResult(source, Collections.singletonList(error), phase[0], null), null);
+        }
+    }
+
+    // Records in phase the phase the pipeline is in, for reporting an internal error
+    private Outcome compileFile(Path source, Phase[] phase) {
+        PhaseMetrics metrics = measure ? new PhaseMetrics() : null;
+        if (metrics != null) {
+            metrics.start("read");
+        }
+        CharSequence code;
+        try {
+            code = reader.read(source);
+        } catch (IOException ex) {
+            return new Outcome(new FileResult(source, Collections.emptyList(), null, ex.getMessage()), null);
+        } finally {
+            if (metrics != null) {
+                metrics.stop();
+            }
+        }
+        if (cache != null && classOutput == null && !dumpIr) {
+            if (metrics != null) {
+                metrics.start("cache");
+            }
+            FileResult cached = cache.lookup(source, code);
+            if (metrics != null) {
+                metrics.stop();
+            }
+            if (cached != null) {
+                return new Outcome(metrics == null ? cached : new FileResult(source, cached.getDiagnostics(),
+                        cached.getFailedPhase(), null, null, metrics), null);
+            }
+        }
+        Path fileName = source.getFileName();
+        RunResult result = new CodeRunner(code, null, mainClassName(source),
+                fileName == null ? null : fileName.toString()).execute(started -> phase[0] = started, null, metrics);
+        CompiledProgram program = classOutput != null && result.isSuccessful()
+                ? result.getGeneration().getPayload() : null;
+        if (dumpIr && result.isChecked()) {
+            String irDump = Optimizer.dump(ThreeAddressTranslator.translate(result.getSemantic().getPayload()));
+            return new Outcome(new FileResult(source, result.getDiagnostics(), result.getFailedPhase(), null, irDump,
+                    metrics), program);
+        }
+        FileResult fileResult = new FileResult(source, result.getDiagnostics(), result.getFailedPhase(), null);
+        if (cache != null) {
+            cache.store(source, code, fileResult);
+        }
+        return new Outcome(metrics == null ? fileResult : new FileResult(source, fileResult.getDiagnostics(),
+                fileResult.getFailedPhase(), null, null, metrics), program);
+    }
+
+    // Runs on the calling thread in input order; written maps each class already written to its file
+    private FileResult writeClasses(Outcome outcome, Map<String, Path> written) {
+        FileResult result = outcome.result;
+        List<Diagnostic> errors = new ArrayList<>();
+        for (String name : outcome.program.getClasses().keySet()) {
+            Path owner = written.get(name);
+            if (owner != null) {
+                errors.add(Diagnostic.error(Phase.GENERATION, "duplicate-class", 1, 1,
+                        "Class " + name + " is already generated from " + owner
+                                + "; no class files are written for this file"));
+            }
+        }
+        if (errors.isEmpty()) {
+            try {
+                outcome.program.writeTo(classOutput);
+                for (String name : outcome.program.getClasses().keySet()) {
+                    written.put(name, result.getSource());
+                }
+            } catch (IOException ex) {
+                errors.add(Diagnostic.error(Phase.GENERATION, "class-output", 1, 1,
+                        "Cannot write the class files to " + classOutput + ": " + ex.getMessage()));
+            }
+        }
+        if (errors.isEmpty()) {
+            return result;
+        }
+        List<Diagnostic> diagnostics = new ArrayList<>(result.getDiagnostics());
+        diagnostics.addAll(errors);
+        return new FileResult(result.getSource(), diagnostics, Phase.GENERATION, null, result.getIrDump(),
+                result.getMetrics());
+    }
+
+    // The file name without its extension when it is a valid class name, such as Shapes for Shapes.java
+    static String mainClassName(Path source) {
+        Path fileName = source.getFileName();
+        String name = fileName == null ? "" : fileName.toString();
+        int dot = name.lastIndexOf('.');
+        if (dot >= 0) {
+            name = name.substring(0, dot);
+        }
+        if (name.isEmpty() || !Character.isJavaIdentifierStart(name.charAt(0))) {
+            return CodeGenerator.DEFAULT_MAIN_CLASS;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            if (!Character.isJavaIdentifierPart(name.charAt(i))) {
+                return CodeGenerator.DEFAULT_MAIN_CLASS;
+            }
+        }
+        return name;
+    }
+}
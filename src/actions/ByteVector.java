@@ -0,0 +1,107 @@
+package actions;
+
+import java.util.Arrays;
+
+// Growable big-endian byte buffer for class file output, in the layout the JVM specification uses:
+// u1, u2 and u4 items, and strings in modified UTF-8
+final class ByteVector {
+
+    private byte[] data;
+    private int length;
+
+    ByteVector() {
+        this(64);
+    }
+
+    ByteVector(int initialCapacity) {
+        data = new byte[Math.max(initialCapacity, 16)];
+    }
+
+    int length() {
+        return length;
+    }
+
+    ByteVector putByte(int value) {
+        ensure(1);
+        data[length++] = (byte) value;
+        return this;
+    }
+
+    ByteVector putShort(int value) {
+        ensure(2);
+        data[length++] = (byte) (value >>> 8);
+        data[length++] = (byte) value;
+        return this;
+    }
+
+    ByteVector putInt(int value) {
+        ensure(4);
+        data[length++] = (byte) (value >>> 24);
+        data[length++] = (byte) (value >>> 16);
+        data[length++] = (byte) (value >>> 8);
+        data[length++] = (byte) value;
+        return this;
+    }
+
+    ByteVector putLong(long value) {
+        putInt((int) (value >>> 32));
+        return putInt((int) value);
+    }
+
+    ByteVector putBytes(ByteVector other) {
+        ensure(other.length);
+        System.arraycopy(other.data, 0, data, length, other.length);
+        length += other.length;
+        return this;
+    }
+
+    // Overwrites the u2 item at an earlier position, e.g. a branch offset once its target is known
+    void setShort(int position, int value) {
+        data[position] = (byte) (value >>> 8);
+        data[position + 1] = (byte) value;
+    }
+
+    void setInt(int position, int value) {
+        setShort(position, value >>> 16);
+        setShort(position + 2, value);
+    }
+
+    // Length-prefixed modified UTF-8: '\0' takes two bytes and supplementary characters stay as
+    // surrogate pairs of three bytes each
+    ByteVector putUtf8(String value) {
+        int encoded = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            encoded += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+        }
+        if (encoded > 0xFFFF) {
+            throw new IllegalArgumentException("String constant too long: " + encoded + " bytes");
+        }
+        putShort(encoded);
+        ensure(encoded);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                data[length++] = (byte) c;
+            } else if (c <= 0x07FF) {
+                data[length++] = (byte) (0xC0 | c >> 6 & 0x1F);
+                data[length++] = (byte) (0x80 | c & 0x3F);
+            } else {
+                data[length++] = (byte) (0xE0 | c >> 12 & 0x0F);
+                data[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+                data[length++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return this;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(data, length);
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + extra));
+        }
+    }
+}
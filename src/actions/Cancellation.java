@@ -0,0 +1,16 @@
+package actions;
+
+import java.util.concurrent.CancellationException;
+
+// Cooperative cancellation for long analyses: a background run is stopped by interrupting its thread
+public final class Cancellation {
+
+    private Cancellation() {
+    }
+
+    public static void checkpoint() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Analysis cancelled");
+        }
+    }
+}
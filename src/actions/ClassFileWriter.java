@@ -0,0 +1,120 @@
+package actions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Assembles one class file: version 49.0 (Java 5), so methods need no StackMapTable and the JVM
+// verifies them by type inference. The constant pool precedes the members in the file but is only
+// complete once they are encoded, so the members go to a separate buffer first.
+final class ClassFileWriter {
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_PROTECTED = 0x0004;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int MAJOR_VERSION = 49;
+
+    private static final class Member {
+        final int access;
+        final String name;
+        final String descriptor;
+        final CodeBuilder code;
+
+        Member(int access, String name, String descriptor, CodeBuilder code) {
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.code = code;
+        }
+    }
+
+    private final ConstantPool pool = new ConstantPool();
+    private final int access;
+    private final String name;
+    private final String superName;
+    private final String sourceFile;
+    private final List<Member> fields = new ArrayList<>();
+    private final List<Member> methods = new ArrayList<>();
+
+    ClassFileWriter(int access, String name, String superName, String sourceFile) {
+        this.access = access;
+        this.name = name;
+        this.superName = superName;
+        this.sourceFile = sourceFile;
+    }
+
+    ConstantPool getPool() {
+        return pool;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    void addField(int access, String name, String descriptor) {
+        fields.add(new Member(access, name, descriptor, null));
+    }
+
+    // The returned builder receives the method's code
+    CodeBuilder addMethod(int access, String name, String descriptor) {
+        return addMethod(access, name, descriptor, new CodeBuilder());
+    }
+
+    // Adds a method whose code was emitted before it was known to be kept
+    CodeBuilder addMethod(int access, String name, String descriptor, CodeBuilder code) {
+        methods.add(new Member(access, name, descriptor, code));
+        return code;
+    }
+
+    byte[] toByteArray() {
+        ByteVector body = new ByteVector(1024);
+        body.putShort(access).putShort(pool.classRef(name)).putShort(pool.classRef(superName));
+        body.putShort(0);  // No interfaces
+        body.putShort(fields.size());
+        for (Member field : fields) {
+            body.putShort(field.access).putShort(pool.utf8(field.name)).putShort(pool.utf8(field.descriptor));
+            body.putShort(0);
+        }
+        body.putShort(methods.size());
+        for (Member method : methods) {
+            body.putShort(method.access).putShort(pool.utf8(method.name)).putShort(pool.utf8(method.descriptor));
+            body.putShort(1);
+            writeCode(body, method.code);
+        }
+        if (sourceFile != null) {
+            body.putShort(1).putShort(pool.utf8("SourceFile")).putInt(2).putShort(pool.utf8(sourceFile));
+        } else {
+            body.putShort(0);
+        }
+
+        ByteVector out = new ByteVector(body.length() + 1024);
+        out.putInt(MAGIC).putShort(0).putShort(MAJOR_VERSION);
+        pool.writeTo(out);
+        return out.putBytes(body).toByteArray();
+    }
+
+    private void writeCode(ByteVector out, CodeBuilder code) {
+        code.checkLength();
+        ByteVector lines = code.getLineNumbers();
+        boolean hasLines = code.getLineNumberCount() > 0;
+        int lineTableLength = hasLines ? 2 + lines.length() : 0;
+        int codeAttributeNameIndex = pool.utf8("Code");
+        int lineTableNameIndex = hasLines ? pool.utf8("LineNumberTable") : 0;
+
+        int length = 2 + 2 + 4 + code.getCode().length() + 2 + 2 + (hasLines ? 6 + lineTableLength : 0);
+        out.putShort(codeAttributeNameIndex).putInt(length);
+        out.putShort(code.getMaxStack()).putShort(code.getMaxLocals());
+        out.putInt(code.getCode().length()).putBytes(code.getCode());
+        out.putShort(0);  // No exception handlers
+        if (hasLines) {
+            out.putShort(1).putShort(lineTableNameIndex).putInt(lineTableLength);
+            out.putShort(code.getLineNumberCount()).putBytes(lines);
+        } else {
+            out.putShort(0);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package actions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Emits the bytecode of one method while tracking the operand stack depth and the local variable
+// slots in use, so max_stack and max_locals come out exact. Branches to labels not yet placed are
+// patched when the label is marked. Callers pass each instruction's net stack effect in slots.
+// A branch reaches 32767 bytes either way unless the builder uses wide jumps, where a goto becomes a
+// goto_w and a conditional branch becomes the opposite test skipping over a goto_w.
+final class CodeBuilder {
+
+    static final int ACONST_NULL = 0x01;
+    static final int ICONST_0 = 0x03;
+    static final int LCONST_0 = 0x09;
+    static final int FCONST_0 = 0x0b;
+    static final int DCONST_0 = 0x0e;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC = 0x12;
+    static final int LDC_W = 0x13;
+    static final int LDC2_W = 0x14;
+    static final int ILOAD = 0x15;
+    static final int ISTORE = 0x36;
+    static final int POP = 0x57;
+    static final int DUP = 0x59;
+    static final int IADD = 0x60;
+    static final int ISUB = 0x64;
+    static final int IMUL = 0x68;
+    static final int IDIV = 0x6c;
+    static final int IREM = 0x70;
+    static final int INEG = 0x74;
+    static final int I2L = 0x85;
+    static final int I2F = 0x86;
+    static final int I2D = 0x87;
+    static final int L2I = 0x88;
+    static final int L2F = 0x89;
+    static final int L2D = 0x8a;
+    static final int F2I = 0x8b;
+    static final int F2L = 0x8c;
+    static final int F2D = 0x8d;
+    static final int D2I = 0x8e;
+    static final int D2L = 0x8f;
+    static final int D2F = 0x90;
+    static final int I2B = 0x91;
+    static final int I2C = 0x92;
+    static final int I2S = 0x93;
+    static final int LCMP = 0x94;
+    static final int FCMPL = 0x95;
+    static final int FCMPG = 0x96;
+    static final int DCMPL = 0x97;
+    static final int DCMPG = 0x98;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IFLT = 0x9b;
+    static final int IFGE = 0x9c;
+    static final int IFGT = 0x9d;
+    static final int IFLE = 0x9e;
+    static final int IF_ICMPEQ = 0x9f;
+    static final int IF_ACMPEQ = 0xa5;
+    static final int IF_ACMPNE = 0xa6;
+    static final int GOTO = 0xa7;
+    static final int IRETURN = 0xac;
+    static final int RETURN = 0xb1;
+    static final int GETSTATIC = 0xb2;
+    static final int PUTSTATIC = 0xb3;
+    static final int GETFIELD = 0xb4;
+    static final int PUTFIELD = 0xb5;
+    static final int INVOKEVIRTUAL = 0xb6;
+    static final int INVOKESPECIAL = 0xb7;
+    static final int INVOKESTATIC = 0xb8;
+    static final int NEW = 0xbb;
+    static final int ATHROW = 0xbf;
+    static final int WIDE = 0xc4;
+    static final int GOTO_W = 0xc8;
+
+    private static final int MAX_CODE_LENGTH = 0xFFFF;
+
+    static final class Label {
+        private int position = -1;
+        private int stack = -1;
+        // Pairs of (branch instruction offset, offset of its u2 operand) waiting for the position
+        private final List<int[]> pending = new ArrayList<>(2);
+    }
+
+    private final boolean wideJumps;
+    private final ByteVector code = new ByteVector(128);
+    private final ByteVector lineNumbers = new ByteVector(32);
+    private int lineNumberCount;
+    private int lastLine = -1;
+    private int stack;
+    private int maxStack;
+    private int nextLocal;
+    private int maxLocals;
+    private boolean reachable = true;
+    private boolean branchOutOfRange;
+
+    CodeBuilder() {
+        this(false);
+    }
+
+    CodeBuilder(boolean wideJumps) {
+        this.wideJumps = wideJumps;
+    }
+
+    int getStack() {
+        return stack;
+    }
+
+    int getMaxStack() {
+        return maxStack;
+    }
+
+    int getMaxLocals() {
+        return maxLocals;
+    }
+
+    ByteVector getCode() {
+        return code;
+    }
+
+    int getLineNumberCount() {
+        return lineNumberCount;
+    }
+
+    ByteVector getLineNumbers() {
+        return lineNumbers;
+    }
+
+    // True once a branch has spanned more than a short offset can express; the code is then invalid
+    // and must be emitted again with wide jumps
+    boolean hasBranchOutOfRange() {
+        return branchOutOfRange;
+    }
+
+    // False after an unconditional jump or return until a label is placed
+    boolean isReachable() {
+        return reachable;
+    }
+
+    // Reserves size consecutive local variable slots (2 for long and double) and returns the first
+    int newLocal(int size) {
+        int slot = nextLocal;
+        nextLocal += size;
+        maxLocals = Math.max(maxLocals, nextLocal);
+        return slot;
+    }
+
+    // Slots allocated after the mark are free again once their scope ends
+    int markLocals() {
+        return nextLocal;
+    }
+
+    void releaseLocals(int mark) {
+        nextLocal = mark;
+    }
+
+    void line(int line) {
+        if (line != lastLine) {
+            lineNumbers.putShort(code.length()).putShort(line);
+            lineNumberCount++;
+            lastLine = line;
+        }
+    }
+
+    void op(int opcode, int stackEffect) {
+        code.putByte(opcode);
+        adjust(stackEffect);
+        if (opcode == GOTO || opcode >= IRETURN && opcode <= RETURN || opcode == ATHROW) {
+            reachable = false;
+        }
+    }
+
+    void opByte(int opcode, int operand, int stackEffect) {
+        code.putByte(opcode).putByte(operand);
+        adjust(stackEffect);
+    }
+
+    void opShort(int opcode, int operand, int stackEffect) {
+        code.putByte(opcode).putShort(operand);
+        adjust(stackEffect);
+    }
+
+    // A load or store with the short form for slots 0-3 and the wide form past slot 255
+    void local(int opcode, int slot, int stackEffect) {
+        if (slot <= 3) {
+            int base = opcode < ISTORE ? 0x1a + (opcode - ILOAD) * 4 : 0x3b + (opcode - ISTORE) * 4;
+            op(base + slot, stackEffect);
+        } else if (slot <= 0xFF) {
+            opByte(opcode, slot, stackEffect);
+        } else {
+            code.putByte(WIDE);
+            opShort(opcode, slot, stackEffect);
+        }
+    }
+
+    void ldc(int constantIndex, boolean wide) {
+        if (wide) {
+            opShort(LDC2_W, constantIndex, 2);
+        } else if (constantIndex <= 0xFF) {
+            opByte(LDC, constantIndex, 1);
+        } else {
+            opShort(LDC_W, constantIndex, 1);
+        }
+    }
+
+    void jump(int opcode, Label target, int stackEffect) {
+        if (wideJumps && opcode != GOTO) {
+            // The tests pair up as IFEQ and IFNE, IFLT and IFGE, and so on through IF_ACMPNE
+            code.putByte(IFEQ + (opcode - IFEQ ^ 1)).putShort(3 + 5);
+        }
+        int instruction = code.length();
+        code.putByte(wideJumps ? GOTO_W : opcode);
+        adjust(stackEffect);
+        if (target.stack < 0) {
+            target.stack = stack;
+        }
+        int operand = code.length();
+        if (wideJumps) {
+            code.putInt(0);
+        } else {
+            code.putShort(0);
+        }
+        if (target.position >= 0) {
+            setBranchOffset(operand, target.position - instruction);
+        } else {
+            target.pending.add(new int[] {instruction, operand});
+        }
+        if (opcode == GOTO) {
+            reachable = false;
+        }
+    }
+
+    // Places the label at the current offset; code after an unconditional jump continues with the
+    // stack depth of the branches that reach the label
+    void mark(Label label) {
+        label.position = code.length();
+        for (int[] branch : label.pending) {
+            setBranchOffset(branch[1], label.position - branch[0]);
+        }
+        label.pending.clear();
+        if (!reachable && label.stack >= 0) {
+            stack = label.stack;
+        } else if (label.stack < 0) {
+            label.stack = stack;
+        }
+        reachable = true;
+    }
+
+    // Throws when the method has outgrown the class file limits
+    void checkLength() {
+        if (code.length() > MAX_CODE_LENGTH) {
+            throw new IllegalStateException("Method code too large: " + code.length() + " bytes");
+        }
+        if (branchOutOfRange) {
+            throw new IllegalStateException("Method code too large: a branch spans more than "
+                    + Short.MAX_VALUE + " bytes");
+        }
+    }
+
+    private void adjust(int stackEffect) {
+        stack += stackEffect;
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    private void setBranchOffset(int operand, int offset) {
+        if (wideJumps) {
+            code.setInt(operand, offset);
+        } else if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+            branchOutOfRange = true;
+        } else {
+            code.setShort(operand, offset);
+        }
+    }
+}
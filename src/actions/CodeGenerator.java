@@ -0,0 +1,1067 @@
+package actions;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import common.AnalysisResult;
+import common.Diagnostic;
+import common.Phase;
+import common.TokenType;
+import common.ast.AssignmentExpression;
+import common.ast.BinaryExpression;
+import common.ast.Block;
+import common.ast.ClassDeclaration;
+import common.ast.CompilationUnit;
+import common.ast.Expression;
+import common.ast.ExpressionStatement;
+import common.ast.IfStatement;
+import common.ast.MethodDeclaration;
+import common.ast.NameExpression;
+import common.ast.Node;
+import common.ast.Parameter;
+import common.ast.ReturnStatement;
+import common.ast.TreeScanner;
+import common.ast.TypeNode;
+import common.ast.UnaryExpression;
+import common.ast.VariableDeclaration;
+import common.ast.WhileStatement;
+
+// Lowers a unit that passed semantic analysis into class files. Each class declaration becomes a
+// class of its own; the top-level statements become the static run() method of the main class, whose
+// outermost-scope variables are its static fields. print(PrintStream) writes every such variable as
+// "name = value", and main() calls run() and then print(System.out). A long program's run() and
+// print() call run$1, run$2, ... and print$1, print$2, ... in turn, each holding about
+// MAX_CHUNK_LENGTH bytes of code, so no method outgrows the class file limit and each stays small
+// enough for the JIT to compile. What remains limited is one statement's code, at 64 KB, and the
+// number of variables, since each takes constant pool entries and the pool holds 65535. Expressions
+// are emitted from the types and constants the semantic phase recorded on the tree, so nothing is
+// evaluated twice. Every loop iteration checks the thread's interrupt flag, so a runaway program can
+// be stopped.
+public class CodeGenerator {
+
+    // Bump whenever a change alters the generated classes or the diagnostics of this phase
+    public static final int RULES_VERSION = 3;
+
+    public static final String DEFAULT_MAIN_CLASS = "Program";
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final String STRING_BUILDER = "java/lang/StringBuilder";
+    private static final String SYSTEM = "java/lang/System";
+    private static final String PRINT_STREAM = "java/io/PrintStream";
+    private static final String THREAD = "java/lang/Thread";
+    private static final String INTERRUPTED = "java/lang/InterruptedException";
+
+    // Code length at which a chunk of the main class is closed; HotSpot compiles no method longer
+    // than 8000 bytes
+    private static final int MAX_CHUNK_LENGTH = 4000;
+
+    private final String mainClassName;
+    private final String sourceFile;
+
+    public CodeGenerator() {
+        this(DEFAULT_MAIN_CLASS, null);
+    }
+
+    // The source file name is recorded in every class for stack traces; may be null
+    public CodeGenerator(String mainClassName, String sourceFile) {
+        this.mainClassName = mainClassName;
+        this.sourceFile = sourceFile;
+    }
+
+    // The unit must have passed semantic analysis, which typed every expression
+    public AnalysisResult<CompiledProgram> generate(CompilationUnit unit) {
+        if (unit == null || unit.getItems().isEmpty()) {
+            return AnalysisResult.noInput(Phase.GENERATION);
+        }
+
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        CompiledProgram program = null;
+        try {
+            program = new Generation(unit, diagnostics).run();
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            // A method, constant pool or string beyond the class file limits
+            diagnostics.add(Diagnostic.error(Phase.GENERATION, "class-file-limit", unit.getLine(), unit.getColumn(),
+                    e.getMessage()));
+        }
+        final CompiledProgram generated = diagnostics.isEmpty() ? program : null;
+        return new AnalysisResult<>(Phase.GENERATION, generated, diagnostics,
+                analysis -> render(analysis, generated));
+    }
+
+    private static String render(AnalysisResult<CompiledProgram> analysis, CompiledProgram program) {
+        StringBuilder resultText = new StringBuilder();
+        for (Diagnostic diagnostic : analysis.getDiagnostics()) {
+            resultText.append("Error at line ").append(diagnostic.getLine()).append(": ")
+                      .append(diagnostic.getMessage()).append("\n");
+        }
+        if (program != null) {
+            for (Map.Entry<String, byte[]> generated : program.getClasses().entrySet()) {
+                resultText.append("Generated class '").append(generated.getKey()).append("' (")
+                          .append(generated.getValue().length).append(" bytes).\n");
+            }
+        }
+
+        if (!analysis.isSuccessful()) {
+            resultText.append("\nError(s) detected. Code generation failed.");
+        } else {
+            resultText.append("\nCode generation completed successfully.");
+        }
+        return resultText.toString();
+    }
+
+    // State of one generate call
+    private final class Generation {
+        private final CompilationUnit unit;
+        private final List<Diagnostic> diagnostics;
+        private final List<VariableDeclaration> globals = new ArrayList<>();
+
+        Generation(CompilationUnit unit, List<Diagnostic> diagnostics) {
+            this.unit = unit;
+            this.diagnostics = diagnostics;
+        }
+
+        CompiledProgram run() {
+            LinkedHashMap<String, byte[]> classes = new LinkedHashMap<>();
+            collectGlobals();
+            classes.put(mainClassName, mainClass());
+            for (Node item : unit.getItems()) {
+                if (item instanceof ClassDeclaration) {
+                    ClassDeclaration declaration = (ClassDeclaration) item;
+                    if (declaration.getName().equals(mainClassName)) {
+                        error(declaration, "duplicate-class", "Class '" + mainClassName
+                                + "' clashes with the generated main class.");
+                    } else if (classes.containsKey(declaration.getName())) {
+                        error(declaration, "duplicate-class", "Class '" + declaration.getName()
+                                + "' is already defined.");
+                    } else {
+                        classes.put(declaration.getName(), userClass(declaration));
+                    }
+                }
+            }
+            return new CompiledProgram(mainClassName, classes);
+        }
+
+        // The outermost-scope variables, wherever an unbraced if or while body declares them
+        private void collectGlobals() {
+            unit.accept(new TreeScanner() {
+                @Override
+                public Void visitClassDeclaration(ClassDeclaration node) {
+                    return null;
+                }
+
+                @Override
+                public Void visitBlock(Block node) {
+                    return null;
+                }
+
+                @Override
+                public Void visitVariableDeclaration(VariableDeclaration node) {
+                    globals.add(node);
+                    return null;
+                }
+            });
+        }
+
+        private byte[] mainClass() {
+            ClassFileWriter writer = new ClassFileWriter(ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_SUPER,
+                    mainClassName, OBJECT, sourceFile);
+            ConstantPool pool = writer.getPool();
+            for (VariableDeclaration global : globals) {
+                writer.addField(ClassFileWriter.ACC_STATIC, global.getName(), descriptor(global.getType()));
+            }
+            constructor(writer, null);
+
+            List<Node> statements = new ArrayList<>();
+            for (Node item : unit.getItems()) {
+                if (!(item instanceof ClassDeclaration)) {
+                    statements.add(item);
+                }
+            }
+            List<CodeBuilder> runChunks = new ArrayList<>();
+            for (int from = 0; from < statements.size(); ) {
+                CodeBuilder chunk = new CodeBuilder();
+                MethodCompiler compiler = new MethodCompiler(writer, null, true, null, chunk);
+                int to = from;
+                while (to < statements.size() && chunk.getCode().length() < MAX_CHUNK_LENGTH
+                        && !chunk.hasBranchOutOfRange()) {
+                    statements.get(to++).accept(compiler);
+                }
+                if (chunk.hasBranchOutOfRange()) {
+                    // The last statement goes to a chunk of its own, where every jump is wide
+                    if (to - 1 > from) {
+                        runChunks.add(runChunk(writer, statements.subList(from, to - 1), false));
+                    }
+                    runChunks.add(runChunk(writer, statements.subList(to - 1, to), true));
+                } else {
+                    compiler.finish();
+                    runChunks.add(chunk);
+                }
+                from = to;
+            }
+            addChunks(writer, "run", "()V", 0, runChunks);
+
+            String printSignature = "(L" + PRINT_STREAM + ";)V";
+            List<CodeBuilder> printChunks = new ArrayList<>();
+            CodeBuilder print = null;
+            for (VariableDeclaration global : globals) {
+                if (print == null || print.getCode().length() >= MAX_CHUNK_LENGTH) {
+                    print = new CodeBuilder();
+                    print.newLocal(1);
+                    printChunks.add(print);
+                }
+                TypeNode type = global.getType();
+                print.line(global.getLine());
+                print.local(CodeBuilder.ILOAD + 4, 0, 1);
+                print.ldc(pool.string(global.getName() + " = "), false);
+                print.opShort(CodeBuilder.INVOKEVIRTUAL, pool.methodRef(PRINT_STREAM, "print",
+                        "(Ljava/lang/String;)V"), -2);
+                print.local(CodeBuilder.ILOAD + 4, 0, 1);
+                print.opShort(CodeBuilder.GETSTATIC, pool.fieldRef(mainClassName, global.getName(),
+                        descriptor(type)), size(type));
+                print.opShort(CodeBuilder.INVOKEVIRTUAL, pool.methodRef(PRINT_STREAM, "println",
+                        "(" + printDescriptor(type) + ")V"), -1 - size(type));
+            }
+            for (CodeBuilder chunk : printChunks) {
+                chunk.op(CodeBuilder.RETURN, 0);
+            }
+            addChunks(writer, "print", printSignature, 1, printChunks);
+
+            CodeBuilder main = writer.addMethod(ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_STATIC, "main",
+                    "([Ljava/lang/String;)V");
+            main.newLocal(1);
+            main.opShort(CodeBuilder.INVOKESTATIC, pool.methodRef(mainClassName, "run", "()V"), 0);
+            main.opShort(CodeBuilder.GETSTATIC, pool.fieldRef(SYSTEM, "out", "L" + PRINT_STREAM + ";"), 1);
+            main.opShort(CodeBuilder.INVOKESTATIC, pool.methodRef(mainClassName, "print", printSignature), -1);
+            main.op(CodeBuilder.RETURN, 0);
+            return writer.toByteArray();
+        }
+
+        private CodeBuilder runChunk(ClassFileWriter writer, List<Node> statements, boolean wideJumps) {
+            CodeBuilder chunk = new CodeBuilder(wideJumps);
+            MethodCompiler compiler = new MethodCompiler(writer, null, true, null, chunk);
+            for (Node statement : statements) {
+                statement.accept(compiler);
+            }
+            compiler.finish();
+            return chunk;
+        }
+
+        // Adds the one chunk as the named method, or adds the chunks as name$1, name$2, ... and a
+        // method of that name which passes its arguments, all references, to each of them in turn
+        private void addChunks(ClassFileWriter writer, String name, String descriptor, int arguments,
+                               List<CodeBuilder> chunks) {
+            int access = ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_STATIC;
+            if (chunks.size() == 1) {
+                writer.addMethod(access, name, descriptor, chunks.get(0));
+                return;
+            }
+            CodeBuilder calls = writer.addMethod(access, name, descriptor);
+            calls.newLocal(arguments);
+            for (int i = 0; i < chunks.size(); i++) {
+                String chunkName = name + "$" + (i + 1);
+                writer.addMethod(ClassFileWriter.ACC_PRIVATE | ClassFileWriter.ACC_STATIC, chunkName, descriptor,
+                        chunks.get(i));
+                for (int argument = 0; argument < arguments; argument++) {
+                    calls.local(CodeBuilder.ILOAD + 4, argument, 1);
+                }
+                calls.opShort(CodeBuilder.INVOKESTATIC, writer.getPool().methodRef(mainClassName, chunkName,
+                        descriptor), -arguments);
+            }
+            calls.op(CodeBuilder.RETURN, 0);
+        }
+
+        private byte[] userClass(ClassDeclaration declaration) {
+            int access = ClassFileWriter.ACC_SUPER
+                    | (declaration.getModifiers().contains(TokenType.PUBLIC) ? ClassFileWriter.ACC_PUBLIC : 0);
+            ClassFileWriter writer = new ClassFileWriter(access, declaration.getName(), OBJECT, sourceFile);
+
+            List<VariableDeclaration> staticFields = new ArrayList<>();
+            for (Node member : declaration.getMembers()) {
+                if (member instanceof VariableDeclaration) {
+                    VariableDeclaration field = (VariableDeclaration) member;
+                    // Assignments to final variables are not checked, so no field may reject them
+                    writer.addField(memberAccess(field.getModifiers()) & ~ClassFileWriter.ACC_FINAL,
+                            field.getName(), descriptor(field.getType()));
+                    if (isStatic(field.getModifiers()) && field.getInitializer() != null) {
+                        staticFields.add(field);
+                    }
+                }
+            }
+
+            constructor(writer, declaration);
+            if (!staticFields.isEmpty()) {
+                MethodCompiler initializer = new MethodCompiler(writer, declaration, true, null,
+                        writer.addMethod(ClassFileWriter.ACC_STATIC, "<clinit>", "()V"));
+                for (VariableDeclaration field : staticFields) {
+                    initializer.initializeField(field);
+                }
+                initializer.finish();
+            }
+
+            Set<String> signatures = new HashSet<>();
+            for (Node member : declaration.getMembers()) {
+                if (member instanceof MethodDeclaration) {
+                    MethodDeclaration method = (MethodDeclaration) member;
+                    String descriptor = descriptor(method);
+                    if (!signatures.add(method.getName() + descriptor)) {
+                        error(method, "duplicate-method", "Method '" + method.getName() + "' with the same parameter "
+                                + "types is already defined in class '" + declaration.getName() + "'.");
+                        continue;
+                    }
+                    boolean isStatic = isStatic(method.getModifiers());
+                    MethodCompiler compiler = new MethodCompiler(writer, declaration, isStatic,
+                            method.getReturnType().getKeyword() == TokenType.VOID ? null : method.getReturnType(),
+                            writer.addMethod(memberAccess(method.getModifiers()), method.getName(), descriptor));
+                    compiler.method(method);
+                }
+            }
+            return writer.toByteArray();
+        }
+
+        // Calls Object's constructor, then runs the instance field initializers in declaration order
+        private void constructor(ClassFileWriter writer, ClassDeclaration declaration) {
+            int access = declaration == null || declaration.getModifiers().contains(TokenType.PUBLIC)
+                    ? ClassFileWriter.ACC_PUBLIC : 0;
+            MethodCompiler constructor = new MethodCompiler(writer, declaration, false, null,
+                    writer.addMethod(access, "<init>", "()V"));
+            CodeBuilder code = constructor.code;
+            code.local(CodeBuilder.ILOAD + 4, 0, 1);
+            code.opShort(CodeBuilder.INVOKESPECIAL, writer.getPool().methodRef(OBJECT, "<init>", "()V"), -1);
+            if (declaration != null) {
+                for (Node member : declaration.getMembers()) {
+                    if (member instanceof VariableDeclaration && !isStatic(((VariableDeclaration) member).getModifiers())
+                            && ((VariableDeclaration) member).getInitializer() != null) {
+                        constructor.initializeField((VariableDeclaration) member);
+                    }
+                }
+            }
+            constructor.finish();
+        }
+
+        private void error(Node at, String code, String message) {
+            diagnostics.add(Diagnostic.error(Phase.GENERATION, code, at.getLine(), at.getColumn(), message));
+        }
+    }
+
+    // Emits the statements of one method body. Names are resolved through the same scopes as in
+    // semantic analysis: locals and parameters to their slots, fields to the enclosing class, and
+    // the names no scope declares to the main class's static fields.
+    private final class MethodCompiler extends TreeScanner {
+        private final ClassFileWriter writer;
+        private final ConstantPool pool;
+        private final ClassDeclaration owner;
+        private final boolean isStatic;
+        // Null for void
+        private final TypeNode returnType;
+        private final CodeBuilder code;
+        private final SymbolTable table = new SymbolTable();
+        private final Map<Node, Integer> slots = new IdentityHashMap<>();
+
+        MethodCompiler(ClassFileWriter writer, ClassDeclaration owner, boolean isStatic, TypeNode returnType,
+                       CodeBuilder code) {
+            this.writer = writer;
+            this.pool = writer.getPool();
+            this.owner = owner;
+            this.isStatic = isStatic;
+            this.returnType = returnType;
+            this.code = code;
+            if (!isStatic) {
+                code.newLocal(1);  // this
+            }
+            if (owner != null) {
+                table.enterScope();
+                for (Node member : owner.getMembers()) {
+                    if (member instanceof VariableDeclaration) {
+                        VariableDeclaration field = (VariableDeclaration) member;
+                        table.declare(field.getName(), field.getNameId(), SymbolTable.Kind.FIELD,
+                                field.getType(), field);
+                    }
+                }
+            }
+        }
+
+        void method(MethodDeclaration method) {
+            table.enterScope();
+            for (Parameter parameter : method.getParameters()) {
+                table.declare(parameter.getName(), parameter.getNameId(), SymbolTable.Kind.PARAMETER,
+                        parameter.getType(), parameter);
+                slots.put(parameter, code.newLocal(size(parameter.getType())));
+            }
+            scan(method.getBody());
+            finish();
+        }
+
+        void initializeField(VariableDeclaration field) {
+            code.line(field.getLine());
+            if (isStatic(field.getModifiers())) {
+                load(field.getInitializer(), field.getType());
+                code.opShort(CodeBuilder.PUTSTATIC, fieldRef(writer.getName(), field), -size(field.getType()));
+            } else {
+                code.local(CodeBuilder.ILOAD + 4, 0, 1);
+                load(field.getInitializer(), field.getType());
+                code.opShort(CodeBuilder.PUTFIELD, fieldRef(writer.getName(), field), -1 - size(field.getType()));
+            }
+        }
+
+        // A void body may run off its end; semantic analysis rejects any other body that can
+        void finish() {
+            if (code.isReachable() && returnType == null) {
+                code.op(CodeBuilder.RETURN, 0);
+            }
+        }
+
+        @Override
+        public Void visitClassDeclaration(ClassDeclaration node) {
+            return null;
+        }
+
+        @Override
+        public Void visitBlock(Block node) {
+            int mark = code.markLocals();
+            table.enterScope();
+            scanAll(node.getStatements());
+            table.exitScope();
+            code.releaseLocals(mark);
+            return null;
+        }
+
+        // A variable without an initializer starts at its default value, as the verifier requires a
+        // store before every load
+        @Override
+        public Void visitVariableDeclaration(VariableDeclaration node) {
+            code.line(node.getLine());
+            TypeNode type = node.getType();
+            if (node.getInitializer() != null) {
+                load(node.getInitializer(), type);
+            } else if (table.getDepth() == 0) {
+                return null;  // A static field is already at its default value
+            } else {
+                pushDefault(type);
+            }
+            if (table.getDepth() == 0) {
+                code.opShort(CodeBuilder.PUTSTATIC, fieldRef(mainClassName, node), -size(type));
+            } else {
+                table.declare(node.getName(), node.getNameId(), SymbolTable.Kind.LOCAL, type, node);
+                int slot = code.newLocal(size(type));
+                slots.put(node, slot);
+                code.local(CodeBuilder.ISTORE + typeOffset(type), slot, -size(type));
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitExpressionStatement(ExpressionStatement node) {
+            code.line(node.getLine());
+            Expression expression = node.getExpression();
+            if (expression instanceof AssignmentExpression) {
+                assign((AssignmentExpression) expression, false);
+            } else {
+                value(expression);
+                code.op(size(expression.getType()) == 2 ? CodeBuilder.POP + 1 : CodeBuilder.POP,
+                        -size(expression.getType()));
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitIfStatement(IfStatement node) {
+            code.line(node.getLine());
+            CodeBuilder.Label otherwise = new CodeBuilder.Label();
+            branch(node.getCondition(), otherwise, false);
+            node.getThenBranch().accept(this);
+            if (node.getElseBranch() == null) {
+                code.mark(otherwise);
+                return null;
+            }
+            CodeBuilder.Label end = new CodeBuilder.Label();
+            if (code.isReachable()) {
+                code.jump(CodeBuilder.GOTO, end, 0);
+            }
+            code.mark(otherwise);
+            node.getElseBranch().accept(this);
+            code.mark(end);
+            return null;
+        }
+
+        @Override
+        public Void visitWhileStatement(WhileStatement node) {
+            code.line(node.getLine());
+            CodeBuilder.Label top = new CodeBuilder.Label();
+            CodeBuilder.Label end = new CodeBuilder.Label();
+            code.mark(top);
+            pollInterrupt();
+            branch(node.getCondition(), end, false);
+            node.getBody().accept(this);
+            if (code.isReachable()) {
+                code.jump(CodeBuilder.GOTO, top, 0);
+            }
+            code.mark(end);
+            return null;
+        }
+
+        @Override
+        public Void visitReturnStatement(ReturnStatement node) {
+            code.line(node.getLine());
+            if (returnType == null) {
+                code.op(CodeBuilder.RETURN, 0);
+            } else {
+                load(node.getValue(), returnType);
+                code.op(CodeBuilder.IRETURN + typeOffset(returnType), -size(returnType));
+            }
+            return null;
+        }
+
+        // Throws InterruptedException once the running thread has been interrupted
+        private void pollInterrupt() {
+            CodeBuilder.Label running = new CodeBuilder.Label();
+            code.opShort(CodeBuilder.INVOKESTATIC, pool.methodRef(THREAD, "currentThread", "()L" + THREAD + ";"), 1);
+            code.opShort(CodeBuilder.INVOKEVIRTUAL, pool.methodRef(THREAD, "isInterrupted", "()Z"), 0);
+            code.jump(CodeBuilder.IFEQ, running, -1);
+            code.opShort(CodeBuilder.NEW, pool.classRef(INTERRUPTED), 1);
+            code.op(CodeBuilder.DUP, 1);
+            code.opShort(CodeBuilder.INVOKESPECIAL, pool.methodRef(INTERRUPTED, "<init>", "()V"), -1);
+            code.op(CodeBuilder.ATHROW, -1);
+            code.mark(running);
+        }
+
+        // Pushes the value of an expression converted to the given type
+        private void load(Expression expression, TypeNode type) {
+            if (expression.isConstant()) {
+                pushConstant(expression.getConstant(), type);
+                return;
+            }
+            value(expression);
+            convert(expression.getType(), type);
+        }
+
+        // Pushes the value of an expression in its own type
+        private void value(Expression expression) {
+            TypeNode type = expression.getType();
+            if (expression.isConstant()) {
+                pushConstant(expression.getConstant(), type);
+            } else if (expression instanceof NameExpression) {
+                loadName((NameExpression) expression);
+            } else if (expression instanceof AssignmentExpression) {
+                assign((AssignmentExpression) expression, true);
+            } else if (isBoolean(type)) {
+                CodeBuilder.Label isTrue = new CodeBuilder.Label();
+                CodeBuilder.Label end = new CodeBuilder.Label();
+                branch(expression, isTrue, true);
+                pushInt(0);
+                code.jump(CodeBuilder.GOTO, end, 0);
+                code.mark(isTrue);
+                pushInt(1);
+                code.mark(end);
+            } else if (expression instanceof UnaryExpression) {
+                UnaryExpression unary = (UnaryExpression) expression;
+                load(unary.getOperand(), type);
+                if (unary.getOperator() == TokenType.MINUS) {
+                    code.op(CodeBuilder.INEG + typeOffset(type), 0);
+                }
+            } else if (expression instanceof BinaryExpression) {
+                BinaryExpression binary = (BinaryExpression) expression;
+                if (isString(type)) {
+                    concatenate(binary);
+                    return;
+                }
+                applyOperators(binary, type);
+            } else {
+                code.op(CodeBuilder.ACONST_NULL, 1);  // The null literal
+            }
+        }
+
+        // The operators of a left-deep chain computing in one type are applied in a loop, each to the
+        // value the operators before it left on the stack
+        private void applyOperators(BinaryExpression binary, TypeNode type) {
+            List<BinaryExpression> chain = new ArrayList<>();
+            Expression left = binary;
+            while (left instanceof BinaryExpression && !left.isConstant() && left.getType() == type) {
+                chain.add((BinaryExpression) left);
+                left = ((BinaryExpression) left).getLeft();
+            }
+            load(left, type);
+            for (int i = chain.size() - 1; i >= 0; i--) {
+                load(chain.get(i).getRight(), type);
+                code.op(arithmetic(chain.get(i).getOperator()) + typeOffset(type), -size(type));
+            }
+        }
+
+        // Jumps to the target when the condition has the given value, and falls through otherwise
+        private void branch(Expression condition, CodeBuilder.Label target, boolean jumpIfTrue) {
+            if (condition.isConstant()) {
+                if ((Boolean) condition.getConstant() == jumpIfTrue) {
+                    code.jump(CodeBuilder.GOTO, target, 0);
+                }
+                return;
+            }
+            if (condition instanceof UnaryExpression && ((UnaryExpression) condition).getOperator() == TokenType.NOT) {
+                branch(((UnaryExpression) condition).getOperand(), target, !jumpIfTrue);
+                return;
+            }
+            if (condition instanceof BinaryExpression) {
+                BinaryExpression binary = (BinaryExpression) condition;
+                TokenType operator = binary.getOperator();
+                if (operator == TokenType.AND_AND || operator == TokenType.OR_OR) {
+                    // An operand runs only when the ones before it do not decide the result
+                    List<Expression> operands = logicalOperands(binary);
+                    if ((operator == TokenType.OR_OR) == jumpIfTrue) {
+                        for (Expression operand : operands) {
+                            branch(operand, target, jumpIfTrue);
+                        }
+                    } else {
+                        CodeBuilder.Label skip = new CodeBuilder.Label();
+                        for (int i = 0; i < operands.size() - 1; i++) {
+                            branch(operands.get(i), skip, !jumpIfTrue);
+                        }
+                        branch(operands.get(operands.size() - 1), target, jumpIfTrue);
+                        code.mark(skip);
+                    }
+                    return;
+                }
+                if (conditionIndex(operator) >= 0) {
+                    compare(binary, target, jumpIfTrue);
+                    return;
+                }
+            }
+            value(condition);
+            code.jump(jumpIfTrue ? CodeBuilder.IFNE : CodeBuilder.IFEQ, target, -1);
+        }
+
+        private void compare(BinaryExpression comparison, CodeBuilder.Label target, boolean jumpIfTrue) {
+            TokenType operator = jumpIfTrue ? comparison.getOperator() : negate(comparison.getOperator());
+            Expression left = comparison.getLeft();
+            Expression right = comparison.getRight();
+            if (isReference(left.getType())) {
+                value(left);
+                value(right);
+                code.jump(operator == TokenType.EQ ? CodeBuilder.IF_ACMPEQ : CodeBuilder.IF_ACMPNE, target, -2);
+                return;
+            }
+            TypeNode type = promote(left.getType(), right.getType());
+            load(left, type);
+            load(right, type);
+            switch (kind(type)) {
+                case 'J':
+                    code.op(CodeBuilder.LCMP, -3);
+                    break;
+                case 'F':
+                case 'D':
+                    // A comparison with NaN is false, so NaN must jump exactly when the negated test does
+                    boolean nanJumps = jumpIfTrue ? comparison.getOperator() == TokenType.NE
+                            : comparison.getOperator() != TokenType.NE;
+                    boolean lowerOnNaN = operator == TokenType.GT || operator == TokenType.GE ? !nanJumps : nanJumps;
+                    if (kind(type) == 'F') {
+                        code.op(lowerOnNaN ? CodeBuilder.FCMPL : CodeBuilder.FCMPG, -1);
+                    } else {
+                        code.op(lowerOnNaN ? CodeBuilder.DCMPL : CodeBuilder.DCMPG, -3);
+                    }
+                    break;
+                default:
+                    code.jump(CodeBuilder.IF_ICMPEQ + conditionIndex(operator), target, -2);
+                    return;
+            }
+            code.jump(CodeBuilder.IFEQ + conditionIndex(operator), target, -1);
+        }
+
+        // A chain of string concatenations appends every operand to one StringBuilder
+        private void concatenate(BinaryExpression concatenation) {
+            List<Expression> parts = new ArrayList<>();
+            flatten(concatenation, parts);
+            code.opShort(CodeBuilder.NEW, pool.classRef(STRING_BUILDER), 1);
+            code.op(CodeBuilder.DUP, 1);
+            code.opShort(CodeBuilder.INVOKESPECIAL, pool.methodRef(STRING_BUILDER, "<init>", "()V"), -1);
+            for (Expression part : parts) {
+                value(part);
+                code.opShort(CodeBuilder.INVOKEVIRTUAL, pool.methodRef(STRING_BUILDER, "append",
+                        "(" + printDescriptor(part.getType()) + ")L" + STRING_BUILDER + ";"), -size(part.getType()));
+            }
+            code.opShort(CodeBuilder.INVOKEVIRTUAL, pool.methodRef(STRING_BUILDER, "toString",
+                    "()Ljava/lang/String;"), 0);
+        }
+
+        // The operands in order, taken from an explicit stack so that chains of any length fit
+        private void flatten(Expression expression, List<Expression> parts) {
+            Deque<Expression> pending = new ArrayDeque<>();
+            pending.push(expression);
+            while (!pending.isEmpty()) {
+                Expression next = pending.pop();
+                if (next instanceof BinaryExpression && !next.isConstant() && isString(next.getType())) {
+                    pending.push(((BinaryExpression) next).getRight());
+                    pending.push(((BinaryExpression) next).getLeft());
+                } else {
+                    parts.add(next);
+                }
+            }
+        }
+
+        // Stores the value; as an operand, an assignment also leaves the stored value on the stack
+        private void assign(AssignmentExpression assignment, boolean keepValue) {
+            NameExpression target = assignment.getTarget();
+            TypeNode type = target.getType();
+            SymbolTable.Symbol symbol = table.lookup(target.getNameId());
+            if (symbol == null) {
+                load(assignment.getValue(), type);
+                code.opShort(CodeBuilder.PUTSTATIC, pool.fieldRef(mainClassName, target.getName(), descriptor(type)),
+                        -size(type));
+            } else if (symbol.getKind() != SymbolTable.Kind.FIELD) {
+                load(assignment.getValue(), type);
+                code.local(CodeBuilder.ISTORE + typeOffset(type), slots.get(symbol.getDeclaration()), -size(type));
+            } else {
+                VariableDeclaration field = (VariableDeclaration) symbol.getDeclaration();
+                if (isStatic(field.getModifiers())) {
+                    load(assignment.getValue(), type);
+                    code.opShort(CodeBuilder.PUTSTATIC, fieldRef(writer.getName(), field), -size(type));
+                } else {
+                    code.local(CodeBuilder.ILOAD + 4, 0, 1);
+                    load(assignment.getValue(), type);
+                    code.opShort(CodeBuilder.PUTFIELD, fieldRef(writer.getName(), field), -1 - size(type));
+                }
+            }
+            if (keepValue) {
+                loadName(target);
+            }
+        }
+
+        private void loadName(NameExpression name) {
+            TypeNode type = name.getType();
+            SymbolTable.Symbol symbol = table.lookup(name.getNameId());
+            if (symbol == null) {
+                code.opShort(CodeBuilder.GETSTATIC, pool.fieldRef(mainClassName, name.getName(), descriptor(type)),
+                        size(type));
+            } else if (symbol.getKind() != SymbolTable.Kind.FIELD) {
+                code.local(CodeBuilder.ILOAD + typeOffset(type), slots.get(symbol.getDeclaration()), size(type));
+            } else {
+                VariableDeclaration field = (VariableDeclaration) symbol.getDeclaration();
+                if (isStatic(field.getModifiers())) {
+                    code.opShort(CodeBuilder.GETSTATIC, fieldRef(writer.getName(), field), size(type));
+                } else {
+                    code.local(CodeBuilder.ILOAD + 4, 0, 1);
+                    code.opShort(CodeBuilder.GETFIELD, fieldRef(writer.getName(), field), size(type) - 1);
+                }
+            }
+        }
+
+        private int fieldRef(String className, VariableDeclaration field) {
+            return pool.fieldRef(className, field.getName(), descriptor(field.getType()));
+        }
+
+        // Widening primitive conversions; anything narrower than int is already an int on the stack
+        private void convert(TypeNode from, TypeNode to) {
+            char source = kind(from);
+            char target = kind(to);
+            if (source == target || target == 'A') {
+                return;
+            }
+            switch (source) {
+                case 'I':
+                    code.op(target == 'J' ? CodeBuilder.I2L : target == 'F' ? CodeBuilder.I2F : CodeBuilder.I2D,
+                            size(to) - 1);
+                    break;
+                case 'J':
+                    code.op(target == 'F' ? CodeBuilder.L2F : CodeBuilder.L2D, size(to) - 2);
+                    break;
+                default:
+                    code.op(CodeBuilder.F2D, 1);
+                    break;
+            }
+        }
+
+        // Pushes a folded constant as a value of the given type
+        private void pushConstant(Object constant, TypeNode type) {
+            switch (kind(type)) {
+                case 'I':
+                    pushInt(constant instanceof Boolean ? ((Boolean) constant ? 1 : 0) : (int) longValue(constant));
+                    break;
+                case 'J':
+                    long longValue = longValue(constant);
+                    if (longValue == 0 || longValue == 1) {
+                        code.op(CodeBuilder.LCONST_0 + (int) longValue, 2);
+                    } else {
+                        code.ldc(pool.longValue(longValue), true);
+                    }
+                    break;
+                case 'F':
+                    float floatValue = (float) doubleValue(constant);
+                    // Compared by bits, so that -0.0f is loaded from the pool with its sign
+                    if (Float.floatToIntBits(floatValue) == Float.floatToIntBits((float) (int) floatValue)
+                            && floatValue >= 0 && floatValue <= 2) {
+                        code.op(CodeBuilder.FCONST_0 + (int) floatValue, 1);
+                    } else {
+                        code.ldc(pool.floatValue(floatValue), false);
+                    }
+                    break;
+                case 'D':
+                    double doubleValue = doubleValue(constant);
+                    if (Double.doubleToLongBits(doubleValue) == Double.doubleToLongBits(0.0)
+                            || doubleValue == 1.0) {
+                        code.op(CodeBuilder.DCONST_0 + (int) doubleValue, 2);
+                    } else {
+                        code.ldc(pool.doubleValue(doubleValue), true);
+                    }
+                    break;
+                default:
+                    code.ldc(pool.string((String) constant), false);
+                    break;
+            }
+        }
+
+        private void pushDefault(TypeNode type) {
+            switch (kind(type)) {
+                case 'J':
+                    code.op(CodeBuilder.LCONST_0, 2);
+                    break;
+                case 'F':
+                    code.op(CodeBuilder.FCONST_0, 1);
+                    break;
+                case 'D':
+                    code.op(CodeBuilder.DCONST_0, 2);
+                    break;
+                case 'A':
+                    code.op(CodeBuilder.ACONST_NULL, 1);
+                    break;
+                default:
+                    pushInt(0);
+                    break;
+            }
+        }
+
+        private void pushInt(int value) {
+            if (value >= -1 && value <= 5) {
+                code.op(CodeBuilder.ICONST_0 + value, 1);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                code.opByte(CodeBuilder.BIPUSH, value, 1);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                code.opShort(CodeBuilder.SIPUSH, value, 1);
+            } else {
+                code.ldc(pool.integer(value), false);
+            }
+        }
+    }
+
+    private static int memberAccess(List<TokenType> modifiers) {
+        int access = 0;
+        for (TokenType modifier : modifiers) {
+            switch (modifier) {
+                case PUBLIC:
+                    access |= ClassFileWriter.ACC_PUBLIC;
+                    break;
+                case PRIVATE:
+                    access |= ClassFileWriter.ACC_PRIVATE;
+                    break;
+                case PROTECTED:
+                    access |= ClassFileWriter.ACC_PROTECTED;
+                    break;
+                case STATIC:
+                    access |= ClassFileWriter.ACC_STATIC;
+                    break;
+                case FINAL:
+                    access |= ClassFileWriter.ACC_FINAL;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return access;
+    }
+
+    private static boolean isStatic(List<TokenType> modifiers) {
+        return modifiers.contains(TokenType.STATIC);
+    }
+
+    private static String descriptor(MethodDeclaration method) {
+        StringBuilder descriptor = new StringBuilder("(");
+        for (Parameter parameter : method.getParameters()) {
+            descriptor.append(descriptor(parameter.getType()));
+        }
+        return descriptor.append(')').append(descriptor(method.getReturnType())).toString();
+    }
+
+    private static String descriptor(TypeNode type) {
+        StringBuilder descriptor = new StringBuilder();
+        for (int i = 0; i < type.getDimensions(); i++) {
+            descriptor.append('[');
+        }
+        switch (type.getKeyword()) {
+            case BYTE:
+                return descriptor.append('B').toString();
+            case SHORT:
+                return descriptor.append('S').toString();
+            case INT:
+                return descriptor.append('I').toString();
+            case LONG:
+                return descriptor.append('J').toString();
+            case FLOAT:
+                return descriptor.append('F').toString();
+            case DOUBLE:
+                return descriptor.append('D').toString();
+            case BOOLEAN:
+                return descriptor.append('Z').toString();
+            case CHAR:
+                return descriptor.append('C').toString();
+            case VOID:
+                return descriptor.append('V').toString();
+            default:
+                return descriptor.append("Ljava/lang/String;").toString();
+        }
+    }
+
+    // Parameter type of the PrintStream.println and StringBuilder.append overload for a value
+    private static String printDescriptor(TypeNode type) {
+        if (isReference(type)) {
+            return isString(type) ? "Ljava/lang/String;" : "Ljava/lang/Object;";
+        }
+        switch (type.getKeyword()) {
+            case BYTE:
+            case SHORT:
+                return "I";
+            default:
+                return descriptor(type);
+        }
+    }
+
+    // How the JVM holds a value: I (every type up to int, and boolean), J, F, D or A for references
+    private static char kind(TypeNode type) {
+        if (isReference(type)) {
+            return 'A';
+        }
+        switch (type.getKeyword()) {
+            case LONG:
+                return 'J';
+            case FLOAT:
+                return 'F';
+            case DOUBLE:
+                return 'D';
+            default:
+                return 'I';
+        }
+    }
+
+    // Distance from an int instruction to its variant for the type, in the load, store, return and
+    // arithmetic opcode families
+    private static int typeOffset(TypeNode type) {
+        switch (kind(type)) {
+            case 'J':
+                return 1;
+            case 'F':
+                return 2;
+            case 'D':
+                return 3;
+            case 'A':
+                return 4;
+            default:
+                return 0;
+        }
+    }
+
+    private static int size(TypeNode type) {
+        char kind = kind(type);
+        return kind == 'J' || kind == 'D' ? 2 : 1;
+    }
+
+    // Binary numeric promotion of two operand types
+    private static TypeNode promote(TypeNode left, TypeNode right) {
+        char a = kind(left);
+        char b = kind(right);
+        if (a == 'D' || b == 'D') {
+            return ExpressionTyper.DOUBLE;
+        }
+        if (a == 'F' || b == 'F') {
+            return ExpressionTyper.FLOAT;
+        }
+        return a == 'J' || b == 'J' ? ExpressionTyper.LONG : ExpressionTyper.INT;
+    }
+
+    private static int arithmetic(TokenType operator) {
+        switch (operator) {
+            case PLUS:
+                return CodeBuilder.IADD;
+            case MINUS:
+                return CodeBuilder.ISUB;
+            case STAR:
+                return CodeBuilder.IMUL;
+            case SLASH:
+                return CodeBuilder.IDIV;
+            default:
+                return CodeBuilder.IREM;
+        }
+    }
+
+    // The operands of a left-deep chain of one logical operator, in order
+    static List<Expression> logicalOperands(BinaryExpression chain) {
+        List<Expression> operands = new ArrayList<>();
+        Expression left = chain;
+        while (left instanceof BinaryExpression && !left.isConstant()
+                && ((BinaryExpression) left).getOperator() == chain.getOperator()) {
+            operands.add(((BinaryExpression) left).getRight());
+            left = ((BinaryExpression) left).getLeft();
+        }
+        operands.add(left);
+        Collections.reverse(operands);
+        return operands;
+    }
+
+    // Position of a comparison in the order of IFEQ, IFNE, IFLT, IFGE, IFGT, IFLE; -1 for other operators
+    private static int conditionIndex(TokenType operator) {
+        switch (operator) {
+            case EQ:
+                return 0;
+            case NE:
+                return 1;
+            case LT:
+                return 2;
+            case GE:
+                return 3;
+            case GT:
+                return 4;
+            case LE:
+                return 5;
+            default:
+                return -1;
+        }
+    }
+
+    private static TokenType negate(TokenType comparison) {
+        switch (comparison) {
+            case EQ:
+                return TokenType.NE;
+            case NE:
+                return TokenType.EQ;
+            case LT:
+                return TokenType.GE;
+            case GE:
+                return TokenType.LT;
+            case GT:
+                return TokenType.LE;
+            default:
+                return TokenType.GT;
+        }
+    }
+
+    private static boolean isReference(TypeNode type) {
+        return type == ExpressionTyper.NULL || type.getDimensions() > 0 || type.getKeyword() == TokenType.STRING;
+    }
+
+    private static boolean isString(TypeNode type) {
+        return type.getDimensions() == 0 && type.getKeyword() == TokenType.STRING;
+    }
+
+    private static boolean isBoolean(TypeNode type) {
+        return type.getDimensions() == 0 && type.getKeyword() == TokenType.BOOLEAN;
+    }
+
+    private static long longValue(Object constant) {
+        return constant instanceof Character ? (Character) constant : ((Number) constant).longValue();
+    }
+
+    private static double doubleValue(Object constant) {
+        return constant instanceof Character ? (Character) constant : ((Number) constant).doubleValue();
+    }
+}
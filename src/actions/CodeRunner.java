@@ -1,73 +1,142 @@
-package actions;
-
-import ui.EditorPage;
-
-public class CodeRunner {
-
-    private final String code;
-    private final EditorPage editorPage;
-    public CodeRunner(String code, EditorPage editorPage) {
-        this.code = code;
-        this.editorPage = editorPage;
-    }
-
-    public String execute() {
-        if (code == null || code.trim().isEmpty()) {
-            return "No code to run.";
-        }
-
-        StringBuilder resultText = new StringBuilder("Running the code...\n\n");
-
-        // Perform Lexical Analysis
-        LexicalAnalyzer lexicalAnalyzer = new LexicalAnalyzer(code);
-        String lexicalResult = lexicalAnalyzer.analyze();
-        resultText.append("Lexical Analysis Result:\n").append(lexicalResult).append("\n");
-
-
-        if (lexicalResult.contains("Lexical analysis failed")) {
-            resultText.append("\nAborting execution due to lexical errors.\n");
-
-            editorPage.getLexicalAnalysisButton().setEnabled(true);
-            editorPage.getSyntaxAnalysisButton().setEnabled(false);
-            editorPage.getSemanticAnalysisButton().setEnabled(false);
-            return resultText.toString();
-
-        } else {
-            editorPage.getLexicalAnalysisButton().setEnabled(true);
-            editorPage.getSyntaxAnalysisButton().setEnabled(true);
-            editorPage.getSemanticAnalysisButton().setEnabled(true);
-        }
-        
-        // Perform Syntax Analysis
-        SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer();
-        String syntaxResult = syntaxAnalyzer.performSyntaxAnalysis(code);
-        resultText.append("Syntax Analysis Result:\n").append(syntaxResult).append("\n");
-
-        if (syntaxResult.contains("Syntax error(s)") || syntaxResult.contains("Failed")) {
-            resultText.append("\nAborting execution due to syntax errors.\n");
-
-            editorPage.getLexicalAnalysisButton().setEnabled(true); // Enable Lexical Analysis button
-            editorPage.getSyntaxAnalysisButton().setEnabled(true); // Enable Lexical Analysis button
-            editorPage.getSemanticAnalysisButton().setEnabled(false); // Disable Semantic Analysis button
-            return resultText.toString();
-        } else {
-            editorPage.getSemanticAnalysisButton().setEnabled(true);
-        }
-
-        // Perform Semantic Analysis
-        SemanticAnalyzer semanticAnalyzer = new SemanticAnalyzer(code);
-        String semanticResult = semanticAnalyzer.analyze();
-        resultText.append("Semantic Analysis Result:\n").append(semanticResult).append("\n");
-
-        if (semanticResult.contains("Error(s) detected")) {
-            resultText.append("\nAborting execution due to semantic errors.\n");
-
-            editorPage.getLexicalAnalysisButton().setEnabled(true);
-            editorPage.getSyntaxAnalysisButton().setEnabled(true);
-            editorPage.getSemanticAnalysisButton().setEnabled(true);
-        } else {
-            resultText.append("\nCode execution simulated. All analyses are complete.");
-        }
-        return resultText.toString();
-    }
-}
\ No newline at end of file
+package actions;
+
+import java.util.List;
+
+import common.AnalysisResult;
+import common.Phase;
+import common.Token;
+import common.ast.CompilationUnit;
+
+public class CodeRunner {
+
+    public interface ProgressListener {
+        void phaseStarted(Phase phase);
+    }
+
+    private final CharSequence code;
+    private final PipelineCache cache;
+    private final String mainClassName;
+    private final String sourceFile;
+
+    public CodeRunner(CharSequence code) {
+        this(code, null);
+    }
+
+    // With a cache, phases already run on the same code are served from it
+    public CodeRunner(CharSequence code, PipelineCache cache) {
+        this(code, cache, CodeGenerator.DEFAULT_MAIN_CLASS, null);
+    }
+
+    // The top-level statements are compiled into the named main class; the source file name, if
+    // known, is recorded in the generated classes
+    public CodeRunner(CharSequence code, PipelineCache cache, String mainClassName, String sourceFile) {
+        this.code = code;
+        this.cache = cache;
+        this.mainClassName = mainClassName;
+        this.sourceFile = sourceFile;
+    }
+
+    public RunResult execute() {
+        return execute(phase -> { });
+    }
+
+    // Background callers are notified before each phase and may cancel by interrupting the thread
+    public RunResult execute(ProgressListener listener) {
+        return execute(listener, null);
+    }
+
+    // With a runner, a program that compiles is also run in this JVM; in the runner's interpret mode
+    // a program that passes semantic analysis is run without generating code at all
+    public RunResult execute(ProgressListener listener, ProgramRunner runner) {
+        return execute(listener, runner, null);
+    }
+
+    // With metrics, every phase is measured as a stage named after it, and the size of the source,
+    // the number of tokens and the number of diagnostics are counted
+    public RunResult execute(ProgressListener listener, ProgramRunner runner, PhaseMetrics metrics) {
+        if (metrics == null) {
+            return run(listener, runner);
+        }
+        RunResult result;
+        try {
+            result = run(phase -> {
+                metrics.start(phase.getDisplayName().toLowerCase());
+                listener.phaseStarted(phase);
+            }, runner);
+        } finally {
+            metrics.stop();
+        }
+        metrics.count("characters", code == null ? 0 : code.length());
+        if (result.getLexical() != null && result.getLexical().getPayload() != null) {
+            metrics.count("tokens", result.getLexical().getPayload().size());
+        }
+        metrics.count("diagnostics", result.getDiagnostics().size());
+        return result;
+    }
+
+    private RunResult run(ProgressListener listener, ProgramRunner runner) {
+        if (code == null || isBlank(code)) {
+            return new RunResult(null, null, null, null, null);
+        }
+
+        long key = cache == null ? 0 : ContentHash.of(code);
+
+        // Perform Lexical Analysis; the token stream is shared with the later phases, and the parser
+        // passes over the unknown tokens, so lexical errors do not stop the analysis
+        listener.phaseStarted(Phase.LEXICAL);
+        AnalysisResult<List<Token>> lexicalResult =
+                cache == null ? new LexicalAnalyzer().analyze(code) : cache.lexical(key, code);
+
+        // Perform Syntax Analysis; the parser recovers from errors and keeps every statement that parsed
+        Cancellation.checkpoint();
+        listener.phaseStarted(Phase.SYNTAX);
+        AnalysisResult<CompilationUnit> syntaxResult = cache == null
+                ? new SyntaxAnalyzer().performSyntaxAnalysis(lexicalResult.getPayload()) : cache.syntax(key, code);
+        if (syntaxResult.getPayload() == null || syntaxResult.getPayload().getItems().isEmpty()) {
+            return new RunResult(lexicalResult, syntaxResult, null, null, null);
+        }
+
+        // Perform Semantic Analysis on the statements that parsed, so one run reports the errors of
+        // every phase; nothing is generated or run unless all three passed
+        Cancellation.checkpoint();
+        listener.phaseStarted(Phase.SEMANTIC);
+        AnalysisResult<CompilationUnit> semanticResult = cache == null
+                ? new SemanticAnalyzer().analyze(syntaxResult.getPayload()) : cache.semantic(key, code);
+        RunResult checked = new RunResult(lexicalResult, syntaxResult, semanticResult, null, null);
+        if (!checked.isChecked()) {
+            return checked;
+        }
+
+        // Evaluate the checked tree directly
+        if (runner != null && runner.getMode() == ProgramRunner.Mode.INTERPRET) {
+            Cancellation.checkpoint();
+            listener.phaseStarted(Phase.EXECUTION);
+            AnalysisResult<ProgramOutput> executionResult = runner.interpret(semanticResult.getPayload());
+            return new RunResult(lexicalResult, syntaxResult, semanticResult, null, executionResult);
+        }
+
+        // Generate the class files from the checked tree
+        Cancellation.checkpoint();
+        listener.phaseStarted(Phase.GENERATION);
+        AnalysisResult<CompiledProgram> generationResult =
+                new CodeGenerator(mainClassName, sourceFile).generate(semanticResult.getPayload());
+        if (runner == null || !generationResult.isSuccessful()) {
+            return new RunResult(lexicalResult, syntaxResult, semanticResult, generationResult, null);
+        }
+
+        // Run the program from its in-memory classes
+        Cancellation.checkpoint();
+        listener.phaseStarted(Phase.EXECUTION);
+        AnalysisResult<ProgramOutput> executionResult = runner.run(generationResult.getPayload());
+        return new RunResult(lexicalResult, syntaxResult, semanticResult, generationResult, executionResult);
+    }
+
+    private static boolean isBlank(CharSequence code) {
+        for (int i = 0; i < code.length(); i++) {
+            if (!Character.isWhitespace(code.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
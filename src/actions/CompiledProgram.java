@@ -0,0 +1,45 @@
+package actions;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// The class files generated for one source, keyed by class name in generation order; the main
+// class holds the top-level statements and comes first
+public class CompiledProgram {
+
+    private final String mainClassName;
+    private final Map<String, byte[]> classes;
+
+    CompiledProgram(String mainClassName, LinkedHashMap<String, byte[]> classes) {
+        this.mainClassName = mainClassName;
+        this.classes = Collections.unmodifiableMap(classes);
+    }
+
+    public String getMainClassName() {
+        return mainClassName;
+    }
+
+    public Map<String, byte[]> getClasses() {
+        return classes;
+    }
+
+    public long getTotalBytes() {
+        long total = 0;
+        for (byte[] bytes : classes.values()) {
+            total += bytes.length;
+        }
+        return total;
+    }
+
+    // Writes Name.class for every class into the directory, creating it when needed
+    public void writeTo(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            Files.write(directory.resolve(entry.getKey() + ".class"), entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package actions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Builds a class file constant pool. Each constant is encoded once, when first requested, and later
+// requests return the index of that entry; longs and doubles take two indices as the format requires.
+final class ConstantPool {
+
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int FLOAT = 4;
+    private static final int LONG = 5;
+    private static final int DOUBLE = 6;
+    private static final int CLASS = 7;
+    private static final int STRING = 8;
+    private static final int FIELD_REF = 9;
+    private static final int METHOD_REF = 10;
+    private static final int NAME_AND_TYPE = 12;
+
+    private static final int MAX_ENTRIES = 0xFFFF;
+
+    private final ByteVector entries = new ByteVector(256);
+    private final Map<String, Integer> indices = new HashMap<>();
+    private int nextIndex = 1;
+
+    int utf8(String value) {
+        String key = "U" + value;
+        Integer index = indices.get(key);
+        if (index == null) {
+            index = add(key, 1);
+            entries.putByte(UTF8).putUtf8(value);
+        }
+        return index;
+    }
+
+    int classRef(String internalName) {
+        String key = "C" + internalName;
+        Integer index = indices.get(key);
+        if (index == null) {
+            int name = utf8(internalName);
+            index = add(key, 1);
+            entries.putByte(CLASS).putShort(name);
+        }
+        return index;
+    }
+
+    int string(String value) {
+        String key = "S" + value;
+        Integer index = indices.get(key);
+        if (index == null) {
+            int utf8 = utf8(value);
+            index = add(key, 1);
+            entries.putByte(STRING).putShort(utf8);
+        }
+        return index;
+    }
+
+    int integer(int value) {
+        String key = "I" + value;
+        Integer index = indices.get(key);
+        if (index == null) {
+            index = add(key, 1);
+            entries.putByte(INTEGER).putInt(value);
+        }
+        return index;
+    }
+
+    // Keyed by bit pattern, so -0.0f and NaN payloads stay distinct
+    int floatValue(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        String key = "F" + bits;
+        Integer index = indices.get(key);
+        if (index == null) {
+            index = add(key, 1);
+            entries.putByte(FLOAT).putInt(bits);
+        }
+        return index;
+    }
+
+    int longValue(long value) {
+        String key = "J" + value;
+        Integer index = indices.get(key);
+        if (index == null) {
+            index = add(key, 2);
+            entries.putByte(LONG).putLong(value);
+        }
+        return index;
+    }
+
+    int doubleValue(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        String key = "D" + bits;
+        Integer index = indices.get(key);
+        if (index == null) {
+            index = add(key, 2);
+            entries.putByte(DOUBLE).putLong(bits);
+        }
+        return index;
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return memberRef(FIELD_REF, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return memberRef(METHOD_REF, owner, name, descriptor);
+    }
+
+    // Number of indices in use plus one, as the constant_pool_count item expects
+    int count() {
+        return nextIndex;
+    }
+
+    void writeTo(ByteVector out) {
+        out.putShort(nextIndex).putBytes(entries);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        String key = (char) ('0' + tag) + owner + '.' + name + ':' + descriptor;
+        Integer index = indices.get(key);
+        if (index == null) {
+            int ownerIndex = classRef(owner);
+            int nameAndType = nameAndType(name, descriptor);
+            index = add(key, 1);
+            entries.putByte(tag).putShort(ownerIndex).putShort(nameAndType);
+        }
+        return index;
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        String key = "N" + name + ':' + descriptor;
+        Integer index = indices.get(key);
+        if (index == null) {
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            index = add(key, 1);
+            entries.putByte(NAME_AND_TYPE).putShort(nameIndex).putShort(descriptorIndex);
+        }
+        return index;
+    }
+
+    private int add(String key, int slots) {
+        if (nextIndex + slots > MAX_ENTRIES) {
+            throw new IllegalStateException("Too many constants: the constant pool is limited to "
+                    + (MAX_ENTRIES - 1) + " entries");
+        }
+        int index = nextIndex;
+        nextIndex += slots;
+        indices.put(key, index);
+        return index;
+    }
+}
@@ -0,0 +1,28 @@
+package actions;
+
+// 64-bit FNV-1a over the UTF-16 code units of a text, mixed with its length. Used as the cache key
+// for analysis results: equal texts always share a key, and different texts almost never do. Almost
+// is not never, so ResultCache keeps the text with each result and compares it on a hit, and
+// DiskCache checks a SHA-256 digest instead.
+public final class ContentHash {
+
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private ContentHash() {
+    }
+
+    public static long of(CharSequence text) {
+        long hash = OFFSET_BASIS;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ text.charAt(i)) * PRIME;
+        }
+        hash ^= length;
+        // Final avalanche so nearby texts differ in the high bits as well
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
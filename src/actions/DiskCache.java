@@ -0,0 +1,235 @@
+package actions;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import common.Diagnostic;
+import common.Phase;
+import common.Severity;
+
+// Persists the outcome of analyzing each file across runs. One binary entry per source path holds
+// the analyzer version and the SHA-256 digest of the content it was computed for, so an entry is
+// only served while both the file and the analysis rules are unchanged; the digest stands in for
+// the text, which is not stored. Entries are written to a temporary file and moved into place, so
+// concurrent workers and interrupted runs never leave a half-written entry. The cache is best
+// effort: unreadable or stale entries count as misses and are overwritten.
+public class DiskCache {
+
+    public static final long DEFAULT_MAX_BYTES = 256L << 20;
+
+    // Changes whenever any phase's rules change
+    public static final long ANALYZER_VERSION = ((long) LexicalAnalyzer.RULES_VERSION << 32)
+            ^ ((long) SyntaxAnalyzer.RULES_VERSION << 16) ^ SemanticAnalyzer.RULES_VERSION
+            ^ ((long) CodeGenerator.RULES_VERSION << 48);
+
+    private static final int MAGIC = 0x4D4A4343;    // "MJCC"
+    // Bump when the entry layout or the Phase/Severity ordinals change
+    private static final int FORMAT_VERSION = 3;
+    private static final String ENTRY_SUFFIX = ".bin";
+    private static final int NO_PHASE = -1;
+    private static final int DIGEST_LENGTH = 32;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public DiskCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+    }
+
+    // Returns the stored result for this file content, or null on a miss
+    public FileResult lookup(Path source, CharSequence content) {
+        Path entry = entryFor(source);
+        if (!Files.isRegularFile(entry)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+            FileResult result = readEntry(in, source, content);
+            if (result == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            // Recently used entries survive trimming longest
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            hits.incrementAndGet();
+            return result;
+        } catch (IOException | RuntimeException ex) {
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    public void store(Path source, CharSequence content, FileResult result) {
+        if (result.getReadError() != null) {
+            return;
+        }
+        Path temporary = null;
+        try {
+            temporary = Files.createTempFile(directory, "entry", ".tmp");
+            try (OutputStream stream = Files.newOutputStream(temporary);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+                writeEntry(out, source, content, result);
+            }
+            try {
+                Files.move(temporary, entryFor(source), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temporary, entryFor(source), StandardCopyOption.REPLACE_EXISTING);
+            }
+            temporary = null;
+        } catch (IOException ex) {
+            // A result that cannot be cached is simply recomputed next time
+        } finally {
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ex) {
+                    // Left for the next trim
+                }
+            }
+        }
+    }
+
+    // Deletes the least recently used entries until the cache fits its size cap
+    public void trim() throws IOException {
+        final List<Path> entries = new ArrayList<>();
+        final List<BasicFileAttributes> attributes = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                BasicFileAttributes attribute = Files.readAttributes(path, BasicFileAttributes.class);
+                if (name.endsWith(".tmp")) {
+                    // Stale leftovers of interrupted runs
+                    if (attribute.lastModifiedTime().toMillis() < System.currentTimeMillis() - 3_600_000L) {
+                        Files.deleteIfExists(path);
+                    }
+                } else if (name.endsWith(ENTRY_SUFFIX)) {
+                    entries.add(path);
+                    attributes.add(attribute);
+                    total += attribute.size();
+                }
+            }
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            order.add(i);
+        }
+        Collections.sort(order, (a, b) -> attributes.get(a).lastModifiedTime()
+                .compareTo(attributes.get(b).lastModifiedTime()));
+        for (int i = 0; i < order.size() && total > maxBytes; i++) {
+            int index = order.get(i);
+            Files.deleteIfExists(entries.get(index));
+            total -= attributes.get(index).size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private Path entryFor(Path source) {
+        String key = source.toAbsolutePath().normalize().toString();
+        return directory.resolve(String.format("%016x", ContentHash.of(key)) + ENTRY_SUFFIX);
+    }
+
+    private static void writeEntry(DataOutputStream out, Path source, CharSequence content, FileResult result)
+            throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(ANALYZER_VERSION);
+        out.writeUTF(source.toAbsolutePath().normalize().toString());
+        out.write(digest(content));
+        out.writeByte(result.getFailedPhase() == null ? NO_PHASE : result.getFailedPhase().ordinal());
+        out.writeInt(result.getDiagnostics().size());
+        for (Diagnostic diagnostic : result.getDiagnostics()) {
+            out.writeByte(diagnostic.getPhase().ordinal());
+            out.writeByte(diagnostic.getSeverity().ordinal());
+            out.writeUTF(diagnostic.getCode());
+            out.writeInt(diagnostic.getLine());
+            out.writeInt(diagnostic.getColumn());
+            out.writeUTF(diagnostic.getMessage());
+        }
+    }
+
+    // Null when the entry belongs to another format, analyzer version, path or content
+    private static FileResult readEntry(DataInputStream in, Path source, CharSequence content) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || in.readLong() != ANALYZER_VERSION
+                || !in.readUTF().equals(source.toAbsolutePath().normalize().toString())) {
+            return null;
+        }
+        byte[] stored = new byte[DIGEST_LENGTH];
+        in.readFully(stored);
+        if (!MessageDigest.isEqual(stored, digest(content))) {
+            return null;
+        }
+        int failedPhase = in.readByte();
+        int count = in.readInt();
+        List<Diagnostic> diagnostics = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Phase phase = Phase.values()[in.readByte()];
+            Severity severity = Severity.values()[in.readByte()];
+            String code = in.readUTF();
+            int line = in.readInt();
+            int column = in.readInt();
+            diagnostics.add(new Diagnostic(phase, severity, code, line, column, in.readUTF()));
+        }
+        return new FileResult(source, diagnostics, failedPhase == NO_PHASE ? null : Phase.values()[failedPhase], null);
+    }
+
+    // SHA-256 of the content's UTF-16 code units, hashed as they are so that unpaired surrogates,
+    // which an encoding would replace, still tell texts apart
+    private static byte[] digest(CharSequence content) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);  // Every JVM supports SHA-256
+        }
+        byte[] buffer = new byte[8192];
+        int i = 0;
+        while (i < content.length()) {
+            int count = 0;
+            for (; i < content.length() && count < buffer.length; i++) {
+                char c = content.charAt(i);
+                buffer[count++] = (byte) (c >>> 8);
+                buffer[count++] = (byte) c;
+            }
+            digest.update(buffer, 0, count);
+        }
+        return digest.digest();
+    }
+}
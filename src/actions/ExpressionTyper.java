@@ -0,0 +1,580 @@
+package actions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import common.Diagnostic;
+import common.Phase;
+import common.TokenType;
+import common.ast.AssignmentExpression;
+import common.ast.AstPrinter;
+import common.ast.BinaryExpression;
+import common.ast.Expression;
+import common.ast.Literal;
+import common.ast.NameExpression;
+import common.ast.Node;
+import common.ast.TypeNode;
+import common.ast.UnaryExpression;
+
+// Infers the static type of every expression bottom-up and folds the subexpressions built from
+// literals only, recording both on the nodes (Expression.getType and getConstant) so that later
+// stages read them instead of evaluating again. A name that no inner scope declares waits for the
+// outermost-scope variables: the operators above it stay untyped while the unit is checked, and
+// linking types exactly those operators once the name is known. Every operator is therefore typed
+// and reported once, whether a unit is linked alone or in pieces.
+final class ExpressionTyper {
+
+    interface Scope {
+        // Declared type of the name, or null when it must wait for linking
+        TypeNode resolve(NameExpression name);
+    }
+
+    static final TypeNode BOOLEAN = builtIn(TokenType.BOOLEAN);
+    static final TypeNode CHAR = builtIn(TokenType.CHAR);
+    static final TypeNode INT = builtIn(TokenType.INT);
+    static final TypeNode LONG = builtIn(TokenType.LONG);
+    static final TypeNode FLOAT = builtIn(TokenType.FLOAT);
+    static final TypeNode DOUBLE = builtIn(TokenType.DOUBLE);
+    static final TypeNode STRING = builtIn(TokenType.STRING);
+    static final TypeNode NULL = builtIn(TokenType.NULL);
+
+    private final boolean linking;
+    private final Scope scope;
+    private final SemanticAnalyzer.Globals globals;
+    private final List<Diagnostic> errors;
+    private Set<NameExpression> pending;
+    private int quiet;
+
+    private ExpressionTyper(boolean linking, Scope scope, SemanticAnalyzer.Globals globals, Set<NameExpression> pending,
+                            List<Diagnostic> errors) {
+        this.linking = linking;
+        this.scope = scope;
+        this.globals = globals;
+        this.pending = pending;
+        this.errors = errors;
+    }
+
+    // Types expressions while their unit is checked; errors go to the given list
+    static ExpressionTyper forUnit(Scope scope, List<Diagnostic> errors) {
+        return new ExpressionTyper(false, scope, null, null, errors);
+    }
+
+    // Completes an expression whose pending names are now resolved against the outermost-scope variables
+    static ExpressionTyper forLink(SemanticAnalyzer.Globals globals, Set<NameExpression> pending,
+                                   List<Diagnostic> errors) {
+        return new ExpressionTyper(true, null, globals, pending, errors);
+    }
+
+    // The names the expressions typed since the last call left for linking
+    Set<NameExpression> takePending() {
+        Set<NameExpression> names = pending == null ? Collections.<NameExpression>emptySet() : pending;
+        pending = null;
+        return names;
+    }
+
+    // Types an expression; returns true when some of it waits for linking
+    boolean attribute(Expression expression) {
+        if (expression instanceof Literal) {
+            return attributeLiteral((Literal) expression, false);
+        }
+        if (expression instanceof NameExpression) {
+            return attributeName((NameExpression) expression);
+        }
+        if (expression instanceof UnaryExpression) {
+            return attributeUnary((UnaryExpression) expression);
+        }
+        if (expression instanceof BinaryExpression) {
+            return attributeBinary((BinaryExpression) expression);
+        }
+        return attributeAssignment((AssignmentExpression) expression);
+    }
+
+    // Types a value that checkValue will judge. A literal under signs is judged by LiteralChecker as a
+    // whole, so its own errors are not reported twice.
+    boolean attributeValue(Expression value) {
+        if (!isLiteralChain(value)) {
+            return attribute(value);
+        }
+        quiet++;
+        try {
+            return attribute(value);
+        } finally {
+            quiet--;
+        }
+    }
+
+    // The error for storing value in a variable of the given type, or null when it fits
+    static Diagnostic checkValue(String targetName, TypeNode targetType, Expression value, Node at) {
+        if (isLiteralChain(value)) {
+            return checkLiteral(targetType, value, at);
+        }
+        TypeNode valueType = value.getType();
+        if (valueType == null || isAssignable(targetType, valueType, value.getConstant())) {
+            return null;
+        }
+        return Diagnostic.error(Phase.SEMANTIC, "type-mismatch", at.getLine(), at.getColumn(),
+                "Type mismatch: cannot assign '" + AstPrinter.print(value) + "' of type '" + valueType.getName()
+                        + "' to '" + targetName + "' of type '" + targetType.getName() + "'.");
+    }
+
+    // The error for an if or while condition that is not a boolean, or null when it is one
+    static Diagnostic checkCondition(Expression condition) {
+        TypeNode type = condition.getType();
+        if (type == null || isBoolean(type)) {
+            return null;
+        }
+        return Diagnostic.error(Phase.SEMANTIC, "type-mismatch", condition.getLine(), condition.getColumn(),
+                "Type mismatch: condition '" + AstPrinter.print(condition) + "' of type '" + type.getName()
+                        + "' is not a boolean.");
+    }
+
+    private static Diagnostic checkLiteral(TypeNode targetType, Expression value, Node at) {
+        LiteralChecker.Verdict verdict = LiteralChecker.check(targetType, value);
+        if (verdict == LiteralChecker.Verdict.VALID) {
+            return null;
+        }
+        String dataType = targetType.getName();
+        String text = AstPrinter.print(value);
+        String code;
+        String message;
+        switch (verdict) {
+            case UNKNOWN_TYPE:
+                code = "unknown-type";
+                message = "Unknown data type: " + dataType;
+                break;
+            case OUT_OF_RANGE:
+                code = "type-mismatch";
+                message = "Type mismatch: '" + text + "' is out of range for " + dataType + ".";
+                break;
+            case MALFORMED:
+                code = "invalid-literal";
+                message = "Invalid literal: '" + text + "' is not a well-formed " + dataType + " value.";
+                break;
+            default:
+                code = "type-mismatch";
+                message = "Type mismatch: '" + text + "' is not a valid " + dataType + ".";
+                break;
+        }
+        return Diagnostic.error(Phase.SEMANTIC, code, at.getLine(), at.getColumn(), message);
+    }
+
+    // While checking, a node above a pending name stays untyped; while linking, a node above none
+    // was already typed and reported when its unit was checked
+    private boolean skip(Expression node, boolean dependent) {
+        if (dependent == linking) {
+            return false;
+        }
+        if (!linking) {
+            node.setAttributes(null, null);
+        }
+        return true;
+    }
+
+    private boolean attributeLiteral(Literal node, boolean directlyNegated) {
+        if (linking) {
+            return false;
+        }
+        TypeNode type = literalType(node);
+        Object constant = node.getKind() == TokenType.NULL ? null : LiteralChecker.valueOf(node, directlyNegated);
+        if (constant == null && node.getKind() != TokenType.NULL) {
+            LiteralChecker.Verdict verdict = LiteralChecker.check(type, node);
+            report(node, "invalid-literal", "Invalid literal: '" + node.getText() + "' is "
+                    + (verdict == LiteralChecker.Verdict.MALFORMED ? "not a well-formed " : "out of range for ")
+                    + type.getName() + ".");
+        }
+        node.setAttributes(type, constant);
+        return false;
+    }
+
+    private boolean attributeName(NameExpression node) {
+        if (linking) {
+            if (!pending.contains(node)) {
+                return false;
+            }
+            node.setAttributes(globals.lookup(node.getNameId()), null);
+            return true;
+        }
+        TypeNode type = scope.resolve(node);
+        node.setAttributes(type, null);
+        if (type != null) {
+            return false;
+        }
+        if (pending == null) {
+            pending = Collections.newSetFromMap(new IdentityHashMap<NameExpression, Boolean>());
+        }
+        pending.add(node);
+        return true;
+    }
+
+    private boolean attributeUnary(UnaryExpression node) {
+        Expression operand = node.getOperand();
+        boolean dependent = node.getOperator() == TokenType.MINUS && operand instanceof Literal
+                ? attributeLiteral((Literal) operand, true) : attribute(operand);
+        if (skip(node, dependent)) {
+            return dependent;
+        }
+        TypeNode operandType = operand.getType();
+        if (operandType == null) {
+            node.setAttributes(null, null);
+            return dependent;
+        }
+
+        TypeNode type;
+        Object constant = null;
+        if (node.getOperator() == TokenType.NOT) {
+            type = isBoolean(operandType) ? BOOLEAN : null;
+            if (type != null && operand.isConstant()) {
+                constant = !(Boolean) operand.getConstant();
+            }
+        } else {
+            type = isNumeric(operandType) ? promote(rank(operandType)) : null;
+            if (type != null && operand.isConstant()) {
+                constant = node.getOperator() == TokenType.MINUS ? negate(type, operand.getConstant())
+                        : convert(type, operand.getConstant());
+            }
+        }
+        if (type == null) {
+            report(node, "bad-operand-types", "Bad operand type '" + operandType.getName()
+                    + "' for unary operator '" + node.getOperator().getText() + "'.");
+        }
+        node.setAttributes(type, constant);
+        return dependent;
+    }
+
+    // A left-deep chain of operators is typed in a loop from its innermost operator outwards, so
+    // its length is not limited by the stack
+    private boolean attributeBinary(BinaryExpression node) {
+        List<BinaryExpression> chain = new ArrayList<>();
+        Expression left = node;
+        while (left instanceof BinaryExpression) {
+            chain.add((BinaryExpression) left);
+            left = ((BinaryExpression) left).getLeft();
+        }
+        boolean dependent = attribute(left);
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            BinaryExpression operation = chain.get(i);
+            dependent |= attribute(operation.getRight());
+            attributeOperator(operation, dependent);
+        }
+        return dependent;
+    }
+
+    private void attributeOperator(BinaryExpression node, boolean dependent) {
+        if (skip(node, dependent)) {
+            return;
+        }
+        TypeNode left = node.getLeft().getType();
+        TypeNode right = node.getRight().getType();
+        if (left == null || right == null) {
+            node.setAttributes(null, null);
+            return;
+        }
+
+        TypeNode type = binaryType(node.getOperator(), left, right);
+        if (type == null) {
+            report(node, "bad-operand-types", "Bad operand types for binary operator '"
+                    + node.getOperator().getText() + "': '" + left.getName() + "' and '" + right.getName() + "'.");
+        }
+        Object constant = null;
+        if (type != null && node.getLeft().isConstant() && node.getRight().isConstant()) {
+            constant = fold(node.getOperator(), type, left, right, node.getLeft().getConstant(),
+                    node.getRight().getConstant());
+        }
+        node.setAttributes(type, constant);
+    }
+
+    private boolean attributeAssignment(AssignmentExpression node) {
+        boolean dependent = attributeName(node.getTarget()) | attributeValue(node.getValue());
+        if (skip(node, dependent)) {
+            return dependent;
+        }
+        TypeNode targetType = node.getTarget().getType();
+        node.setAttributes(targetType, null);
+        if (targetType != null) {
+            Diagnostic diagnostic = checkValue(node.getTarget().getName(), targetType, node.getValue(), node);
+            if (diagnostic != null) {
+                errors.add(diagnostic);
+            }
+        }
+        return dependent;
+    }
+
+    private void report(Node at, String code, String message) {
+        if (quiet == 0) {
+            errors.add(Diagnostic.error(Phase.SEMANTIC, code, at.getLine(), at.getColumn(), message));
+        }
+    }
+
+    private static TypeNode binaryType(TokenType operator, TypeNode left, TypeNode right) {
+        switch (operator) {
+            case PLUS:
+                if (isString(left) || isString(right)) {
+                    return STRING;
+                }
+                return isNumeric(left) && isNumeric(right) ? promote(Math.max(rank(left), rank(right))) : null;
+            case MINUS:
+            case STAR:
+            case SLASH:
+            case PERCENT:
+                return isNumeric(left) && isNumeric(right) ? promote(Math.max(rank(left), rank(right))) : null;
+            case LT:
+            case LE:
+            case GT:
+            case GE:
+                return isNumeric(left) && isNumeric(right) ? BOOLEAN : null;
+            case EQ:
+            case NE:
+                return isNumeric(left) && isNumeric(right) || isBoolean(left) && isBoolean(right)
+                        || isComparableReference(left, right) ? BOOLEAN : null;
+            case AND_AND:
+            case OR_OR:
+                return isBoolean(left) && isBoolean(right) ? BOOLEAN : null;
+            default:
+                return null;
+        }
+    }
+
+    // Evaluates an operator over two constants in its promoted type. Integer division by zero is
+    // left unfolded, to fail when it runs as Java does.
+    private static Object fold(TokenType operator, TypeNode type, TypeNode leftType, TypeNode rightType,
+                               Object left, Object right) {
+        if (type == STRING) {
+            return String.valueOf(left) + right;
+        }
+        if (operator == TokenType.AND_AND || operator == TokenType.OR_OR) {
+            boolean a = (Boolean) left;
+            boolean b = (Boolean) right;
+            return operator == TokenType.AND_AND ? a && b : a || b;
+        }
+        if (isBoolean(leftType)) {
+            return operator == TokenType.EQ ? left.equals(right) : !left.equals(right);
+        }
+        if (!isNumeric(leftType) || !isNumeric(rightType)) {
+            return null;
+        }
+        // Comparisons are evaluated in the promoted type of the operands
+        TypeNode operandType = type == BOOLEAN ? promote(Math.max(rank(leftType), rank(rightType))) : type;
+        if (operandType == INT || operandType == LONG) {
+            long a = longValue(left);
+            long b = longValue(right);
+            boolean isInt = operandType == INT;
+            switch (operator) {
+                case PLUS:
+                    return integral(isInt, a + b);
+                case MINUS:
+                    return integral(isInt, a - b);
+                case STAR:
+                    return integral(isInt, a * b);
+                case SLASH:
+                    return b == 0 ? null : integral(isInt, isInt ? (int) a / (int) b : a / b);
+                case PERCENT:
+                    return b == 0 ? null : integral(isInt, isInt ? (int) a % (int) b : a % b);
+                default:
+                    return compare(operator, Long.compare(a, b), false);
+            }
+        }
+        double a = doubleValue(left);
+        double b = doubleValue(right);
+        boolean isFloat = operandType == FLOAT;
+        switch (operator) {
+            case PLUS:
+                return floating(isFloat, isFloat ? (float) a + (float) b : a + b);
+            case MINUS:
+                return floating(isFloat, isFloat ? (float) a - (float) b : a - b);
+            case STAR:
+                return floating(isFloat, isFloat ? (float) a * (float) b : a * b);
+            case SLASH:
+                return floating(isFloat, isFloat ? (float) a / (float) b : a / b);
+            case PERCENT:
+                return floating(isFloat, isFloat ? (float) a % (float) b : a % b);
+            default:
+                // NaN compares false with everything, and unequal to itself
+                return compare(operator, a < b ? -1 : a > b ? 1 : 0, Double.isNaN(a) || Double.isNaN(b));
+        }
+    }
+
+    private static Boolean compare(TokenType operator, int order, boolean unordered) {
+        switch (operator) {
+            case LT:
+                return !unordered && order < 0;
+            case LE:
+                return !unordered && order <= 0;
+            case GT:
+                return !unordered && order > 0;
+            case GE:
+                return !unordered && order >= 0;
+            case EQ:
+                return !unordered && order == 0;
+            default:
+                return unordered || order != 0;
+        }
+    }
+
+    private static Object integral(boolean isInt, long value) {
+        return isInt ? (Object) (int) value : (Object) value;
+    }
+
+    private static Object floating(boolean isFloat, double value) {
+        return isFloat ? (Object) (float) value : (Object) value;
+    }
+
+    private static Object negate(TypeNode type, Object constant) {
+        if (type == INT || type == LONG) {
+            return integral(type == INT, -longValue(constant));
+        }
+        return floating(type == FLOAT, -doubleValue(constant));
+    }
+
+    private static Object convert(TypeNode type, Object constant) {
+        if (type == INT || type == LONG) {
+            return integral(type == INT, longValue(constant));
+        }
+        return floating(type == FLOAT, doubleValue(constant));
+    }
+
+    private static long longValue(Object constant) {
+        return constant instanceof Character ? (Character) constant : ((Number) constant).longValue();
+    }
+
+    private static double doubleValue(Object constant) {
+        return constant instanceof Character ? (Character) constant : ((Number) constant).doubleValue();
+    }
+
+    // Identical types, a widening primitive conversion, null into a reference type, or an int
+    // constant that fits a narrower integral type. As with single literals, a double constant may
+    // initialize a float when it is within the float range.
+    private static boolean isAssignable(TypeNode target, TypeNode source, Object constant) {
+        if (source == NULL) {
+            return target.getDimensions() > 0 || isString(target);
+        }
+        if (isAssignable(target, source)) {
+            return true;
+        }
+        if (constant == null || target.getDimensions() > 0) {
+            return false;
+        }
+        if (rank(source) >= 0 && rank(source) <= rank(INT) && rank(target) >= 0 && rank(target) < rank(INT)) {
+            long value = longValue(constant);
+            switch (target.getKeyword()) {
+                case BYTE:
+                    return value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE;
+                case SHORT:
+                    return value >= Short.MIN_VALUE && value <= Short.MAX_VALUE;
+                default:
+                    return value >= Character.MIN_VALUE && value <= Character.MAX_VALUE;
+            }
+        }
+        if (source.getKeyword() == TokenType.DOUBLE && target.getKeyword() == TokenType.FLOAT) {
+            double value = doubleValue(constant);
+            return !Float.isInfinite((float) value) || Double.isInfinite(value);
+        }
+        return false;
+    }
+
+    // Identical types, or a widening primitive conversion
+    static boolean isAssignable(TypeNode target, TypeNode source) {
+        if (target.getDimensions() != source.getDimensions()) {
+            return false;
+        }
+        if (target.getKeyword() == source.getKeyword()) {
+            return true;
+        }
+        if (target.getDimensions() > 0) {
+            return false;
+        }
+        return rank(source) >= 0 && rank(target) > rank(source) && target.getKeyword() != TokenType.CHAR;
+    }
+
+    // Position in byte < short < int < long < float < double, with char entering at short's place;
+    // -1 for types that are not numeric
+    private static int rank(TypeNode type) {
+        if (type.getDimensions() > 0) {
+            return -1;
+        }
+        switch (type.getKeyword()) {
+            case BYTE:
+                return 0;
+            case SHORT:
+            case CHAR:
+                return 1;
+            case INT:
+                return 2;
+            case LONG:
+                return 3;
+            case FLOAT:
+                return 4;
+            case DOUBLE:
+                return 5;
+            default:
+                return -1;
+        }
+    }
+
+    // Binary numeric promotion: anything narrower than int computes as int
+    private static TypeNode promote(int rank) {
+        switch (rank) {
+            case 3:
+                return LONG;
+            case 4:
+                return FLOAT;
+            case 5:
+                return DOUBLE;
+            default:
+                return INT;
+        }
+    }
+
+    private static boolean isNumeric(TypeNode type) {
+        return rank(type) >= 0;
+    }
+
+    private static boolean isBoolean(TypeNode type) {
+        return type.getDimensions() == 0 && type.getKeyword() == TokenType.BOOLEAN;
+    }
+
+    private static boolean isString(TypeNode type) {
+        return type.getDimensions() == 0 && type.getKeyword() == TokenType.STRING;
+    }
+
+    private static boolean isComparableReference(TypeNode left, TypeNode right) {
+        boolean leftReference = left == NULL || isString(left) || left.getDimensions() > 0;
+        boolean rightReference = right == NULL || isString(right) || right.getDimensions() > 0;
+        return leftReference && rightReference
+                && (left == NULL || right == NULL || isAssignable(left, right) || isAssignable(right, left));
+    }
+
+    private static TypeNode literalType(Literal literal) {
+        String text = literal.getText();
+        char suffix = text.isEmpty() ? 0 : text.charAt(text.length() - 1);
+        switch (literal.getKind()) {
+            case INTEGER_LITERAL:
+                return suffix == 'l' || suffix == 'L' ? LONG : INT;
+            case FLOATING_LITERAL:
+                return suffix == 'f' || suffix == 'F' ? FLOAT : DOUBLE;
+            case CHAR_LITERAL:
+                return CHAR;
+            case STRING_LITERAL:
+                return STRING;
+            case TRUE:
+            case FALSE:
+                return BOOLEAN;
+            default:
+                return NULL;
+        }
+    }
+
+    // A literal under any number of unary operators
+    private static boolean isLiteralChain(Expression value) {
+        while (value instanceof UnaryExpression) {
+            value = ((UnaryExpression) value).getOperand();
+        }
+        return value instanceof Literal;
+    }
+
+    private static TypeNode builtIn(TokenType keyword) {
+        return new TypeNode(keyword, 0, 0, 0, 0, 0);
+    }
+}
@@ -1,8 +1,6 @@
 package actions;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 
 import javax.swing.JFileChooser;
@@ -12,6 +10,7 @@ import ui.EditorPage;
 public class FileLoader {
 
     private EditorPage editorPage;
+    private final SourceReader sourceReader = new SourceReader();
 
     public FileLoader(EditorPage editorPage) {
         this.editorPage = editorPage;
@@ -22,17 +21,14 @@ public class FileLoader {
         int result = fileChooser.showOpenDialog(editorPage);
         if (result == JFileChooser.APPROVE_OPTION) {
             File currentFile = fileChooser.getSelectedFile();
-            try (BufferedReader reader = new BufferedReader(new FileReader(currentFile))) {
-                editorPage.getCodeTextArea().setText("");
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    editorPage.getCodeTextArea().append(line + "\n");
-                }
-                editorPage.getResultTextArea().setText(currentFile.getName() + " opened successfully.\n");
+            try {
+                CharSequence source = sourceReader.read(currentFile.toPath());
+                editorPage.loadSource(source);
+                editorPage.getResultPane().setText(currentFile.getName() + " opened successfully.\n");
                 editorPage.getLexicalAnalysisButton().setEnabled(true);
             } catch (IOException ex) {
-                editorPage.getResultTextArea().setText("Error reading file: " + ex.getMessage());
+                editorPage.getResultPane().setText("Error reading file: " + ex.getMessage());
             }
         }
     }
-}
\ No newline at end of file
+}
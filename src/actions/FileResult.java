@@ -0,0 +1,61 @@
+package actions;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import common.Diagnostic;
+import common.Phase;
+
+// Compact per-file outcome of a batch run; sources, tokens and trees are not retained
+public class FileResult {
+
+    private final Path source;
+    private final List<Diagnostic> diagnostics;
+    private final Phase failedPhase;
+    private final String readError;
+    private final String irDump;
+    private final PhaseMetrics metrics;
+
+    public FileResult(Path source, List<Diagnostic> diagnostics, Phase failedPhase, String readError) {
+        this(source, diagnostics, failedPhase, readError, null, null);
+    }
+
+    // irDump and metrics are set only when BatchCompiler.Options asked for them
+    public FileResult(Path source, List<Diagnostic> diagnostics, Phase failedPhase, String readError, String irDump,
+                      PhaseMetrics metrics) {
+        this.source = source;
+        this.diagnostics = diagnostics;
+        this.failedPhase = failedPhase;
+        this.readError = readError;
+        this.irDump = irDump;
+        this.metrics = metrics;
+    }
+
+    public Path getSource() {
+        return source;
+    }
+
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    // Null when every phase passed
+    public Phase getFailedPhase() {
+        return failedPhase;
+    }
+
+    // Null unless the file could not be read
+    public String getReadError() {
+        return readError;
+    }
+
+    // Null unless the intermediate code was requested and the file passed semantic analysis
+    public String getIrDump() {
+        return irDump;
+    }
+
+    // Null unless metrics were requested
+    public PhaseMetrics getMetrics() {
+        return metrics;
+    }
+}
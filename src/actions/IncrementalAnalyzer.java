@@ -0,0 +1,326 @@
+package actions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import common.Diagnostic;
+import common.IdentifierPool;
+import common.Phase;
+import common.Token;
+import common.TokenType;
+import common.ast.CompilationUnit;
+import common.ast.Node;
+
+// Keeps the document as a list of segments, each holding one or more whole top-level items that
+// start at the beginning of a line, together with their tree, diagnostics and semantic summary
+// relative to the segment. An edit re-lexes, re-parses and re-checks only the segments it touches
+// (plus the one before, whose last statement may absorb a following 'else'); every other segment
+// is reused as is. An analyzer is not thread-safe; the editor confines each one to a single
+// background thread. Names are interned into a pool of the analyzer's own. Words typed and deleted
+// again stay in it, so once it has doubled since the last full analysis the whole document is
+// analyzed again into a fresh pool, which bounds it by the document's own names.
+public class IncrementalAnalyzer {
+
+    private static class Segment {
+        final String text;
+        final int lineCount;
+        final CompilationUnit unit;
+        final List<Diagnostic> diagnostics;
+        final SemanticAnalyzer.CheckedUnit checked;
+        final int lineShift;
+        final boolean cleanEnd;
+        final boolean startsWithElse;
+        // What the last getDiagnostics found linking the segment, reused while it still holds
+        SemanticAnalyzer.LinkedUnit linked;
+
+        Segment(String text, CompilationUnit unit, List<Diagnostic> diagnostics, SemanticAnalyzer.CheckedUnit checked,
+                int lineShift, boolean cleanEnd, boolean startsWithElse) {
+            this.text = text;
+            this.lineCount = countLines(text);
+            this.unit = unit;
+            this.diagnostics = diagnostics;
+            this.checked = checked;
+            this.lineShift = lineShift;
+            this.cleanEnd = cleanEnd;
+            this.startsWithElse = startsWithElse;
+        }
+    }
+
+    // Bound on the re-analyzed regions kept for reuse, e.g. when an edit is undone or retyped
+    private static final long REGION_CACHE_BYTES = 8L << 20;
+    private static final long BYTES_PER_CHAR = 40;
+    private static final int MIN_POOL_WORDS = 1 << 14;
+
+    private final List<Segment> segments = new ArrayList<>();
+    private final ResultCache<List<Segment>> regionCache = new ResultCache<>(REGION_CACHE_BYTES);
+    private IdentifierPool pool;
+    // Pool size at which the document is analyzed again into a fresh pool
+    private int poolLimit;
+    private int lastReanalyzedChars;
+    private int lastReusedSegments;
+    private int lastRelinkedSegments;
+
+    public IncrementalAnalyzer() {
+        reset("");
+    }
+
+    // Analyzes the whole text into a fresh pool; the cached regions belong to the old one
+    public void reset(CharSequence text) {
+        pool = new IdentifierPool();
+        regionCache.clear();
+        segments.clear();
+        segments.addAll(analyzeCached(text.toString()));
+        poolLimit = Math.max(MIN_POOL_WORDS, pool.size() * 2);
+        lastReanalyzedChars = text.length();
+        lastReusedSegments = 0;
+    }
+
+    // Applies a document change: removedLength characters at offset were replaced by insertedText
+    public void edit(int offset, int removedLength, String insertedText) {
+        int first = 0;
+        int firstStart = 0;
+        while (first + 1 < segments.size() && firstStart + segments.get(first).text.length() <= offset) {
+            firstStart += segments.get(first++).text.length();
+        }
+        int last = first;
+        int lastEnd = firstStart + segments.get(last).text.length();
+        while (last + 1 < segments.size() && lastEnd <= offset + removedLength) {
+            lastEnd += segments.get(++last).text.length();
+        }
+        if (first > 0) {
+            firstStart -= segments.get(--first).text.length();
+        }
+
+        StringBuilder region = new StringBuilder();
+        for (int i = first; i <= last; i++) {
+            region.append(segments.get(i).text);
+        }
+        region.replace(offset - firstStart, offset - firstStart + removedLength, insertedText);
+
+        List<Segment> replacement = analyzeCached(region.toString());
+        // Grow the region while its end is not a clean segment boundary
+        while (last + 1 < segments.size() && !endsCleanly(replacement, segments.get(last + 1))) {
+            last++;
+            region.append(segments.get(last).text);
+            replacement = analyzeCached(region.toString());
+        }
+
+        segments.subList(first, last + 1).clear();
+        segments.addAll(first, replacement);
+        lastReanalyzedChars = region.length();
+        lastReusedSegments = segments.size() - replacement.size();
+        if (pool.size() > poolLimit) {
+            reset(getText());
+        }
+    }
+
+    public String getText() {
+        StringBuilder text = new StringBuilder();
+        for (Segment segment : segments) {
+            text.append(segment.text);
+        }
+        return text.toString();
+    }
+
+    // Words in the pool the document is analyzed with
+    public int getPoolSize() {
+        return pool.size();
+    }
+
+    // Segments are checked on their own; names one segment leaves unresolved are linked against the
+    // variables the segments before it declare, which needs no tree walks. A segment is linked again
+    // only when it is new or one of the names it reads from the segments before it has changed.
+    public List<Diagnostic> getDiagnostics() {
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        SemanticAnalyzer.Globals globals = new SemanticAnalyzer.Globals();
+        lastRelinkedSegments = 0;
+        int lineOffset = 0;
+        for (Segment segment : segments) {
+            for (Diagnostic diagnostic : segment.diagnostics) {
+                diagnostics.add(shift(diagnostic, lineOffset));
+            }
+            if (segment.checked != null) {
+                SemanticAnalyzer.LinkedUnit linked = SemanticAnalyzer.link(segment.checked, globals, segment.linked);
+                if (linked != segment.linked) {
+                    segment.linked = linked;
+                    lastRelinkedSegments++;
+                }
+                for (SemanticAnalyzer.Finding finding : linked.findings) {
+                    diagnostics.add(shift(finding.diagnostic, lineOffset + segment.lineShift));
+                }
+            }
+            lineOffset += segment.lineCount;
+        }
+        sortByPosition(diagnostics);
+        return diagnostics;
+    }
+
+    // Trees of the top-level items, with offsets and lines relative to their segment
+    public List<CompilationUnit> getSegmentTrees() {
+        List<CompilationUnit> trees = new ArrayList<>();
+        for (Segment segment : segments) {
+            trees.add(segment.unit);
+        }
+        return trees;
+    }
+
+    // Hit and miss counts of the region cache, keyed by the content hash of the re-analyzed text
+    public ResultCache<?> getCache() {
+        return regionCache;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public int getLastReanalyzedChars() {
+        return lastReanalyzedChars;
+    }
+
+    public int getLastReusedSegments() {
+        return lastReusedSegments;
+    }
+
+    // Segments the last getDiagnostics had to link again rather than reuse
+    public int getLastRelinkedSegments() {
+        return lastRelinkedSegments;
+    }
+
+    // The new region ends on a real boundary when its last item parsed cleanly, so no error
+    // recovery could have continued into the next segment, and the next segment does not start
+    // with an 'else' that belongs to it
+    private static boolean endsCleanly(List<Segment> replacement, Segment next) {
+        return replacement.get(replacement.size() - 1).cleanEnd && !next.startsWithElse;
+    }
+
+    // errorsBefore[line] is the number of lexical and syntax errors on the lines before it
+    private static int[] countSyntaxErrorsByLine(List<Diagnostic> diagnostics, int lines) {
+        int[] errorsBefore = new int[lines + 1];
+        for (Diagnostic diagnostic : diagnostics) {
+            if (diagnostic.getPhase() != Phase.SEMANTIC) {
+                errorsBefore[Math.min(diagnostic.getLine(), lines - 1) + 1]++;
+            }
+        }
+        for (int line = 1; line <= lines; line++) {
+            errorsBefore[line] += errorsBefore[line - 1];
+        }
+        return errorsBefore;
+    }
+
+    private List<Segment> analyzeCached(String text) {
+        long key = ContentHash.of(text);
+        List<Segment> result = regionCache.get(key, text);
+        if (result == null) {
+            result = analyzeRegion(text);
+            regionCache.put(key, text, result, text.length() * BYTES_PER_CHAR);
+        }
+        return result;
+    }
+
+    private List<Segment> analyzeRegion(String text) {
+        Lexer lexer = new Lexer(text, pool);
+        List<Token> tokens = lexer.tokenize();
+        Parser parser = new Parser(tokens);
+        CompilationUnit unit = parser.parse();
+
+        List<Diagnostic> diagnostics = new ArrayList<>(lexer.getDiagnostics());
+        diagnostics.addAll(parser.getDiagnostics());
+        sortByPosition(diagnostics);
+
+        // Split before an item that starts on a fresh line when the item before it parsed without
+        // lexical or syntax errors and no block comment reaches into that line
+        int lines = countLines(text) + 1;
+        int[] errorsBefore = countSyntaxErrorsByLine(diagnostics, lines + 1);
+        List<Integer> boundaries = new ArrayList<>();
+        List<Integer> boundaryLines = new ArrayList<>();
+        List<List<Node>> groups = new ArrayList<>();
+        boundaries.add(0);
+        boundaryLines.add(1);
+        groups.add(new ArrayList<>());
+        Node previous = null;
+        int nextComment = text.indexOf("/*");
+        for (Node item : unit.getItems()) {
+            if (previous != null) {
+                if (nextComment >= 0 && nextComment < previous.getEnd()) {
+                    nextComment = text.indexOf("/*", previous.getEnd());
+                }
+                int lineStart = text.lastIndexOf('\n', item.getStart() - 1) + 1;
+                boolean canSplit = lineStart > previous.getEnd()
+                        && (nextComment < 0 || nextComment >= item.getStart())
+                        && errorsBefore[item.getLine() + 1] == errorsBefore[previous.getLine()];
+                if (canSplit) {
+                    boundaries.add(lineStart);
+                    boundaryLines.add(item.getLine());
+                    groups.add(new ArrayList<>());
+                }
+            }
+            groups.get(groups.size() - 1).add(item);
+            previous = item;
+        }
+
+        List<Segment> result = new ArrayList<>();
+        int diagnosticIndex = 0;
+        for (int i = 0; i < boundaries.size(); i++) {
+            int start = boundaries.get(i);
+            int end = i + 1 < boundaries.size() ? boundaries.get(i + 1) : text.length();
+            int firstLine = boundaryLines.get(i);
+            int nextLine = i + 1 < boundaries.size() ? boundaryLines.get(i + 1) : lines + 1;
+            List<Node> items = groups.get(i);
+            int lastItemLine = items.isEmpty() ? firstLine : items.get(items.size() - 1).getLine();
+            boolean cleanEnd = errorsBefore[nextLine] == errorsBefore[lastItemLine];
+
+            List<Diagnostic> segmentDiagnostics = new ArrayList<>();
+            while (diagnosticIndex < diagnostics.size()
+                    && (diagnostics.get(diagnosticIndex).getLine() < nextLine || i + 1 == boundaries.size())) {
+                segmentDiagnostics.add(shift(diagnostics.get(diagnosticIndex++), 1 - firstLine));
+            }
+            String segmentText = text.substring(start, end);
+            CompilationUnit segmentUnit = new CompilationUnit(items, 0, segmentText.length());
+            SemanticAnalyzer.CheckedUnit checked = null;
+            if (!items.isEmpty()) {
+                checked = SemanticAnalyzer.check(segmentUnit);
+                for (SemanticAnalyzer.Finding finding : checked.findings) {
+                    segmentDiagnostics.add(shift(finding.diagnostic, 1 - firstLine));
+                }
+                sortByPosition(segmentDiagnostics);
+            }
+            result.add(new Segment(segmentText, segmentUnit, segmentDiagnostics, checked, 1 - firstLine, cleanEnd,
+                    startsWithElse(segmentText)));
+        }
+        return result;
+    }
+
+    private static void sortByPosition(List<Diagnostic> diagnostics) {
+        Collections.sort(diagnostics, (a, b) -> a.getLine() != b.getLine()
+                ? Integer.compare(a.getLine(), b.getLine()) : Integer.compare(a.getColumn(), b.getColumn()));
+    }
+
+    private static boolean startsWithElse(String text) {
+        int i = 0;
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        int end = i + TokenType.ELSE.getText().length();
+        return text.startsWith(TokenType.ELSE.getText(), i)
+                && (end == text.length() || !Character.isJavaIdentifierPart(text.charAt(end)));
+    }
+
+    private static Diagnostic shift(Diagnostic diagnostic, int lines) {
+        if (lines == 0) {
+            return diagnostic;
+        }
+        return new Diagnostic(diagnostic.getPhase(), diagnostic.getSeverity(), diagnostic.getCode(),
+                diagnostic.getLine() + lines, diagnostic.getColumn(), diagnostic.getMessage());
+    }
+
+    private static int countLines(String text) {
+        int lines = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+}
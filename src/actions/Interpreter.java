@@ -0,0 +1,208 @@
+package actions;
+
+import java.io.PrintStream;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import actions.ThreeAddressCode.Instruction;
+import actions.ThreeAddressCode.Printed;
+import common.ast.CompilationUnit;
+
+// Runs the top-level statements of a checked unit without generating bytecode. The unit is
+// translated into ThreeAddressCode, optimized, and assembled into fixed-width instructions over
+// three register files, long[] for int, long, char, boolean, byte and short values, double[] for
+// float and double, and Object[] for strings and arrays, so running them involves no name lookups
+// and no boxing. The output matches the main class CodeGenerator builds for the same unit: nothing
+// during the run, then every outermost-scope variable as "name = value".
+final class Interpreter {
+
+    // Class name shown in the stack frame of a failure, as for the compiled main class
+    static final String PROGRAM_NAME = CodeGenerator.DEFAULT_MAIN_CLASS;
+
+    // Every instruction is an opcode and three operands: a destination register and two sources, or
+    // a jump target, which is the x operand of a JUMP and the z operand of a conditional jump
+    private static final int WIDTH = 4;
+    private static final int MAX_OPTIMIZED_INSTRUCTIONS = 1 << 16;
+
+    private final int[] code;
+    private final int[] lines;
+    // Initial register contents: the constants, and zero or null everywhere else
+    private final long[] longTemplate;
+    private final double[] doubleTemplate;
+    private final Object[] referenceTemplate;
+    private final List<Printed> printed;
+
+    Interpreter(ThreeAddressCode program) {
+        Map<Instruction, Integer> positions = new IdentityHashMap<>();
+        int position = 0;
+        for (Instruction instruction : program.instructions) {
+            if (instruction.opcode == ThreeAddressCode.LABEL) {
+                positions.put(instruction, position);
+            } else {
+                position += WIDTH;
+            }
+        }
+        code = new int[position];
+        lines = new int[position / WIDTH];
+        int at = 0;
+        for (Instruction instruction : program.instructions) {
+            if (instruction.opcode == ThreeAddressCode.LABEL) {
+                continue;
+            }
+            code[at] = instruction.opcode;
+            code[at + 1] = instruction.x;
+            code[at + 2] = instruction.y;
+            code[at + 3] = instruction.z;
+            if (instruction.isBranch()) {
+                code[at + (instruction.opcode == ThreeAddressCode.JUMP ? 1 : 3)] = positions.get(instruction.target);
+            }
+            lines[at / WIDTH] = instruction.line;
+            at += WIDTH;
+        }
+        longTemplate = program.longs.longTemplate();
+        doubleTemplate = program.doubles.doubleTemplate();
+        referenceTemplate = program.references.referenceTemplate();
+        printed = program.printed;
+    }
+
+    // The unit must have passed semantic analysis, which typed every expression. A program too long
+    // to be a snippet runs as translated, since optimizing it would delay its start by about as long
+    // as the passes could save.
+    static Interpreter compile(CompilationUnit unit) {
+        ThreeAddressCode program = ThreeAddressTranslator.translate(unit);
+        if (program.size() <= MAX_OPTIMIZED_INSTRUCTIONS) {
+            new Optimizer().optimize(program);
+        }
+        return new Interpreter(program);
+    }
+
+    // Runs the statements on fresh registers, then prints the variables
+    void run(PrintStream out) throws InterruptedException {
+        long[] longs = longTemplate.clone();
+        double[] doubles = doubleTemplate.clone();
+        Object[] references = referenceTemplate.clone();
+        execute(longs, doubles, references);
+        for (Printed variable : printed) {
+            out.print(variable.name + " = ");
+            // Each kind has its own register file, so only the long kinds read the long registers
+            switch (variable.kind) {
+                case 'I':
+                    out.println((int) longs[variable.register]);
+                    break;
+                case 'C':
+                    out.println((char) longs[variable.register]);
+                    break;
+                case 'Z':
+                    out.println(longs[variable.register] != 0);
+                    break;
+                case 'J':
+                    out.println(longs[variable.register]);
+                    break;
+                case 'F':
+                    out.println((float) doubles[variable.register]);
+                    break;
+                case 'D':
+                    out.println(doubles[variable.register]);
+                    break;
+                default:
+                    out.println(references[variable.register]);
+                    break;
+            }
+        }
+    }
+
+    // A failure is given a single stack frame naming the source line of the failing instruction
+    private void execute(long[] l, double[] d, Object[] a) throws InterruptedException {
+        int[] code = this.code;
+        int end = code.length;
+        int pc = 0;
+        try {
+            while (pc < end) {
+                int x = code[pc + 1];
+                int y = code[pc + 2];
+                int z = code[pc + 3];
+                switch (code[pc]) {
+                    case ThreeAddressCode.MOVE_L: l[x] = l[y]; break;
+                    case ThreeAddressCode.MOVE_D: d[x] = d[y]; break;
+                    case ThreeAddressCode.MOVE_A: a[x] = a[y]; break;
+                    case ThreeAddressCode.ADD_I: l[x] = (int) l[y] + (int) l[z]; break;
+                    case ThreeAddressCode.SUB_I: l[x] = (int) l[y] - (int) l[z]; break;
+                    case ThreeAddressCode.MUL_I: l[x] = (int) l[y] * (int) l[z]; break;
+                    case ThreeAddressCode.DIV_I: l[x] = (int) l[y] / (int) divisor(l[z]); break;
+                    case ThreeAddressCode.REM_I: l[x] = (int) l[y] % (int) divisor(l[z]); break;
+                    case ThreeAddressCode.NEG_I: l[x] = -(int) l[y]; break;
+                    case ThreeAddressCode.ADD_J: l[x] = l[y] + l[z]; break;
+                    case ThreeAddressCode.SUB_J: l[x] = l[y] - l[z]; break;
+                    case ThreeAddressCode.MUL_J: l[x] = l[y] * l[z]; break;
+                    case ThreeAddressCode.DIV_J: l[x] = l[y] / divisor(l[z]); break;
+                    case ThreeAddressCode.REM_J: l[x] = l[y] % divisor(l[z]); break;
+                    case ThreeAddressCode.NEG_J: l[x] = -l[y]; break;
+                    case ThreeAddressCode.ADD_F: d[x] = (float) d[y] + (float) d[z]; break;
+                    case ThreeAddressCode.SUB_F: d[x] = (float) d[y] - (float) d[z]; break;
+                    case ThreeAddressCode.MUL_F: d[x] = (float) d[y] * (float) d[z]; break;
+                    case ThreeAddressCode.DIV_F: d[x] = (float) d[y] / (float) d[z]; break;
+                    case ThreeAddressCode.REM_F: d[x] = (float) d[y] % (float) d[z]; break;
+                    case ThreeAddressCode.NEG_F: d[x] = -(float) d[y]; break;
+                    case ThreeAddressCode.ADD_D: d[x] = d[y] + d[z]; break;
+                    case ThreeAddressCode.SUB_D: d[x] = d[y] - d[z]; break;
+                    case ThreeAddressCode.MUL_D: d[x] = d[y] * d[z]; break;
+                    case ThreeAddressCode.DIV_D: d[x] = d[y] / d[z]; break;
+                    case ThreeAddressCode.REM_D: d[x] = d[y] % d[z]; break;
+                    case ThreeAddressCode.NEG_D: d[x] = -d[y]; break;
+                    case ThreeAddressCode.L2F: d[x] = (float) l[y]; break;
+                    case ThreeAddressCode.L2D: d[x] = (double) l[y]; break;
+                    case ThreeAddressCode.JUMP: pc = x; continue;
+                    case ThreeAddressCode.IF_TRUE: if (l[x] != 0) { pc = z; continue; } break;
+                    case ThreeAddressCode.IF_FALSE: if (l[x] == 0) { pc = z; continue; } break;
+                    case ThreeAddressCode.IF_EQ_L: if (l[x] == l[y]) { pc = z; continue; } break;
+                    case ThreeAddressCode.IF_NE_L: if (l[x] != l[y]) { pc = z; continue; } break;
+                    case ThreeAddressCode.IF_LT_L: if (l[x] < l[y]) { pc = z; continue; } break;
+                    case ThreeAddressCode.IF_GE_L: if (l[x] >= l[y]) { pc = z; continue; } break;
+                    case ThreeAddressCode.IF_GT_L: if (l[x] > l[y]) { pc = z; continue; } break;
+                    case ThreeAddressCode.IF_LE_L: if (l[x] <= l[y]) { pc = z; continue; } break;
+                    // A float is held exactly as a double, so both compare in double
+                    case ThreeAddressCode.IF_EQ_D: if (d[x] == d[y]) { pc = z; continue; } break;
+                    case ThreeAddressCode.IF_NE_D: if (d[x] != d[y]) { pc = z; continue; } break;
+                    case ThreeAddressCode.IF_LT_D: if (d[x] < d[y]) { pc = z; continue; } break;
+                    case ThreeAddressCode.IF_GE_D: if (d[x] >= d[y]) { pc = z; continue; } break;
+                    case ThreeAddressCode.IF_GT_D: if (d[x] > d[y]) { pc = z; continue; } break;
+                    case ThreeAddressCode.IF_LE_D: if (d[x] <= d[y]) { pc = z; continue; } break;
+                    case ThreeAddressCode.IF_EQ_A: if (a[x] == a[y]) { pc = z; continue; } break;
+                    case ThreeAddressCode.IF_NE_A: if (a[x] != a[y]) { pc = z; continue; } break;
+                    case ThreeAddressCode.NEW_BUILDER: a[x] = new StringBuilder(); break;
+                    case ThreeAddressCode.APPEND_I: ((StringBuilder) a[x]).append((int) l[y]); break;
+                    case ThreeAddressCode.APPEND_C: ((StringBuilder) a[x]).append((char) l[y]); break;
+                    case ThreeAddressCode.APPEND_Z: ((StringBuilder) a[x]).append(l[y] != 0); break;
+                    case ThreeAddressCode.APPEND_J: ((StringBuilder) a[x]).append(l[y]); break;
+                    case ThreeAddressCode.APPEND_F: ((StringBuilder) a[x]).append((float) d[y]); break;
+                    case ThreeAddressCode.APPEND_D: ((StringBuilder) a[x]).append(d[y]); break;
+                    case ThreeAddressCode.APPEND_A: ((StringBuilder) a[x]).append(a[y]); break;
+                    case ThreeAddressCode.TO_STRING: a[x] = a[y].toString(); break;
+                    case ThreeAddressCode.POLL:
+                        if (Thread.currentThread().isInterrupted()) {
+                            throw new InterruptedException();
+                        }
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown instruction " + code[pc]);
+                }
+                pc += WIDTH;
+            }
+        } catch (RuntimeException | InterruptedException ex) {
+            ex.setStackTrace(new StackTraceElement[] {
+                new StackTraceElement(PROGRAM_NAME, "run", null, lines[pc / WIDTH])
+            });
+            throw ex;
+        }
+    }
+
+    // Throws as integer division by zero does, but with its message and a stack trace that can be
+    // replaced, which an exception the JIT raises implicitly in compiled code may lack
+    private static long divisor(long value) {
+        if (value == 0) {
+            throw new ArithmeticException("/ by zero");
+        }
+        return value;
+    }
+}
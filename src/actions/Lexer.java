@@ -0,0 +1,305 @@
+package actions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import common.Diagnostic;
+import common.IdentifierPool;
+import common.Phase;
+import common.TokenBuffer;
+import common.TokenType;
+
+// Single-pass character scanner: every source character is classified once through CHAR_CLASSES.
+// Tokens are recorded as offsets into the source in a TokenBuffer, so no text is copied.
+public class Lexer {
+
+    private static final byte OTHER = 0;
+    private static final byte WHITESPACE = 1;
+    private static final byte NEWLINE = 2;
+    private static final byte LETTER = 3;
+    private static final byte DIGIT = 4;
+    private static final byte DOUBLE_QUOTE = 5;
+    private static final byte SINGLE_QUOTE = 6;
+    private static final byte PUNCTUATION = 7;
+
+    private static final int CANCELLATION_INTERVAL = 0x3FFF;  // Lines between cancellation checks
+
+    private static final byte[] CHAR_CLASSES = new byte[128];
+
+    static {
+        CHAR_CLASSES[' '] = WHITESPACE;
+        CHAR_CLASSES['\t'] = WHITESPACE;
+        CHAR_CLASSES['\r'] = WHITESPACE;
+        CHAR_CLASSES['\f'] = WHITESPACE;
+        CHAR_CLASSES['\n'] = NEWLINE;
+        for (char c = 'a'; c <= 'z'; c++) {
+            CHAR_CLASSES[c] = LETTER;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            CHAR_CLASSES[c] = LETTER;
+        }
+        CHAR_CLASSES['_'] = LETTER;
+        CHAR_CLASSES['$'] = LETTER;
+        for (char c = '0'; c <= '9'; c++) {
+            CHAR_CLASSES[c] = DIGIT;
+        }
+        CHAR_CLASSES['"'] = DOUBLE_QUOTE;
+        CHAR_CLASSES['\''] = SINGLE_QUOTE;
+        for (char c : "=+-*/%<>!&|(){}[],.;".toCharArray()) {
+            CHAR_CLASSES[c] = PUNCTUATION;
+        }
+    }
+
+    private final CharSequence source;
+    private final IdentifierPool pool;
+    private final int length;
+    private final TokenBuffer tokens;
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+    private int pos;
+    private int line = 1;
+    private int lineStart;
+
+    public Lexer(CharSequence source) {
+        this(source, IdentifierPool.shared());
+    }
+
+    // Names and keywords are looked up in the pool, which adds the names it has not seen
+    public Lexer(CharSequence source, IdentifierPool pool) {
+        this.source = source;
+        this.pool = pool;
+        this.length = source.length();
+        this.tokens = new TokenBuffer(source, pool);
+    }
+
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    public TokenBuffer tokenize() {
+        while (pos < length) {
+            char c = source.charAt(pos);
+            switch (classify(c)) {
+                case WHITESPACE:
+                    pos++;
+                    break;
+                case NEWLINE:
+                    pos++;
+                    line++;
+                    lineStart = pos;
+                    if ((line & CANCELLATION_INTERVAL) == 0) {
+                        Cancellation.checkpoint();
+                    }
+                    break;
+                case LETTER:
+                    scanWord();
+                    break;
+                case DIGIT:
+                    scanNumber();
+                    break;
+                case DOUBLE_QUOTE:
+                    scanQuoted('"', TokenType.STRING_LITERAL);
+                    break;
+                case SINGLE_QUOTE:
+                    scanQuoted('\'', TokenType.CHAR_LITERAL);
+                    break;
+                case PUNCTUATION:
+                    scanPunctuation(c);
+                    break;
+                default:
+                    emitUnknown(pos, pos + 1, "unknown-token", "Unknown token");
+                    pos++;
+                    break;
+            }
+        }
+        tokens.add(TokenType.EOF, pos, pos, line, pos - lineStart + 1);
+        tokens.trimToSize();
+        return tokens;
+    }
+
+    private static byte classify(char c) {
+        if (c < 128) {
+            return CHAR_CLASSES[c];
+        }
+        return Character.isJavaIdentifierStart(c) ? LETTER : OTHER;
+    }
+
+    private void scanWord() {
+        int start = pos;
+        int hash = source.charAt(pos++);
+        while (pos < length) {
+            char c = source.charAt(pos);
+            byte cls = classify(c);
+            if (cls != LETTER && cls != DIGIT) {
+                break;
+            }
+            hash = 31 * hash + c;
+            pos++;
+        }
+        int id = pool.intern(source, start, pos, hash);
+        TokenType keyword = IdentifierPool.keyword(id);
+        tokens.add(keyword != null ? keyword : TokenType.IDENTIFIER, id, start, pos, line, start - lineStart + 1);
+    }
+
+    private void scanNumber() {
+        int start = pos;
+        TokenType type = TokenType.INTEGER_LITERAL;
+        skipDigits();
+        if (peek(0) == '.' && isDigit(peek(1))) {
+            type = TokenType.FLOATING_LITERAL;
+            pos++;
+            skipDigits();
+        }
+        char e = peek(0);
+        if ((e == 'e' || e == 'E')
+                && (isDigit(peek(1)) || ((peek(1) == '+' || peek(1) == '-') && isDigit(peek(2))))) {
+            type = TokenType.FLOATING_LITERAL;
+            pos += 2;
+            skipDigits();
+        }
+        char suffix = peek(0);
+        if (type == TokenType.INTEGER_LITERAL && (suffix == 'l' || suffix == 'L')) {
+            pos++;
+        } else if (suffix == 'f' || suffix == 'F' || suffix == 'd' || suffix == 'D') {
+            type = TokenType.FLOATING_LITERAL;
+            pos++;
+        }
+        emit(type, start, pos);
+    }
+
+    // String and char literals may not span lines; an unterminated one becomes an unknown token
+    private void scanQuoted(char quote, TokenType type) {
+        int start = pos;
+        pos++;
+        while (pos < length) {
+            char c = source.charAt(pos);
+            if (c == quote) {
+                pos++;
+                emit(type, start, pos);
+                return;
+            }
+            if (c == '\n') {
+                break;
+            }
+            pos += (c == '\\' && pos + 1 < length && source.charAt(pos + 1) != '\n') ? 2 : 1;
+        }
+        emitUnknown(start, pos, "unterminated-literal",
+                type == TokenType.STRING_LITERAL ? "Unterminated string literal" : "Unterminated char literal");
+    }
+
+    private void scanPunctuation(char c) {
+        char next = peek(1);
+        switch (c) {
+            case '/':
+                if (next == '/') {
+                    skipLineComment();
+                    return;
+                }
+                if (next == '*') {
+                    skipBlockComment();
+                    return;
+                }
+                emitFixed(TokenType.SLASH);
+                return;
+            case '=':
+                emitFixed(next == '=' ? TokenType.EQ : TokenType.ASSIGN);
+                return;
+            case '!':
+                emitFixed(next == '=' ? TokenType.NE : TokenType.NOT);
+                return;
+            case '<':
+                emitFixed(next == '=' ? TokenType.LE : TokenType.LT);
+                return;
+            case '>':
+                emitFixed(next == '=' ? TokenType.GE : TokenType.GT);
+                return;
+            case '&':
+                if (next == '&') {
+                    emitFixed(TokenType.AND_AND);
+                } else {
+                    emitUnknown(pos, ++pos, "unknown-token", "Unknown token");
+                }
+                return;
+            case '|':
+                if (next == '|') {
+                    emitFixed(TokenType.OR_OR);
+                } else {
+                    emitUnknown(pos, ++pos, "unknown-token", "Unknown token");
+                }
+                return;
+            case '+': emitFixed(TokenType.PLUS); return;
+            case '-': emitFixed(TokenType.MINUS); return;
+            case '*': emitFixed(TokenType.STAR); return;
+            case '%': emitFixed(TokenType.PERCENT); return;
+            case '(': emitFixed(TokenType.LPAREN); return;
+            case ')': emitFixed(TokenType.RPAREN); return;
+            case '{': emitFixed(TokenType.LBRACE); return;
+            case '}': emitFixed(TokenType.RBRACE); return;
+            case '[': emitFixed(TokenType.LBRACKET); return;
+            case ']': emitFixed(TokenType.RBRACKET); return;
+            case ',': emitFixed(TokenType.COMMA); return;
+            case '.': emitFixed(TokenType.DOT); return;
+            case ';': emitFixed(TokenType.SEMICOLON); return;
+            default:
+                emitUnknown(pos, ++pos, "unknown-token", "Unknown token");
+        }
+    }
+
+    private void skipLineComment() {
+        while (pos < length && source.charAt(pos) != '\n') {
+            pos++;
+        }
+    }
+
+    private void skipBlockComment() {
+        int start = pos;
+        int startLine = line;
+        int startColumn = pos - lineStart + 1;
+        pos += 2;
+        while (pos < length) {
+            char c = source.charAt(pos);
+            if (c == '*' && peek(1) == '/') {
+                pos += 2;
+                return;
+            }
+            pos++;
+            if (c == '\n') {
+                line++;
+                lineStart = pos;
+            }
+        }
+        tokens.add(TokenType.UNKNOWN, start, pos, startLine, startColumn);
+        diagnostics.add(Diagnostic.error(Phase.LEXICAL, "unterminated-comment", startLine, startColumn,
+                "Unterminated comment"));
+    }
+
+    private void skipDigits() {
+        while (isDigit(peek(0))) {
+            pos++;
+        }
+    }
+
+    private char peek(int ahead) {
+        int index = pos + ahead;
+        return index < length ? source.charAt(index) : '\0';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private void emitFixed(TokenType type) {
+        int start = pos;
+        pos += type.getText().length();
+        tokens.add(type, start, pos, line, start - lineStart + 1);
+    }
+
+    private void emit(TokenType type, int start, int end) {
+        tokens.add(type, start, end, line, start - lineStart + 1);
+    }
+
+    private void emitUnknown(int start, int end, String code, String message) {
+        emit(TokenType.UNKNOWN, start, end);
+        diagnostics.add(Diagnostic.error(Phase.LEXICAL, code, line, start - lineStart + 1,
+                message + " '" + source.subSequence(start, end).toString() + "'"));
+    }
+}
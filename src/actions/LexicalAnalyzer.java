@@ -1,66 +1,72 @@
 package actions;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.List;
+
+import common.AnalysisResult;
+import common.IdentifierPool;
+import common.Phase;
+import common.Token;
+import common.TokenBuffer;
+import common.TokenType;
 
 public class LexicalAnalyzer {
 
-    private String code;
+    // Bump whenever a rule change alters the diagnostics of this phase; invalidates persisted results
+    public static final int RULES_VERSION = 1;
+
+    private final IdentifierPool pool;
+
+    public LexicalAnalyzer() {
+        this(IdentifierPool.shared());
+    }
 
-    public LexicalAnalyzer(String code) {
-        this.code = code;
+    // Names are interned into the given pool instead of the shared one
+    public LexicalAnalyzer(IdentifierPool pool) {
+        this.pool = pool;
     }
 
-    public String analyze() {
-        if (code.isEmpty()) {
-            return "No code to analyze.";
+    public AnalysisResult<List<Token>> analyze(CharSequence code) {
+        if (code.length() == 0) {
+            return AnalysisResult.noInput(Phase.LEXICAL);
         }
-    
-        String regex = "^\\s*" +
-                "(\\b(?:byte|short|int|long|float|double|boolean|char|String)\\b)?\\s*" +
-                "([a-zA-Z_][a-zA-Z0-9_]*)?\\s*" +
-                "(=)?\\s*" +
-                "((\"[^\"]*\"|'[^']*'|\\d+(\\.\\d+)?|true|false|'.'|\\bnull\\b))?\\s*" +
-                "(;)?\\s*$";
-    
+        Lexer lexer = new Lexer(code, pool);
+        List<Token> tokens = lexer.tokenize();
+        return new AnalysisResult<>(Phase.LEXICAL, tokens, lexer.getDiagnostics(), LexicalAnalyzer::render);
+    }
+
+    // The report groups tokens by source line, with a blank line after each line
+    private static String render(AnalysisResult<List<Token>> analysis) {
         StringBuilder result = new StringBuilder();
-        String[] lines = code.split("\\n");
-        boolean error = false;
-    
-        for (String line : lines) {
-            line = line.trim();
-            Pattern pattern = Pattern.compile(regex);
-            Matcher matcher = pattern.matcher(line);
-    
-            if (matcher.matches()) {
-                if (matcher.group(1) != null) {
-                    result.append("Data Type: ").append(matcher.group(1)).append("\n");
-                }
-                if (matcher.group(2) != null) {
-                    result.append("Identifier: ").append(matcher.group(2)).append("\n");
-                }
-                if (matcher.group(3) != null) {
-                    result.append("Assignment Operator: ").append(matcher.group(3)).append("\n");
-                }
-                if (matcher.group(4) != null && !matcher.group(4).isEmpty()) {
-                    result.append("Value: ").append(matcher.group(4)).append("\n");
-                }
-                if (matcher.group(6) != null && !matcher.group(6).isEmpty()) {
-                    result.append("Delimiter: ").append(matcher.group(6)).append("\n");
+        int currentLine = -1;
+
+        TokenBuffer.Cursor token = TokenBuffer.of(analysis.getPayload()).cursor();
+        while (token.next()) {
+            if (token.getType() == TokenType.EOF) {
+                break;
+            }
+            if (token.getLine() != currentLine) {
+                if (currentLine != -1) {
+                    result.append("\n");
                 }
-                result.append("\n");
-            } else {
-                result.append("Unknown Token: ").append(line).append("\n");
-                error = true;
+                currentLine = token.getLine();
             }
+            result.append(token.getType().getCategory().getLabel()).append(": ").append(token.getText());
+            if (token.getType() == TokenType.UNKNOWN) {
+                result.append(" (line ").append(token.getLine())
+                      .append(", column ").append(token.getColumn()).append(")");
+            }
+            result.append("\n");
+        }
+        if (currentLine != -1) {
+            result.append("\n");
         }
-    
-        if (error) {
+
+        if (!analysis.isSuccessful()) {
             result.append("\nUnknown token(s) detected. Lexical analysis failed.\n");
         } else {
             result.append("Lexical Analysis completed successfully.\n");
         }
-    
+
         return result.toString();
     }
-}    
\ No newline at end of file
+}
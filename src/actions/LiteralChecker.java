@@ -0,0 +1,419 @@
+package actions;
+
+import common.TokenType;
+import common.ast.Expression;
+import common.ast.Literal;
+import common.ast.TypeNode;
+import common.ast.UnaryExpression;
+
+// Decides whether a literal initializer, possibly under unary signs or '!', fits its declared type by
+// scanning the literal's characters once. Integral literals are accumulated as negative longs, as
+// Long.parseLong does, so the most negative values need no wider type; floating literals only reach
+// the JDK parser when their decimal exponent is near a limit of the type. No path that accepts the
+// value allocates, and rejected values are described by a shared verdict constant.
+public final class LiteralChecker {
+
+    public enum Verdict {
+        VALID,
+        // The value is of another kind than the type, or is not a literal at all
+        NOT_VALID,
+        OUT_OF_RANGE,
+        // The literal itself is malformed, e.g. an illegal escape or a digit 8 in an octal literal
+        MALFORMED,
+        UNKNOWN_TYPE
+    }
+
+    private static final int NOT_AN_ESCAPE = -1;
+
+    private LiteralChecker() {
+    }
+
+    public static Verdict check(TypeNode type, Expression value) {
+        TokenType target = type.getDimensions() == 0 ? type.getKeyword() : null;
+        if (!isCheckable(target)) {
+            return Verdict.UNKNOWN_TYPE;
+        }
+
+        boolean signed = false;
+        boolean negative = false;
+        boolean inverted = false;
+        boolean directlyNegated = false;
+        Expression core = value;
+        while (core instanceof UnaryExpression) {
+            UnaryExpression unary = (UnaryExpression) core;
+            if (unary.getOperator() == TokenType.NOT) {
+                inverted = true;
+            } else {
+                signed = true;
+                negative ^= unary.getOperator() == TokenType.MINUS;
+            }
+            directlyNegated = unary.getOperator() == TokenType.MINUS;
+            core = unary.getOperand();
+        }
+        if (!(core instanceof Literal) || signed && inverted) {
+            return Verdict.NOT_VALID;
+        }
+
+        Literal literal = (Literal) core;
+        TokenType kind = literal.getKind();
+        if (kind == TokenType.TRUE || kind == TokenType.FALSE) {
+            return target == TokenType.BOOLEAN && !signed ? Verdict.VALID : Verdict.NOT_VALID;
+        }
+        if (inverted) {
+            return Verdict.NOT_VALID;
+        }
+        switch (kind) {
+            case NULL:
+                return target == TokenType.STRING && !signed ? Verdict.VALID : Verdict.NOT_VALID;
+            case STRING_LITERAL:
+                if (target != TokenType.STRING || signed) {
+                    return Verdict.NOT_VALID;
+                }
+                return checkString(literal.getText());
+            case CHAR_LITERAL:
+                return checkChar(literal.getText(), target, signed, negative);
+            case INTEGER_LITERAL:
+                return checkInteger(literal.getText(), target, negative, directlyNegated);
+            case FLOATING_LITERAL:
+                return checkFloating(literal.getText(), target);
+            default:
+                return Verdict.NOT_VALID;
+        }
+    }
+
+    private static boolean isCheckable(TokenType target) {
+        if (target == null) {
+            return false;
+        }
+        switch (target) {
+            case BYTE:
+            case SHORT:
+            case CHAR:
+            case INT:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+            case BOOLEAN:
+            case STRING:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static Verdict checkString(String text) {
+        int end = text.length() - 1;
+        for (int i = 1; i < end; ) {
+            long decoded = decodeChar(text, i, end);
+            if (decoded < 0) {
+                return Verdict.MALFORMED;
+            }
+            i = (int) decoded;
+        }
+        return Verdict.VALID;
+    }
+
+    // A char literal is an integral constant: it widens to int and up, and narrows to byte or short
+    // when its value fits; with a sign in front it is an int
+    private static Verdict checkChar(String text, TokenType target, boolean signed, boolean negative) {
+        int end = text.length() - 1;
+        long decoded = end > 1 ? decodeChar(text, 1, end) : -1;
+        if (decoded < 0 || (int) decoded != end) {
+            return Verdict.MALFORMED;
+        }
+        int character = (int) (decoded >>> 32);
+        switch (target) {
+            case CHAR:
+                return signed ? inRange(negative ? -character : character, Character.MIN_VALUE, Character.MAX_VALUE)
+                        : Verdict.VALID;
+            case BYTE:
+                return inRange(negative ? -character : character, Byte.MIN_VALUE, Byte.MAX_VALUE);
+            case SHORT:
+                return inRange(negative ? -character : character, Short.MIN_VALUE, Short.MAX_VALUE);
+            case INT:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+                return Verdict.VALID;
+            default:
+                return Verdict.NOT_VALID;
+        }
+    }
+
+    // Decimal or, with a leading 0, octal digits and an optional l/L suffix. Like Java, the largest
+    // magnitude of each type (2147483648, 9223372036854775808L) is only a literal right after '-'
+    private static Verdict checkInteger(String text, TokenType target, boolean negative, boolean directlyNegated) {
+        int end = text.length();
+        char suffix = text.charAt(end - 1);
+        boolean isLong = suffix == 'l' || suffix == 'L';
+        if (isLong) {
+            end--;
+        }
+        long min;
+        long max;
+        switch (target) {
+            case BYTE:
+                min = Byte.MIN_VALUE;
+                max = Byte.MAX_VALUE;
+                break;
+            case SHORT:
+                min = Short.MIN_VALUE;
+                max = Short.MAX_VALUE;
+                break;
+            case CHAR:
+                min = Character.MIN_VALUE;
+                max = Character.MAX_VALUE;
+                break;
+            case INT:
+                min = Integer.MIN_VALUE;
+                max = Integer.MAX_VALUE;
+                break;
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+                min = Long.MIN_VALUE;
+                max = Long.MAX_VALUE;
+                break;
+            default:
+                return Verdict.NOT_VALID;
+        }
+        // A long never narrows implicitly, whatever its value
+        if (isLong && max < Long.MAX_VALUE) {
+            return Verdict.NOT_VALID;
+        }
+
+        int radix = end > 1 && text.charAt(0) == '0' ? 8 : 10;
+        long literalMax = isLong ? Long.MAX_VALUE : Integer.MAX_VALUE;
+        long limit = directlyNegated ? -literalMax - 1 : -literalMax;
+        long multiplyMin = limit / radix;
+        long accumulated = 0;
+        for (int i = 0; i < end; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit >= radix) {
+                return Verdict.MALFORMED;
+            }
+            if (accumulated < multiplyMin) {
+                return Verdict.OUT_OF_RANGE;
+            }
+            accumulated *= radix;
+            if (accumulated < limit + digit) {
+                return Verdict.OUT_OF_RANGE;
+            }
+            accumulated -= digit;
+        }
+        if (!negative && accumulated == Long.MIN_VALUE) {
+            return Verdict.OUT_OF_RANGE;
+        }
+        long value = negative ? accumulated : -accumulated;
+        return value < min || value > max ? Verdict.OUT_OF_RANGE : Verdict.VALID;
+    }
+
+    // An unsuffixed decimal literal is accepted for float, as this dialect always has, and must fit
+    // the float range; only an explicit d/D suffix makes it a double that cannot narrow
+    private static Verdict checkFloating(String text, TokenType target) {
+        char suffix = text.charAt(text.length() - 1);
+        boolean isFloat = suffix == 'f' || suffix == 'F';
+        if (target == TokenType.FLOAT) {
+            if (suffix == 'd' || suffix == 'D') {
+                return Verdict.NOT_VALID;
+            }
+            isFloat = true;
+        } else if (target != TokenType.DOUBLE) {
+            return Verdict.NOT_VALID;
+        }
+
+        // Decimal exponent of the first significant digit, e.g. 2 for 123.4 and -3 for 0.0012
+        int length = text.length();
+        int i = 0;
+        int leadingExponent = 0;
+        boolean significant = false;
+        boolean fraction = false;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '.') {
+                fraction = true;
+            } else if (c >= '0' && c <= '9') {
+                if (significant) {
+                    leadingExponent += fraction ? 0 : 1;
+                } else if (c != '0') {
+                    significant = true;
+                    leadingExponent -= fraction ? 1 : 0;
+                } else if (fraction) {
+                    leadingExponent--;
+                }
+            } else {
+                break;
+            }
+        }
+        if (!significant) {
+            return Verdict.VALID;
+        }
+        if (i < length && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = text.charAt(i) == '-';
+            if (text.charAt(i) == '-' || text.charAt(i) == '+') {
+                i++;
+            }
+            int exponent = 0;
+            for (; i < length && text.charAt(i) >= '0' && text.charAt(i) <= '9'; i++) {
+                exponent = Math.min(exponent * 10 + text.charAt(i) - '0', 100_000);
+            }
+            leadingExponent += negativeExponent ? -exponent : exponent;
+        }
+
+        // Values clearly inside the range need no exact conversion
+        if (isFloat ? leadingExponent > -45 && leadingExponent < 38 : leadingExponent > -324 && leadingExponent < 308) {
+            return Verdict.VALID;
+        }
+        double converted = isFloat ? Float.parseFloat(text) : Double.parseDouble(text);
+        return Double.isInfinite(converted) || converted == 0 ? Verdict.OUT_OF_RANGE : Verdict.VALID;
+    }
+
+    // Value of a literal as an Integer, Long, Float, Double, Character, Boolean or String, or null when
+    // it is malformed or too large for its own type. Unlike check, this allocates the boxed value.
+    static Object valueOf(Literal literal, boolean directlyNegated) {
+        String text = literal.getText();
+        switch (literal.getKind()) {
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case CHAR_LITERAL: {
+                int end = text.length() - 1;
+                long decoded = end > 1 ? decodeChar(text, 1, end) : -1;
+                return decoded < 0 || (int) decoded != end ? null : (char) (decoded >>> 32);
+            }
+            case STRING_LITERAL: {
+                int end = text.length() - 1;
+                StringBuilder value = new StringBuilder(end);
+                for (int i = 1; i < end; ) {
+                    long decoded = decodeChar(text, i, end);
+                    if (decoded < 0) {
+                        return null;
+                    }
+                    value.append((char) (decoded >>> 32));
+                    i = (int) decoded;
+                }
+                return value.toString();
+            }
+            case INTEGER_LITERAL:
+                return integerValue(text, directlyNegated);
+            case FLOATING_LITERAL:
+                return floatingValue(text);
+            default:
+                return null;
+        }
+    }
+
+    private static Object integerValue(String text, boolean directlyNegated) {
+        int end = text.length();
+        boolean isLong = text.charAt(end - 1) == 'l' || text.charAt(end - 1) == 'L';
+        if (isLong) {
+            end--;
+        }
+        int radix = end > 1 && text.charAt(0) == '0' ? 8 : 10;
+        long magnitude;
+        try {
+            magnitude = Long.parseUnsignedLong(text.substring(0, end), radix);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+        // Unsigned, so the magnitude 2^63 after '-' compares correctly
+        long limit = (isLong ? Long.MAX_VALUE : Integer.MAX_VALUE) + (directlyNegated ? 1 : 0);
+        if (Long.compareUnsigned(magnitude, limit) > 0) {
+            return null;
+        }
+        return isLong ? (Object) magnitude : (Object) (int) magnitude;
+    }
+
+    private static Object floatingValue(String text) {
+        char suffix = text.charAt(text.length() - 1);
+        double value = suffix == 'f' || suffix == 'F' ? Float.parseFloat(text) : Double.parseDouble(text);
+        if (Double.isInfinite(value)) {
+            return null;
+        }
+        if (value == 0) {
+            // Too small unless every digit of the mantissa is zero
+            for (int i = 0; i < text.length() && text.charAt(i) != 'e' && text.charAt(i) != 'E'; i++) {
+                if (text.charAt(i) >= '1' && text.charAt(i) <= '9') {
+                    return null;
+                }
+            }
+        }
+        return suffix == 'f' || suffix == 'F' ? (Object) (float) value : (Object) value;
+    }
+
+    private static Verdict inRange(long value, long min, long max) {
+        return value < min || value > max ? Verdict.OUT_OF_RANGE : Verdict.VALID;
+    }
+
+    // Decodes the character or escape sequence at index i of a quoted literal whose closing quote is
+    // at end. Returns the char value in the high 32 bits and the index after it in the low 32 bits,
+    // or -1 for a malformed escape
+    private static long decodeChar(String text, int i, int end) {
+        char c = text.charAt(i);
+        if (c != '\\') {
+            return (long) c << 32 | (i + 1);
+        }
+        if (++i >= end) {
+            return -1;
+        }
+        int value = simpleEscape(text.charAt(i));
+        if (value != NOT_AN_ESCAPE) {
+            return (long) value << 32 | (i + 1);
+        }
+        c = text.charAt(i);
+        if (c >= '0' && c <= '7') {
+            // Up to three octal digits, the first of which is 0-3 when there are three
+            int maxDigits = c <= '3' ? 3 : 2;
+            value = 0;
+            int digits = 0;
+            while (digits < maxDigits && i < end && text.charAt(i) >= '0' && text.charAt(i) <= '7') {
+                value = value * 8 + text.charAt(i++) - '0';
+                digits++;
+            }
+            return (long) value << 32 | i;
+        }
+        if (c == 'u') {
+            while (i < end && text.charAt(i) == 'u') {
+                i++;
+            }
+            if (i + 4 > end) {
+                return -1;
+            }
+            value = 0;
+            for (int digitEnd = i + 4; i < digitEnd; i++) {
+                int digit = Character.digit(text.charAt(i), 16);
+                if (digit < 0) {
+                    return -1;
+                }
+                value = value * 16 + digit;
+            }
+            return (long) value << 32 | i;
+        }
+        return -1;
+    }
+
+    private static int simpleEscape(char c) {
+        switch (c) {
+            case 'b':
+                return '\b';
+            case 't':
+                return '\t';
+            case 'n':
+                return '\n';
+            case 'f':
+                return '\f';
+            case 'r':
+                return '\r';
+            case '"':
+                return '"';
+            case '\'':
+                return '\'';
+            case '\\':
+                return '\\';
+            default:
+                return NOT_AN_ESCAPE;
+        }
+    }
+}
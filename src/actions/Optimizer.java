@@ -0,0 +1,935 @@
+package actions;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import actions.ThreeAddressCode.Instruction;
+import actions.ThreeAddressCode.Printed;
+import actions.ThreeAddressCode.Registers;
+
+// Shrinks ThreeAddressCode in place with three passes: constant propagation, which folds instructions
+// whose operands are known and settles conditional jumps; common subexpression elimination with
+// copy propagation within each basic block; and dead-store elimination, which drops instructions
+// whose results are never read along with code that cannot be reached. The time and instruction
+// count of every pass are reported. Each pass takes time in proportion to the program, so long
+// straight-line code and long chains of conditions stay cheap; what the data-flow analyses keep for
+// every block covers only the registers that live across blocks.
+final class Optimizer {
+
+    private static final int CANCELLATION_INTERVAL = 0xFFF;  // Blocks between cancellation checks
+
+    // The outcome of one pass
+    static final class Pass {
+        private final String name;
+        private final long nanos;
+        private final int before;
+        private final int after;
+
+        Pass(String name, long nanos, int before, int after) {
+            this.name = name;
+            this.nanos = nanos;
+            this.before = before;
+            this.after = after;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        long getNanos() {
+            return nanos;
+        }
+
+        int getBefore() {
+            return before;
+        }
+
+        int getAfter() {
+            return after;
+        }
+    }
+
+    private interface Transformation {
+        void apply(ThreeAddressCode program);
+    }
+
+    List<Pass> optimize(ThreeAddressCode program) {
+        List<Pass> passes = new ArrayList<>();
+        run(passes, "constant propagation", program, Optimizer::propagateConstants);
+        run(passes, "common subexpressions", program, Optimizer::eliminateCommonSubexpressions);
+        run(passes, "dead-store elimination", program, Optimizer::eliminateDeadStores);
+        return passes;
+    }
+
+    private static void run(List<Pass> passes, String name, ThreeAddressCode program, Transformation pass) {
+        Cancellation.checkpoint();
+        int before = program.size();
+        long start = System.nanoTime();
+        pass.apply(program);
+        passes.add(new Pass(name, System.nanoTime() - start, before, program.size()));
+    }
+
+    // The IR before and after optimization and the passes in between, for --dump-ir
+    static String dump(ThreeAddressCode program) {
+        StringBuilder text = new StringBuilder();
+        text.append("Before optimization (").append(program.size()).append(" instructions):\n")
+            .append(program.dump());
+        List<Pass> passes = new Optimizer().optimize(program);
+        text.append("After optimization (").append(program.size()).append(" instructions):\n")
+            .append(program.dump());
+        long total = 0;
+        for (Pass pass : passes) {
+            text.append(String.format("%-24s %5d -> %5d instructions in %.3f ms", pass.getName() + ":",
+                    pass.getBefore(), pass.getAfter(), pass.getNanos() / 1e6)).append('\n');
+            total += pass.getNanos();
+        }
+        text.append(String.format("Optimization took %.3f ms.", total / 1e6)).append('\n');
+        return text.toString();
+    }
+
+    // Basic blocks of the instruction list; successor index blocks.length stands for the end of
+    // the program
+    private static final class Graph {
+        final int[] starts;
+        final int[] ends;
+        final int[][] successors;
+
+        Graph(List<Instruction> instructions) {
+            List<Integer> leaders = new ArrayList<>();
+            for (int i = 0; i < instructions.size(); i++) {
+                Instruction instruction = instructions.get(i);
+                if (i == 0 || instruction.opcode == ThreeAddressCode.LABEL
+                        || instructions.get(i - 1).isBranch()) {
+                    leaders.add(i);
+                }
+            }
+            int count = leaders.size();
+            starts = new int[count];
+            ends = new int[count];
+            Map<Instruction, Integer> blockOf = new IdentityHashMap<>();
+            for (int b = 0; b < count; b++) {
+                starts[b] = leaders.get(b);
+                ends[b] = b + 1 < count ? leaders.get(b + 1) : instructions.size();
+                blockOf.put(instructions.get(starts[b]), b);
+            }
+            successors = new int[count][];
+            for (int b = 0; b < count; b++) {
+                Instruction last = instructions.get(ends[b] - 1);
+                if (last.isJump()) {
+                    successors[b] = new int[] {blockOf.get(last.target)};
+                } else if (last.isBranch()) {
+                    successors[b] = new int[] {blockOf.get(last.target), b + 1};
+                } else {
+                    successors[b] = new int[] {b + 1};
+                }
+            }
+        }
+
+        int size() {
+            return starts.length;
+        }
+
+        boolean[] reachable() {
+            boolean[] reached = new boolean[size()];
+            Deque<Integer> work = new ArrayDeque<>();
+            if (size() > 0) {
+                reached[0] = true;
+                work.add(0);
+            }
+            while (!work.isEmpty()) {
+                for (int successor : successors[work.poll()]) {
+                    if (successor < size() && !reached[successor]) {
+                        reached[successor] = true;
+                        work.add(successor);
+                    }
+                }
+            }
+            return reached;
+        }
+    }
+
+    // What is known of a register's value where control reaches: nothing yet, one constant, or
+    // more than one value. Only the L and D files are tracked; doubles are held as their bits.
+    private static final byte UNKNOWN = 0;
+    private static final byte CONSTANT = 1;
+    private static final byte VARYING = 2;
+
+    // Facts about the registers where control reaches, by flat index: L registers, then D registers
+    // from doubleStart. Only the registers some block reads before writing it can carry a value from
+    // one block into another, so only those get a slot of their own in every copy; the rest are
+    // always written before they are read within a block, and share one scratch array across all
+    // copies. Registers added by the rewrite are all constants, whose values are read from the
+    // registers themselves.
+    private static final class Facts {
+        final int doubleStart;
+        // Slot of each register among the carried ones, or -1
+        final int[] slots;
+        final byte[] localState;
+        final long[] localBits;
+        final byte[] state;
+        final long[] bits;
+
+        Facts(int doubleStart, int[] slots, int carried) {
+            this.doubleStart = doubleStart;
+            this.slots = slots;
+            localState = new byte[slots.length];
+            localBits = new long[slots.length];
+            state = new byte[carried];
+            bits = new long[carried];
+        }
+
+        Facts(Facts other) {
+            doubleStart = other.doubleStart;
+            slots = other.slots;
+            localState = other.localState;
+            localBits = other.localBits;
+            state = other.state.clone();
+            bits = other.bits.clone();
+        }
+
+        int index(char file, int register) {
+            return Character.toUpperCase(file) == 'L' ? register : doubleStart + register;
+        }
+
+        byte state(int index) {
+            int slot = slots[index];
+            return slot < 0 ? localState[index] : state[slot];
+        }
+
+        long bits(int index) {
+            int slot = slots[index];
+            return slot < 0 ? localBits[index] : bits[slot];
+        }
+
+        void set(int index, byte known, long value) {
+            int slot = slots[index];
+            if (slot < 0) {
+                localState[index] = known;
+                localBits[index] = value;
+            } else {
+                state[slot] = known;
+                bits[slot] = value;
+            }
+        }
+
+        // Merges other into these facts; true when anything changed
+        boolean meet(Facts other) {
+            boolean changed = false;
+            for (int i = 0; i < state.length; i++) {
+                if (other.state[i] == UNKNOWN || state[i] == VARYING) {
+                    continue;
+                }
+                if (state[i] == UNKNOWN) {
+                    state[i] = other.state[i];
+                    bits[i] = other.bits[i];
+                    changed = true;
+                } else if (other.state[i] == VARYING || bits[i] != other.bits[i]) {
+                    state[i] = VARYING;
+                    changed = true;
+                }
+            }
+            return changed;
+        }
+    }
+
+    // The carried registers of every block are held at once during the analysis; above this many
+    // in all, blocks start with nothing known of them instead, and only values computed within a
+    // block are propagated
+    private static final long CARRIED_FACTS_LIMIT = 1 << 22;
+
+    // A forward data-flow analysis over the L and D registers, which all start at their initial
+    // value, followed by a rewrite that reads known values from constant registers, replaces
+    // instructions whose operands are all known with moves of their results, and turns conditional
+    // jumps whose outcome is known into jumps or removes them
+    private static void propagateConstants(ThreeAddressCode program) {
+        List<Instruction> instructions = program.instructions;
+        Graph graph = new Graph(instructions);
+        int doubleStart = program.flatOffset('D');
+        int tracked = program.flatOffset('A');
+        int[] slots = new int[tracked];
+        int carried = carriedSlots(program, graph, "ld", slots);
+        Facts entry = new Facts(doubleStart, slots, carried);
+        for (int i = 0; i < tracked; i++) {
+            Object initial = i < doubleStart ? program.longs.initialValue(i)
+                    : program.doubles.initialValue(i - doubleStart);
+            entry.set(i, CONSTANT, i < doubleStart ? (initial == null ? 0 : (Long) initial)
+                    : Double.doubleToRawLongBits(initial == null ? 0 : (Double) initial));
+        }
+
+        Facts[] in = new Facts[graph.size()];
+        if ((long) carried * graph.size() > CARRIED_FACTS_LIMIT) {
+            Facts varying = new Facts(entry);
+            Arrays.fill(varying.state, VARYING);
+            Arrays.fill(in, varying);
+            if (graph.size() > 0 && !isJumpedTo(graph, 0)) {
+                in[0] = entry;
+            }
+        } else {
+            Deque<Integer> work = new ArrayDeque<>();
+            boolean[] queued = new boolean[graph.size()];
+            if (graph.size() > 0) {
+                in[0] = entry;
+                work.add(0);
+                queued[0] = true;
+            }
+            for (int visits = 0; !work.isEmpty(); visits++) {
+                if ((visits & CANCELLATION_INTERVAL) == 0) {
+                    Cancellation.checkpoint();
+                }
+                int block = work.poll();
+                queued[block] = false;
+                Facts facts = new Facts(in[block]);
+                for (int i = graph.starts[block]; i < graph.ends[block]; i++) {
+                    transfer(program, instructions.get(i), facts);
+                }
+                for (int successor : successorsTaken(program, graph, block, facts)) {
+                    if (successor == graph.size()) {
+                        continue;
+                    }
+                    boolean changed;
+                    if (in[successor] == null) {
+                        in[successor] = new Facts(facts);
+                        changed = true;
+                    } else {
+                        changed = in[successor].meet(facts);
+                    }
+                    if (changed && !queued[successor]) {
+                        work.add(successor);
+                        queued[successor] = true;
+                    }
+                }
+            }
+        }
+
+        List<Instruction> rewritten = new ArrayList<>(instructions.size());
+        for (int block = 0; block < graph.size(); block++) {
+            if ((block & CANCELLATION_INTERVAL) == 0) {
+                Cancellation.checkpoint();
+            }
+            if (in[block] == null) {
+                continue;  // Unreachable
+            }
+            Facts facts = new Facts(in[block]);
+            for (int i = graph.starts[block]; i < graph.ends[block]; i++) {
+                Instruction instruction = instructions.get(i);
+                if (rewrite(program, instruction, facts)) {
+                    rewritten.add(instruction);
+                }
+                transfer(program, instruction, facts);
+            }
+        }
+        program.instructions = rewritten;
+        removeRedundantJumps(program);
+    }
+
+    // Gives a slot to every register of the given files that some block reads before writing it,
+    // by flat index, and -1 to the others; returns the number of slots. Only these registers can
+    // carry a value from one block into another. Appending to a string builder reads it.
+    private static int carriedSlots(ThreeAddressCode program, Graph graph, String files, int[] slots) {
+        Arrays.fill(slots, -1);
+        int[] writtenIn = new int[slots.length];
+        Arrays.fill(writtenIn, -1);
+        int carried = 0;
+        for (int block = 0; block < graph.size(); block++) {
+            for (int i = graph.starts[block]; i < graph.ends[block]; i++) {
+                Instruction instruction = program.instructions.get(i);
+                for (int operand = 0; operand < 3; operand++) {
+                    char use = instruction.role(operand) == 'B' ? 'a' : instruction.role(operand);
+                    int register = instruction.operand(operand);
+                    if (files.indexOf(use) >= 0 && !program.registers(use).isConstant(register)) {
+                        int index = flat(program, use, register);
+                        if (writtenIn[index] != block && slots[index] < 0) {
+                            slots[index] = carried++;
+                        }
+                    }
+                }
+                char role = instruction.role(0);
+                if (Character.isUpperCase(role) && role != 'B' && files.indexOf(Character.toLowerCase(role)) >= 0) {
+                    writtenIn[flat(program, role, instruction.x)] = block;
+                }
+            }
+        }
+        return carried;
+    }
+
+    private static boolean isJumpedTo(Graph graph, int target) {
+        for (int[] successors : graph.successors) {
+            for (int successor : successors) {
+                if (successor == target) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // The successors control can reach from the end of a block given the facts there; a
+    // conditional jump whose outcome is known takes only one way
+    private static int[] successorsTaken(ThreeAddressCode program, Graph graph, int block, Facts facts) {
+        int[] successors = graph.successors[block];
+        if (successors.length == 2) {
+            Instruction last = program.instructions.get(graph.ends[block] - 1);
+            Boolean taken = outcome(program, last, facts);
+            if (taken != null) {
+                return new int[] {taken ? successors[0] : successors[1]};
+            }
+        }
+        return successors;
+    }
+
+    private static void transfer(ThreeAddressCode program, Instruction instruction, Facts facts) {
+        char role = instruction.role(0);
+        if (role != 'L' && role != 'D') {
+            return;
+        }
+        int target = facts.index(role, instruction.x);
+        Long value = evaluate(program, instruction, facts);
+        if (value == null) {
+            facts.set(target, VARYING, 0);
+        } else {
+            facts.set(target, CONSTANT, value);
+        }
+    }
+
+    // Rewrites the instruction from the facts before it; false when it is to be removed
+    private static boolean rewrite(ThreeAddressCode program, Instruction instruction, Facts facts) {
+        if (instruction.opcode == ThreeAddressCode.LABEL) {
+            return true;
+        }
+        if (instruction.isBranch() && !instruction.isJump()) {
+            Boolean taken = outcome(program, instruction, facts);
+            if (taken != null) {
+                if (!taken) {
+                    return false;
+                }
+                instruction.opcode = ThreeAddressCode.JUMP;
+                instruction.x = 0;
+                instruction.y = 0;
+                return true;
+            }
+        }
+        char role = instruction.role(0);
+        if ((role == 'L' || role == 'D') && instruction.opcode != ThreeAddressCode.MOVE_L
+                && instruction.opcode != ThreeAddressCode.MOVE_D) {
+            Long value = evaluate(program, instruction, facts);
+            if (value != null) {
+                instruction.opcode = role == 'L' ? ThreeAddressCode.MOVE_L : ThreeAddressCode.MOVE_D;
+                instruction.y = constant(program, role, value);
+                instruction.z = 0;
+                return true;
+            }
+        }
+        for (int i = 0; i < 3; i++) {
+            char use = instruction.role(i);
+            if (use == 'l' || use == 'd') {
+                int register = instruction.operand(i);
+                Long value = value(program, facts, use, register);
+                if (value != null && !program.registers(use).isConstant(register)) {
+                    instruction.setOperand(i, constant(program, use, value));
+                }
+            }
+        }
+        return true;
+    }
+
+    // The register of the given file holding the value with the given bits
+    private static int constant(ThreeAddressCode program, char file, long bits) {
+        Registers registers = program.registers(file);
+        return Character.toUpperCase(file) == 'L' ? registers.constant(bits)
+                : registers.constant(Double.longBitsToDouble(bits));
+    }
+
+    private static int flat(ThreeAddressCode program, char file, int register) {
+        return program.flatOffset(file) + register;
+    }
+
+    // The bits of a register's value where the facts hold, or null when it is not known
+    private static Long value(ThreeAddressCode program, Facts facts, char file, int register) {
+        Registers registers = program.registers(file);
+        if (registers.isConstant(register)) {
+            Object value = registers.initialValue(register);
+            return value instanceof Double ? bits((Double) value) : (Long) value;
+        }
+        int index = facts.index(file, register);
+        return facts.state(index) == CONSTANT ? facts.bits(index) : null;
+    }
+
+    // The result bits of an L or D instruction whose operands are all known, or null when they are
+    // not or the instruction would throw
+    private static Long evaluate(ThreeAddressCode program, Instruction instruction, Facts facts) {
+        Long first = value(program, facts, instruction.role(1), instruction.y);
+        Long second = instruction.role(2) == '-' ? Long.valueOf(0) : value(program, facts, instruction.role(2), instruction.z);
+        if (first == null || second == null) {
+            return null;
+        }
+        int op = instruction.opcode;
+        long a = first;
+        long b = second;
+        switch (op) {
+            case ThreeAddressCode.MOVE_L:
+            case ThreeAddressCode.MOVE_D:
+                return a;
+            case ThreeAddressCode.ADD_I: return (long) ((int) a + (int) b);
+            case ThreeAddressCode.SUB_I: return (long) ((int) a - (int) b);
+            case ThreeAddressCode.MUL_I: return (long) ((int) a * (int) b);
+            case ThreeAddressCode.DIV_I: return (int) b == 0 ? null : (long) ((int) a / (int) b);
+            case ThreeAddressCode.REM_I: return (int) b == 0 ? null : (long) ((int) a % (int) b);
+            case ThreeAddressCode.NEG_I: return (long) -(int) a;
+            case ThreeAddressCode.ADD_J: return a + b;
+            case ThreeAddressCode.SUB_J: return a - b;
+            case ThreeAddressCode.MUL_J: return a * b;
+            case ThreeAddressCode.DIV_J: return b == 0 ? null : a / b;
+            case ThreeAddressCode.REM_J: return b == 0 ? null : a % b;
+            case ThreeAddressCode.NEG_J: return -a;
+            case ThreeAddressCode.L2F: return bits((float) a);
+            case ThreeAddressCode.L2D: return bits((double) a);
+            default:
+                break;
+        }
+        double x = Double.longBitsToDouble(a);
+        double y = Double.longBitsToDouble(b);
+        switch (op) {
+            case ThreeAddressCode.ADD_F: return bits((float) x + (float) y);
+            case ThreeAddressCode.SUB_F: return bits((float) x - (float) y);
+            case ThreeAddressCode.MUL_F: return bits((float) x * (float) y);
+            case ThreeAddressCode.DIV_F: return bits((float) x / (float) y);
+            case ThreeAddressCode.REM_F: return bits((float) x % (float) y);
+            case ThreeAddressCode.NEG_F: return bits(-(float) x);
+            case ThreeAddressCode.ADD_D: return bits(x + y);
+            case ThreeAddressCode.SUB_D: return bits(x - y);
+            case ThreeAddressCode.MUL_D: return bits(x * y);
+            case ThreeAddressCode.DIV_D: return bits(x / y);
+            case ThreeAddressCode.REM_D: return bits(x % y);
+            case ThreeAddressCode.NEG_D: return bits(-x);
+            default:
+                return null;
+        }
+    }
+
+    private static long bits(double value) {
+        return Double.doubleToRawLongBits(value);
+    }
+
+    // Whether a conditional jump is taken, or null when that depends on values not known
+    private static Boolean outcome(ThreeAddressCode program, Instruction instruction, Facts facts) {
+        int op = instruction.opcode;
+        if (op == ThreeAddressCode.IF_EQ_A || op == ThreeAddressCode.IF_NE_A) {
+            Registers references = program.references;
+            if (!references.isConstant(instruction.x) || !references.isConstant(instruction.y)) {
+                return null;
+            }
+            boolean same = references.initialValue(instruction.x) == references.initialValue(instruction.y);
+            return op == ThreeAddressCode.IF_EQ_A ? same : !same;
+        }
+        Long first = value(program, facts, instruction.role(0), instruction.x);
+        if (first == null) {
+            return null;
+        }
+        long a = first;
+        if (op == ThreeAddressCode.IF_TRUE || op == ThreeAddressCode.IF_FALSE) {
+            return (a != 0) == (op == ThreeAddressCode.IF_TRUE);
+        }
+        Long second = value(program, facts, instruction.role(1), instruction.y);
+        if (second == null) {
+            return null;
+        }
+        long b = second;
+        double x = Double.longBitsToDouble(a);
+        double y = Double.longBitsToDouble(b);
+        switch (op) {
+            case ThreeAddressCode.IF_EQ_L: return a == b;
+            case ThreeAddressCode.IF_NE_L: return a != b;
+            case ThreeAddressCode.IF_LT_L: return a < b;
+            case ThreeAddressCode.IF_GE_L: return a >= b;
+            case ThreeAddressCode.IF_GT_L: return a > b;
+            case ThreeAddressCode.IF_LE_L: return a <= b;
+            case ThreeAddressCode.IF_EQ_D: return x == y;
+            case ThreeAddressCode.IF_NE_D: return x != y;
+            case ThreeAddressCode.IF_LT_D: return x < y;
+            case ThreeAddressCode.IF_GE_D: return x >= y;
+            case ThreeAddressCode.IF_GT_D: return x > y;
+            case ThreeAddressCode.IF_LE_D: return x <= y;
+            default:
+                return null;
+        }
+    }
+
+    // A computation, by opcode and the flat registers of its operands; z is -1 when unused
+    private static final class Computation {
+        final int opcode;
+        final int y;
+        final int z;
+
+        Computation(int opcode, int y, int z) {
+            this.opcode = opcode;
+            this.y = y;
+            this.z = z;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Computation)) {
+                return false;
+            }
+            Computation computation = (Computation) other;
+            return opcode == computation.opcode && y == computation.y && z == computation.z;
+        }
+
+        @Override
+        public int hashCode() {
+            return (opcode * 31 + y) * 31 + z;
+        }
+    }
+
+    // What one basic block has computed so far: the register holding each computation, the
+    // original each copied register was copied from, and for every register the computations and
+    // copies that depend on it, so writing a register forgets them without a search. The reverse
+    // entries are not removed when their computation or copy is; they are checked when used.
+    private static final class Values {
+        final Map<Computation, Integer> available = new HashMap<>();
+        final Map<Integer, Integer> copies = new HashMap<>();
+        final Map<Integer, List<Computation>> computationsUsing = new HashMap<>();
+        final Map<Integer, List<Integer>> copiesOf = new HashMap<>();
+
+        void compute(Computation computation, int register) {
+            available.put(computation, register);
+            depend(register, computation);
+            depend(computation.y, computation);
+            if (computation.z >= 0) {
+                depend(computation.z, computation);
+            }
+        }
+
+        void copy(int register, int original) {
+            copies.put(register, original);
+            copiesOf.computeIfAbsent(original, key -> new ArrayList<>()).add(register);
+        }
+
+        private void depend(int register, Computation computation) {
+            computationsUsing.computeIfAbsent(register, key -> new ArrayList<>()).add(computation);
+        }
+
+        // Forgets what depended on the old value of a register about to be written
+        void kill(int register) {
+            List<Computation> computations = computationsUsing.remove(register);
+            if (computations != null) {
+                for (Computation computation : computations) {
+                    Integer held = available.get(computation);
+                    if (held != null && (held == register || computation.y == register || computation.z == register)) {
+                        available.remove(computation);
+                    }
+                }
+            }
+            copies.remove(register);
+            List<Integer> copied = copiesOf.remove(register);
+            if (copied != null) {
+                for (int copy : copied) {
+                    Integer original = copies.get(copy);
+                    if (original != null && original == register) {
+                        copies.remove(copy);
+                    }
+                }
+            }
+        }
+    }
+
+    // Local value numbering: within each basic block, a computation already held in a register
+    // becomes a move from it, and reads of a register copied from another read the original until
+    // either is written again
+    private static void eliminateCommonSubexpressions(ThreeAddressCode program) {
+        List<Instruction> instructions = program.instructions;
+        Graph graph = new Graph(instructions);
+        for (int block = 0; block < graph.size(); block++) {
+            if ((block & CANCELLATION_INTERVAL) == 0) {
+                Cancellation.checkpoint();
+            }
+            Values values = new Values();
+            for (int i = graph.starts[block]; i < graph.ends[block]; i++) {
+                Instruction instruction = instructions.get(i);
+                for (int operand = 0; operand < 3; operand++) {
+                    char use = instruction.role(operand);
+                    if (use == 'l' || use == 'd' || use == 'a') {
+                        Integer original = values.copies.get(flat(program, use, instruction.operand(operand)));
+                        if (original != null) {
+                            instruction.setOperand(operand, original - program.flatOffset(use));
+                        }
+                    }
+                }
+
+                Computation computation = null;
+                if (isComputation(instruction.opcode)) {
+                    int y = flat(program, instruction.role(1), instruction.y);
+                    int z = instruction.role(2) == '-' ? -1 : flat(program, instruction.role(2), instruction.z);
+                    if (isCommutative(instruction.opcode) && z < y) {
+                        int swap = y;
+                        y = z;
+                        z = swap;
+                    }
+                    computation = new Computation(instruction.opcode, y, z);
+                    Integer computed = values.available.get(computation);
+                    if (computed != null) {
+                        char file = instruction.role(0);
+                        instruction.opcode = file == 'L' ? ThreeAddressCode.MOVE_L : ThreeAddressCode.MOVE_D;
+                        instruction.y = computed - program.flatOffset(file);
+                        instruction.z = 0;
+                        computation = null;
+                    }
+                }
+
+                char role = instruction.role(0);
+                if (role == 'L' || role == 'D' || role == 'A' || role == 'B') {
+                    int target = flat(program, role == 'B' ? 'A' : role, instruction.x);
+                    values.kill(target);
+                    if (computation != null && computation.y != target && computation.z != target) {
+                        values.compute(computation, target);
+                    }
+                    if (isMove(instruction.opcode) && instruction.x != instruction.y) {
+                        values.copy(target, flat(program, role, instruction.y));
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isComputation(int opcode) {
+        return opcode >= ThreeAddressCode.ADD_I && opcode <= ThreeAddressCode.L2D;
+    }
+
+    private static boolean isMove(int opcode) {
+        return opcode <= ThreeAddressCode.MOVE_A;
+    }
+
+    private static boolean isCommutative(int opcode) {
+        if (opcode < ThreeAddressCode.ADD_I || opcode > ThreeAddressCode.NEG_D) {
+            return false;
+        }
+        int op = (opcode - ThreeAddressCode.ADD_I) % 6;
+        return op == 0 || op == 2;  // add and mul
+    }
+
+    // Removes unreachable code, then instructions that write a register no later instruction reads
+    // before it is written again, repeating until nothing changes as each removal can leave the
+    // instructions that fed it dead too. The printed variables are read at the end of the program.
+    private static void eliminateDeadStores(ThreeAddressCode program) {
+        removeUnreachable(program);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            List<Instruction> instructions = program.instructions;
+            Graph graph = new Graph(instructions);
+            int[] slots = new int[program.flatCount()];
+            int carried = carriedSlots(program, graph, "lda", slots);
+            BitSet exitLive = new BitSet();
+            for (Printed variable : program.printed) {
+                int index = flat(program, variable.file(), variable.register);
+                if (slots[index] < 0) {
+                    slots[index] = carried++;
+                }
+                exitLive.set(slots[index]);
+            }
+            BitSet[] liveIn = liveness(program, graph, exitLive, slots);
+            boolean[] dead = new boolean[instructions.size()];
+            LiveSet live = new LiveSet(slots);
+            for (int block = 0; block < graph.size(); block++) {
+                if ((block & CANCELLATION_INTERVAL) == 0) {
+                    Cancellation.checkpoint();
+                }
+                liveOut(graph, block, liveIn, exitLive, live);
+                for (int i = graph.ends[block] - 1; i >= graph.starts[block]; i--) {
+                    Instruction instruction = instructions.get(i);
+                    int target = definition(program, instruction);
+                    boolean selfMove = isMove(instruction.opcode) && instruction.x == instruction.y;
+                    if (selfMove || target >= 0 && !live.get(target) && isRemovable(program, instruction)) {
+                        dead[i] = true;
+                        changed = true;
+                        continue;
+                    }
+                    if (i > graph.starts[block] && forwardsTemporary(program, instructions.get(i - 1), instruction, live)) {
+                        dead[i] = true;
+                        changed = true;
+                        continue;
+                    }
+                    step(program, instruction, live);
+                }
+            }
+            if (changed) {
+                List<Instruction> kept = new ArrayList<>(instructions.size());
+                for (int i = 0; i < instructions.size(); i++) {
+                    if (!dead[i]) {
+                        kept.add(instructions.get(i));
+                    }
+                }
+                program.instructions = kept;
+            }
+        }
+        removeRedundantJumps(program);
+    }
+
+    // A value computed into a register that is only copied to another by the next instruction is
+    // computed into the other register directly; the copy is dropped
+    private static boolean forwardsTemporary(ThreeAddressCode program, Instruction producer, Instruction move,
+                                             LiveSet liveAfterMove) {
+        if (!isMove(move.opcode) || producer.role(0) != move.role(0) || producer.x != move.y
+                || program.registers(move.role(0)).isConstant(move.y)
+                || liveAfterMove.get(flat(program, move.role(0), move.y))) {
+            return false;
+        }
+        producer.x = move.x;
+        return true;
+    }
+
+    // The registers live at one point, by flat index. Those with a slot, which can be live where a
+    // block starts or the program ends, are kept as a set of slots, the form stored for every block.
+    // The others are read only after being written within the same block, so are dead at both ends
+    // of every block and share one array that each block leaves clear.
+    private static final class LiveSet {
+        final int[] slots;
+        final BitSet carried = new BitSet();
+        final boolean[] local;
+
+        LiveSet(int[] slots) {
+            this.slots = slots;
+            local = new boolean[slots.length];
+        }
+
+        boolean get(int register) {
+            int slot = slots[register];
+            return slot < 0 ? local[register] : carried.get(slot);
+        }
+
+        void set(int register, boolean live) {
+            int slot = slots[register];
+            if (slot < 0) {
+                local[register] = live;
+            } else {
+                carried.set(slot, live);
+            }
+        }
+    }
+
+    // The slots of the registers live where each block starts
+    private static BitSet[] liveness(ThreeAddressCode program, Graph graph, BitSet exitLive, int[] slots) {
+        BitSet[] liveIn = new BitSet[graph.size()];
+        for (int block = 0; block < graph.size(); block++) {
+            liveIn[block] = new BitSet();
+        }
+        LiveSet live = new LiveSet(slots);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            Cancellation.checkpoint();
+            for (int block = graph.size() - 1; block >= 0; block--) {
+                liveOut(graph, block, liveIn, exitLive, live);
+                for (int i = graph.ends[block] - 1; i >= graph.starts[block]; i--) {
+                    step(program, program.instructions.get(i), live);
+                }
+                if (!live.carried.equals(liveIn[block])) {
+                    liveIn[block] = (BitSet) live.carried.clone();
+                    changed = true;
+                }
+            }
+        }
+        return liveIn;
+    }
+
+    // Sets live to the registers live where the block ends
+    private static void liveOut(Graph graph, int block, BitSet[] liveIn, BitSet exitLive, LiveSet live) {
+        live.carried.clear();
+        for (int successor : graph.successors[block]) {
+            live.carried.or(successor == graph.size() ? exitLive : liveIn[successor]);
+        }
+    }
+
+    // Moves the live set from after an instruction to before it. Constants, which nothing writes,
+    // are never live.
+    private static void step(ThreeAddressCode program, Instruction instruction, LiveSet live) {
+        int target = definition(program, instruction);
+        if (target >= 0 && instruction.role(0) != 'B') {
+            live.set(target, false);
+        }
+        for (int i = 0; i < 3; i++) {
+            char use = instruction.role(i) == 'B' ? 'a' : instruction.role(i);
+            if ((use == 'l' || use == 'd' || use == 'a') && !program.registers(use).isConstant(instruction.operand(i))) {
+                live.set(flat(program, use, instruction.operand(i)), true);
+            }
+        }
+    }
+
+    // The register an instruction writes, or -1
+    private static int definition(ThreeAddressCode program, Instruction instruction) {
+        char role = instruction.role(0);
+        if (role == 'L' || role == 'D' || role == 'A' || role == 'B') {
+            return flat(program, role == 'B' ? 'A' : role, instruction.x);
+        }
+        return -1;
+    }
+
+    // Integer division is kept, even when its result is unused, unless its divisor is a constant
+    // other than zero, as dividing by zero throws
+    private static boolean isRemovable(ThreeAddressCode program, Instruction instruction) {
+        switch (instruction.opcode) {
+            case ThreeAddressCode.DIV_I:
+            case ThreeAddressCode.REM_I:
+            case ThreeAddressCode.DIV_J:
+            case ThreeAddressCode.REM_J:
+                Registers longs = program.longs;
+                return longs.isConstant(instruction.z) && (Long) longs.initialValue(instruction.z) != 0;
+            default:
+                return true;
+        }
+    }
+
+    private static void removeUnreachable(ThreeAddressCode program) {
+        List<Instruction> instructions = program.instructions;
+        Graph graph = new Graph(instructions);
+        boolean[] reached = graph.reachable();
+        List<Instruction> kept = new ArrayList<>(instructions.size());
+        for (int block = 0; block < graph.size(); block++) {
+            for (int i = graph.starts[block]; i < graph.ends[block]; i++) {
+                Instruction instruction = instructions.get(i);
+                if (reached[block] || instruction.opcode == ThreeAddressCode.LABEL) {
+                    kept.add(instruction);
+                }
+            }
+        }
+        program.instructions = kept;
+    }
+
+    // Drops jumps to the label right after them and labels that nothing jumps to. The instructions
+    // are kept from the last back, so a jump is checked against what is left after the jumps behind
+    // it were dropped, which may have brought its label up to it.
+    private static void removeRedundantJumps(ThreeAddressCode program) {
+        List<Instruction> instructions = program.instructions;
+        List<Instruction> kept = new ArrayList<>(instructions.size());
+        // The labels at the start of what is kept so far
+        Map<Instruction, Boolean> leading = new IdentityHashMap<>();
+        for (int i = instructions.size() - 1; i >= 0; i--) {
+            Instruction instruction = instructions.get(i);
+            if (instruction.opcode == ThreeAddressCode.LABEL) {
+                leading.put(instruction, Boolean.TRUE);
+            } else if (instruction.isBranch() && leading.containsKey(instruction.target)) {
+                continue;
+            } else if (!leading.isEmpty()) {
+                leading = new IdentityHashMap<>();
+            }
+            kept.add(instruction);
+        }
+        Collections.reverse(kept);
+        Map<Instruction, Boolean> targets = new IdentityHashMap<>();
+        for (Instruction instruction : kept) {
+            if (instruction.isBranch()) {
+                targets.put(instruction.target, Boolean.TRUE);
+            }
+        }
+        kept.removeIf(instruction -> instruction.opcode == ThreeAddressCode.LABEL && !targets.containsKey(instruction));
+        program.instructions = kept;
+    }
+}
@@ -0,0 +1,630 @@
+package actions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import common.Diagnostic;
+import common.Phase;
+import common.Token;
+import common.TokenBuffer;
+import common.TokenType;
+import common.ast.AssignmentExpression;
+import common.ast.BinaryExpression;
+import common.ast.Block;
+import common.ast.ClassDeclaration;
+import common.ast.CompilationUnit;
+import common.ast.EmptyStatement;
+import common.ast.Expression;
+import common.ast.ExpressionStatement;
+import common.ast.IfStatement;
+import common.ast.Literal;
+import common.ast.MethodDeclaration;
+import common.ast.NameExpression;
+import common.ast.Node;
+import common.ast.Parameter;
+import common.ast.ReturnStatement;
+import common.ast.Statement;
+import common.ast.TypeNode;
+import common.ast.UnaryExpression;
+import common.ast.VariableDeclaration;
+import common.ast.WhileStatement;
+
+// Predictive recursive-descent parser; binary operators are parsed by precedence climbing. Parse
+// methods return null after recording a diagnostic, and the enclosing list parser skips ahead to the
+// next statement boundary (a ';', a whole block, or a line starting with a declaration or statement
+// keyword), so one pass reports the errors of every statement and keeps every statement that parsed.
+// A declaration whose value or ending failed to parse is kept without its value, so its uses raise
+// no follow-on errors. Unknown tokens, which the lexer has already reported, are passed over, and at
+// most one error is reported per token. A construct nested too deeply fails like any other, so the
+// statement around it is skipped; a chain of binary operators is not nesting and may be any length.
+// Tokens are read from the TokenBuffer arrays by index; only names and literals that end up in the
+// tree are cut from the source.
+public class Parser {
+
+    private static final int CANCELLATION_INTERVAL = 0xFFF;  // Top-level items between cancellation checks
+    // The later phases walk the tree recursively, so a tree deeper than this, counting blocks, bodies,
+    // parentheses, prefix operators and assignments, is refused rather than overflowing their stack
+    private static final int MAX_NESTING = 500;
+
+    private final TokenBuffer tokens;
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+    private int pos;
+    // The last token consumed, and the token at which the last error was reported
+    private int previous;
+    private int lastError = -1;
+    // Depth of the tree around the construct being parsed, and whether the current top-level item
+    // has already been reported as nested too deeply
+    private int nesting;
+    private boolean nestingReported;
+
+    public Parser(List<Token> tokens) {
+        this.tokens = TokenBuffer.of(tokens);
+        skipUnknown();
+    }
+
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    public CompilationUnit parse() {
+        List<Node> items = new ArrayList<>();
+        int start = offset(pos);
+        while (!check(TokenType.EOF)) {
+            if ((items.size() & CANCELLATION_INTERVAL) == 0) {
+                Cancellation.checkpoint();
+            }
+            int before = pos;
+            nestingReported = false;
+            Node item = isClassStart() ? parseClass() : parseStatement();
+            if (item != null) {
+                items.add(item);
+            } else {
+                synchronize(before);
+            }
+            if (pos == before) {
+                advance();  // A stray '}' at the top level; always make progress
+            }
+        }
+        return new CompilationUnit(items, start, offset(pos));
+    }
+
+    private boolean isClassStart() {
+        int ahead = pos;
+        while (isModifier(type(ahead))) {
+            ahead = next(ahead);
+        }
+        return type(ahead) == TokenType.CLASS;
+    }
+
+    private ClassDeclaration parseClass() {
+        int first = pos;
+        List<TokenType> modifiers = parseModifiers();
+        advance();  // 'class'
+        int name = expect(TokenType.IDENTIFIER, "class name");
+        if (name < 0 || expect(TokenType.LBRACE, "'{'") < 0) {
+            return null;
+        }
+        List<Node> members = new ArrayList<>();
+        while (!check(TokenType.RBRACE) && !check(TokenType.EOF)) {
+            int memberStart = pos;
+            Node member = parseMember();
+            if (member != null) {
+                members.add(member);
+            } else {
+                synchronize(memberStart);
+            }
+        }
+        if (expect(TokenType.RBRACE, "'}'") < 0) {
+            return null;
+        }
+        return new ClassDeclaration(modifiers, text(name), members,
+                offset(first), endOffset(previous), line(first), column(first));
+    }
+
+    private Node parseMember() {
+        int first = pos;
+        List<TokenType> modifiers = parseModifiers();
+        TypeNode type = parseType(true);
+        if (type == null) {
+            return null;
+        }
+        int name = expect(TokenType.IDENTIFIER, "member name");
+        if (name < 0) {
+            return null;
+        }
+        if (check(TokenType.LPAREN)) {
+            return parseMethodRest(first, modifiers, type, name);
+        }
+        if (type.getKeyword() == TokenType.VOID) {
+            error("void-field", type.getLine(), type.getColumn(), "Fields cannot have type 'void'");
+            return null;
+        }
+        return parseVariableRest(first, modifiers, type, name);
+    }
+
+    private MethodDeclaration parseMethodRest(int first, List<TokenType> modifiers, TypeNode returnType, int name) {
+        advance();  // '('
+        List<Parameter> parameters = new ArrayList<>();
+        if (!check(TokenType.RPAREN)) {
+            do {
+                int parameterStart = pos;
+                TypeNode type = parseType(false);
+                if (type == null) {
+                    return null;
+                }
+                int parameterName = expect(TokenType.IDENTIFIER, "parameter name");
+                if (parameterName < 0) {
+                    return null;
+                }
+                parameters.add(new Parameter(type, text(parameterName), tokens.getNameId(parameterName),
+                        offset(parameterStart), endOffset(parameterName),
+                        line(parameterStart), column(parameterStart)));
+            } while (match(TokenType.COMMA));
+        }
+        if (expect(TokenType.RPAREN, "')'") < 0) {
+            return null;
+        }
+        if (!check(TokenType.LBRACE)) {
+            expect(TokenType.LBRACE, "'{'");
+            return null;
+        }
+        Block body = parseBlock();
+        if (body == null) {
+            return null;
+        }
+        return new MethodDeclaration(modifiers, returnType, text(name), parameters, body,
+                offset(first), body.getEnd(), line(first), column(first));
+    }
+
+    private Statement parseStatement() {
+        if (!enterNesting()) {
+            return null;
+        }
+        try {
+            return parseStatementBody();
+        } finally {
+            nesting--;
+        }
+    }
+
+    private Statement parseStatementBody() {
+        int first = pos;
+        switch (type(first)) {
+            case LBRACE:
+                return parseBlock();
+            case IF:
+                return parseIf();
+            case WHILE:
+                return parseWhile();
+            case RETURN:
+                return parseReturn();
+            case SEMICOLON:
+                advance();
+                return new EmptyStatement(offset(first), endOffset(first), line(first), column(first));
+            case FINAL:
+                return parseLocalVariable();
+            case RBRACE:
+                error("unexpected-token", line(first), column(first), "Unexpected '}'");
+                return null;
+            default:
+                if (type(first).isDataType()) {
+                    return parseLocalVariable();
+                }
+                return parseExpressionStatement();
+        }
+    }
+
+    private Block parseBlock() {
+        int open = advance();  // '{'
+        List<Statement> statements = new ArrayList<>();
+        while (!check(TokenType.RBRACE) && !check(TokenType.EOF)) {
+            int statementStart = pos;
+            Statement statement = parseStatement();
+            if (statement != null) {
+                statements.add(statement);
+            } else {
+                synchronize(statementStart);
+            }
+        }
+        if (expect(TokenType.RBRACE, "'}'") < 0) {
+            return null;
+        }
+        return new Block(statements, offset(open), endOffset(previous), line(open), column(open));
+    }
+
+    private IfStatement parseIf() {
+        int first = advance();  // 'if'
+        Expression condition = parseCondition();
+        if (condition == null) {
+            return null;
+        }
+        Statement thenBranch = parseStatement();
+        if (thenBranch == null) {
+            return null;
+        }
+        Statement elseBranch = null;
+        if (match(TokenType.ELSE)) {
+            elseBranch = parseStatement();
+            if (elseBranch == null) {
+                return null;
+            }
+        }
+        return new IfStatement(condition, thenBranch, elseBranch,
+                offset(first), endOffset(previous), line(first), column(first));
+    }
+
+    private WhileStatement parseWhile() {
+        int first = advance();  // 'while'
+        Expression condition = parseCondition();
+        if (condition == null) {
+            return null;
+        }
+        Statement body = parseStatement();
+        if (body == null) {
+            return null;
+        }
+        return new WhileStatement(condition, body,
+                offset(first), endOffset(previous), line(first), column(first));
+    }
+
+    private Expression parseCondition() {
+        if (expect(TokenType.LPAREN, "'('") < 0) {
+            return null;
+        }
+        Expression condition = parseExpression();
+        if (condition == null || expect(TokenType.RPAREN, "')'") < 0) {
+            return null;
+        }
+        return condition;
+    }
+
+    private ReturnStatement parseReturn() {
+        int first = advance();  // 'return'
+        Expression value = null;
+        if (!check(TokenType.SEMICOLON)) {
+            value = parseExpression();
+            if (value == null) {
+                return null;
+            }
+        }
+        if (expect(TokenType.SEMICOLON, "';'") < 0) {
+            return null;
+        }
+        return new ReturnStatement(value, offset(first), endOffset(previous), line(first), column(first));
+    }
+
+    private VariableDeclaration parseLocalVariable() {
+        int first = pos;
+        List<TokenType> modifiers = parseModifiers();
+        TypeNode type = parseType(false);
+        if (type == null) {
+            return null;
+        }
+        int name = expect(TokenType.IDENTIFIER, "variable name");
+        if (name < 0) {
+            return null;
+        }
+        return parseVariableRest(first, modifiers, type, name);
+    }
+
+    private VariableDeclaration parseVariableRest(int first, List<TokenType> modifiers, TypeNode type, int name) {
+        Expression initializer = null;
+        boolean parsed = true;
+        if (match(TokenType.ASSIGN)) {
+            initializer = parseExpression();
+            parsed = initializer != null;
+        }
+        if (!parsed || !expectSemicolon()) {
+            // Kept without its value, so the later uses of the name are still checked
+            synchronize(name);
+            initializer = null;
+        }
+        return new VariableDeclaration(modifiers, type, text(name), tokens.getNameId(name), initializer,
+                offset(first), endOffset(previous), line(first), column(first));
+    }
+
+    private ExpressionStatement parseExpressionStatement() {
+        int first = pos;
+        Expression expression = parseExpression();
+        if (expression == null) {
+            return null;
+        }
+        if (!(expression instanceof AssignmentExpression)) {
+            error("not-a-statement", line(first), column(first),
+                    "Not a statement: expected a declaration or an assignment");
+            return null;
+        }
+        if (!expectSemicolon()) {
+            return null;
+        }
+        return new ExpressionStatement(expression,
+                offset(first), endOffset(previous), line(first), column(first));
+    }
+
+    private Expression parseExpression() {
+        if (!enterNesting()) {
+            return null;
+        }
+        try {
+            return parseExpressionBody();
+        } finally {
+            nesting--;
+        }
+    }
+
+    private Expression parseExpressionBody() {
+        int first = pos;
+        Expression target = parseBinary(1);
+        if (target == null) {
+            return null;
+        }
+        if (check(TokenType.ASSIGN)) {
+            if (!(target instanceof NameExpression)) {
+                error("invalid-assignment", line(pos), column(pos),
+                        "Invalid assignment target");
+                return null;
+            }
+            advance();
+            Expression value = parseExpression();
+            if (value == null) {
+                return null;
+            }
+            return new AssignmentExpression((NameExpression) target, value,
+                    offset(first), value.getEnd(), line(first), column(first));
+        }
+        return target;
+    }
+
+    // Precedence climbing: an operator joins the expression on its left only when it binds at least
+    // as tightly as minPrecedence, and its right operand takes only tighter operators, so every
+    // binary operator is left-associative. A chain of operators is built in a loop and is not
+    // nesting: the later phases walk left-deep chains iteratively.
+    private Expression parseBinary(int minPrecedence) {
+        Expression left = parseUnary();
+        int precedence;
+        while (left != null && (precedence = type(pos).getBinaryPrecedence()) >= minPrecedence) {
+            TokenType operator = type(advance());
+            Expression right = parseBinary(precedence + 1);
+            if (right == null) {
+                return null;
+            }
+            left = new BinaryExpression(operator, left, right,
+                    left.getStart(), right.getEnd(), left.getLine(), left.getColumn());
+        }
+        return left;
+    }
+
+    private Expression parseUnary() {
+        int first = pos;
+        if (check(TokenType.MINUS) || check(TokenType.PLUS) || check(TokenType.NOT)) {
+            if (!enterNesting()) {
+                return null;
+            }
+            try {
+                advance();
+                Expression operand = parseUnary();
+                if (operand == null) {
+                    return null;
+                }
+                return new UnaryExpression(type(first), operand,
+                        offset(first), operand.getEnd(), line(first), column(first));
+            } finally {
+                nesting--;
+            }
+        }
+        return parsePrimary();
+    }
+
+    private Expression parsePrimary() {
+        int token = pos;
+        switch (type(token)) {
+            case INTEGER_LITERAL:
+            case FLOATING_LITERAL:
+            case CHAR_LITERAL:
+            case STRING_LITERAL:
+            case TRUE:
+            case FALSE:
+            case NULL:
+                advance();
+                return new Literal(type(token), text(token),
+                        offset(token), endOffset(token), line(token), column(token));
+            case IDENTIFIER:
+                advance();
+                return new NameExpression(text(token), tokens.getNameId(token),
+                        offset(token), endOffset(token), line(token), column(token));
+            case LPAREN:
+                advance();
+                Expression inner = parseExpression();
+                if (inner == null || expect(TokenType.RPAREN, "')'") < 0) {
+                    return null;
+                }
+                return inner;
+            default:
+                error("expected-expression", line(token), column(token),
+                        "Expected an expression but found " + describe(token));
+                return null;
+        }
+    }
+
+    private TypeNode parseType(boolean allowVoid) {
+        int first = pos;
+        if (!type(first).isDataType() && !(allowVoid && type(first) == TokenType.VOID)) {
+            error("expected-type", line(first), column(first),
+                    "Expected a data type but found " + describe(first));
+            return null;
+        }
+        advance();
+        int dimensions = 0;
+        while (check(TokenType.LBRACKET)) {
+            advance();
+            if (expect(TokenType.RBRACKET, "']'") < 0) {
+                return null;
+            }
+            dimensions++;
+        }
+        return new TypeNode(type(first), dimensions,
+                offset(first), endOffset(previous), line(first), column(first));
+    }
+
+    private List<TokenType> parseModifiers() {
+        List<TokenType> modifiers = new ArrayList<>();
+        while (isModifier(type(pos))) {
+            modifiers.add(type(advance()));
+        }
+        return modifiers;
+    }
+
+    private static boolean isModifier(TokenType type) {
+        return type == TokenType.PUBLIC || type == TokenType.PRIVATE || type == TokenType.PROTECTED
+                || type == TokenType.STATIC || type == TokenType.FINAL;
+    }
+
+    // Panic-mode recovery after the construct that began at the start token failed: skip to just past
+    // the next ';' or past a whole block, up to a '}' that closes the enclosing block, or up to a
+    // keyword that begins a statement or declaration on a line of its own. Skipped blocks are skipped
+    // whole, so their '}' and the statements in them do not raise errors of their own.
+    private void synchronize(int start) {
+        int depth = 0;
+        while (!check(TokenType.EOF)) {
+            if (depth == 0 && (check(TokenType.RBRACE) || pos > start && startsLine(pos) && startsStatement(pos))) {
+                return;
+            }
+            TokenType type = type(advance());
+            if (type == TokenType.LBRACE) {
+                depth++;
+            } else if (type == TokenType.RBRACE) {
+                if (--depth == 0 && !check(TokenType.ELSE)) {
+                    return;
+                }
+            } else if (type == TokenType.SEMICOLON && depth == 0) {
+                return;
+            }
+        }
+    }
+
+    private boolean startsLine(int token) {
+        return token == 0 || line(token) > line(previous);
+    }
+
+    private boolean startsStatement(int token) {
+        TokenType type = type(token);
+        return type.isDataType() || isModifier(type) || type == TokenType.CLASS || type == TokenType.IF
+                || type == TokenType.WHILE || type == TokenType.RETURN;
+    }
+
+    // A ';' missing before a line that begins a new statement is reported and taken as read, which
+    // keeps the statement it ends; elsewhere a missing ';' fails the statement
+    private boolean expectSemicolon() {
+        if (check(TokenType.SEMICOLON)) {
+            advance();
+            return true;
+        }
+        boolean endsLine = !check(TokenType.EOF) && startsLine(pos) && startsStatement(pos)
+                || check(TokenType.RBRACE) || check(TokenType.EOF);
+        expect(TokenType.SEMICOLON, "';'");
+        return endsLine;
+    }
+
+    // Enters one more level of the tree, or fails, leaving the depth as it was, when the construct at
+    // the current token nests too deeply; that is reported once per top-level item
+    private boolean enterNesting() {
+        if (nesting == MAX_NESTING) {
+            if (!nestingReported) {
+                nestingReported = true;
+                error("too-deeply-nested", line(pos), column(pos), "Code is nested too deeply; at most "
+                        + MAX_NESTING + " levels of blocks and expressions are allowed");
+            }
+            return false;
+        }
+        nesting++;
+        return true;
+    }
+
+    // The index of the expected token, or -1 after recording a diagnostic
+    private int expect(TokenType type, String description) {
+        if (check(type)) {
+            return advance();
+        }
+        error("expected-token", line(pos), column(pos),
+                "Expected " + description + " but found " + describe(pos));
+        return -1;
+    }
+
+    // An error at or before the token of the previous one is a consequence of it and is dropped, as
+    // is one right after an unknown token, which the lexer has reported
+    private void error(String code, int line, int column, String message) {
+        if (pos <= lastError || pos > 0 && tokens.getType(pos - 1) == TokenType.UNKNOWN) {
+            return;
+        }
+        lastError = pos;
+        diagnostics.add(Diagnostic.error(Phase.SYNTAX, code, line, column, message));
+    }
+
+    private String describe(int token) {
+        return type(token) == TokenType.EOF ? "end of input" : "'" + text(token) + "'";
+    }
+
+    private boolean match(TokenType type) {
+        if (check(type)) {
+            advance();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean check(TokenType type) {
+        return tokens.getType(pos) == type;
+    }
+
+    // Returns the index of the current token and moves past it, but never past the end of input
+    private int advance() {
+        int token = pos;
+        if (tokens.getType(pos) != TokenType.EOF) {
+            previous = pos;
+            pos++;
+            skipUnknown();
+        }
+        return token;
+    }
+
+    private void skipUnknown() {
+        while (tokens.getType(pos) == TokenType.UNKNOWN) {
+            pos++;
+        }
+    }
+
+    // The index of the token after the given one, passing over unknown tokens
+    private int next(int token) {
+        if (tokens.getType(token) == TokenType.EOF) {
+            return token;
+        }
+        do {
+            token++;
+        } while (tokens.getType(token) == TokenType.UNKNOWN);
+        return token;
+    }
+
+    private TokenType type(int token) {
+        return tokens.getType(token);
+    }
+
+    private String text(int token) {
+        return tokens.getText(token);
+    }
+
+    private int offset(int token) {
+        return tokens.getOffset(token);
+    }
+
+    private int endOffset(int token) {
+        return tokens.getEndOffset(token);
+    }
+
+    private int line(int token) {
+        return tokens.getLine(token);
+    }
+
+    private int column(int token) {
+        return tokens.getColumn(token);
+    }
+}
@@ -0,0 +1,182 @@
+package actions;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import common.Renderable;
+
+// Wall time, CPU time and bytes allocated by the measuring thread in each stage of one run, such as
+// the pipeline phases or rendering the report, plus counters such as the number of tokens. Stages
+// follow one another: starting a stage ends the previous one. Not thread-safe; a run is measured on
+// one thread. Callers that do not want metrics pass null and nothing is measured.
+public class PhaseMetrics implements Renderable {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported();
+    private static final boolean ALLOCATION = isAllocationSupported();
+
+    // Totals of one stage; CPU time and allocation are -1 where the JVM cannot measure them
+    public static final class Stage {
+        private final String name;
+        private int count;
+        private long wallNanos;
+        private long cpuNanos;
+        private long allocatedBytes;
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // How many times the stage ran
+        public int getCount() {
+            return count;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        public long getCpuNanos() {
+            return CPU_TIME ? cpuNanos : -1;
+        }
+
+        public long getAllocatedBytes() {
+            return ALLOCATION ? allocatedBytes : -1;
+        }
+    }
+
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+    private final Map<String, Long> counters = new LinkedHashMap<>();
+    private Stage current;
+    private long wallStart;
+    private long cpuStart;
+    private long allocatedStart;
+
+    public void start(String stage) {
+        stop();
+        current = stages.get(stage);
+        if (current == null) {
+            current = new Stage(stage);
+            stages.put(stage, current);
+        }
+        allocatedStart = allocatedBytes();
+        cpuStart = CPU_TIME ? THREADS.getCurrentThreadCpuTime() : 0;
+        wallStart = System.nanoTime();
+    }
+
+    // Ends the current stage, if any
+    public void stop() {
+        if (current == null) {
+            return;
+        }
+        long wallEnd = System.nanoTime();
+        long cpuEnd = CPU_TIME ? THREADS.getCurrentThreadCpuTime() : 0;
+        long allocatedEnd = allocatedBytes();
+        current.count++;
+        current.wallNanos += wallEnd - wallStart;
+        current.cpuNanos += cpuEnd - cpuStart;
+        current.allocatedBytes += allocatedEnd - allocatedStart;
+        current = null;
+    }
+
+    public void count(String counter, long amount) {
+        Long total = counters.get(counter);
+        counters.put(counter, total == null ? amount : total + amount);
+    }
+
+    // Adds every stage and counter of the other metrics to these, as for the totals of a batch
+    public void add(PhaseMetrics other) {
+        for (Stage stage : other.stages.values()) {
+            Stage total = stages.get(stage.name);
+            if (total == null) {
+                total = new Stage(stage.name);
+                stages.put(stage.name, total);
+            }
+            total.count += stage.count;
+            total.wallNanos += stage.wallNanos;
+            total.cpuNanos += stage.cpuNanos;
+            total.allocatedBytes += stage.allocatedBytes;
+        }
+        for (Map.Entry<String, Long> counter : other.counters.entrySet()) {
+            count(counter.getKey(), counter.getValue());
+        }
+    }
+
+    public Iterable<Stage> getStages() {
+        return stages.values();
+    }
+
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    // A table with one row per stage and a line of counters, for the result pane
+    @Override
+    public String render() {
+        StringBuilder text = new StringBuilder(String.format("%-12s %10s %10s %12s\n",
+                "Stage", "Wall ms", "CPU ms", "Allocated KB"));
+        long wall = 0;
+        for (Stage stage : stages.values()) {
+            text.append(String.format("%-12s %10.2f %10s %12s\n", stage.name, stage.wallNanos / 1e6,
+                    stage.getCpuNanos() < 0 ? "n/a" : String.format("%.2f", stage.cpuNanos / 1e6),
+                    stage.getAllocatedBytes() < 0 ? "n/a" : Long.toString(stage.allocatedBytes >> 10)));
+            wall += stage.wallNanos;
+        }
+        text.append(String.format("%-12s %10.2f\n", "total", wall / 1e6));
+        if (!counters.isEmpty()) {
+            StringBuilder line = new StringBuilder();
+            for (Map.Entry<String, Long> counter : counters.entrySet()) {
+                line.append(line.length() == 0 ? "" : ", ").append(counter.getKey()).append(": ").append(counter.getValue());
+            }
+            text.append(line).append('\n');
+        }
+        return text.toString();
+    }
+
+    // A JSON object with the stages, by name, and the counters; times are in milliseconds, and CPU
+    // time and allocation are null where the JVM cannot measure them
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"stages\": {");
+        String separator = "";
+        for (Stage stage : stages.values()) {
+            json.append(separator).append('"').append(stage.name).append("\": {")
+                .append("\"count\": ").append(stage.count)
+                .append(", \"wallMs\": ").append(String.format(Locale.ROOT, "%.3f", stage.wallNanos / 1e6))
+                .append(", \"cpuMs\": ").append(stage.getCpuNanos() < 0 ? "null" : String.format(Locale.ROOT, "%.3f", stage.cpuNanos / 1e6))
+                .append(", \"allocatedBytes\": ").append(stage.getAllocatedBytes() < 0 ? "null" : Long.toString(stage.allocatedBytes))
+                .append('}');
+            separator = ", ";
+        }
+        json.append("}, \"counters\": {");
+        separator = "";
+        for (Map.Entry<String, Long> counter : counters.entrySet()) {
+            json.append(separator).append('"').append(counter.getKey()).append("\": ").append(counter.getValue());
+            separator = ", ";
+        }
+        return json.append("}}").toString();
+    }
+
+    private static long allocatedBytes() {
+        if (!ALLOCATION) {
+            return 0;
+        }
+        return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static boolean isAllocationSupported() {
+        try {
+            return THREADS instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported()
+                    && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemoryEnabled();
+        } catch (LinkageError ex) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package actions;
+
+import java.util.List;
+
+import common.AnalysisResult;
+import common.IdentifierPool;
+import common.Token;
+import common.ast.CompilationUnit;
+
+// Per-phase caches of analysis results keyed by the content hash of the source, so pressing
+// Lexical, Syntax, Semantic or Run again on unchanged code reuses the earlier results, including
+// their already rendered reports. Semantic analysis records types and constants on the tree it
+// checks, so it checks a tree of its own, parsed again from the cached tokens; the cached syntax
+// trees are never written, and a semantic result's tree is complete before it is published. Two
+// threads missing on the same source at once therefore each compute a correct result. A result
+// computed on a thread that has been interrupted is returned but not cached.
+// Sources are lexed into a pool of the cache's own rather than the shared one, and the pool is
+// replaced by an empty one once it holds MAX_POOL_WORDS, so an editor session that keeps typing
+// new names does not keep every one of them. Each cached result keeps the pool it was lexed with.
+public class PipelineCache {
+
+    public static final long DEFAULT_MAX_BYTES = 48L << 20;
+
+    static final int MAX_POOL_WORDS = 1 << 16;
+
+    // Rough footprint per source character of one phase's result: tokens or tree, report and source text
+    private static final long BYTES_PER_CHAR = 40;
+
+    private final ResultCache<AnalysisResult<List<Token>>> lexical;
+    private final ResultCache<AnalysisResult<CompilationUnit>> syntax;
+    private final ResultCache<AnalysisResult<CompilationUnit>> semantic;
+    private volatile IdentifierPool pool = new IdentifierPool();
+
+    public PipelineCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    // The memory bound is split evenly between the three phases
+    public PipelineCache(long maxBytes) {
+        lexical = new ResultCache<>(maxBytes / 3);
+        syntax = new ResultCache<>(maxBytes / 3);
+        semantic = new ResultCache<>(maxBytes / 3);
+    }
+
+    public AnalysisResult<List<Token>> lexical(CharSequence code) {
+        return lexical(ContentHash.of(code), code);
+    }
+
+    public AnalysisResult<CompilationUnit> syntax(CharSequence code) {
+        return syntax(ContentHash.of(code), code);
+    }
+
+    public AnalysisResult<CompilationUnit> semantic(CharSequence code) {
+        return semantic(ContentHash.of(code), code);
+    }
+
+    AnalysisResult<List<Token>> lexical(long key, CharSequence code) {
+        AnalysisResult<List<Token>> result = lexical.get(key, code);
+        if (result == null) {
+            IdentifierPool words = pool;
+            if (words.size() > MAX_POOL_WORDS) {
+                words = new IdentifierPool();
+                pool = words;
+            }
+            result = new LexicalAnalyzer(words).analyze(code);
+            store(lexical, key, result, code);
+        }
+        return result;
+    }
+
+    AnalysisResult<CompilationUnit> syntax(long key, CharSequence code) {
+        AnalysisResult<CompilationUnit> result = syntax.get(key, code);
+        if (result == null) {
+            result = new SyntaxAnalyzer().performSyntaxAnalysis(lexical(key, code).getPayload());
+            store(syntax, key, result, code);
+        }
+        return result;
+    }
+
+    AnalysisResult<CompilationUnit> semantic(long key, CharSequence code) {
+        AnalysisResult<CompilationUnit> result = semantic.get(key, code);
+        if (result == null) {
+            result = new SemanticAnalyzer().analyze(lexical(key, code).getPayload());
+            store(semantic, key, result, code);
+        }
+        return result;
+    }
+
+    private static <V> void store(ResultCache<V> cache, long key, V result, CharSequence code) {
+        if (!Thread.currentThread().isInterrupted()) {
+            cache.put(key, code, result, code.length() * BYTES_PER_CHAR);
+        }
+    }
+
+    public void clear() {
+        lexical.clear();
+        syntax.clear();
+        semantic.clear();
+        pool = new IdentifierPool();
+    }
+
+    public ResultCache<AnalysisResult<List<Token>>> getLexicalCache() {
+        return lexical;
+    }
+
+    public ResultCache<AnalysisResult<CompilationUnit>> getSyntaxCache() {
+        return syntax;
+    }
+
+    public ResultCache<AnalysisResult<CompilationUnit>> getSemanticCache() {
+        return semantic;
+    }
+
+    public String describe() {
+        return lexical.describe("Lexical") + "\n" + syntax.describe("Syntax") + "\n" + semantic.describe("Semantic");
+    }
+}
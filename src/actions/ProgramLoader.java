@@ -0,0 +1,25 @@
+package actions;
+
+import java.util.Map;
+
+// Defines the classes of a compiled program straight from their bytes, without writing them to
+// disk. Its parent is the bootstrap loader, so a program sees the JDK but none of the compiler's
+// own classes.
+final class ProgramLoader extends ClassLoader {
+
+    private final Map<String, byte[]> classes;
+
+    ProgramLoader(CompiledProgram program) {
+        super(null);
+        this.classes = program.getClasses();
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        byte[] bytes = classes.get(name);
+        if (bytes == null) {
+            throw new ClassNotFoundException(name);
+        }
+        return defineClass(name, bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,34 @@
+package actions;
+
+// What a program run in process wrote, and how long it took
+public class ProgramOutput {
+
+    private final String output;
+    private final String errorOutput;
+    private final long wallNanos;
+    // -1 when the JVM cannot measure thread CPU time
+    private final long cpuNanos;
+
+    ProgramOutput(String output, String errorOutput, long wallNanos, long cpuNanos) {
+        this.output = output;
+        this.errorOutput = errorOutput;
+        this.wallNanos = wallNanos;
+        this.cpuNanos = cpuNanos;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public String getErrorOutput() {
+        return errorOutput;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+}
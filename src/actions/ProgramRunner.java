@@ -0,0 +1,304 @@
+package actions;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import common.AnalysisResult;
+import common.Diagnostic;
+import common.Phase;
+import common.ast.CompilationUnit;
+
+// Runs a program inside this JVM, with no process to spawn and nothing written to disk: either its
+// compiled classes, defined by a ProgramLoader, or its checked tree through the Interpreter, which
+// starts sooner for short programs. The program runs on a thread of its own; what it prints is
+// captured and handed to the listener as it is flushed instead of reaching System.out. A program
+// that exceeds the wall-clock or CPU time limit is interrupted, which stops it at its next loop
+// iteration.
+public class ProgramRunner {
+
+    // How CodeRunner executes a program that passed semantic analysis
+    public enum Mode {
+        COMPILE,
+        INTERPRET
+    }
+
+    public interface OutputListener {
+        // Called from the program's thread; error is true for the standard error stream
+        void output(String text, boolean error);
+    }
+
+    public static final long DEFAULT_WALL_TIMEOUT_MILLIS = 10_000;
+    public static final long DEFAULT_CPU_TIMEOUT_MILLIS = 5_000;
+
+    // Output past this many characters per stream is dropped
+    private static final int MAX_CAPTURED_CHARS = 1 << 20;
+    private static final int FLUSH_THRESHOLD = 8 * 1024;
+    private static final long POLL_MILLIS = 10;
+    // Time an interrupted program has to reach its next loop iteration
+    private static final long STOP_GRACE_MILLIS = 1_000;
+
+    private final OutputListener listener;
+    private final Mode mode;
+    private final long wallTimeoutMillis;
+    private final long cpuTimeoutMillis;
+
+    public ProgramRunner() {
+        this((text, error) -> { });
+    }
+
+    public ProgramRunner(OutputListener listener) {
+        this(listener, Mode.COMPILE);
+    }
+
+    public ProgramRunner(OutputListener listener, Mode mode) {
+        this(listener, mode, DEFAULT_WALL_TIMEOUT_MILLIS, DEFAULT_CPU_TIMEOUT_MILLIS);
+    }
+
+    public ProgramRunner(OutputListener listener, Mode mode, long wallTimeoutMillis, long cpuTimeoutMillis) {
+        this.listener = listener;
+        this.mode = mode;
+        this.wallTimeoutMillis = wallTimeoutMillis;
+        this.cpuTimeoutMillis = cpuTimeoutMillis;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    // Interrupting the calling thread stops the program and cancels the run
+    public AnalysisResult<ProgramOutput> run(CompiledProgram program) {
+        return execute(program.getMainClassName(), program.getClasses().keySet(), out -> invoke(program, out));
+    }
+
+    // Runs the top-level statements of a unit that passed semantic analysis without compiling it.
+    // The unit is lowered for the interpreter on the program's thread, so the time limits and
+    // cancellation cover that too.
+    public AnalysisResult<ProgramOutput> interpret(CompilationUnit unit) {
+        return execute(Interpreter.PROGRAM_NAME, Collections.singleton(Interpreter.PROGRAM_NAME), out -> {
+            try {
+                Interpreter.compile(unit).run(out);
+                return null;
+            } catch (InterruptedException | RuntimeException | Error ex) {
+                return ex;
+            }
+        });
+    }
+
+    // Runs the program on its own thread under the time limits; program is given the captured
+    // standard output and returns what the program threw, and classNames picks the stack frames
+    // that belong to the program
+    private AnalysisResult<ProgramOutput> execute(String name, Set<String> classNames,
+                                                  Function<PrintStream, Throwable> program) {
+        CapturedStream out = new CapturedStream(false);
+        CapturedStream err = new CapturedStream(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread thread = new Thread(() -> failure.set(program.apply(out.stream)), "program-" + name);
+        thread.setDaemon(true);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        boolean measureCpu = threads.isThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+        long cpuNanos = measureCpu ? 0 : -1;
+        String exceeded = null;
+        long start = System.nanoTime();
+        thread.start();
+        try {
+            while (thread.isAlive()) {
+                thread.join(POLL_MILLIS);
+                if (measureCpu) {
+                    // -1 once the thread has ended; keep the last reading
+                    long used = threads.getThreadCpuTime(thread.getId());
+                    cpuNanos = used >= 0 ? used : cpuNanos;
+                }
+                if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) > wallTimeoutMillis) {
+                    exceeded = wallTimeoutMillis + " ms wall-clock";
+                } else if (measureCpu && TimeUnit.NANOSECONDS.toMillis(cpuNanos) > cpuTimeoutMillis) {
+                    exceeded = cpuTimeoutMillis + " ms CPU";
+                }
+                if (exceeded != null) {
+                    thread.interrupt();
+                    thread.join(STOP_GRACE_MILLIS);
+                    break;
+                }
+            }
+        } catch (InterruptedException ex) {
+            thread.interrupt();
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Analysis cancelled");
+        }
+        long wallNanos = System.nanoTime() - start;
+
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        Throwable thrown = failure.get();
+        if (exceeded != null && (thread.isAlive() || thrown instanceof InterruptedException
+                || thrown instanceof CancellationException)) {
+            err.stream.println("Program stopped: it ran longer than the " + exceeded + " time limit.");
+            diagnostics.add(Diagnostic.error(Phase.EXECUTION, "timeout", programLine(classNames, thrown), 1,
+                    "Execution stopped after exceeding the " + exceeded + " time limit."));
+        } else if (thrown != null) {
+            err.stream.println("Exception in thread \"main\" " + thrown);
+            for (StackTraceElement frame : thrown.getStackTrace()) {
+                // The main class's run() and print() have no line of their own when they only call
+                // the chunks that hold the statements
+                if (classNames.contains(frame.getClassName()) && frame.getLineNumber() > 0) {
+                    err.stream.println("\tat " + frame.getClassName() + "." + frame.getMethodName()
+                            + "(line " + frame.getLineNumber() + ")");
+                }
+            }
+            diagnostics.add(Diagnostic.error(Phase.EXECUTION, "uncaught-exception", programLine(classNames, thrown), 1,
+                    "Uncaught " + thrown + "."));
+        }
+        out.flush();
+        err.flush();
+
+        final ProgramOutput output = new ProgramOutput(out.getText(), err.getText(), wallNanos, cpuNanos);
+        return new AnalysisResult<>(Phase.EXECUTION, output, diagnostics, analysis -> render(analysis, output));
+    }
+
+    // Runs the top-level statements, then prints the variables to the captured stream; returns what
+    // the program threw, if anything
+    private static Throwable invoke(CompiledProgram program, PrintStream out) {
+        try {
+            Class<?> main = Class.forName(program.getMainClassName(), true, new ProgramLoader(program));
+            main.getMethod("run").invoke(null);
+            main.getMethod("print", PrintStream.class).invoke(null, out);
+            return null;
+        } catch (InvocationTargetException ex) {
+            return ex.getCause();
+        } catch (ExceptionInInitializerError ex) {
+            return ex.getCause() != null ? ex.getCause() : ex;
+        } catch (ReflectiveOperationException | RuntimeException | Error ex) {
+            return ex;
+        }
+    }
+
+    // The source line of the innermost program frame, or 1 when the program has none
+    private static int programLine(Set<String> classNames, Throwable thrown) {
+        if (thrown != null) {
+            for (StackTraceElement frame : thrown.getStackTrace()) {
+                if (classNames.contains(frame.getClassName()) && frame.getLineNumber() > 0) {
+                    return frame.getLineNumber();
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static String render(AnalysisResult<ProgramOutput> analysis, ProgramOutput output) {
+        StringBuilder resultText = new StringBuilder();
+        appendBlock(resultText, output.getOutput());
+        appendBlock(resultText, output.getErrorOutput());
+        for (Diagnostic diagnostic : analysis.getDiagnostics()) {
+            resultText.append("Error at line ").append(diagnostic.getLine()).append(": ")
+                      .append(diagnostic.getMessage()).append("\n");
+        }
+
+        if (!analysis.isSuccessful()) {
+            resultText.append("\nError(s) detected. Execution failed.");
+        } else {
+            resultText.append(String.format("\nProgram finished in %.1f ms", output.getWallNanos() / 1e6));
+            if (output.getCpuNanos() >= 0) {
+                resultText.append(String.format(" (%.1f ms CPU)", output.getCpuNanos() / 1e6));
+            }
+            resultText.append('.');
+        }
+        return resultText.toString();
+    }
+
+    private static void appendBlock(StringBuilder resultText, String text) {
+        if (!text.isEmpty()) {
+            resultText.append(text);
+            if (text.charAt(text.length() - 1) != '\n') {
+                resultText.append('\n');
+            }
+        }
+    }
+
+    // Collects what is written to one stream and forwards it, decoded, on every flush
+    private final class CapturedStream extends OutputStream {
+        final PrintStream stream;
+        private final boolean error;
+        private final StringBuilder text = new StringBuilder();
+        private byte[] pending = new byte[256];
+        private int count;
+        private boolean truncated;
+
+        CapturedStream(boolean error) {
+            this.error = error;
+            try {
+                this.stream = new PrintStream(this, true, StandardCharsets.UTF_8.name());
+            } catch (UnsupportedEncodingException ex) {
+                throw new IllegalStateException(ex);  // Every JVM supports UTF-8
+            }
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int length) {
+            if (count + length > pending.length) {
+                byte[] grown = new byte[Math.max(pending.length * 2, count + length)];
+                System.arraycopy(pending, 0, grown, 0, count);
+                pending = grown;
+            }
+            System.arraycopy(bytes, offset, pending, count, length);
+            count += length;
+            if (count >= FLUSH_THRESHOLD) {
+                flush();
+            }
+        }
+
+        // Decodes what has been written up to the last complete character; the bytes of a character
+        // split across writes wait for the rest
+        @Override
+        public synchronized void flush() {
+            int end = count;
+            int lead = count - 1;
+            while (lead >= 0 && count - lead < 4 && (pending[lead] & 0xC0) == 0x80) {
+                lead--;
+            }
+            if (lead >= 0) {
+                int first = pending[lead] & 0xFF;
+                int length = first >= 0xF0 ? 4 : first >= 0xE0 ? 3 : first >= 0xC0 ? 2 : 1;
+                if (count - lead < length) {
+                    end = lead;
+                }
+            }
+            if (end == 0) {
+                return;
+            }
+            String chunk = new String(pending, 0, end, StandardCharsets.UTF_8);
+            System.arraycopy(pending, end, pending, 0, count - end);
+            count -= end;
+            if (truncated) {
+                return;
+            }
+            int room = MAX_CAPTURED_CHARS - text.length();
+            if (chunk.length() > room) {
+                truncated = true;
+                chunk = chunk.substring(0, room) + "\n[Output truncated after " + MAX_CAPTURED_CHARS + " characters]\n";
+            }
+            text.append(chunk);
+            listener.output(chunk, error);
+        }
+
+        synchronized String getText() {
+            return text.toString();
+        }
+    }
+}
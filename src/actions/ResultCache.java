@@ -0,0 +1,101 @@
+package actions;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Least-recently-used cache keyed by a content hash and bounded by the estimated size of its values.
+// Each entry keeps the text its value was computed from, and a lookup whose text differs, after a
+// hash collision, is a miss. Safe to share between threads; a value is computed outside the lock, so two threads missing on the
+// same key at once both compute it and the later one wins.
+public class ResultCache<V> {
+
+    private static class Entry<V> {
+        final String content;
+        final V value;
+        final long weight;
+
+        Entry(String content, V value, long weight) {
+            this.content = content;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    private final LinkedHashMap<Long, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxWeight;
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ResultCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    // Returns null on a miss
+    public synchronized V get(long key, CharSequence content) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || !entry.content.contentEquals(content)) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    // Values heavier than the whole bound are not cached at all
+    public synchronized void put(long key, CharSequence content, V value, long entryWeight) {
+        if (entryWeight > maxWeight) {
+            return;
+        }
+        Entry<V> previous = entries.put(key, new Entry<>(content.toString(), value, entryWeight));
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+        weight += entryWeight;
+
+        Iterator<Map.Entry<Long, Entry<V>>> eldest = entries.entrySet().iterator();
+        while (weight > maxWeight && eldest.hasNext()) {
+            weight -= eldest.next().getValue().weight;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Estimated bytes held by the cached values
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public synchronized String describe(String name) {
+        return name + ": " + hits + " hit(s), " + misses + " miss(es), " + evictions + " eviction(s), "
+                + entries.size() + " entr" + (entries.size() == 1 ? "y" : "ies") + ", "
+                + (weight + 1023) / 1024 + " of " + maxWeight / 1024 + " KB";
+    }
+}
@@ -0,0 +1,152 @@
+package actions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import common.AnalysisResult;
+import common.Diagnostic;
+import common.Phase;
+import common.Renderable;
+import common.Token;
+import common.ast.CompilationUnit;
+
+// Results of a CodeRunner pipeline run. The analysis phases all run, whatever errors the earlier ones
+// found; the semantic result is null only when the parser kept no statement. Generation and execution
+// are null unless every analysis phase passed.
+public class RunResult implements Renderable {
+
+    private final AnalysisResult<List<Token>> lexical;
+    private final AnalysisResult<CompilationUnit> syntax;
+    private final AnalysisResult<CompilationUnit> semantic;
+    // Null when the program was interpreted
+    private final AnalysisResult<CompiledProgram> generation;
+    // Null when the program was compiled but not run
+    private final AnalysisResult<ProgramOutput> execution;
+
+    public RunResult(AnalysisResult<List<Token>> lexical, AnalysisResult<CompilationUnit> syntax,
+                     AnalysisResult<CompilationUnit> semantic, AnalysisResult<CompiledProgram> generation,
+                     AnalysisResult<ProgramOutput> execution) {
+        this.lexical = lexical;
+        this.syntax = syntax;
+        this.semantic = semantic;
+        this.generation = generation;
+        this.execution = execution;
+    }
+
+    public AnalysisResult<List<Token>> getLexical() {
+        return lexical;
+    }
+
+    public AnalysisResult<CompilationUnit> getSyntax() {
+        return syntax;
+    }
+
+    public AnalysisResult<CompilationUnit> getSemantic() {
+        return semantic;
+    }
+
+    public AnalysisResult<CompiledProgram> getGeneration() {
+        return generation;
+    }
+
+    public AnalysisResult<ProgramOutput> getExecution() {
+        return execution;
+    }
+
+    public boolean isSuccessful() {
+        return (generation != null || execution != null) && getFailedPhase() == null;
+    }
+
+    // Whether every analysis phase passed, so the semantic result holds the whole checked program
+    public boolean isChecked() {
+        return lexical != null && lexical.isSuccessful() && syntax != null && syntax.isSuccessful()
+                && semantic != null && semantic.isSuccessful();
+    }
+
+    // The first phase that failed, or null when every phase passed or there was no code
+    public Phase getFailedPhase() {
+        if (lexical != null && !lexical.isSuccessful()) {
+            return Phase.LEXICAL;
+        }
+        if (syntax != null && !syntax.isSuccessful()) {
+            return Phase.SYNTAX;
+        }
+        if (semantic != null && !semantic.isSuccessful()) {
+            return Phase.SEMANTIC;
+        }
+        if (generation != null && !generation.isSuccessful()) {
+            return Phase.GENERATION;
+        }
+        if (execution != null && !execution.isSuccessful()) {
+            return Phase.EXECUTION;
+        }
+        return null;
+    }
+
+    // Every diagnostic from the phases that ran, in phase order
+    public List<Diagnostic> getDiagnostics() {
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        for (AnalysisResult<?> phase : Arrays.asList(lexical, syntax, semantic, generation, execution)) {
+            if (phase != null) {
+                diagnostics.addAll(phase.getDiagnostics());
+            }
+        }
+        return diagnostics;
+    }
+
+    @Override
+    public String render() {
+        if (lexical == null) {
+            return "No code to run.";
+        }
+
+        StringBuilder resultText = new StringBuilder("Running the code...\n\n");
+        resultText.append("Lexical Analysis Result:\n").append(lexical.render()).append("\n");
+        if (syntax != null) {
+            resultText.append("Syntax Analysis Result:\n").append(syntax.render()).append("\n");
+        }
+        if (semantic != null) {
+            resultText.append("Semantic Analysis Result:\n").append(semantic.render()).append("\n");
+        }
+        if (getFailedPhase() == null && semantic == null) {
+            return resultText.append("\nNo statements to run.\n").toString();
+        }
+        if (!isChecked()) {
+            return resultText.append("\nAborting execution due to ").append(describeFailures())
+                             .append(" errors.\n").toString();
+        }
+
+        if (generation != null) {
+            resultText.append("Code Generation Result:\n").append(generation.render()).append("\n");
+            if (!generation.isSuccessful()) {
+                return resultText.append("\nAborting execution due to code generation errors.\n").toString();
+            }
+        }
+        if (execution == null) {
+            return resultText.append("\nCompilation complete. All phases passed.").toString();
+        }
+
+        resultText.append("Program Output:\n").append(execution.render()).append("\n");
+        if (!execution.isSuccessful()) {
+            resultText.append("\nThe program terminated with errors.\n");
+        } else {
+            resultText.append("\nExecution complete. All phases passed.");
+        }
+        return resultText.toString();
+    }
+
+    // The failed analysis phases, as in "lexical, syntax and semantic"
+    private String describeFailures() {
+        List<String> failed = new ArrayList<>();
+        for (AnalysisResult<?> phase : Arrays.asList(lexical, syntax, semantic)) {
+            if (phase != null && !phase.isSuccessful()) {
+                failed.add(phase.getPhase().getDisplayName().toLowerCase());
+            }
+        }
+        if (failed.size() == 1) {
+            return failed.get(0);
+        }
+        return String.join(", ", failed.subList(0, failed.size() - 1)) + " and " + failed.get(failed.size() - 1);
+    }
+}
@@ -1,37 +1,283 @@
 package actions;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import common.AnalysisResult;
+import common.Diagnostic;
+import common.Phase;
+import common.Token;
+import common.TokenType;
+import common.ast.AstPrinter;
+import common.ast.Block;
+import common.ast.ClassDeclaration;
+import common.ast.CompilationUnit;
+import common.ast.Expression;
+import common.ast.ExpressionStatement;
+import common.ast.IfStatement;
+import common.ast.MethodDeclaration;
+import common.ast.NameExpression;
+import common.ast.Node;
+import common.ast.Parameter;
+import common.ast.ReturnStatement;
+import common.ast.Statement;
+import common.ast.TreeScanner;
+import common.ast.TypeNode;
+import common.ast.VariableDeclaration;
+import common.ast.WhileStatement;
 
 public class SemanticAnalyzer {
 
-    private String code;
+    // Bump whenever a rule change alters the diagnostics of this phase; invalidates persisted results
+    public static final int RULES_VERSION = 5;
+
+    private static final int CANCELLATION_INTERVAL = 0xFFF;  // Items checked or linked between cancellation checks
+
+    // A semantic error, attached to the declaration whose check failed when there is one
+    static final class Finding {
+        final VariableDeclaration owner;
+        final Diagnostic diagnostic;
+        // Index of the checked unit the finding belongs to
+        final int unit;
+
+        Finding(VariableDeclaration owner, Diagnostic diagnostic, int unit) {
+            this.owner = owner;
+            this.diagnostic = diagnostic;
+            this.unit = unit;
+        }
+    }
+
+    // The outermost-scope variables of the units linked so far, keyed by their id in the identifier
+    // pool the units were parsed with, so linking compares ints and never a String. Units linked
+    // together must therefore come from one pool.
+    static final class Globals {
+        private final SymbolTable table = new SymbolTable();
+        // The unit being linked on its own, which records what it reads and declares; null otherwise
+        private LinkedUnit linking;
+
+        // Declared type of the variable, or null when no unit so far declares it
+        TypeNode lookup(int nameId) {
+            SymbolTable.Symbol symbol = table.lookup(nameId);
+            if (linking != null) {
+                linking.read(nameId, symbol);
+            }
+            return symbol == null ? null : symbol.getType();
+        }
+
+        boolean isDeclared(int nameId) {
+            return lookup(nameId) != null;
+        }
+
+        void declare(VariableDeclaration declaration) {
+            table.declare(declaration.getName(), declaration.getNameId(), SymbolTable.Kind.LOCAL,
+                    declaration.getType(), declaration);
+            if (linking != null) {
+                linking.declared.add(declaration);
+                linking.own.add(declaration);
+            }
+        }
+    }
+
+    // What linking one unit on its own found, with every name it read from the units before it and
+    // the type it had then. The findings still hold, and the unit need not be linked again, as long
+    // as each of those names resolves to a variable of the same type, or stays undeclared.
+    static final class LinkedUnit {
+        final List<Finding> findings = new ArrayList<>();
+        private final List<VariableDeclaration> declared = new ArrayList<>();
+        // The declared list as a set, while the unit links
+        private Set<Node> own = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+        private int[] readIds = new int[16];
+        private TypeNode[] readTypes = new TypeNode[16];
+        private int reads;
+
+        // Names the unit declared itself are its own, and not read from the units before it
+        private void read(int nameId, SymbolTable.Symbol symbol) {
+            if (symbol != null && own.contains(symbol.getDeclaration())) {
+                return;
+            }
+            if (reads == readIds.length) {
+                readIds = Arrays.copyOf(readIds, reads * 2);
+                readTypes = Arrays.copyOf(readTypes, reads * 2);
+            }
+            readIds[reads] = nameId;
+            readTypes[reads++] = symbol == null ? null : symbol.getType();
+        }
+
+        private boolean holds(Globals globals) {
+            for (int i = 0; i < reads; i++) {
+                SymbolTable.Symbol symbol = globals.table.lookup(readIds[i]);
+                if (!sameType(symbol == null ? null : symbol.getType(), readTypes[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean sameType(TypeNode a, TypeNode b) {
+            return a == null || b == null ? a == b
+                    : a.getKeyword() == b.getKeyword() && a.getDimensions() == b.getDimensions();
+        }
+    }
+
+    // Outermost-scope variables are resolved after the tree walk, in source order, against every unit
+    // checked so far; a unit therefore gives the same errors whether it is linked alone or in pieces
+    abstract static class Deferred {
+        abstract void link(Globals globals, int unit, List<Finding> findings);
+    }
+
+    static final class GlobalDeclaration extends Deferred {
+        final VariableDeclaration declaration;
+
+        GlobalDeclaration(VariableDeclaration declaration) {
+            this.declaration = declaration;
+        }
+
+        @Override
+        void link(Globals globals, int unit, List<Finding> findings) {
+            if (globals.isDeclared(declaration.getNameId())) {
+                findings.add(new Finding(declaration, redeclared(declaration.getName(), declaration), unit));
+            } else {
+                globals.declare(declaration);
+            }
+        }
+    }
+
+    // A name that no inner scope of its unit declares
+    static final class FreeReference extends Deferred {
+        final NameExpression name;
+        final VariableDeclaration owner;
+
+        FreeReference(NameExpression name, VariableDeclaration owner) {
+            this.name = name;
+            this.owner = owner;
+        }
 
-    public SemanticAnalyzer(String code) {
-        this.code = code;
+        @Override
+        void link(Globals globals, int unit, List<Finding> findings) {
+            if (!globals.isDeclared(name.getNameId())) {
+                findings.add(new Finding(owner, undeclared(name), unit));
+            }
+        }
     }
 
-    public String analyze() {
-        if (code.isEmpty()) {
-            return "No code to analyze.";
+    // An expression that uses outermost-scope variables, typed once they are linked, and the check its
+    // value must pass then (an initializer, condition or returned value), if any
+    static final class PendingExpression extends Deferred {
+        final VariableDeclaration owner;
+        final Expression expression;
+        final Set<NameExpression> pending;
+        final Function<Expression, Diagnostic> check;
+
+        PendingExpression(VariableDeclaration owner, Expression expression, Set<NameExpression> pending,
+                          Function<Expression, Diagnostic> check) {
+            this.owner = owner;
+            this.expression = expression;
+            this.pending = pending;
+            this.check = check;
         }
 
+        // Undeclared names are already reported by their free references and leave their operators untyped
+        @Override
+        void link(Globals globals, int unit, List<Finding> findings) {
+            List<Diagnostic> errors = new ArrayList<>();
+            ExpressionTyper.forLink(globals, pending, errors).attribute(expression);
+            if (check != null) {
+                Diagnostic diagnostic = check.apply(expression);
+                if (diagnostic != null) {
+                    errors.add(diagnostic);
+                }
+            }
+            for (Diagnostic error : errors) {
+                findings.add(new Finding(owner, error, unit));
+            }
+        }
+    }
+
+    // Result of checking one unit on its own: the errors found within it, and what is left for
+    // linking it after the units before it
+    static final class CheckedUnit {
+        final List<VariableDeclaration> declarations = new ArrayList<>();
+        final List<Finding> findings = new ArrayList<>();
+        final List<Deferred> deferred = new ArrayList<>();
+    }
+
+    public AnalysisResult<CompilationUnit> analyze(CharSequence code) {
+        return analyze(new Lexer(code).tokenize());
+    }
+
+    public AnalysisResult<CompilationUnit> analyze(List<Token> tokens) {
+        return analyze(new Parser(tokens).parse());
+    }
+
+    public AnalysisResult<CompilationUnit> analyze(CompilationUnit unit) {
+        if (unit.getItems().isEmpty()) {
+            return AnalysisResult.noInput(Phase.SEMANTIC);
+        }
+
+        CheckedUnit checked = check(unit);
+        List<Finding> findings = new ArrayList<>(checked.findings);
+        findings.addAll(link(Collections.singletonList(checked)));
+        sortFindings(findings);
+
+        final List<VariableDeclaration> declarations = checked.declarations;
+        final Map<VariableDeclaration, List<Diagnostic>> failures = new IdentityHashMap<>();
+        final List<Diagnostic> unattached = new ArrayList<>();
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        for (Finding finding : findings) {
+            diagnostics.add(finding.diagnostic);
+            if (finding.owner == null) {
+                unattached.add(finding.diagnostic);
+            } else {
+                List<Diagnostic> failure = failures.get(finding.owner);
+                if (failure == null) {
+                    failure = new ArrayList<>();
+                    failures.put(finding.owner, failure);
+                }
+                failure.add(finding.diagnostic);
+            }
+        }
+
+        return new AnalysisResult<>(Phase.SEMANTIC, unit, diagnostics,
+                analysis -> render(analysis, declarations, failures, unattached));
+    }
+
+    private static String render(AnalysisResult<CompilationUnit> analysis, List<VariableDeclaration> declarations,
+                                 Map<VariableDeclaration, List<Diagnostic>> failures, List<Diagnostic> unattached) {
         StringBuilder resultText = new StringBuilder();
-        String[] lines = code.split("\n");
-        boolean error = false;  // Flag to track if an error occurred
 
-        for (String line : lines) {
-            try {
-                String analysisResult = semanticAnalyzer(line);
-                resultText.append(analysisResult).append("\n");
-            } catch (Exception e) {
-                error = true;  // Set error flag if an exception occurs
-                resultText.append("Error: ").append(e.getMessage()).append("\n");
+        // Errors outside declarations are interleaved with the declarations by line
+        int next = 0;
+        for (VariableDeclaration declaration : declarations) {
+            while (next < unattached.size() && unattached.get(next).getLine() <= declaration.getLine()) {
+                appendError(resultText, unattached.get(next++));
+            }
+            List<Diagnostic> failure = failures.get(declaration);
+            if (failure != null) {
+                for (Diagnostic diagnostic : failure) {
+                    appendError(resultText, diagnostic);
+                }
+            } else if (declaration.getInitializer() == null) {
+                resultText.append("Semantic analysis passed for variable '").append(declaration.getName())
+                          .append("' of type '").append(declaration.getType().getName())
+                          .append("' with no initial value.\n");
+            } else {
+                resultText.append("Semantic analysis passed for variable '").append(declaration.getName())
+                          .append("' with value '").append(AstPrinter.print(declaration.getInitializer()))
+                          .append("' and type '").append(declaration.getType().getName()).append("'.\n");
             }
         }
+        while (next < unattached.size()) {
+            appendError(resultText, unattached.get(next++));
+        }
 
         // Append the final status message based on whether an error occurred
-        if (error) {
+        if (!analysis.isSuccessful()) {
             resultText.append("\nError(s) detected. Semantic analysis failed.");
         } else {
             resultText.append("\nSemantic Analysis completed successfully.");
@@ -40,62 +286,317 @@ public class SemanticAnalyzer {
         return resultText.toString();
     }
 
-    private String semanticAnalyzer(String input) throws Exception {
-        Pattern pattern = Pattern.compile("([a-zA-Z_][a-zA-Z0-9_]*)\\s*=\\s*(\".*\"|'.*'|\\S+);");
-        Matcher matcher = pattern.matcher(input);
+    private static void appendError(StringBuilder resultText, Diagnostic diagnostic) {
+        resultText.append("Error at line ").append(diagnostic.getLine()).append(": ")
+                  .append(diagnostic.getMessage()).append("\n");
+    }
 
-        if (matcher.find()) {
-            String variableName = matcher.group(1);
-            String value = matcher.group(2);
-            String dataType = input.split("\\s+")[0];
+    // Resolves every name of the unit in a single pass over its tree
+    static CheckedUnit check(CompilationUnit unit) {
+        Checker checker = new Checker();
+        unit.accept(checker);
+        return checker.result;
+    }
 
-            return performTypeCheck(variableName, dataType, value);
-        } else {
-            throw new Exception("Invalid code format: Expected 'dataType variableName = value;'");
+    // Links the units in order. Only the deferred declarations and references are visited, never the trees.
+    static List<Finding> link(List<CheckedUnit> units) {
+        List<Finding> findings = new ArrayList<>();
+        Globals globals = new Globals();
+        for (int i = 0; i < units.size(); i++) {
+            List<Deferred> deferred = units.get(i).deferred;
+            for (int j = 0; j < deferred.size(); j++) {
+                if ((j & CANCELLATION_INTERVAL) == 0) {
+                    Cancellation.checkpoint();
+                }
+                deferred.get(j).link(globals, i, findings);
+            }
         }
+        return findings;
     }
 
-    private String performTypeCheck(String variableName, String dataType, String value) throws Exception {
-        switch (dataType) {
-            case "byte":
-                if (!value.matches("-?\\d{1,3}")) {
-                    throw new Exception("Type mismatch: '" + value + "' is not a valid byte.");
-                }
-                break;
-            case "short":
-                if (!value.matches("-?\\d{1,5}")) {
-                    throw new Exception("Type mismatch: '" + value + "' is not a valid short.");
+    // Links one unit after the units already linked into globals. When the previous link of the same
+    // unit still holds, its findings are reused and only its declarations are added again.
+    static LinkedUnit link(CheckedUnit unit, Globals globals, LinkedUnit previous) {
+        if (previous != null && previous.holds(globals)) {
+            for (VariableDeclaration declaration : previous.declared) {
+                globals.declare(declaration);
+            }
+            return previous;
+        }
+        LinkedUnit linked = new LinkedUnit();
+        globals.linking = linked;
+        try {
+            for (Deferred deferred : unit.deferred) {
+                deferred.link(globals, 0, linked.findings);
+            }
+        } finally {
+            globals.linking = null;
+            linked.own = null;
+        }
+        return linked;
+    }
+
+    static void sortFindings(List<Finding> findings) {
+        Collections.sort(findings, (a, b) -> a.diagnostic.getLine() != b.diagnostic.getLine()
+                ? Integer.compare(a.diagnostic.getLine(), b.diagnostic.getLine())
+                : Integer.compare(a.diagnostic.getColumn(), b.diagnostic.getColumn()));
+    }
+
+    private static final class Checker extends TreeScanner implements ExpressionTyper.Scope {
+        private final SymbolTable table = new SymbolTable();
+        private final CheckedUnit result = new CheckedUnit();
+        private final List<Diagnostic> typeErrors = new ArrayList<>();
+        private final ExpressionTyper typer = ExpressionTyper.forUnit(this, typeErrors);
+        private VariableDeclaration currentDeclaration;
+        // The method whose body is being checked, null for the top-level statements
+        private MethodDeclaration currentMethod;
+        private boolean staticContext;
+
+        @Override
+        public Void visitCompilationUnit(CompilationUnit node) {
+            List<Node> items = node.getItems();
+            for (int i = 0; i < items.size(); i++) {
+                if ((i & CANCELLATION_INTERVAL) == 0) {
+                    Cancellation.checkpoint();
                 }
-                break;
-            case "int":
-                if (!value.matches("-?\\d+")) {
-                    throw new Exception("Type mismatch: '" + value + "' is not a valid int.");
+                scan(items.get(i));
+            }
+            return null;
+        }
+
+        // Fields are visible to every member of their class, wherever they are declared
+        @Override
+        public Void visitClassDeclaration(ClassDeclaration node) {
+            table.enterScope();
+            for (Node member : node.getMembers()) {
+                if (member instanceof VariableDeclaration) {
+                    VariableDeclaration field = (VariableDeclaration) member;
+                    declare(field.getName(), field.getNameId(), SymbolTable.Kind.FIELD, field.getType(), field, field);
                 }
-                break;
-            case "float":
-                if (!value.matches("-?\\d+\\.\\d+")) {
-                    throw new Exception("Type mismatch: '" + value + "' is not a valid float.");
+            }
+            for (Node member : node.getMembers()) {
+                if (member instanceof VariableDeclaration) {
+                    VariableDeclaration field = (VariableDeclaration) member;
+                    staticContext = field.getModifiers().contains(TokenType.STATIC);
+                    checkInitializer(field);
+                    staticContext = false;
+                } else {
+                    scan(member);
                 }
-                break;
-            case "boolean":
-                if (!value.equals("true") && !value.equals("false")) {
-                    throw new Exception("Type mismatch: '" + value + "' is not a valid boolean.");
+            }
+            table.exitScope();
+            return null;
+        }
+
+        @Override
+        public Void visitMethodDeclaration(MethodDeclaration node) {
+            table.enterScope();
+            for (Parameter parameter : node.getParameters()) {
+                declare(parameter.getName(), parameter.getNameId(), SymbolTable.Kind.PARAMETER,
+                        parameter.getType(), parameter, null);
+            }
+            currentMethod = node;
+            staticContext = node.getModifiers().contains(TokenType.STATIC);
+            scan(node.getBody());
+            if (!isVoid(node.getReturnType()) && canCompleteNormally(node.getBody())) {
+                report(Diagnostic.error(Phase.SEMANTIC, "missing-return", node.getLine(), node.getColumn(),
+                        "Missing return statement in method '" + node.getName() + "'."));
+            }
+            currentMethod = null;
+            staticContext = false;
+            table.exitScope();
+            return null;
+        }
+
+        @Override
+        public Void visitBlock(Block node) {
+            table.enterScope();
+            scanAll(node.getStatements());
+            table.exitScope();
+            return null;
+        }
+
+        // The initializer is resolved before the variable itself comes into scope
+        @Override
+        public Void visitVariableDeclaration(VariableDeclaration node) {
+            checkInitializer(node);
+            if (table.getDepth() == 0) {
+                result.deferred.add(new GlobalDeclaration(node));
+            } else {
+                declare(node.getName(), node.getNameId(), SymbolTable.Kind.LOCAL, node.getType(), node, node);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitExpressionStatement(ExpressionStatement node) {
+            checkExpression(node.getExpression());
+            return null;
+        }
+
+        @Override
+        public Void visitIfStatement(IfStatement node) {
+            checkExpression(node.getCondition(), ExpressionTyper::checkCondition);
+            scan(node.getThenBranch());
+            scan(node.getElseBranch());
+            return null;
+        }
+
+        @Override
+        public Void visitWhileStatement(WhileStatement node) {
+            checkExpression(node.getCondition(), ExpressionTyper::checkCondition);
+            scan(node.getBody());
+            return null;
+        }
+
+        // The top-level statements return like a void method
+        @Override
+        public Void visitReturnStatement(ReturnStatement node) {
+            Expression value = node.getValue();
+            TypeNode returnType = currentMethod == null ? null : currentMethod.getReturnType();
+            if (value == null) {
+                if (!isVoid(returnType)) {
+                    report(Diagnostic.error(Phase.SEMANTIC, "return-type", node.getLine(), node.getColumn(),
+                            "Missing return value: method '" + currentMethod.getName() + "' returns '"
+                                    + returnType.getName() + "'."));
                 }
-                break;
-            case "char":
-                if (!value.matches("^'.'$")) {
-                    throw new Exception("Type mismatch: '" + value + "' is not a valid char.");
+                return null;
+            }
+            if (isVoid(returnType)) {
+                checkExpression(value, null);
+                report(Diagnostic.error(Phase.SEMANTIC, "return-type", node.getLine(), node.getColumn(),
+                        currentMethod == null ? "Unexpected return value in the top-level statements."
+                                : "Unexpected return value: method '" + currentMethod.getName() + "' is void."));
+                return null;
+            }
+            String methodName = currentMethod.getName();
+            checkExpression(value, returned -> ExpressionTyper.checkValue(methodName, returnType, returned, node));
+            return null;
+        }
+
+        // A name no inner scope declares is left for linking
+        @Override
+        public TypeNode resolve(NameExpression name) {
+            SymbolTable.Symbol symbol = table.lookup(name.getNameId());
+            if (symbol == null) {
+                result.deferred.add(new FreeReference(name, currentDeclaration));
+                return null;
+            }
+            if (staticContext && symbol.getKind() == SymbolTable.Kind.FIELD
+                    && !((VariableDeclaration) symbol.getDeclaration()).getModifiers().contains(TokenType.STATIC)) {
+                report(Diagnostic.error(Phase.SEMANTIC, "static-context", name.getLine(), name.getColumn(),
+                        "Non-static variable '" + name.getName() + "' cannot be referenced from a static context."));
+            }
+            return symbol.getType();
+        }
+
+        private void checkInitializer(VariableDeclaration declaration) {
+            result.declarations.add(declaration);
+            if (declaration.getInitializer() == null) {
+                return;
+            }
+            VariableDeclaration enclosing = currentDeclaration;
+            currentDeclaration = declaration;
+            Expression value = declaration.getInitializer();
+            if (typer.attributeValue(value)) {
+                defer(value, initialized -> ExpressionTyper.checkValue(declaration.getName(), declaration.getType(),
+                        initialized, declaration));
+            } else {
+                reportErrors();
+                report(ExpressionTyper.checkValue(declaration.getName(), declaration.getType(), value, declaration));
+            }
+            currentDeclaration = enclosing;
+        }
+
+        private void checkExpression(Expression expression) {
+            checkExpression(expression, null);
+        }
+
+        private void checkExpression(Expression expression, Function<Expression, Diagnostic> check) {
+            if (typer.attribute(expression)) {
+                defer(expression, check);
+            } else {
+                reportErrors();
+                if (check != null) {
+                    report(check.apply(expression));
                 }
-                break;
-            case "String":
-                if (!value.matches("^\".*\"$")) {
-                    throw new Exception("Type mismatch: '" + value + "' is not a valid String.");
+            }
+        }
+
+        private void defer(Expression expression, Function<Expression, Diagnostic> check) {
+            reportErrors();
+            result.deferred.add(new PendingExpression(currentDeclaration, expression, typer.takePending(), check));
+        }
+
+        private void reportErrors() {
+            for (Diagnostic error : typeErrors) {
+                report(error);
+            }
+            typeErrors.clear();
+        }
+
+        // Locals and parameters may shadow fields and outer variables, but not each other
+        private void declare(String name, int nameId, SymbolTable.Kind kind, TypeNode type, Node node,
+                             VariableDeclaration owner) {
+            SymbolTable.Symbol existing = table.lookup(nameId);
+            if (existing != null && (existing.getDepth() == table.getDepth()
+                    || isMethodLocal(existing.getKind()) && isMethodLocal(kind))) {
+                VariableDeclaration enclosing = currentDeclaration;
+                currentDeclaration = owner;
+                report(redeclared(name, node));
+                currentDeclaration = enclosing;
+                return;
+            }
+            table.declare(name, nameId, kind, type, node);
+        }
+
+        private void report(Diagnostic diagnostic) {
+            if (diagnostic != null) {
+                result.findings.add(new Finding(currentDeclaration, diagnostic, 0));
+            }
+        }
+
+        private static boolean isMethodLocal(SymbolTable.Kind kind) {
+            return kind == SymbolTable.Kind.LOCAL || kind == SymbolTable.Kind.PARAMETER;
+        }
+    }
+
+    private static boolean isVoid(TypeNode type) {
+        return type == null || type.getKeyword() == TokenType.VOID;
+    }
+
+    // Whether control can reach the end of a statement: a return never does, nor a loop whose
+    // condition is the constant true
+    static boolean canCompleteNormally(Statement statement) {
+        if (statement instanceof ReturnStatement) {
+            return false;
+        }
+        if (statement instanceof Block) {
+            for (Statement inner : ((Block) statement).getStatements()) {
+                if (!canCompleteNormally(inner)) {
+                    return false;
                 }
-                break;
-            default:
-                throw new Exception("Unknown data type: " + dataType);
-        }
-    
-        return "Semantic analysis passed for variable '" + variableName + "' with value '" + value + "' and type '" + dataType + "'.";
-    }    
-}
\ No newline at end of file
+            }
+            return true;
+        }
+        if (statement instanceof IfStatement) {
+            IfStatement node = (IfStatement) statement;
+            return node.getElseBranch() == null || canCompleteNormally(node.getThenBranch())
+                    || canCompleteNormally(node.getElseBranch());
+        }
+        if (statement instanceof WhileStatement) {
+            return !Boolean.TRUE.equals(((WhileStatement) statement).getCondition().getConstant());
+        }
+        return true;
+    }
+
+    private static Diagnostic undeclared(NameExpression name) {
+        return Diagnostic.error(Phase.SEMANTIC, "undeclared-variable", name.getLine(), name.getColumn(),
+                "Cannot find symbol: variable '" + name.getName() + "' has not been declared.");
+    }
+
+    private static Diagnostic redeclared(String name, Node declaration) {
+        return Diagnostic.error(Phase.SEMANTIC, "redeclared-variable", declaration.getLine(), declaration.getColumn(),
+                "Variable '" + name + "' is already defined in this scope.");
+    }
+}
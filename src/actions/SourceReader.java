@@ -0,0 +1,70 @@
+package actions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Reads a source file into a single CharSequence that the Lexer scans directly.
+// Large files are memory-mapped so the raw bytes never get copied onto the heap.
+public class SourceReader {
+
+    static final long MAPPING_THRESHOLD = 1 << 20;
+
+    private final Charset charset;
+
+    public SourceReader() {
+        this(StandardCharsets.UTF_8);
+    }
+
+    public SourceReader(Charset charset) {
+        this.charset = charset;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public CharSequence read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large: " + path);
+            }
+            ByteBuffer bytes;
+            if (size >= MAPPING_THRESHOLD) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                bytes = ByteBuffer.allocate((int) size);
+                while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                    // Keep reading until the buffer is full or the file ends
+                }
+                bytes.flip();
+            }
+            return decode(bytes, path);
+        }
+    }
+
+    private CharSequence decode(ByteBuffer bytes, Path path) throws IOException {
+        CharBuffer chars;
+        try {
+            chars = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(bytes);
+        } catch (CharacterCodingException ex) {
+            throw new IOException(path + " is not valid " + charset.name() + " text", ex);
+        }
+        if (chars.length() > 0 && chars.charAt(0) == '\uFEFF') {  // Byte order mark
+            chars.position(1);
+            chars = chars.slice();
+        }
+        return chars;
+    }
+}
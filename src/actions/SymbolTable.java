@@ -0,0 +1,190 @@
+package actions;
+
+import java.util.Arrays;
+
+import common.IdentifierPool;
+import common.ast.Node;
+import common.ast.TypeNode;
+
+// Nested scopes over the names of one file. Names arrive as their ids in the identifier pool, which
+// an open-addressing table of ints maps to dense ids of this table, so a lookup compares ints and
+// never a String. Each dense id indexes its innermost visible symbol directly, and every symbol links
+// to the one it shadows. Declaring, looking up and leaving a scope therefore cost O(1) per symbol,
+// however many declarations the file has, and the table grows with the names of its file rather
+// than with the shared pool.
+public class SymbolTable {
+
+    public enum Kind {
+        FIELD, PARAMETER, LOCAL
+    }
+
+    public static final class Symbol {
+        private final String name;
+        private final int nameId;
+        private final int id;
+        private final Kind kind;
+        private final TypeNode type;
+        private final Node declaration;
+        private final int depth;
+        private final Symbol shadowed;
+
+        Symbol(String name, int nameId, int id, Kind kind, TypeNode type, Node declaration, int depth,
+               Symbol shadowed) {
+            this.name = name;
+            this.nameId = nameId;
+            this.id = id;
+            this.kind = kind;
+            this.type = type;
+            this.declaration = declaration;
+            this.depth = depth;
+            this.shadowed = shadowed;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // The name's id in the identifier pool
+        public int getNameId() {
+            return nameId;
+        }
+
+        // The name's dense id in this table
+        public int getId() {
+            return id;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public TypeNode getType() {
+            return type;
+        }
+
+        public Node getDeclaration() {
+            return declaration;
+        }
+
+        // Nesting depth of the declaring scope; the outermost scope is 0
+        public int getDepth() {
+            return depth;
+        }
+    }
+
+    // Pool id plus one of the name in each slot, 0 for an empty slot
+    private int[] keys = new int[64];
+    private int[] keyIds = new int[64];
+    private int idCount;
+
+    private Symbol[] visible = new Symbol[32];
+    private Symbol[] declared = new Symbol[32];
+    private int declaredCount;
+    private int[] scopeStarts = new int[8];
+    private int depth;
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public void enterScope() {
+        if (++depth == scopeStarts.length) {
+            scopeStarts = Arrays.copyOf(scopeStarts, depth * 2);
+        }
+        scopeStarts[depth] = declaredCount;
+    }
+
+    // Forgets the symbols of the innermost scope and makes the ones they shadowed visible again
+    public void exitScope() {
+        if (depth == 0) {
+            throw new IllegalStateException("Cannot leave the outermost scope");
+        }
+        while (declaredCount > scopeStarts[depth]) {
+            Symbol symbol = declared[--declaredCount];
+            declared[declaredCount] = null;
+            visible[symbol.id] = symbol.shadowed;
+        }
+        depth--;
+    }
+
+    public Symbol declare(String name, Kind kind, TypeNode type, Node declaration) {
+        return declare(name, IdentifierPool.shared().intern(name), kind, type, declaration);
+    }
+
+    // Declares the name with its id in the identifier pool the tree was parsed with
+    public Symbol declare(String name, int nameId, Kind kind, TypeNode type, Node declaration) {
+        int id = intern(nameId);
+        Symbol symbol = new Symbol(name, nameId, id, kind, type, declaration, depth, visible[id]);
+        visible[id] = symbol;
+        if (declaredCount == declared.length) {
+            declared = Arrays.copyOf(declared, declaredCount * 2);
+        }
+        declared[declaredCount++] = symbol;
+        return symbol;
+    }
+
+    public Symbol lookup(String name) {
+        return lookup(IdentifierPool.shared().intern(name));
+    }
+
+    // The innermost visible declaration of the name with the pool id, or null
+    public Symbol lookup(int nameId) {
+        int id = find(nameId);
+        return id < 0 ? null : visible[id];
+    }
+
+    private int intern(int nameId) {
+        int id = find(nameId);
+        if (id >= 0) {
+            return id;
+        }
+        id = idCount++;
+        insert(keys, keyIds, nameId, id);
+        if (idCount * 2 > keys.length) {
+            rehash();
+        }
+        if (idCount > visible.length) {
+            visible = Arrays.copyOf(visible, visible.length * 2);
+        }
+        return id;
+    }
+
+    // Dense id of a pool id, or -1
+    private int find(int nameId) {
+        int mask = keys.length - 1;
+        for (int slot = mix(nameId) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == nameId + 1) {
+                return keyIds[slot];
+            }
+        }
+        return -1;
+    }
+
+    private static void insert(int[] keys, int[] ids, int nameId, int id) {
+        int mask = keys.length - 1;
+        int slot = mix(nameId) & mask;
+        while (keys[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = nameId + 1;
+        ids[slot] = id;
+    }
+
+    private void rehash() {
+        int[] newKeys = new int[keys.length * 2];
+        int[] newIds = new int[keys.length * 2];
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                insert(newKeys, newIds, keys[slot] - 1, keyIds[slot]);
+            }
+        }
+        keys = newKeys;
+        keyIds = newIds;
+    }
+
+    // Spreads the pool ids, which are consecutive, over the table
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -1,31 +1,59 @@
 package actions;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.List;
+
+import common.AnalysisResult;
+import common.Diagnostic;
+import common.Phase;
+import common.Token;
+import common.ast.AstPrinter;
+import common.ast.ClassDeclaration;
+import common.ast.CompilationUnit;
+import common.ast.Node;
+import common.ast.VariableDeclaration;
 
 public class SyntaxAnalyzer {
 
-    public String performSyntaxAnalysis(String code) {
-        if (code.isEmpty()) {
-            return "No code to analyze.";
+    // Bump whenever a rule change alters the diagnostics of this phase; invalidates persisted results
+    public static final int RULES_VERSION = 6;
+
+    public AnalysisResult<CompilationUnit> performSyntaxAnalysis(CharSequence code) {
+        if (code.length() == 0) {
+            return AnalysisResult.noInput(Phase.SYNTAX);
         }
+        return performSyntaxAnalysis(new Lexer(code).tokenize());
+    }
 
+    // Source holding only comments parses to a unit with no items, which passes
+    public AnalysisResult<CompilationUnit> performSyntaxAnalysis(List<Token> tokens) {
+        Parser parser = new Parser(tokens);
+        CompilationUnit unit = parser.parse();
+        return new AnalysisResult<>(Phase.SYNTAX, unit, parser.getDiagnostics(), SyntaxAnalyzer::render);
+    }
+
+    // Items and errors are reported in source order
+    private static String render(AnalysisResult<CompilationUnit> analysis) {
         StringBuilder result = new StringBuilder();
-        String[] lines = code.split("\\n"); // Analyze code line-by-line
+        List<Node> items = analysis.getPayload().getItems();
+        List<Diagnostic> diagnostics = analysis.getDiagnostics();
+        int item = 0;
+        int error = 0;
 
-        boolean error = false;
-        for (String line : lines) {
-            try {
-                line = line.trim();
-                String analysisResult = generateAnalysisResult(line);
-                result.append(analysisResult);
-            } catch (Exception e) {
-                result.append("Error in the line: ").append(line).append("\n");
-                error = true;
+        while (item < items.size() || error < diagnostics.size()) {
+            if (error < diagnostics.size()
+                    && (item == items.size() || diagnostics.get(error).getLine() <= items.get(item).getLine())) {
+                Diagnostic diagnostic = diagnostics.get(error);
+                result.append("Error at line ").append(diagnostic.getLine())
+                      .append(", column ").append(diagnostic.getColumn())
+                      .append(": ").append(diagnostic.getMessage()).append("\n");
+                error++;
+            } else {
+                renderItem(result, items.get(item));
+                item++;
             }
         }
 
-        if (error) {
+        if (!analysis.isSuccessful()) {
             result.append("\nSyntax error(s) detected. Syntax analysis failed.\n");
         } else {
             result.append("Syntax Analysis completed successfully.\n");
@@ -34,35 +62,28 @@ public class SyntaxAnalyzer {
         return result.toString();
     }
 
-    private String generateAnalysisResult(String input) throws Exception {
-        input = input.trim();
-
-        String regex = "^(\\b(?:byte|short|int|long|float|double|boolean|char|String)\\b)\\s+" +
-                       "([a-zA-Z_][a-zA-Z0-9_]*)\\s*" +
-                       "=\\s*" +
-                       "([^;]+)\\s*" +
-                       "(;)$";
-        Pattern pattern = Pattern.compile(regex);
-        Matcher matcher = pattern.matcher(input);
-        StringBuilder result = new StringBuilder();
-        result.append("Analyzing line: ").append(input).append("\n");
-
-        if (matcher.matches()) {
-            String dataType = matcher.group(1);
-            String id = matcher.group(2);
-            String assignOperator = "=";
-            String value = matcher.group(3);
-            String delimiter = matcher.group(4);
+    private static void renderItem(StringBuilder result, Node item) {
+        if (item instanceof ClassDeclaration) {
+            ClassDeclaration declaration = (ClassDeclaration) item;
+            result.append("Analyzing class: ").append(declaration.getName()).append("\n");
+            for (Node member : declaration.getMembers()) {
+                result.append("Member: ").append(AstPrinter.print(member)).append("\n");
+            }
+            result.append("Class Syntax Analyzed.\n\n");
+            return;
+        }
 
-            result.append("Data Type: ").append(dataType).append("\n");
-            result.append("Identifier: ").append(id).append("\n");
-            result.append("Assignment Operator: ").append(assignOperator).append("\n");
-            result.append("Value: ").append(value).append("\n");
-            result.append("Delimiter: ").append(delimiter).append("\n");
-            result.append("Line Syntax Analyzed.\n\n");
-            return result.toString();
-        } else {
-            throw new Exception("Syntax error in the source code.");
+        result.append("Analyzing statement: ").append(AstPrinter.print(item)).append("\n");
+        if (item instanceof VariableDeclaration) {
+            VariableDeclaration declaration = (VariableDeclaration) item;
+            result.append("Data Type: ").append(declaration.getType().getName()).append("\n");
+            result.append("Identifier: ").append(declaration.getName()).append("\n");
+            if (declaration.getInitializer() != null) {
+                result.append("Assignment Operator: =\n");
+                result.append("Value: ").append(AstPrinter.print(declaration.getInitializer())).append("\n");
+            }
+            result.append("Delimiter: ;\n");
         }
+        result.append("Statement Syntax Analyzed.\n\n");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,350 @@
+package actions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Three-address intermediate code for the top-level statements of a checked unit. Every value lives
+// in a numbered register of one of three files: L for int, long, char, boolean, byte and short
+// values, D for float and double, and A for strings and arrays. Constants are registers with an
+// initial value that nothing writes; every other register starts at zero or null. Instructions take
+// at most three register operands, and jumps refer to LABEL instructions in the same list.
+final class ThreeAddressCode {
+
+    // Int results are kept in the int range; float results are rounded to float
+    static final int MOVE_L = 0;
+    static final int MOVE_D = 1;
+    static final int MOVE_A = 2;
+    static final int ADD_I = 3;
+    static final int SUB_I = 4;
+    static final int MUL_I = 5;
+    static final int DIV_I = 6;
+    static final int REM_I = 7;
+    static final int NEG_I = 8;
+    static final int ADD_J = 9;
+    static final int SUB_J = 10;
+    static final int MUL_J = 11;
+    static final int DIV_J = 12;
+    static final int REM_J = 13;
+    static final int NEG_J = 14;
+    static final int ADD_F = 15;
+    static final int SUB_F = 16;
+    static final int MUL_F = 17;
+    static final int DIV_F = 18;
+    static final int REM_F = 19;
+    static final int NEG_F = 20;
+    static final int ADD_D = 21;
+    static final int SUB_D = 22;
+    static final int MUL_D = 23;
+    static final int DIV_D = 24;
+    static final int REM_D = 25;
+    static final int NEG_D = 26;
+    static final int L2F = 27;
+    static final int L2D = 28;
+    static final int JUMP = 29;
+    static final int IF_TRUE = 30;
+    static final int IF_FALSE = 31;
+    // Comparisons in the order EQ, NE, LT, GE, GT, LE, as in CodeGenerator
+    static final int IF_EQ_L = 32;
+    static final int IF_NE_L = 33;
+    static final int IF_LT_L = 34;
+    static final int IF_GE_L = 35;
+    static final int IF_GT_L = 36;
+    static final int IF_LE_L = 37;
+    static final int IF_EQ_D = 38;
+    static final int IF_NE_D = 39;
+    static final int IF_LT_D = 40;
+    static final int IF_GE_D = 41;
+    static final int IF_GT_D = 42;
+    static final int IF_LE_D = 43;
+    static final int IF_EQ_A = 44;
+    static final int IF_NE_A = 45;
+    static final int NEW_BUILDER = 46;
+    static final int APPEND_I = 47;
+    static final int APPEND_C = 48;
+    static final int APPEND_Z = 49;
+    static final int APPEND_J = 50;
+    static final int APPEND_F = 51;
+    static final int APPEND_D = 52;
+    static final int APPEND_A = 53;
+    static final int TO_STRING = 54;
+    static final int POLL = 55;
+    static final int LABEL = 56;
+
+    // Roles of the x, y and z operands of each opcode: a lower-case file letter reads a register of
+    // that file, an upper-case one writes it, B appends to the string builder in an A register, and
+    // - is unused
+    private static final String[] ROLES = new String[LABEL + 1];
+    private static final String[] MNEMONICS = new String[LABEL + 1];
+
+    static {
+        define(MOVE_L, "move.l", "Ll-");
+        define(MOVE_D, "move.d", "Dd-");
+        define(MOVE_A, "move.a", "Aa-");
+        String[] arithmetic = {"add", "sub", "mul", "div", "rem", "neg"};
+        String[] types = {"i", "j", "f", "d"};
+        for (int type = 0; type < types.length; type++) {
+            String roles = type < 2 ? "Lll" : "Ddd";
+            for (int op = 0; op < arithmetic.length; op++) {
+                define(ADD_I + type * 6 + op, arithmetic[op] + "." + types[type],
+                        op == 5 ? roles.substring(0, 2) + "-" : roles);
+            }
+        }
+        define(L2F, "l2f", "Dl-");
+        define(L2D, "l2d", "Dl-");
+        define(JUMP, "jump", "---");
+        define(IF_TRUE, "if.true", "l--");
+        define(IF_FALSE, "if.false", "l--");
+        String[] comparisons = {"eq", "ne", "lt", "ge", "gt", "le"};
+        for (int i = 0; i < comparisons.length; i++) {
+            define(IF_EQ_L + i, "if." + comparisons[i] + ".l", "ll-");
+            define(IF_EQ_D + i, "if." + comparisons[i] + ".d", "dd-");
+        }
+        define(IF_EQ_A, "if.eq.a", "aa-");
+        define(IF_NE_A, "if.ne.a", "aa-");
+        define(NEW_BUILDER, "builder", "A--");
+        define(APPEND_I, "append.i", "Bl-");
+        define(APPEND_C, "append.c", "Bl-");
+        define(APPEND_Z, "append.z", "Bl-");
+        define(APPEND_J, "append.j", "Bl-");
+        define(APPEND_F, "append.f", "Bd-");
+        define(APPEND_D, "append.d", "Bd-");
+        define(APPEND_A, "append.a", "Ba-");
+        define(TO_STRING, "tostring", "Aa-");
+        define(POLL, "poll", "---");
+        define(LABEL, "label", "---");
+    }
+
+    private static void define(int opcode, String mnemonic, String roles) {
+        MNEMONICS[opcode] = mnemonic;
+        ROLES[opcode] = roles;
+    }
+
+    static final class Instruction {
+        int opcode;
+        int x;
+        int y;
+        int z;
+        // The LABEL a jump or conditional jump goes to
+        Instruction target;
+        final int line;
+
+        Instruction(int opcode, int x, int y, int z, Instruction target, int line) {
+            this.opcode = opcode;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.target = target;
+            this.line = line;
+        }
+
+        int operand(int index) {
+            return index == 0 ? x : index == 1 ? y : z;
+        }
+
+        void setOperand(int index, int register) {
+            if (index == 0) {
+                x = register;
+            } else if (index == 1) {
+                y = register;
+            } else {
+                z = register;
+            }
+        }
+
+        // The role letter of operand 0, 1 or 2
+        char role(int index) {
+            return ROLES[opcode].charAt(index);
+        }
+
+        boolean isBranch() {
+            return target != null;
+        }
+
+        // Jumps that never fall through to the next instruction
+        boolean isJump() {
+            return opcode == JUMP;
+        }
+    }
+
+    // An outermost-scope variable, printed at the end of the run as "name = value". Kind is the
+    // println overload: I, C, Z, J, F, D, or A for references.
+    static final class Printed {
+        final String name;
+        final int register;
+        final char kind;
+
+        Printed(String name, int register, char kind) {
+            this.name = name;
+            this.register = register;
+            this.kind = kind;
+        }
+
+        char file() {
+            return kind == 'A' ? 'A' : kind == 'F' || kind == 'D' ? 'D' : 'L';
+        }
+    }
+
+    // The registers of one file; constants are interned, so equal values share a register
+    static final class Registers {
+        final char file;
+        private final List<Object> initial = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<Boolean> constant = new ArrayList<>();
+        private final Map<Object, Integer> constants = new HashMap<>();
+
+        Registers(char file) {
+            this.file = file;
+        }
+
+        int allocate() {
+            return allocate(null);
+        }
+
+        // A register for the named variable
+        int allocate(String name) {
+            initial.add(null);
+            names.add(name);
+            constant.add(Boolean.FALSE);
+            return initial.size() - 1;
+        }
+
+        // Equal strings share one instance, as string literals and constant expressions do in Java
+        int constant(Object value) {
+            Object key = value instanceof String ? ((String) value).intern() : value;
+            Integer register = constants.get(key);
+            if (register == null) {
+                register = initial.size();
+                initial.add(key);
+                names.add(null);
+                constant.add(Boolean.TRUE);
+                constants.put(key, register);
+            }
+            return register;
+        }
+
+        int size() {
+            return initial.size();
+        }
+
+        boolean isConstant(int register) {
+            return constant.get(register);
+        }
+
+        // The initial value: the constant, or null for the zero or null every other register holds
+        Object initialValue(int register) {
+            return initial.get(register);
+        }
+
+        long[] longTemplate() {
+            long[] template = new long[initial.size()];
+            for (int i = 0; i < template.length; i++) {
+                template[i] = initial.get(i) == null ? 0 : (Long) initial.get(i);
+            }
+            return template;
+        }
+
+        double[] doubleTemplate() {
+            double[] template = new double[initial.size()];
+            for (int i = 0; i < template.length; i++) {
+                template[i] = initial.get(i) == null ? 0 : (Double) initial.get(i);
+            }
+            return template;
+        }
+
+        Object[] referenceTemplate() {
+            return initial.toArray();
+        }
+
+        String describe(int register) {
+            Object value = initial.get(register);
+            if (isConstant(register)) {
+                return value instanceof String ? "#\"" + value + "\"" : "#" + value;
+            }
+            String name = names.get(register);
+            String text = Character.toLowerCase(file) + Integer.toString(register);
+            return name == null ? text : text + ":" + name;
+        }
+    }
+
+    final Registers longs = new Registers('L');
+    final Registers doubles = new Registers('D');
+    final Registers references = new Registers('A');
+    final List<Printed> printed = new ArrayList<>();
+    List<Instruction> instructions = new ArrayList<>();
+
+    Registers registers(char file) {
+        switch (Character.toUpperCase(file)) {
+            case 'L':
+                return longs;
+            case 'D':
+                return doubles;
+            default:
+                return references;
+        }
+    }
+
+    // Passes number the registers of all three files together: L first, then D, then A
+    int flatOffset(char file) {
+        switch (Character.toUpperCase(file)) {
+            case 'L':
+                return 0;
+            case 'D':
+                return longs.size();
+            default:
+                return longs.size() + doubles.size();
+        }
+    }
+
+    int flatCount() {
+        return longs.size() + doubles.size() + references.size();
+    }
+
+    // Instructions that run, not counting labels
+    int size() {
+        int size = 0;
+        for (Instruction instruction : instructions) {
+            if (instruction.opcode != LABEL) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    // One instruction per line with its source line, and labels numbered in order of appearance. The
+    // listing closes with an end line, so a label at the end of the program, which jumps that leave
+    // it refer to, still marks a place in the listing.
+    String dump() {
+        Map<Instruction, Integer> labels = new IdentityHashMap<>();
+        for (Instruction instruction : instructions) {
+            if (instruction.opcode == LABEL) {
+                labels.put(instruction, labels.size());
+            }
+        }
+        StringBuilder text = new StringBuilder();
+        for (Instruction instruction : instructions) {
+            if (instruction.opcode == LABEL) {
+                text.append("L").append(labels.get(instruction)).append(":\n");
+                continue;
+            }
+            StringBuilder operands = new StringBuilder();
+            for (int i = 0; i < 3; i++) {
+                char role = instruction.role(i);
+                if (role != '-') {
+                    operands.append(operands.length() == 0 ? "" : ", ")
+                            .append(registers(role == 'B' ? 'A' : role).describe(instruction.operand(i)));
+                }
+            }
+            if (instruction.isBranch()) {
+                Integer label = labels.get(instruction.target);
+                operands.append(operands.length() == 0 ? "" : " ").append("-> L").append(label == null ? "?" : label);
+            }
+            text.append(String.format("%6d  %-10s %s", instruction.line, MNEMONICS[instruction.opcode], operands))
+                .append('\n');
+        }
+        text.append(String.format("%6s  %s", "", "end")).append('\n');
+        return text.toString();
+    }
+}
@@ -0,0 +1,599 @@
+package actions;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import actions.ThreeAddressCode.Instruction;
+import actions.ThreeAddressCode.Printed;
+import actions.ThreeAddressCode.Registers;
+import common.TokenType;
+import common.ast.AssignmentExpression;
+import common.ast.BinaryExpression;
+import common.ast.Block;
+import common.ast.ClassDeclaration;
+import common.ast.CompilationUnit;
+import common.ast.Expression;
+import common.ast.ExpressionStatement;
+import common.ast.IfStatement;
+import common.ast.NameExpression;
+import common.ast.Node;
+import common.ast.ReturnStatement;
+import common.ast.TreeScanner;
+import common.ast.TypeNode;
+import common.ast.UnaryExpression;
+import common.ast.VariableDeclaration;
+import common.ast.WhileStatement;
+
+// Translates the top-level statements into instructions, resolving names through the same scopes
+// as semantic analysis: declarations in inner scopes to their registers, and every other name
+// to the outermost-scope variable of that name
+final class ThreeAddressTranslator extends TreeScanner {
+
+    private static final int CANCELLATION_INTERVAL = 0xFFF;  // Top-level items between cancellation checks
+
+    private final ThreeAddressCode program = new ThreeAddressCode();
+    private final Registers longs = program.longs;
+    private final Registers doubles = program.doubles;
+    private final Registers references = program.references;
+    private int line;
+    private final SymbolTable table = new SymbolTable();
+    private final Map<Node, Integer> locals = new IdentityHashMap<>();
+    private final Map<String, Integer> globals = new HashMap<>();
+    private final int zero = longs.constant(0L);
+    private final int one = longs.constant(1L);
+    private final int zeroDouble = doubles.constant(0.0);
+    private final int nullReference = references.constant(null);
+    private final Instruction exit = label();
+
+    private ThreeAddressTranslator() {
+    }
+
+    // The unit must have passed semantic analysis, which typed every expression
+    static ThreeAddressCode translate(CompilationUnit unit) {
+        ThreeAddressTranslator translator = new ThreeAddressTranslator();
+        translator.collectGlobals(unit);
+        List<Node> items = unit.getItems();
+        for (int i = 0; i < items.size(); i++) {
+            if ((i & CANCELLATION_INTERVAL) == 0) {
+                Cancellation.checkpoint();
+            }
+            if (!(items.get(i) instanceof ClassDeclaration)) {
+                items.get(i).accept(translator);
+            }
+        }
+        translator.place(translator.exit);
+        return translator.program;
+    }
+
+    private void collectGlobals(CompilationUnit unit) {
+        unit.accept(new TreeScanner() {
+            @Override
+            public Void visitClassDeclaration(ClassDeclaration node) {
+                return null;
+            }
+
+            @Override
+            public Void visitBlock(Block node) {
+                return null;
+            }
+
+            @Override
+            public Void visitVariableDeclaration(VariableDeclaration node) {
+                int register = registers(node.getType()).allocate(node.getName());
+                globals.put(node.getName(), register);
+                program.printed.add(new Printed(node.getName(), register, printKind(node.getType())));
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public Void visitClassDeclaration(ClassDeclaration node) {
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(Block node) {
+        table.enterScope();
+        scanAll(node.getStatements());
+        table.exitScope();
+        return null;
+    }
+
+    // A variable without an initializer starts again from its default value every time its
+    // declaration runs
+    @Override
+    public Void visitVariableDeclaration(VariableDeclaration node) {
+        line = node.getLine();
+        TypeNode type = node.getType();
+        int register;
+        if (table.getDepth() == 0) {
+            register = globals.get(node.getName());
+            if (node.getInitializer() == null) {
+                return null;
+            }
+        } else {
+            register = registers(type).allocate(node.getName());
+        }
+        if (node.getInitializer() != null) {
+            store(register, type, node.getInitializer());
+        } else {
+            emit(move(type), register, defaultRegister(type), 0);
+        }
+        if (table.getDepth() > 0) {
+            table.declare(node.getName(), node.getNameId(), SymbolTable.Kind.LOCAL, type, node);
+            locals.put(node, register);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStatement(ExpressionStatement node) {
+        line = node.getLine();
+        value(node.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visitIfStatement(IfStatement node) {
+        line = node.getLine();
+        Instruction otherwise = label();
+        branch(node.getCondition(), otherwise, false);
+        node.getThenBranch().accept(this);
+        if (node.getElseBranch() == null) {
+            place(otherwise);
+            return null;
+        }
+        Instruction end = label();
+        jump(ThreeAddressCode.JUMP, 0, 0, end);
+        place(otherwise);
+        node.getElseBranch().accept(this);
+        place(end);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStatement(WhileStatement node) {
+        line = node.getLine();
+        Instruction top = label();
+        Instruction end = label();
+        place(top);
+        emit(ThreeAddressCode.POLL, 0, 0, 0);
+        branch(node.getCondition(), end, false);
+        node.getBody().accept(this);
+        line = node.getLine();
+        jump(ThreeAddressCode.JUMP, 0, 0, top);
+        place(end);
+        return null;
+    }
+
+    // Semantic analysis allows only a bare return among the top-level statements
+    @Override
+    public Void visitReturnStatement(ReturnStatement node) {
+        line = node.getLine();
+        jump(ThreeAddressCode.JUMP, 0, 0, exit);
+        return null;
+    }
+
+    // Computes the value of an expression into a register of its own type's file
+    private int value(Expression expression) {
+        TypeNode type = expression.getType();
+        if (expression.isConstant()) {
+            return constant(expression.getConstant(), type);
+        }
+        if (expression instanceof NameExpression) {
+            return resolve((NameExpression) expression);
+        }
+        if (expression instanceof AssignmentExpression) {
+            AssignmentExpression assignment = (AssignmentExpression) expression;
+            int target = resolve(assignment.getTarget());
+            store(target, assignment.getTarget().getType(), assignment.getValue());
+            return target;
+        }
+        if (isBoolean(type)) {
+            int result = longs.allocate();
+            Instruction isTrue = label();
+            Instruction end = label();
+            branch(expression, isTrue, true);
+            emit(ThreeAddressCode.MOVE_L, result, zero, 0);
+            jump(ThreeAddressCode.JUMP, 0, 0, end);
+            place(isTrue);
+            emit(ThreeAddressCode.MOVE_L, result, one, 0);
+            place(end);
+            return result;
+        }
+        if (expression instanceof UnaryExpression) {
+            UnaryExpression unary = (UnaryExpression) expression;
+            int operand = value(unary.getOperand(), type);
+            if (unary.getOperator() != TokenType.MINUS) {
+                return operand;
+            }
+            int result = registers(type).allocate();
+            emit(ThreeAddressCode.NEG_I + typeOffset(type), result, operand, 0);
+            return result;
+        }
+        if (expression instanceof BinaryExpression) {
+            BinaryExpression binary = (BinaryExpression) expression;
+            if (isString(type)) {
+                return concatenate(binary);
+            }
+            return applyOperators(binary, type);
+        }
+        return nullReference;  // The null literal
+    }
+
+    // The operators of a left-deep chain computing in one type are applied in a loop, each to the
+    // temporary register the operators before it left, which no assignment on the right can change
+    private int applyOperators(BinaryExpression binary, TypeNode type) {
+        List<BinaryExpression> chain = new ArrayList<>();
+        Expression left = binary;
+        while (left instanceof BinaryExpression && !left.isConstant() && left.getType() == type) {
+            chain.add((BinaryExpression) left);
+            left = ((BinaryExpression) left).getLeft();
+        }
+        int result = operand(left, type, chain.get(chain.size() - 1).getRight());
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            BinaryExpression operation = chain.get(i);
+            int right = value(operation.getRight(), type);
+            int next = registers(type).allocate();
+            emit(arithmetic(operation.getOperator()) + typeOffset(type), next, result, right);
+            result = next;
+        }
+        return result;
+    }
+
+    // The value converted to the given type; int and long share the long file, and a float is
+    // held exactly in the double file, so only integral to floating conversions take a step
+    private int value(Expression expression, TypeNode type) {
+        if (expression.isConstant()) {
+            return constant(expression.getConstant(), type);
+        }
+        int register = value(expression);
+        char from = kind(expression.getType());
+        char to = kind(type);
+        if ((from == 'I' || from == 'J') && (to == 'F' || to == 'D')) {
+            int converted = doubles.allocate();
+            emit(to == 'F' ? ThreeAddressCode.L2F : ThreeAddressCode.L2D, converted, register, 0);
+            return converted;
+        }
+        return register;
+    }
+
+    // A left operand that a variable register holds is copied first when the right operand
+    // assigns, as Java evaluates the left operand completely before the right one
+    private int operand(Expression left, TypeNode type, Expression right) {
+        int register = value(left, type);
+        if (!containsAssignment(right)) {
+            return register;
+        }
+        int copy = registers(type).allocate();
+        emit(move(type), copy, register, 0);
+        return copy;
+    }
+
+    private void store(int target, TypeNode type, Expression value) {
+        emit(move(type), target, value(value, type), 0);
+    }
+
+    private int resolve(NameExpression name) {
+        SymbolTable.Symbol symbol = table.lookup(name.getNameId());
+        return symbol == null ? globals.get(name.getName()) : locals.get(symbol.getDeclaration());
+    }
+
+    // Jumps to the target when the condition has the given value, and falls through otherwise
+    private void branch(Expression condition, Instruction target, boolean jumpIfTrue) {
+        if (condition.isConstant()) {
+            if ((Boolean) condition.getConstant() == jumpIfTrue) {
+                jump(ThreeAddressCode.JUMP, 0, 0, target);
+            }
+            return;
+        }
+        if (condition instanceof UnaryExpression && ((UnaryExpression) condition).getOperator() == TokenType.NOT) {
+            branch(((UnaryExpression) condition).getOperand(), target, !jumpIfTrue);
+            return;
+        }
+        if (condition instanceof BinaryExpression) {
+            BinaryExpression binary = (BinaryExpression) condition;
+            TokenType operator = binary.getOperator();
+            if (operator == TokenType.AND_AND || operator == TokenType.OR_OR) {
+                List<Expression> operands = CodeGenerator.logicalOperands(binary);
+                if ((operator == TokenType.OR_OR) == jumpIfTrue) {
+                    for (Expression operand : operands) {
+                        branch(operand, target, jumpIfTrue);
+                    }
+                } else {
+                    Instruction skip = label();
+                    for (int i = 0; i < operands.size() - 1; i++) {
+                        branch(operands.get(i), skip, !jumpIfTrue);
+                    }
+                    branch(operands.get(operands.size() - 1), target, jumpIfTrue);
+                    place(skip);
+                }
+                return;
+            }
+            int index = conditionIndex(operator);
+            if (index >= 0) {
+                compare(binary, index, target, jumpIfTrue);
+                return;
+            }
+        }
+        jump(jumpIfTrue ? ThreeAddressCode.IF_TRUE : ThreeAddressCode.IF_FALSE, value(condition), 0, target);
+    }
+
+    // The comparisons come in pairs that negate each other, so a false jump takes the other one of
+    // the pair, except in floating point: negating there would change the result for NaN, so a false
+    // jump skips over a true jump instead
+    private void compare(BinaryExpression comparison, int index, Instruction target, boolean jumpIfTrue) {
+        Expression left = comparison.getLeft();
+        Expression right = comparison.getRight();
+        TypeNode type = isReference(left.getType()) ? left.getType() : promote(left.getType(), right.getType());
+        boolean floating = kind(type) == 'F' || kind(type) == 'D';
+        int condition = jumpIfTrue || floating ? index : index ^ 1;
+        int opcode;
+        if (isReference(type)) {
+            opcode = condition == 0 ? ThreeAddressCode.IF_EQ_A : ThreeAddressCode.IF_NE_A;
+        } else {
+            opcode = (floating ? ThreeAddressCode.IF_EQ_D : ThreeAddressCode.IF_EQ_L) + condition;
+        }
+        int a = operand(left, type, right);
+        int b = value(right, type);
+        if (jumpIfTrue || !floating) {
+            jump(opcode, a, b, target);
+        } else {
+            Instruction skip = label();
+            jump(opcode, a, b, skip);
+            jump(ThreeAddressCode.JUMP, 0, 0, target);
+            place(skip);
+        }
+    }
+
+    private int concatenate(BinaryExpression concatenation) {
+        List<Expression> parts = new ArrayList<>();
+        flatten(concatenation, parts);
+        int builder = references.allocate();
+        emit(ThreeAddressCode.NEW_BUILDER, builder, 0, 0);
+        for (Expression part : parts) {
+            emit(appendOpcode(part.getType()), builder, value(part), 0);
+        }
+        int result = references.allocate();
+        emit(ThreeAddressCode.TO_STRING, result, builder, 0);
+        return result;
+    }
+
+    // The operands in order, taken from an explicit stack so that chains of any length fit
+    private void flatten(Expression expression, List<Expression> parts) {
+        Deque<Expression> pending = new ArrayDeque<>();
+        pending.push(expression);
+        while (!pending.isEmpty()) {
+            Expression next = pending.pop();
+            if (next instanceof BinaryExpression && !next.isConstant() && isString(next.getType())) {
+                pending.push(((BinaryExpression) next).getRight());
+                pending.push(((BinaryExpression) next).getLeft());
+            } else {
+                parts.add(next);
+            }
+        }
+    }
+
+    private int constant(Object value, TypeNode type) {
+        switch (kind(type)) {
+            case 'I':
+                return longs.constant(value instanceof Boolean ? ((Boolean) value ? 1L : 0L)
+                        : (long) (int) longValue(value));
+            case 'J':
+                return longs.constant(longValue(value));
+            case 'F':
+                return doubles.constant((double) (float) doubleValue(value));
+            case 'D':
+                return doubles.constant(doubleValue(value));
+            default:
+                return references.constant(value);
+        }
+    }
+
+    private int defaultRegister(TypeNode type) {
+        switch (kind(type)) {
+            case 'F':
+            case 'D':
+                return zeroDouble;
+            case 'A':
+                return nullReference;
+            default:
+                return zero;
+        }
+    }
+
+    private Registers registers(TypeNode type) {
+        switch (kind(type)) {
+            case 'F':
+            case 'D':
+                return doubles;
+            case 'A':
+                return references;
+            default:
+                return longs;
+        }
+    }
+
+    private void emit(int opcode, int x, int y, int z) {
+        program.instructions.add(new Instruction(opcode, x, y, z, null, line));
+    }
+
+    private void jump(int opcode, int x, int y, Instruction target) {
+        program.instructions.add(new Instruction(opcode, x, y, 0, target, line));
+    }
+
+    private static Instruction label() {
+        return new Instruction(ThreeAddressCode.LABEL, 0, 0, 0, null, 0);
+    }
+
+    private void place(Instruction label) {
+        program.instructions.add(label);
+    }
+
+    private static boolean containsAssignment(Expression expression) {
+        Deque<Expression> pending = new ArrayDeque<>();
+        pending.push(expression);
+        while (!pending.isEmpty()) {
+            Expression next = pending.pop();
+            if (next instanceof AssignmentExpression) {
+                return true;
+            }
+            if (next instanceof UnaryExpression) {
+                pending.push(((UnaryExpression) next).getOperand());
+            } else if (next instanceof BinaryExpression) {
+                pending.push(((BinaryExpression) next).getRight());
+                pending.push(((BinaryExpression) next).getLeft());
+            }
+        }
+        return false;
+    }
+
+    private static int move(TypeNode type) {
+        switch (kind(type)) {
+            case 'F':
+            case 'D':
+                return ThreeAddressCode.MOVE_D;
+            case 'A':
+                return ThreeAddressCode.MOVE_A;
+            default:
+                return ThreeAddressCode.MOVE_L;
+        }
+    }
+
+    private static int appendOpcode(TypeNode type) {
+        switch (printKind(type)) {
+            case 'I':
+                return ThreeAddressCode.APPEND_I;
+            case 'C':
+                return ThreeAddressCode.APPEND_C;
+            case 'Z':
+                return ThreeAddressCode.APPEND_Z;
+            case 'J':
+                return ThreeAddressCode.APPEND_J;
+            case 'F':
+                return ThreeAddressCode.APPEND_F;
+            case 'D':
+                return ThreeAddressCode.APPEND_D;
+            default:
+                return ThreeAddressCode.APPEND_A;
+        }
+    }
+
+    // The println and append overload a value uses, as in CodeGenerator
+    private static char printKind(TypeNode type) {
+        if (isReference(type)) {
+            return 'A';
+        }
+        switch (type.getKeyword()) {
+            case CHAR:
+                return 'C';
+            case BOOLEAN:
+                return 'Z';
+            default:
+                return kind(type);
+        }
+    }
+
+    // I for every type up to int and boolean, J, F, D, or A for references
+    private static char kind(TypeNode type) {
+        if (isReference(type)) {
+            return 'A';
+        }
+        switch (type.getKeyword()) {
+            case LONG:
+                return 'J';
+            case FLOAT:
+                return 'F';
+            case DOUBLE:
+                return 'D';
+            default:
+                return 'I';
+        }
+    }
+
+    // Distance from an int arithmetic opcode to the variant for the type
+    private static int typeOffset(TypeNode type) {
+        switch (kind(type)) {
+            case 'J':
+                return ThreeAddressCode.ADD_J - ThreeAddressCode.ADD_I;
+            case 'F':
+                return ThreeAddressCode.ADD_F - ThreeAddressCode.ADD_I;
+            case 'D':
+                return ThreeAddressCode.ADD_D - ThreeAddressCode.ADD_I;
+            default:
+                return 0;
+        }
+    }
+
+    private static TypeNode promote(TypeNode left, TypeNode right) {
+        char a = kind(left);
+        char b = kind(right);
+        if (a == 'D' || b == 'D') {
+            return ExpressionTyper.DOUBLE;
+        }
+        if (a == 'F' || b == 'F') {
+            return ExpressionTyper.FLOAT;
+        }
+        return a == 'J' || b == 'J' ? ExpressionTyper.LONG : ExpressionTyper.INT;
+    }
+
+    private static int arithmetic(TokenType operator) {
+        switch (operator) {
+            case PLUS:
+                return ThreeAddressCode.ADD_I;
+            case MINUS:
+                return ThreeAddressCode.SUB_I;
+            case STAR:
+                return ThreeAddressCode.MUL_I;
+            case SLASH:
+                return ThreeAddressCode.DIV_I;
+            default:
+                return ThreeAddressCode.REM_I;
+        }
+    }
+
+    private static int conditionIndex(TokenType operator) {
+        switch (operator) {
+            case EQ:
+                return 0;
+            case NE:
+                return 1;
+            case LT:
+                return 2;
+            case GE:
+                return 3;
+            case GT:
+                return 4;
+            case LE:
+                return 5;
+            default:
+                return -1;
+        }
+    }
+
+    private static boolean isReference(TypeNode type) {
+        return type == ExpressionTyper.NULL || type.getDimensions() > 0 || type.getKeyword() == TokenType.STRING;
+    }
+
+    private static boolean isString(TypeNode type) {
+        return type.getDimensions() == 0 && type.getKeyword() == TokenType.STRING;
+    }
+
+    private static boolean isBoolean(TypeNode type) {
+        return type.getDimensions() == 0 && type.getKeyword() == TokenType.BOOLEAN;
+    }
+
+    private static long longValue(Object constant) {
+        return constant instanceof Character ? (Character) constant : ((Number) constant).longValue();
+    }
+
+    private static double doubleValue(Object constant) {
+        return constant instanceof Character ? (Character) constant : ((Number) constant).doubleValue();
+    }
+}
@@ -0,0 +1,88 @@
+package common;
+
+import java.util.Collections;
+import java.util.List;
+
+// Outcome of one analysis phase. The textual report is only built when render() is called.
+public class AnalysisResult<T> implements Renderable {
+
+    public enum Status {
+        SUCCESS,
+        FAILED,
+        NO_INPUT
+    }
+
+    public interface Renderer<T> {
+        String render(AnalysisResult<T> result);
+    }
+
+    private final Phase phase;
+    private final Status status;
+    private final T payload;
+    private final List<Diagnostic> diagnostics;
+    private final int errorCount;
+    private final Renderer<T> renderer;
+    private volatile String report;
+
+    public AnalysisResult(Phase phase, T payload, List<Diagnostic> diagnostics, Renderer<T> renderer) {
+        this.phase = phase;
+        this.payload = payload;
+        this.diagnostics = Collections.unmodifiableList(diagnostics);
+        this.renderer = renderer;
+        int errors = 0;
+        for (Diagnostic diagnostic : diagnostics) {
+            if (diagnostic.getSeverity() == Severity.ERROR) {
+                errors++;
+            }
+        }
+        this.errorCount = errors;
+        this.status = errors == 0 ? Status.SUCCESS : Status.FAILED;
+    }
+
+    private AnalysisResult(Phase phase) {
+        this.phase = phase;
+        this.status = Status.NO_INPUT;
+        this.payload = null;
+        this.diagnostics = Collections.emptyList();
+        this.errorCount = 0;
+        this.renderer = null;
+        this.report = "No code to analyze.";
+    }
+
+    public static <T> AnalysisResult<T> noInput(Phase phase) {
+        return new AnalysisResult<>(phase);
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isSuccessful() {
+        return status == Status.SUCCESS;
+    }
+
+    // Tokens, syntax tree or other phase output; null when there was no input
+    public T getPayload() {
+        return payload;
+    }
+
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    @Override
+    public String render() {
+        if (report == null) {
+            report = renderer.render(this);
+        }
+        return report;
+    }
+}
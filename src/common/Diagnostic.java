@@ -0,0 +1,53 @@
+package common;
+
+public class Diagnostic {
+    private final Phase phase;
+    private final Severity severity;
+    private final String code;
+    private final int line;
+    private final int column;
+    private final String message;
+
+    public Diagnostic(Phase phase, Severity severity, String code, int line, int column, String message) {
+        this.phase = phase;
+        this.severity = severity;
+        this.code = code;
+        this.line = line;
+        this.column = column;
+        this.message = message;
+    }
+
+    public static Diagnostic error(Phase phase, String code, int line, int column, String message) {
+        return new Diagnostic(phase, Severity.ERROR, code, line, column, message);
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public Severity getSeverity() {
+        return severity;
+    }
+
+    // Stable machine-readable identifier such as "unknown-token" or "type-mismatch"
+    public String getCode() {
+        return code;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "Line " + line + ", column " + column + ": " + message;
+    }
+}
@@ -0,0 +1,167 @@
+package common;
+
+import java.util.Arrays;
+
+// Spellings of identifiers and keywords, each with a stable int id. A word is looked up straight
+// from a range of the source by hashing its characters, so a word seen before costs no allocation
+// and every occurrence of it shares one String. Keywords hold the first ids, so the lexer tells
+// them from names by id alone. A pool never forgets a word, so ids stay valid for as long as any
+// tree holds them. The shared pool serves every phase and, in batch mode, every file, and lives as
+// long as the process; a long-lived session such as an editor interns into a pool of its own and
+// replaces it once it has grown too large. Ids from different pools must not be mixed. Finding a
+// word already in the pool takes no lock; adding one locks the pool.
+public final class IdentifierPool {
+
+    private static final TokenType[] KEYWORDS;
+
+    static {
+        TokenType[] keywords = new TokenType[TokenType.values().length];
+        int count = 0;
+        for (TokenType type : TokenType.values()) {
+            String text = type.getText();
+            if (text != null && Character.isJavaIdentifierStart(text.charAt(0))) {
+                keywords[count++] = type;
+            }
+        }
+        KEYWORDS = Arrays.copyOf(keywords, count);
+    }
+
+    // Created after KEYWORDS, which its constructor adds
+    private static final IdentifierPool SHARED = new IdentifierPool();
+
+    // One generation of the pool; a larger one replaces it when it fills up. Readers may see the
+    // entries added since they read the table only partly written, which reads as a miss, and a miss
+    // is always checked again under the lock.
+    private static final class Table {
+        // Pairs of the id plus one of the word in a slot, 0 for an empty slot, and the word's hash,
+        // so a probe reads one place until the hashes match
+        final int[] slots;
+        final String[] names;
+
+        Table(int capacity) {
+            slots = new int[capacity * 4];
+            names = new String[capacity];
+        }
+    }
+
+    private volatile Table table = new Table(1024);
+    // Guarded by this
+    private int size;
+
+    public IdentifierPool() {
+        for (TokenType keyword : KEYWORDS) {
+            intern(keyword.getText());
+        }
+    }
+
+    public static IdentifierPool shared() {
+        return SHARED;
+    }
+
+    // The keyword with the id, or null when the id is a name
+    public static TokenType keyword(int id) {
+        return id < KEYWORDS.length ? KEYWORDS[id] : null;
+    }
+
+    // The id of the characters from start to end, added to the pool if new
+    public int intern(CharSequence source, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        return intern(source, start, end, hash);
+    }
+
+    // As above, for a caller that hashed the characters as it read them; the hash must be the
+    // String.hashCode of the range
+    public int intern(CharSequence source, int start, int end, int hash) {
+        int id = find(table, hash, source, start, end);
+        return id >= 0 ? id : add(hash, source, start, end);
+    }
+
+    public int intern(String name) {
+        return intern(name, 0, name.length());
+    }
+
+    // The word with the id
+    public String name(int id) {
+        String[] names = table.names;
+        String name = id < names.length ? names[id] : null;
+        if (name == null) {
+            synchronized (this) {
+                name = table.names[id];
+            }
+        }
+        return name;
+    }
+
+    public int size() {
+        synchronized (this) {
+            return size;
+        }
+    }
+
+    private static int find(Table table, int hash, CharSequence source, int start, int end) {
+        int[] slots = table.slots;
+        int mask = slots.length - 2;
+        for (int slot = (mix(hash) << 1) & mask; slots[slot] != 0; slot = (slot + 2) & mask) {
+            if (slots[slot + 1] == hash && matches(table.names[slots[slot] - 1], source, start, end)) {
+                return slots[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    private synchronized int add(int hash, CharSequence source, int start, int end) {
+        int id = find(table, hash, source, start, end);
+        if (id >= 0) {
+            return id;
+        }
+        if (size == table.names.length) {
+            table = grow(table, size);
+        }
+        id = size++;
+        table.names[id] = source.subSequence(start, end).toString();
+        insert(table.slots, hash, id);
+        return id;
+    }
+
+    private static Table grow(Table old, int size) {
+        Table grown = new Table(old.names.length * 2);
+        System.arraycopy(old.names, 0, grown.names, 0, size);
+        for (int slot = 0; slot < old.slots.length; slot += 2) {
+            if (old.slots[slot] != 0) {
+                insert(grown.slots, old.slots[slot + 1], old.slots[slot] - 1);
+            }
+        }
+        return grown;
+    }
+
+    private static void insert(int[] slots, int hash, int id) {
+        int mask = slots.length - 2;
+        int slot = (mix(hash) << 1) & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 2) & mask;
+        }
+        slots[slot + 1] = hash;
+        slots[slot] = id + 1;
+    }
+
+    private static boolean matches(String name, CharSequence source, int start, int end) {
+        if (name == null || name.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != source.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Spreads the hash so linear probing does not cluster on similar names
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
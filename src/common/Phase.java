@@ -0,0 +1,19 @@
+package common;
+
+public enum Phase {
+    LEXICAL("Lexical"),
+    SYNTAX("Syntax"),
+    SEMANTIC("Semantic"),
+    GENERATION("Generation"),
+    EXECUTION("Execution");
+
+    private final String displayName;
+
+    Phase(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,7 @@
+package common;
+
+// A result that can produce its textual report on demand
+public interface Renderable {
+
+    String render();
+}
@@ -0,0 +1,7 @@
+package common;
+
+public enum Severity {
+    ERROR,
+    WARNING,
+    INFO
+}
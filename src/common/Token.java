@@ -1,15 +1,21 @@
 package common;
 
 public class Token {
-    private String type;
-    private String value;
+    private final TokenType type;
+    private final String value;
+    private final int offset;
+    private final int line;
+    private final int column;
 
-    public Token(String type, String value) {
+    public Token(TokenType type, String value, int offset, int line, int column) {
         this.type = type;
         this.value = value;
+        this.offset = offset;
+        this.line = line;
+        this.column = column;
     }
 
-    public String getType() {
+    public TokenType getType() {
         return type;
     }
 
@@ -17,11 +23,29 @@ public class Token {
         return value;
     }
 
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getEndOffset() {
+        return offset + value.length();
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
     @Override
     public String toString() {
         return "Token{" +
                 "type='" + type + '\'' +
                 ", value='" + value + '\'' +
+                ", line=" + line +
+                ", column=" + column +
                 '}';
     }
-}
\ No newline at end of file
+}
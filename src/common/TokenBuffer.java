@@ -0,0 +1,223 @@
+package common;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+// The tokens of one source as parallel primitive arrays: a type code, the start and end offsets of
+// the token's text in the source, its line and column, and for names and keywords their id in an
+// IdentifierPool. Token texts are not copied; a name is the pool's String, and a literal is cut from
+// the source only when asked for. As a List it presents every token as a Token made on access, for
+// callers that still work with Token objects; the parser and reports read the arrays directly by
+// index or through a Cursor.
+public final class TokenBuffer extends AbstractList<Token> implements RandomAccess {
+
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Iterates over the tokens without creating an object per token
+    public final class Cursor {
+        private int index = -1;
+
+        // Moves to the next token; false once past the last one
+        public boolean next() {
+            if (index < size) {
+                index++;
+            }
+            return index < size;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public TokenType getType() {
+            return TokenBuffer.this.getType(index);
+        }
+
+        public String getText() {
+            return TokenBuffer.this.getText(index);
+        }
+
+        public int getNameId() {
+            return TokenBuffer.this.getNameId(index);
+        }
+
+        public int getOffset() {
+            return starts[index];
+        }
+
+        public int getEndOffset() {
+            return ends[index];
+        }
+
+        public int getLine() {
+            return lines[index];
+        }
+
+        public int getColumn() {
+            return columns[index];
+        }
+    }
+
+    private final CharSequence source;
+    private final IdentifierPool pool;
+    // Texts of tokens copied from Token objects, which need not come from one source; null otherwise
+    private String[] texts;
+    private byte[] types;
+    private int[] starts;
+    private int[] ends;
+    // The pool id of a name or keyword, -1 for other tokens
+    private int[] ids;
+    private int[] lines;
+    private int[] columns;
+    private int size;
+
+    public TokenBuffer(CharSequence source) {
+        this(source, IdentifierPool.shared());
+    }
+
+    public TokenBuffer(CharSequence source, IdentifierPool pool) {
+        this.source = source;
+        this.pool = pool;
+        int capacity = Math.max(INITIAL_CAPACITY, source.length() / 4);
+        types = new byte[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+        ids = new int[capacity];
+        lines = new int[capacity];
+        columns = new int[capacity];
+    }
+
+    // The tokens themselves when they are a buffer already, otherwise a copy of them
+    public static TokenBuffer of(List<Token> tokens) {
+        if (tokens instanceof TokenBuffer) {
+            return (TokenBuffer) tokens;
+        }
+        TokenBuffer buffer = new TokenBuffer("");
+        buffer.texts = new String[buffer.types.length];
+        for (Token token : tokens) {
+            buffer.add(token.getType(), token.getOffset(), token.getEndOffset(), token.getLine(), token.getColumn());
+            buffer.texts[buffer.size - 1] = token.getValue();
+        }
+        return buffer;
+    }
+
+    public void add(TokenType type, int start, int end, int line, int column) {
+        add(type, -1, start, end, line, column);
+    }
+
+    // A name or keyword with its id in the buffer's pool
+    public void add(TokenType type, int id, int start, int end, int line, int column) {
+        if (size == types.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+            if (texts != null) {
+                texts = Arrays.copyOf(texts, capacity);
+            }
+        }
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        ends[size] = end;
+        ids[size] = id;
+        lines[size] = line;
+        columns[size] = column;
+        size++;
+    }
+
+    // Releases the unused capacity once every token has been added
+    public void trimToSize() {
+        if (size < types.length) {
+            types = Arrays.copyOf(types, size);
+            starts = Arrays.copyOf(starts, size);
+            ends = Arrays.copyOf(ends, size);
+            ids = Arrays.copyOf(ids, size);
+            lines = Arrays.copyOf(lines, size);
+            columns = Arrays.copyOf(columns, size);
+            if (texts != null) {
+                texts = Arrays.copyOf(texts, size);
+            }
+        }
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    public CharSequence getSource() {
+        return source;
+    }
+
+    public IdentifierPool getPool() {
+        return pool;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Token get(int index) {
+        checkIndex(index);
+        return new Token(getType(index), getText(index), starts[index], lines[index], columns[index]);
+    }
+
+    public TokenType getType(int index) {
+        checkIndex(index);
+        return TYPES[types[index]];
+    }
+
+    // The fixed spelling of a keyword, operator or separator, otherwise the text from the source
+    public String getText(int index) {
+        TokenType type = getType(index);
+        if (texts != null) {
+            return texts[index];
+        }
+        if (type.getText() != null) {
+            return type.getText();
+        }
+        if (ids[index] >= 0) {
+            return pool.name(ids[index]);
+        }
+        return type == TokenType.EOF ? "" : source.subSequence(starts[index], ends[index]).toString();
+    }
+
+    // The pool id of the token's text, added to the pool if the token was not recorded with one
+    public int getNameId(int index) {
+        checkIndex(index);
+        return ids[index] >= 0 ? ids[index] : pool.intern(getText(index));
+    }
+
+    public int getOffset(int index) {
+        checkIndex(index);
+        return starts[index];
+    }
+
+    public int getEndOffset(int index) {
+        checkIndex(index);
+        return ends[index];
+    }
+
+    public int getLine(int index) {
+        checkIndex(index);
+        return lines[index];
+    }
+
+    public int getColumn(int index) {
+        checkIndex(index);
+        return columns[index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
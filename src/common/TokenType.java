@@ -0,0 +1,141 @@
+package common;
+
+public enum TokenType {
+    // Data types
+    BYTE("byte", Category.DATA_TYPE),
+    SHORT("short", Category.DATA_TYPE),
+    INT("int", Category.DATA_TYPE),
+    LONG("long", Category.DATA_TYPE),
+    FLOAT("float", Category.DATA_TYPE),
+    DOUBLE("double", Category.DATA_TYPE),
+    BOOLEAN("boolean", Category.DATA_TYPE),
+    CHAR("char", Category.DATA_TYPE),
+    STRING("String", Category.DATA_TYPE),
+
+    // Keywords
+    CLASS("class", Category.KEYWORD),
+    PUBLIC("public", Category.KEYWORD),
+    PRIVATE("private", Category.KEYWORD),
+    PROTECTED("protected", Category.KEYWORD),
+    STATIC("static", Category.KEYWORD),
+    FINAL("final", Category.KEYWORD),
+    VOID("void", Category.KEYWORD),
+    RETURN("return", Category.KEYWORD),
+    IF("if", Category.KEYWORD),
+    ELSE("else", Category.KEYWORD),
+    WHILE("while", Category.KEYWORD),
+
+    IDENTIFIER(null, Category.IDENTIFIER),
+
+    // Literals
+    INTEGER_LITERAL(null, Category.LITERAL),
+    FLOATING_LITERAL(null, Category.LITERAL),
+    CHAR_LITERAL(null, Category.LITERAL),
+    STRING_LITERAL(null, Category.LITERAL),
+    TRUE("true", Category.LITERAL),
+    FALSE("false", Category.LITERAL),
+    NULL("null", Category.LITERAL),
+
+    ASSIGN("=", Category.ASSIGNMENT),
+
+    // Operators
+    PLUS("+", Category.OPERATOR),
+    MINUS("-", Category.OPERATOR),
+    STAR("*", Category.OPERATOR),
+    SLASH("/", Category.OPERATOR),
+    PERCENT("%", Category.OPERATOR),
+    EQ("==", Category.OPERATOR),
+    NE("!=", Category.OPERATOR),
+    LT("<", Category.OPERATOR),
+    LE("<=", Category.OPERATOR),
+    GT(">", Category.OPERATOR),
+    GE(">=", Category.OPERATOR),
+    AND_AND("&&", Category.OPERATOR),
+    OR_OR("||", Category.OPERATOR),
+    NOT("!", Category.OPERATOR),
+
+    // Separators
+    LPAREN("(", Category.SEPARATOR),
+    RPAREN(")", Category.SEPARATOR),
+    LBRACE("{", Category.SEPARATOR),
+    RBRACE("}", Category.SEPARATOR),
+    LBRACKET("[", Category.SEPARATOR),
+    RBRACKET("]", Category.SEPARATOR),
+    COMMA(",", Category.SEPARATOR),
+    DOT(".", Category.SEPARATOR),
+    SEMICOLON(";", Category.DELIMITER),
+
+    UNKNOWN(null, Category.UNKNOWN),
+    EOF(null, Category.END);
+
+    public enum Category {
+        DATA_TYPE("Data Type"),
+        KEYWORD("Keyword"),
+        IDENTIFIER("Identifier"),
+        LITERAL("Value"),
+        ASSIGNMENT("Assignment Operator"),
+        OPERATOR("Operator"),
+        SEPARATOR("Separator"),
+        DELIMITER("Delimiter"),
+        UNKNOWN("Unknown Token"),
+        END("End of Input");
+
+        private final String label;
+
+        Category(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final String text;
+    private final Category category;
+
+    TokenType(String text, Category category) {
+        this.text = text;
+        this.category = category;
+    }
+
+    // Fixed spelling of keywords, operators and separators; null for variable-length tokens
+    public String getText() {
+        return text;
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+
+    public boolean isDataType() {
+        return category == Category.DATA_TYPE;
+    }
+
+    // Binding strength as a binary operator, from || (1) to * / % (6); 0 when not a binary operator
+    public int getBinaryPrecedence() {
+        switch (this) {
+            case OR_OR:
+                return 1;
+            case AND_AND:
+                return 2;
+            case EQ:
+            case NE:
+                return 3;
+            case LT:
+            case LE:
+            case GT:
+            case GE:
+                return 4;
+            case PLUS:
+            case MINUS:
+                return 5;
+            case STAR:
+            case SLASH:
+            case PERCENT:
+                return 6;
+            default:
+                return 0;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package common.ast;
+
+public class AssignmentExpression extends Expression {
+    private final NameExpression target;
+    private final Expression value;
+
+    public AssignmentExpression(NameExpression target, Expression value, int start, int end, int line, int column) {
+        super(start, end, line, column);
+        this.target = target;
+        this.value = value;
+    }
+
+    public NameExpression getTarget() {
+        return target;
+    }
+
+    public Expression getValue() {
+        return value;
+    }
+
+    @Override
+    public <R> R accept(NodeVisitor<R> visitor) {
+        return visitor.visitAssignment(this);
+    }
+}
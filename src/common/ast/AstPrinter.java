@@ -0,0 +1,157 @@
+package common.ast;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import common.TokenType;
+
+// Renders a node back to compact single-line source text for reports
+public class AstPrinter implements NodeVisitor<String> {
+
+    public static String print(Node node) {
+        return node == null ? "" : node.accept(new AstPrinter());
+    }
+
+    private static String modifiers(List<TokenType> modifiers) {
+        StringBuilder text = new StringBuilder();
+        for (TokenType modifier : modifiers) {
+            text.append(modifier.getText()).append(' ');
+        }
+        return text.toString();
+    }
+
+    @Override
+    public String visitCompilationUnit(CompilationUnit node) {
+        StringBuilder text = new StringBuilder();
+        for (Node item : node.getItems()) {
+            text.append(item.accept(this)).append('\n');
+        }
+        return text.toString();
+    }
+
+    @Override
+    public String visitClassDeclaration(ClassDeclaration node) {
+        return modifiers(node.getModifiers()) + "class " + node.getName() + " { ... }";
+    }
+
+    @Override
+    public String visitMethodDeclaration(MethodDeclaration node) {
+        StringBuilder text = new StringBuilder(modifiers(node.getModifiers()));
+        text.append(node.getReturnType().accept(this)).append(' ').append(node.getName()).append('(');
+        for (int i = 0; i < node.getParameters().size(); i++) {
+            text.append(i > 0 ? ", " : "").append(node.getParameters().get(i).accept(this));
+        }
+        return text.append(") { ... }").toString();
+    }
+
+    @Override
+    public String visitParameter(Parameter node) {
+        return node.getType().accept(this) + " " + node.getName();
+    }
+
+    @Override
+    public String visitType(TypeNode node) {
+        return node.getName();
+    }
+
+    @Override
+    public String visitBlock(Block node) {
+        StringBuilder text = new StringBuilder("{");
+        for (Statement statement : node.getStatements()) {
+            text.append(' ').append(statement.accept(this));
+        }
+        return text.append(" }").toString();
+    }
+
+    @Override
+    public String visitVariableDeclaration(VariableDeclaration node) {
+        String text = modifiers(node.getModifiers()) + node.getType().accept(this) + " " + node.getName();
+        if (node.getInitializer() != null) {
+            text += " = " + node.getInitializer().accept(this);
+        }
+        return text + ";";
+    }
+
+    @Override
+    public String visitExpressionStatement(ExpressionStatement node) {
+        return node.getExpression().accept(this) + ";";
+    }
+
+    @Override
+    public String visitIfStatement(IfStatement node) {
+        String text = "if (" + node.getCondition().accept(this) + ") " + node.getThenBranch().accept(this);
+        if (node.getElseBranch() != null) {
+            text += " else " + node.getElseBranch().accept(this);
+        }
+        return text;
+    }
+
+    @Override
+    public String visitWhileStatement(WhileStatement node) {
+        return "while (" + node.getCondition().accept(this) + ") " + node.getBody().accept(this);
+    }
+
+    @Override
+    public String visitReturnStatement(ReturnStatement node) {
+        return node.getValue() == null ? "return;" : "return " + node.getValue().accept(this) + ";";
+    }
+
+    @Override
+    public String visitEmptyStatement(EmptyStatement node) {
+        return ";";
+    }
+
+    @Override
+    public String visitLiteral(Literal node) {
+        return node.getText();
+    }
+
+    @Override
+    public String visitName(NameExpression node) {
+        return node.getName();
+    }
+
+    @Override
+    public String visitUnary(UnaryExpression node) {
+        return node.getOperator().getText() + operand(node.getOperand(), Integer.MAX_VALUE);
+    }
+
+    // Parenthesizes an operand only where precedence or left associativity requires it. The operators
+    // of a left-deep chain are printed in a loop, so its length is not limited by the stack.
+    @Override
+    public String visitBinary(BinaryExpression node) {
+        List<BinaryExpression> chain = new ArrayList<>();
+        Expression left = node;
+        while (left instanceof BinaryExpression
+                && (chain.isEmpty() || !isLooser(left, precedence(chain.get(chain.size() - 1))))) {
+            chain.add((BinaryExpression) left);
+            left = ((BinaryExpression) left).getLeft();
+        }
+        StringBuilder text = new StringBuilder(operand(left, precedence(chain.get(chain.size() - 1))));
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            BinaryExpression operation = chain.get(i);
+            text.append(' ').append(operation.getOperator().getText()).append(' ')
+                .append(operand(operation.getRight(), precedence(operation) + 1));
+        }
+        return text.toString();
+    }
+
+    private static int precedence(BinaryExpression node) {
+        return node.getOperator().getBinaryPrecedence();
+    }
+
+    private String operand(Expression operand, int minPrecedence) {
+        String text = operand.accept(this);
+        return isLooser(operand, minPrecedence) ? "(" + text + ")" : text;
+    }
+
+    private static boolean isLooser(Expression operand, int minPrecedence) {
+        return operand instanceof AssignmentExpression || operand instanceof BinaryExpression
+                && precedence((BinaryExpression) operand) < minPrecedence;
+    }
+
+    @Override
+    public String visitAssignment(AssignmentExpression node) {
+        return node.getTarget().accept(this) + " = " + node.getValue().accept(this);
+    }
+}
@@ -0,0 +1,34 @@
+package common.ast;
+
+import common.TokenType;
+
+public class BinaryExpression extends Expression {
+    private final TokenType operator;
+    private final Expression left;
+    private final Expression right;
+
+    public BinaryExpression(TokenType operator, Expression left, Expression right,
+                            int start, int end, int line, int column) {
+        super(start, end, line, column);
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+    }
+
+    public TokenType getOperator() {
+        return operator;
+    }
+
+    public Expression getLeft() {
+        return left;
+    }
+
+    public Expression getRight() {
+        return right;
+    }
+
+    @Override
+    public <R> R accept(NodeVisitor<R> visitor) {
+        return visitor.visitBinary(this);
+    }
+}
@@ -0,0 +1,21 @@
+package common.ast;
+
+import java.util.List;
+
+public class Block extends Statement {
+    private final List<Statement> statements;
+
+    public Block(List<Statement> statements, int start, int end, int line, int column) {
+        super(start, end, line, column);
+        this.statements = statements;
+    }
+
+    public List<Statement> getStatements() {
+        return statements;
+    }
+
+    @Override
+    public <R> R accept(NodeVisitor<R> visitor) {
+        return visitor.visitBlock(this);
+    }
+}
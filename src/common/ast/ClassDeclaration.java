@@ -0,0 +1,37 @@
+package common.ast;
+
+import java.util.List;
+
+import common.TokenType;
+
+public class ClassDeclaration extends Node {
+    private final List<TokenType> modifiers;
+    private final String name;
+    private final List<Node> members;
+
+    public ClassDeclaration(List<TokenType> modifiers, String name, List<Node> members,
+                            int start, int end, int line, int column) {
+        super(start, end, line, column);
+        this.modifiers = modifiers;
+        this.name = name;
+        this.members = members;
+    }
+
+    public List<TokenType> getModifiers() {
+        return modifiers;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Fields (VariableDeclaration) and methods (MethodDeclaration)
+    public List<Node> getMembers() {
+        return members;
+    }
+
+    @Override
+    public <R> R accept(NodeVisitor<R> visitor) {
+        return visitor.visitClassDeclaration(this);
+    }
+}
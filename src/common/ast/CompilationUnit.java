@@ -0,0 +1,22 @@
+package common.ast;
+
+import java.util.List;
+
+// Top-level items are class declarations and free-standing statements
+public class CompilationUnit extends Node {
+    private final List<Node> items;
+
+    public CompilationUnit(List<Node> items, int start, int end) {
+        super(start, end, 1, 1);
+        this.items = items;
+    }
+
+    public List<Node> getItems() {
+        return items;
+    }
+
+    @Override
+    public <R> R accept(NodeVisitor<R> visitor) {
+        return visitor.visitCompilationUnit(this);
+    }
+}
@@ -0,0 +1,13 @@
+package common.ast;
+
+public class EmptyStatement extends Statement {
+
+    public EmptyStatement(int start, int end, int line, int column) {
+        super(start, end, line, column);
+    }
+
+    @Override
+    public <R> R accept(NodeVisitor<R> visitor) {
+        return visitor.visitEmptyStatement(this);
+    }
+}
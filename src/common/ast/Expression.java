@@ -0,0 +1,31 @@
+package common.ast;
+
+public abstract class Expression extends Node {
+    private TypeNode type;
+    private Object constant;
+
+    protected Expression(int start, int end, int line, int column) {
+        super(start, end, line, column);
+    }
+
+    // Static type inferred by semantic analysis; null before it runs or when the type is unknown,
+    // e.g. because a name is undeclared
+    public TypeNode getType() {
+        return type;
+    }
+
+    // Folded value when the expression is built from literals only: an Integer, Long, Float, Double,
+    // Character, Boolean or String; null otherwise
+    public Object getConstant() {
+        return constant;
+    }
+
+    public boolean isConstant() {
+        return constant != null;
+    }
+
+    public void setAttributes(TypeNode type, Object constant) {
+        this.type = type;
+        this.constant = constant;
+    }
+}
@@ -0,0 +1,19 @@
+package common.ast;
+
+public class ExpressionStatement extends Statement {
+    private final Expression expression;
+
+    public ExpressionStatement(Expression expression, int start, int end, int line, int column) {
+        super(start, end, line, column);
+        this.expression = expression;
+    }
+
+    public Expression getExpression() {
+        return expression;
+    }
+
+    @Override
+    public <R> R accept(NodeVisitor<R> visitor) {
+        return visitor.visitExpressionStatement(this);
+    }
+}
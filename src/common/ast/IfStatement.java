@@ -0,0 +1,33 @@
+package common.ast;
+
+public class IfStatement extends Statement {
+    private final Expression condition;
+    private final Statement thenBranch;
+    private final Statement elseBranch;
+
+    public IfStatement(Expression condition, Statement thenBranch, Statement elseBranch,
+                       int start, int end, int line, int column) {
+        super(start, end, line, column);
+        this.condition = condition;
+        this.thenBranch = thenBranch;
+        this.elseBranch = elseBranch;
+    }
+
+    public Expression getCondition() {
+        return condition;
+    }
+
+    public Statement getThenBranch() {
+        return thenBranch;
+    }
+
+    // Null when there is no else branch
+    public Statement getElseBranch() {
+        return elseBranch;
+    }
+
+    @Override
+    public <R> R accept(NodeVisitor<R> visitor) {
+        return visitor.visitIfStatement(this);
+    }
+}
@@ -0,0 +1,28 @@
+package common.ast;
+
+import common.TokenType;
+
+public class Literal extends Expression {
+    private final TokenType kind;
+    private final String text;
+
+    public Literal(TokenType kind, String text, int start, int end, int line, int column) {
+        super(start, end, line, column);
+        this.kind = kind;
+        this.text = text;
+    }
+
+    public TokenType getKind() {
+        return kind;
+    }
+
+    // Literal exactly as written in the source, including quotes and suffixes
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public <R> R accept(NodeVisitor<R> visitor) {
+        return visitor.visitLiteral(this);
+    }
+}
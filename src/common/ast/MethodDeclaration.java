@@ -0,0 +1,49 @@
+package common.ast;
+
+import java.util.List;
+
+import common.TokenType;
+
+public class MethodDeclaration extends Node {
+    private final List<TokenType> modifiers;
+    private final TypeNode returnType;
+    private final String name;
+    private final List<Parameter> parameters;
+    private final Block body;
+
+    public MethodDeclaration(List<TokenType> modifiers, TypeNode returnType, String name,
+                             List<Parameter> parameters, Block body,
+                             int start, int end, int line, int column) {
+        super(start, end, line, column);
+        this.modifiers = modifiers;
+        this.returnType = returnType;
+        this.name = name;
+        this.parameters = parameters;
+        this.body = body;
+    }
+
+    public List<TokenType> getModifiers() {
+        return modifiers;
+    }
+
+    public TypeNode getReturnType() {
+        return returnType;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Parameter> getParameters() {
+        return parameters;
+    }
+
+    public Block getBody() {
+        return body;
+    }
+
+    @Override
+    public <R> R accept(NodeVisitor<R> visitor) {
+        return visitor.visitMethodDeclaration(this);
+    }
+}
@@ -0,0 +1,32 @@
+package common.ast;
+
+import common.IdentifierPool;
+
+public class NameExpression extends Expression {
+    private final String name;
+    private final int nameId;
+
+    public NameExpression(String name, int start, int end, int line, int column) {
+        this(name, IdentifierPool.shared().intern(name), start, end, line, column);
+    }
+
+    public NameExpression(String name, int nameId, int start, int end, int line, int column) {
+        super(start, end, line, column);
+        this.name = name;
+        this.nameId = nameId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // The name's id in the identifier pool
+    public int getNameId() {
+        return nameId;
+    }
+
+    @Override
+    public <R> R accept(NodeVisitor<R> visitor) {
+        return visitor.visitName(this);
+    }
+}
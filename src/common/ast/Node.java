@@ -0,0 +1,35 @@
+package common.ast;
+
+public abstract class Node {
+    private final int start;
+    private final int end;
+    private final int line;
+    private final int column;
+
+    protected Node(int start, int end, int line, int column) {
+        this.start = start;
+        this.end = end;
+        this.line = line;
+        this.column = column;
+    }
+
+    // Offset of the first character of the node in the source
+    public int getStart() {
+        return start;
+    }
+
+    // Offset just past the last character of the node in the source
+    public int getEnd() {
+        return end;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public abstract <R> R accept(NodeVisitor<R> visitor);
+}
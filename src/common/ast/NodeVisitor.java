@@ -0,0 +1,38 @@
+package common.ast;
+
+public interface NodeVisitor<R> {
+
+    R visitCompilationUnit(CompilationUnit node);
+
+    R visitClassDeclaration(ClassDeclaration node);
+
+    R visitMethodDeclaration(MethodDeclaration node);
+
+    R visitParameter(Parameter node);
+
+    R visitType(TypeNode node);
+
+    R visitBlock(Block node);
+
+    R visitVariableDeclaration(VariableDeclaration node);
+
+    R visitExpressionStatement(ExpressionStatement node);
+
+    R visitIfStatement(IfStatement node);
+
+    R visitWhileStatement(WhileStatement node);
+
+    R visitReturnStatement(ReturnStatement node);
+
+    R visitEmptyStatement(EmptyStatement node);
+
+    R visitLiteral(Literal node);
+
+    R visitName(NameExpression node);
+
+    R visitUnary(UnaryExpression node);
+
+    R visitBinary(BinaryExpression node);
+
+    R visitAssignment(AssignmentExpression node);
+}
@@ -0,0 +1,38 @@
+package common.ast;
+
+import common.IdentifierPool;
+
+public class Parameter extends Node {
+    private final TypeNode type;
+    private final String name;
+    private final int nameId;
+
+    public Parameter(TypeNode type, String name, int start, int end, int line, int column) {
+        this(type, name, IdentifierPool.shared().intern(name), start, end, line, column);
+    }
+
+    public Parameter(TypeNode type, String name, int nameId, int start, int end, int line, int column) {
+        super(start, end, line, column);
+        this.type = type;
+        this.name = name;
+        this.nameId = nameId;
+    }
+
+    public TypeNode getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // The name's id in the identifier pool
+    public int getNameId() {
+        return nameId;
+    }
+
+    @Override
+    public <R> R accept(NodeVisitor<R> visitor) {
+        return visitor.visitParameter(this);
+    }
+}
@@ -0,0 +1,20 @@
+package common.ast;
+
+public class ReturnStatement extends Statement {
+    private final Expression value;
+
+    public ReturnStatement(Expression value, int start, int end, int line, int column) {
+        super(start, end, line, column);
+        this.value = value;
+    }
+
+    // Null for a bare return
+    public Expression getValue() {
+        return value;
+    }
+
+    @Override
+    public <R> R accept(NodeVisitor<R> visitor) {
+        return visitor.visitReturnStatement(this);
+    }
+}
@@ -0,0 +1,8 @@
+package common.ast;
+
+public abstract class Statement extends Node {
+
+    protected Statement(int start, int end, int line, int column) {
+        super(start, end, line, column);
+    }
+}
@@ -0,0 +1,135 @@
+package common.ast;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Visits every child of every node; passes override only the nodes they care about
+public class TreeScanner implements NodeVisitor<Void> {
+
+    protected void scan(Node node) {
+        if (node != null) {
+            node.accept(this);
+        }
+    }
+
+    protected void scanAll(Iterable<? extends Node> nodes) {
+        for (Node node : nodes) {
+            scan(node);
+        }
+    }
+
+    @Override
+    public Void visitCompilationUnit(CompilationUnit node) {
+        scanAll(node.getItems());
+        return null;
+    }
+
+    @Override
+    public Void visitClassDeclaration(ClassDeclaration node) {
+        scanAll(node.getMembers());
+        return null;
+    }
+
+    @Override
+    public Void visitMethodDeclaration(MethodDeclaration node) {
+        scan(node.getReturnType());
+        scanAll(node.getParameters());
+        scan(node.getBody());
+        return null;
+    }
+
+    @Override
+    public Void visitParameter(Parameter node) {
+        scan(node.getType());
+        return null;
+    }
+
+    @Override
+    public Void visitType(TypeNode node) {
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(Block node) {
+        scanAll(node.getStatements());
+        return null;
+    }
+
+    @Override
+    public Void visitVariableDeclaration(VariableDeclaration node) {
+        scan(node.getType());
+        scan(node.getInitializer());
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStatement(ExpressionStatement node) {
+        scan(node.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visitIfStatement(IfStatement node) {
+        scan(node.getCondition());
+        scan(node.getThenBranch());
+        scan(node.getElseBranch());
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStatement(WhileStatement node) {
+        scan(node.getCondition());
+        scan(node.getBody());
+        return null;
+    }
+
+    @Override
+    public Void visitReturnStatement(ReturnStatement node) {
+        scan(node.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visitEmptyStatement(EmptyStatement node) {
+        return null;
+    }
+
+    @Override
+    public Void visitLiteral(Literal node) {
+        return null;
+    }
+
+    @Override
+    public Void visitName(NameExpression node) {
+        return null;
+    }
+
+    @Override
+    public Void visitUnary(UnaryExpression node) {
+        scan(node.getOperand());
+        return null;
+    }
+
+    // The operands of a left-deep chain are scanned in a loop, left to right
+    @Override
+    public Void visitBinary(BinaryExpression node) {
+        List<BinaryExpression> chain = new ArrayList<>();
+        Expression left = node;
+        while (left instanceof BinaryExpression) {
+            chain.add((BinaryExpression) left);
+            left = ((BinaryExpression) left).getLeft();
+        }
+        scan(left);
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            scan(chain.get(i).getRight());
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitAssignment(AssignmentExpression node) {
+        scan(node.getTarget());
+        scan(node.getValue());
+        return null;
+    }
+}
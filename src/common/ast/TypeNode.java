@@ -0,0 +1,36 @@
+package common.ast;
+
+import common.TokenType;
+
+// A data type or void, with optional array dimensions such as String[]
+public class TypeNode extends Node {
+    private final TokenType keyword;
+    private final int dimensions;
+
+    public TypeNode(TokenType keyword, int dimensions, int start, int end, int line, int column) {
+        super(start, end, line, column);
+        this.keyword = keyword;
+        this.dimensions = dimensions;
+    }
+
+    public TokenType getKeyword() {
+        return keyword;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    public String getName() {
+        StringBuilder name = new StringBuilder(keyword.getText());
+        for (int i = 0; i < dimensions; i++) {
+            name.append("[]");
+        }
+        return name.toString();
+    }
+
+    @Override
+    public <R> R accept(NodeVisitor<R> visitor) {
+        return visitor.visitType(this);
+    }
+}
@@ -0,0 +1,27 @@
+package common.ast;
+
+import common.TokenType;
+
+public class UnaryExpression extends Expression {
+    private final TokenType operator;
+    private final Expression operand;
+
+    public UnaryExpression(TokenType operator, Expression operand, int start, int end, int line, int column) {
+        super(start, end, line, column);
+        this.operator = operator;
+        this.operand = operand;
+    }
+
+    public TokenType getOperator() {
+        return operator;
+    }
+
+    public Expression getOperand() {
+        return operand;
+    }
+
+    @Override
+    public <R> R accept(NodeVisitor<R> visitor) {
+        return visitor.visitUnary(this);
+    }
+}
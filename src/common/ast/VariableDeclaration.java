@@ -0,0 +1,56 @@
+package common.ast;
+
+import java.util.List;
+
+import common.IdentifierPool;
+import common.TokenType;
+
+// Local variable, top-level declaration or field; the initializer is null when omitted
+public class VariableDeclaration extends Statement {
+    private final List<TokenType> modifiers;
+    private final TypeNode type;
+    private final String name;
+    private final int nameId;
+    private final Expression initializer;
+
+    public VariableDeclaration(List<TokenType> modifiers, TypeNode type, String name, Expression initializer,
+                               int start, int end, int line, int column) {
+        this(modifiers, type, name, IdentifierPool.shared().intern(name), initializer, start, end, line, column);
+    }
+
+    public VariableDeclaration(List<TokenType> modifiers, TypeNode type, String name, int nameId,
+                               Expression initializer, int start, int end, int line, int column) {
+        super(start, end, line, column);
+        this.modifiers = modifiers;
+        this.type = type;
+        this.name = name;
+        this.nameId = nameId;
+        this.initializer = initializer;
+    }
+
+    public List<TokenType> getModifiers() {
+        return modifiers;
+    }
+
+    public TypeNode getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // The name's id in the identifier pool
+    public int getNameId() {
+        return nameId;
+    }
+
+    public Expression getInitializer() {
+        return initializer;
+    }
+
+    @Override
+    public <R> R accept(NodeVisitor<R> visitor) {
+        return visitor.visitVariableDeclaration(this);
+    }
+}
@@ -0,0 +1,25 @@
+package common.ast;
+
+public class WhileStatement extends Statement {
+    private final Expression condition;
+    private final Statement body;
+
+    public WhileStatement(Expression condition, Statement body, int start, int end, int line, int column) {
+        super(start, end, line, column);
+        this.condition = condition;
+        this.body = body;
+    }
+
+    public Expression getCondition() {
+        return condition;
+    }
+
+    public Statement getBody() {
+        return body;
+    }
+
+    @Override
+    public <R> R accept(NodeVisitor<R> visitor) {
+        return visitor.visitWhileStatement(this);
+    }
+}
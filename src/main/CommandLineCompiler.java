@@ -0,0 +1,330 @@
+package main;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import actions.BatchCompiler;
+import actions.DiskCache;
+import actions.PhaseMetrics;
+import actions.SourceReader;
+import common.Diagnostic;
+
+// Headless batch mode: analyzes files, directories and glob patterns without loading any AWT/Swing classes.
+// Diagnostics are printed one per line as path:line:column: severity: phase/code: message,
+// in input order even when files are analyzed in parallel.
+public class CommandLineCompiler {
+
+    public static final int EXIT_SUCCESS = 0;
+    public static final int EXIT_ERRORS = 1;
+    public static final int EXIT_USAGE = 2;
+
+    private static final String SOURCE_EXTENSION = ".java";
+
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        List<String> inputs = new ArrayList<>();
+        BatchCompiler.Options options = new BatchCompiler.Options();
+        Path cacheDirectory = null;
+        long cacheBytes = DiskCache.DEFAULT_MAX_BYTES;
+        Path metricsFile = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-h") || arg.equals("--help")) {
+                printUsage(out);
+                return EXIT_SUCCESS;
+            } else if (arg.equals("-j") || arg.equals("--jobs")) {
+                if (i + 1 == args.length || !isPositiveNumber(args[i + 1])) {
+                    err.println("Option " + arg + " expects a positive number of jobs");
+                    return EXIT_USAGE;
+                }
+                options.parallelism(Integer.parseInt(args[++i]));
+            } else if (arg.equals("--encoding")) {
+                if (i + 1 == args.length || !Charset.isSupported(args[i + 1])) {
+                    err.println("Option " + arg + " expects a supported charset name");
+                    return EXIT_USAGE;
+                }
+                options.reader(new SourceReader(Charset.forName(args[++i])));
+            } else if (arg.equals("--cache-dir")) {
+                if (i + 1 == args.length) {
+                    err.println("Option " + arg + " expects a directory");
+                    return EXIT_USAGE;
+                }
+                cacheDirectory = Paths.get(args[++i]);
+            } else if (arg.equals("--cache-size")) {
+                if (i + 1 == args.length || !isPositiveNumber(args[i + 1])) {
+                    err.println("Option " + arg + " expects a positive size in megabytes");
+                    return EXIT_USAGE;
+                }
+                cacheBytes = Long.parseLong(args[++i]) << 20;
+            } else if (arg.equals("-d") || arg.equals("--class-output")) {
+                if (i + 1 == args.length) {
+                    err.println("Option " + arg + " expects a directory");
+                    return EXIT_USAGE;
+                }
+                options.classOutput(Paths.get(args[++i]));
+            } else if (arg.equals("--dump-ir")) {
+                options.dumpIr(true);
+            } else if (arg.equals("--metrics")) {
+                if (i + 1 == args.length) {
+                    err.println("Option " + arg + " expects a file");
+                    return EXIT_USAGE;
+                }
+                metricsFile = Paths.get(args[++i]);
+            } else if (arg.startsWith("-")) {
+                err.println("Unknown option: " + arg);
+                printUsage(err);
+                return EXIT_USAGE;
+            } else {
+                inputs.add(arg);
+            }
+        }
+        options.measure(metricsFile != null);
+
+        List<Path> sources;
+        try {
+            sources = collectSources(inputs);
+        } catch (IOException | IllegalArgumentException ex) {
+            err.println("Error: " + ex.getMessage());
+            return EXIT_USAGE;
+        }
+        if (sources.isEmpty()) {
+            err.println("Error: no source files found.");
+            return EXIT_USAGE;
+        }
+
+        DiskCache cache = null;
+        if (cacheDirectory != null) {
+            try {
+                cache = new DiskCache(cacheDirectory, cacheBytes);
+                options.cache(cache);
+            } catch (IOException ex) {
+                err.println("Error: cannot use cache directory " + cacheDirectory + ": " + ex.getMessage());
+                return EXIT_USAGE;
+            }
+        }
+
+        Path classOutput = options.getClassOutput();
+        if (classOutput != null) {
+            try {
+                Files.createDirectories(classOutput);
+            } catch (IOException ex) {
+                err.println("Error: cannot create class output directory " + classOutput + ": " + ex.getMessage());
+                return EXIT_USAGE;
+            }
+        }
+
+        long startTime = System.nanoTime();
+        final int[] failedFiles = {0};
+        final int[] diagnosticCount = {0};
+        final boolean[] ioError = {false};
+        final int[] measuredFiles = {0};
+        PhaseMetrics totals = new PhaseMetrics();
+        StringBuilder metricsJson = new StringBuilder("{\n  \"files\": [");
+
+        new BatchCompiler(options).compile(sources, result -> {
+            if (result.getMetrics() != null) {
+                totals.add(result.getMetrics());
+                metricsJson.append(measuredFiles[0]++ == 0 ? "\n    " : ",\n    ");
+                metricsJson.append("{\"path\": ").append(jsonString(result.getSource().toString()))
+                        .append(", \"failedPhase\": ").append(result.getFailedPhase() == null ? "null"
+                                : jsonString(result.getFailedPhase().name().toLowerCase()))
+                        .append(", \"metrics\": ").append(result.getMetrics().toJson()).append('}');
+            }
+            if (result.getReadError() != null) {
+                err.println(result.getSource() + ": error reading file: " + result.getReadError());
+                ioError[0] = true;
+                return;
+            }
+            for (Diagnostic diagnostic : result.getDiagnostics()) {
+                out.println(format(result.getSource(), diagnostic));
+                diagnosticCount[0]++;
+            }
+            if (result.getIrDump() != null) {
+                out.println("Intermediate code of " + result.getSource() + ":");
+                out.print(result.getIrDump());
+            }
+            if (result.getFailedPhase() != null) {
+                failedFiles[0]++;
+            }
+        });
+
+        long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+        err.println(sources.size() + " file(s) analyzed, " + failedFiles[0] + " with errors, "
+                + diagnosticCount[0] + " diagnostic(s) in " + elapsedMillis + " ms using " + options.getParallelism() + " job(s)");
+        if (metricsFile != null) {
+            metricsJson.append("\n  ],\n  \"total\": {\"files\": ").append(sources.size())
+                    .append(", \"elapsedMs\": ").append(elapsedMillis)
+                    .append(", \"jobs\": ").append(options.getParallelism())
+                    .append(", \"metrics\": ").append(totals.toJson()).append("}\n}\n");
+            try {
+                Files.write(metricsFile, metricsJson.toString().getBytes(StandardCharsets.UTF_8));
+            } catch (IOException ex) {
+                err.println("Error: cannot write metrics to " + metricsFile + ": " + ex.getMessage());
+                ioError[0] = true;
+            }
+        }
+        if (cache != null) {
+            err.println("Cache: " + cache.getHits() + " hit(s), " + cache.getMisses() + " miss(es) in "
+                    + cache.getDirectory());
+            try {
+                cache.trim();
+            } catch (IOException ex) {
+                err.println("Warning: could not trim cache: " + ex.getMessage());
+            }
+        }
+
+        if (ioError[0]) {
+            return EXIT_USAGE;
+        }
+        return failedFiles[0] > 0 ? EXIT_ERRORS : EXIT_SUCCESS;
+    }
+
+    private static boolean isPositiveNumber(String value) {
+        try {
+            return Integer.parseInt(value) > 0;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    // A JSON string literal with quotes, backslashes and control characters escaped
+    static String jsonString(String value) {
+        StringBuilder json = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    static String format(Path source, Diagnostic diagnostic) {
+        return source + ":" + diagnostic.getLine() + ":" + diagnostic.getColumn() + ": "
+                + diagnostic.getSeverity().name().toLowerCase() + ": "
+                + diagnostic.getPhase().name().toLowerCase() + "/" + diagnostic.getCode() + ": "
+                + diagnostic.getMessage();
+    }
+
+    // Expands every input into source files, in a stable sorted order without duplicates
+    static List<Path> collectSources(List<String> inputs) throws IOException {
+        Set<Path> sources = new LinkedHashSet<>();
+        for (String input : inputs) {
+            if (isGlob(input)) {
+                sources.addAll(expandGlob(input));
+                continue;
+            }
+            Path path = Paths.get(input);
+            if (Files.isDirectory(path)) {
+                sources.addAll(walk(path, p -> p.toString().endsWith(SOURCE_EXTENSION)));
+            } else if (Files.isRegularFile(path)) {
+                sources.add(path);
+            } else {
+                throw new IOException("no such file or directory: " + input);
+            }
+        }
+        return new ArrayList<>(sources);
+    }
+
+    private static boolean isGlob(String input) {
+        return input.indexOf('*') >= 0 || input.indexOf('?') >= 0
+                || input.indexOf('[') >= 0 || input.indexOf('{') >= 0;
+    }
+
+    // Walks from the longest literal directory prefix of the pattern and matches the rest
+    private static List<Path> expandGlob(String pattern) throws IOException {
+        String normalized = pattern.replace('\\', '/');
+        int firstWildcard = normalized.length();
+        for (char wildcard : new char[] {'*', '?', '[', '{'}) {
+            int index = normalized.indexOf(wildcard);
+            if (index >= 0) {
+                firstWildcard = Math.min(firstWildcard, index);
+            }
+        }
+        int baseEnd = normalized.lastIndexOf('/', firstWildcard);
+        Path base = baseEnd < 0 ? Paths.get(".") : Paths.get(normalized.substring(0, baseEnd + 1));
+        String relativePattern = normalized.substring(baseEnd + 1);
+        if (!Files.isDirectory(base)) {
+            return new ArrayList<>();
+        }
+
+        List<PathMatcher> matchers = new ArrayList<>();
+        for (String variant : zeroDirectoryVariants(relativePattern)) {
+            matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + variant));
+        }
+        return walk(base, p -> {
+            Path relative = base.relativize(p);
+            return matchers.stream().anyMatch(matcher -> matcher.matches(relative));
+        });
+    }
+
+    // Java's glob needs "**/" to cross at least one directory, so 'src/**/*.java' would miss
+    // src/Main.java. The pattern is also matched with every combination of its "**/" removed.
+    private static Set<String> zeroDirectoryVariants(String pattern) {
+        Set<String> variants = new LinkedHashSet<>();
+        int index = pattern.indexOf("**/");
+        if (index < 0) {
+            variants.add(pattern);
+            return variants;
+        }
+        String head = pattern.substring(0, index);
+        for (String rest : zeroDirectoryVariants(pattern.substring(index + 3))) {
+            variants.add(head + "**/" + rest);
+            variants.add(head + rest);
+        }
+        return variants;
+    }
+
+    private static List<Path> walk(Path root, Predicate<Path> filter) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(Files::isRegularFile)
+                        .filter(filter)
+                        .sorted()
+                        .collect(Collectors.toList());
+        }
+    }
+
+    private static void printUsage(PrintStream stream) {
+        stream.println("Usage: java -cp bin main.MiniJavaCompiler [options] <file|directory|glob>...");
+        stream.println();
+        stream.println("Runs lexical, syntax and semantic analysis and code generation on every input without");
+        stream.println("opening the editor.");
+        stream.println("Directories are searched recursively for " + SOURCE_EXTENSION + " files.");
+        stream.println("Glob patterns such as 'src/**/*.java' should be quoted so the shell does not expand them.");
+        stream.println();
+        stream.println("Options:");
+        stream.println("  -j, --jobs N      Analyze up to N files in parallel (default: number of processors)");
+        stream.println("  --encoding C      Character set of the source files (default: UTF-8)");
+        stream.println("  --cache-dir D     Reuse results of unchanged files stored in directory D");
+        stream.println("  --cache-size N    Keep the cache under N megabytes (default: "
+                + (DiskCache.DEFAULT_MAX_BYTES >> 20) + ")");
+        stream.println("  -d, --class-output D");
+        stream.println("                    Write the classes of every file that passes to directory D; the");
+        stream.println("                    top-level statements form a main class named after the file,");
+        stream.println("                    and a class already written by an earlier file is an error");
+        stream.println("  --dump-ir         Print the intermediate code of every file that passes semantic");
+        stream.println("                    analysis before and after optimization, with per-pass timings");
+        stream.println("  --metrics F       Write the time, CPU time and memory allocated by each phase of");
+        stream.println("                    every file, and their totals, to F as JSON");
+        stream.println("  -h, --help        Show this help and exit");
+        stream.println();
+        stream.println("Exit status: 0 if no errors, 1 if any file has errors, 2 on usage or I/O errors.");
+    }
+}
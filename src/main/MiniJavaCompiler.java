@@ -7,8 +7,16 @@ import ui.WelcomePage;
 public class MiniJavaCompiler {
 
     public static void main(String[] args) {
+        // Any argument switches to the headless command-line compiler
+        if (args.length > 0) {
+            System.exit(CommandLineCompiler.run(args, System.out, System.err));
+        }
+        launchEditor();
+    }
+
+    private static void launchEditor() {
         SwingUtilities.invokeLater(() -> {
             new WelcomePage().setVisible(true);
         });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,132 @@
+package ui;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.swing.SwingWorker;
+
+import actions.PhaseMetrics;
+import common.Diagnostic;
+import common.Phase;
+import common.Renderable;
+
+// Runs an analysis off the Event Dispatch Thread and delivers its results to the result pane: the
+// diagnostics first, as a list for the problems table, then the report, rendered and split into
+// lines in the background so the Event Dispatch Thread only hands it to the list model. Text the
+// task streams while it runs, such as a program's output, is shown until the report replaces it.
+// A cancelled worker never touches the UI again.
+public class AnalysisWorker<T extends Renderable> extends SwingWorker<T, AnalysisWorker.Chunk> {
+
+    public interface Task<T extends Renderable> {
+        T run(AnalysisWorker<T> worker) throws Exception;
+    }
+
+    // Either the diagnostics of the result or a piece of the report
+    static final class Chunk {
+        final List<Diagnostic> diagnostics;
+        final ReportListModel.Piece piece;
+        // Clears the report before the piece is appended
+        final boolean replace;
+
+        Chunk(List<Diagnostic> diagnostics) {
+            this(diagnostics, null, false);
+        }
+
+        Chunk(ReportListModel.Piece piece, boolean replace) {
+            this(null, piece, replace);
+        }
+
+        private Chunk(List<Diagnostic> diagnostics, ReportListModel.Piece piece, boolean replace) {
+            this.diagnostics = diagnostics;
+            this.piece = piece;
+            this.replace = replace;
+        }
+    }
+
+    private final Task<T> task;
+    private final Function<T, List<Diagnostic>> diagnostics;
+    private final Consumer<T> onFinished;
+    private final ResultPane output;
+    private final PhaseMetrics metrics;
+    private volatile boolean streamed;
+
+    public AnalysisWorker(Task<T> task, Consumer<T> onFinished, ResultPane output) {
+        this(task, null, onFinished, output, null);
+    }
+
+    // With a diagnostics function, the result's diagnostics fill the problems table. With metrics,
+    // rendering the report is measured as the render stage on the background thread.
+    public AnalysisWorker(Task<T> task, Function<T, List<Diagnostic>> diagnostics, Consumer<T> onFinished,
+                          ResultPane output, PhaseMetrics metrics) {
+        this.task = task;
+        this.diagnostics = diagnostics;
+        this.onFinished = onFinished;
+        this.output = output;
+        this.metrics = metrics;
+    }
+
+    // Called from the task as it moves through the pipeline
+    public void phaseStarted(Phase phase) {
+        setProgress(phase.ordinal() * 100 / Phase.values().length);
+        firePropertyChange("phase", null, phase);
+    }
+
+    // Called from any thread with text to show while the task is still running
+    public void stream(String text) {
+        streamed = true;
+        publish(new Chunk(ReportListModel.Piece.of(text), false));
+    }
+
+    @Override
+    protected T doInBackground() throws Exception {
+        T result = task.run(this);
+        if (diagnostics != null) {
+            publish(new Chunk(diagnostics.apply(result)));
+        }
+        if (metrics != null) {
+            metrics.start("render");
+        }
+        ReportListModel.Piece report = ReportListModel.Piece.of(result.render());
+        if (metrics != null) {
+            metrics.stop();
+        }
+        if (!isCancelled()) {
+            publish(new Chunk(report, streamed));
+        }
+        setProgress(100);
+        return result;
+    }
+
+    @Override
+    protected void process(List<Chunk> chunks) {
+        if (isCancelled()) {
+            return;
+        }
+        for (Chunk chunk : chunks) {
+            if (chunk.diagnostics != null) {
+                output.setDiagnostics(chunk.diagnostics);
+                continue;
+            }
+            if (chunk.replace) {
+                output.clearReport();
+            }
+            output.append(chunk.piece);
+        }
+    }
+
+    @Override
+    protected void done() {
+        if (isCancelled()) {
+            return;
+        }
+        try {
+            onFinished.accept(get());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            output.append("\nAnalysis failed: " + ex.getCause());
+        }
+    }
+}
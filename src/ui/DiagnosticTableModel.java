@@ -0,0 +1,99 @@
+package ui;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.swing.table.AbstractTableModel;
+
+import common.Diagnostic;
+import common.Phase;
+import common.Severity;
+
+// The diagnostics of the last analysis as table rows, optionally only those of one severity and of
+// one phase. Each row is the index of a matching diagnostic, so filtering copies no diagnostics and
+// the table reads only the rows it paints.
+class DiagnosticTableModel extends AbstractTableModel {
+
+    private static final String[] COLUMNS = {"Severity", "Phase", "Line", "Column", "Code", "Message"};
+
+    private List<Diagnostic> diagnostics = Collections.emptyList();
+    // Null shows every severity or phase
+    private Severity severity;
+    private Phase phase;
+    private int[] rows = new int[0];
+    private int rowCount;
+
+    public void setDiagnostics(List<Diagnostic> diagnostics) {
+        this.diagnostics = diagnostics;
+        filter();
+    }
+
+    public void setFilter(Severity severity, Phase phase) {
+        this.severity = severity;
+        this.phase = phase;
+        filter();
+    }
+
+    public Diagnostic getDiagnostic(int row) {
+        return diagnostics.get(rows[row]);
+    }
+
+    // Every diagnostic, shown or not
+    public int getDiagnosticCount() {
+        return diagnostics.size();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 2 || column == 3 ? Integer.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Diagnostic diagnostic = getDiagnostic(row);
+        switch (column) {
+            case 0:
+                return diagnostic.getSeverity().name().toLowerCase();
+            case 1:
+                return diagnostic.getPhase().getDisplayName();
+            case 2:
+                return diagnostic.getLine();
+            case 3:
+                return diagnostic.getColumn();
+            case 4:
+                return diagnostic.getCode();
+            default:
+                return diagnostic.getMessage();
+        }
+    }
+
+    private void filter() {
+        if (rows.length < diagnostics.size()) {
+            rows = new int[diagnostics.size()];
+        }
+        rowCount = 0;
+        for (int i = 0; i < diagnostics.size(); i++) {
+            Diagnostic diagnostic = diagnostics.get(i);
+            if ((severity == null || diagnostic.getSeverity() == severity)
+                    && (phase == null || diagnostic.getPhase() == phase)) {
+                rows[rowCount++] = i;
+            }
+        }
+        fireTableDataChanged();
+    }
+}
@@ -3,20 +3,55 @@ package ui;
 import java.awt.*;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
 import javax.swing.undo.UndoManager;
 
 import actions.*;
+import common.AnalysisResult;
+import common.Diagnostic;
+import common.Phase;
+import common.Renderable;
+import common.Token;
+import common.ast.CompilationUnit;
 
 public class EditorPage extends JFrame {
+    private static final int LIVE_STATUS_DELAY = 300;
+
     private JTextArea codeTextArea;
-    private final JTextArea resultTextArea = new JTextArea();
+    private final ResultPane resultPane = new ResultPane();
     private final JButton lexicalAnalysisButton = createButton("Lexical Analysis");
     private final JButton syntaxAnalysisButton = createButton("Syntax Analysis");
     private final JButton semanticAnalysisButton = createButton("Semantic Analysis");
     private final JButton runButton = createButton("Run");
+    // Run evaluates the checked tree directly instead of compiling it when selected
+    private final JCheckBoxMenuItem interpretMenuItem = new JCheckBoxMenuItem("Interpret Without Compiling");
+    // Run appends the time and memory each phase and the report took when selected
+    private final JCheckBoxMenuItem metricsMenuItem = new JCheckBoxMenuItem("Show Phase Metrics");
+    private final JProgressBar progressBar = new JProgressBar(0, 100);
+    private final JLabel liveStatusLabel = new JLabel("Live check: no problems");
+    private final IncrementalAnalyzer liveAnalyzer = new IncrementalAnalyzer();
+    // The live check runs on a thread of its own, the only one that edits or queries liveAnalyzer,
+    // so the edits reach it in document order and typing never waits for an analysis
+    private final ExecutorService liveCheck = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "Live check");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Document changes so far, counted on the EDT; diagnostics computed before the latest are not shown
+    private int liveEdits;
+    private final PipelineCache pipelineCache = new PipelineCache();
+    private final Timer liveStatusTimer = new Timer(LIVE_STATUS_DELAY, e -> showLiveDiagnostics());
     private UndoManager undoManager = new UndoManager();
+    private AnalysisWorker<?> currentWorker;
 
     private FileLoader openFileHandler;
 
@@ -88,6 +123,12 @@ public class EditorPage extends JFrame {
         zoomMenu.add(createMenuItem("Zoom Out", e -> zoomOut(), KeyEvent.VK_MINUS, KeyEvent.CTRL_DOWN_MASK));
         zoomMenu.addSeparator();
         zoomMenu.add(createMenuItem("Restore Default Zoom", e -> restoreDefaultZoom(), KeyEvent.VK_0, KeyEvent.CTRL_DOWN_MASK));
+        viewMenu.add(createMenuItem("Cache Statistics", e -> showCacheStatistics()));
+
+        JMenu runMenu = new JMenu("Run");
+        menuBar.add(runMenu);
+        runMenu.add(interpretMenuItem);
+        runMenu.add(metricsMenuItem);
         
 
         JMenu helpMenu = new JMenu("Help");
@@ -113,6 +154,30 @@ public class EditorPage extends JFrame {
         JScrollPane codeScrollPane = new JScrollPane(codeTextArea);
         codeScrollPane.setBorder(BorderFactory.createTitledBorder(BorderFactory.createEtchedBorder(), "Code Editor"));
         codeTextArea.getDocument().addUndoableEditListener(e -> undoManager.addEdit(e.getEdit()));
+        codeTextArea.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) {
+                int offset = e.getOffset();
+                try {
+                    String inserted = e.getDocument().getText(offset, e.getLength());
+                    liveCheck.execute(() -> liveAnalyzer.edit(offset, 0, inserted));
+                } catch (BadLocationException ex) {
+                    String text = codeTextArea.getText();
+                    liveCheck.execute(() -> liveAnalyzer.reset(text));
+                }
+                codeChanged();
+            }
+
+            public void removeUpdate(DocumentEvent e) {
+                int offset = e.getOffset();
+                int length = e.getLength();
+                liveCheck.execute(() -> liveAnalyzer.edit(offset, length, ""));
+                codeChanged();
+            }
+
+            public void changedUpdate(DocumentEvent e) {
+                // Attribute changes do not affect the code
+            }
+        });
     
         // Create a layered panel to overlay the "Run" button
         JLayeredPane layeredPane = new JLayeredPane();
@@ -137,14 +202,12 @@ public class EditorPage extends JFrame {
         });
 
         
-        // Create a JScrollPane for the result text area
-        resultTextArea.setFont(new Font("Courier New", Font.PLAIN, 16));
-        resultTextArea.setEditable(false);
-        JScrollPane resultScrollPane = new JScrollPane(resultTextArea);
-        resultScrollPane.setBorder(BorderFactory.createTitledBorder(BorderFactory.createEtchedBorder(), "Analysis Results"));
+        // Report and problems of the last analysis; double-clicking a problem shows it in the code
+        resultPane.setDiagnosticListener(this::showInEditor);
+        resultPane.setBorder(BorderFactory.createTitledBorder(BorderFactory.createEtchedBorder(), "Analysis Results"));
     
         // Combine the layered pane and result pane in a split pane
-        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, layeredPane, resultScrollPane);
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, layeredPane, resultPane);
         splitPane.setDividerLocation(0.7); // 70% of the space for the code editor
         splitPane.setResizeWeight(0.7);    // Prioritize resizing the code editor
     
@@ -161,16 +224,18 @@ public class EditorPage extends JFrame {
         syntaxAnalysisButton.addActionListener(e -> performSyntaxAnalysis());
         semanticAnalysisButton.addActionListener(e -> performSemanticAnalysis());
 
-            runButton.addActionListener(e -> {
-            String code = codeTextArea.getText().trim();
-            CodeRunner codeRunner = new CodeRunner(code, this); // Pass EditorPage reference
-            String result = codeRunner.execute(); // Run the analysis
-            resultTextArea.setText(result); // Display the result in the result pane
-        });
+        runButton.addActionListener(e -> runCode());
+
+        progressBar.setStringPainted(true);
+        progressBar.setPreferredSize(new Dimension(200, 30));
+        progressBar.setVisible(false);
+        liveStatusTimer.setRepeats(false);
 
         buttonPanel.add(lexicalAnalysisButton);
         buttonPanel.add(syntaxAnalysisButton);
         buttonPanel.add(semanticAnalysisButton);
+        buttonPanel.add(progressBar);
+        buttonPanel.add(liveStatusLabel);
     
         return buttonPanel;
     }
@@ -307,12 +372,64 @@ public class EditorPage extends JFrame {
         });
     }
 
+    // Later phases stay disabled until the phases they depend on have passed
+    private void updateAnalysisButtons(RunResult result) {
+        if (result.getLexical() == null) {
+            return;
+        }
+        Phase failedPhase = result.getFailedPhase();
+        lexicalAnalysisButton.setEnabled(true);
+        syntaxAnalysisButton.setEnabled(failedPhase != Phase.LEXICAL);
+        semanticAnalysisButton.setEnabled(failedPhase != Phase.LEXICAL && failedPhase != Phase.SYNTAX);
+    }
+
+    private void codeChanged() {
+        liveEdits++;
+        if (cancelAnalysis()) {
+            resultPane.append("\nAnalysis cancelled: the code was edited.\n");
+        }
+        liveStatusTimer.restart();
+    }
+
+    // As-you-type diagnostics from the incremental analyzer, computed once typing pauses and shown
+    // unless the code has changed again in the meantime
+    private void showLiveDiagnostics() {
+        int edits = liveEdits;
+        liveCheck.execute(() -> {
+            List<Diagnostic> diagnostics = liveAnalyzer.getDiagnostics();
+            SwingUtilities.invokeLater(() -> {
+                if (edits == liveEdits) {
+                    showLiveDiagnostics(diagnostics);
+                }
+            });
+        });
+    }
+
+    private void showLiveDiagnostics(List<Diagnostic> diagnostics) {
+        if (diagnostics.isEmpty()) {
+            liveStatusLabel.setText("Live check: no problems");
+            liveStatusLabel.setToolTipText(null);
+            return;
+        }
+        Diagnostic first = diagnostics.get(0);
+        liveStatusLabel.setText("Live check: " + diagnostics.size() + " problem(s), first at line " + first.getLine());
+        liveStatusLabel.setToolTipText(first.toString());
+    }
+
     private void resetAnalysisButtons() {
         lexicalAnalysisButton.setEnabled(false);
         syntaxAnalysisButton.setEnabled(false);
         semanticAnalysisButton.setEnabled(false);
     }
 
+    private void showCacheStatistics() {
+        JTextArea statistics = new JTextArea(pipelineCache.describe() + "\n"
+                + liveAnalyzer.getCache().describe("Live check"));
+        statistics.setEditable(false);
+        statistics.setFont(new Font("Courier New", Font.PLAIN, 14));
+        JOptionPane.showMessageDialog(this, statistics, "Cache Statistics", JOptionPane.INFORMATION_MESSAGE);
+    }
+
     private void showAboutDialog() {
         // Create a new dialog
         JDialog aboutDialog = new JDialog(this, "About Mini Java Compiler", true);
@@ -366,58 +483,145 @@ public class EditorPage extends JFrame {
     private void performLexicalAnalysis() {
         String code = codeTextArea.getText().trim();
         if (code.isEmpty()) {
-            resultTextArea.setText("No code to analyze.");
+            resultPane.setText("No code to analyze.");
             return;
         }
 
-        LexicalAnalyzer lexicalAnalyzer = new LexicalAnalyzer(code);
-        String lexicalResult = lexicalAnalyzer.analyze();
-        resultTextArea.setText(lexicalResult);
-
-        if (lexicalResult.contains("Lexical analysis failed")) {
-            syntaxAnalysisButton.setEnabled(false);
-            semanticAnalysisButton.setEnabled(false);
-        } else {
-            syntaxAnalysisButton.setEnabled(true);
-        }
+        startAnalysis(worker -> pipelineCache.lexical(code), AnalysisResult::getDiagnostics,
+                (AnalysisResult<List<Token>> lexicalResult) -> {
+                    if (!lexicalResult.isSuccessful()) {
+                        syntaxAnalysisButton.setEnabled(false);
+                        semanticAnalysisButton.setEnabled(false);
+                    } else {
+                        syntaxAnalysisButton.setEnabled(true);
+                    }
+                });
     }
 
     private void performSyntaxAnalysis() {
         String code = codeTextArea.getText().trim();
         if (code.isEmpty()) {
-            resultTextArea.setText("No code to analyze.");
+            resultPane.setText("No code to analyze.");
             return;
         }
 
-        SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer();
-        String syntaxResult = syntaxAnalyzer.performSyntaxAnalysis(code);
-        resultTextArea.setText(syntaxResult);
-
-        if (syntaxResult.contains("Syntax analysis failed")) {
-            semanticAnalysisButton.setEnabled(false);
-        } else {
-            semanticAnalysisButton.setEnabled(true);
-        }
+        startAnalysis(worker -> pipelineCache.syntax(code), AnalysisResult::getDiagnostics,
+                (AnalysisResult<CompilationUnit> syntaxResult) ->
+                        semanticAnalysisButton.setEnabled(syntaxResult.isSuccessful()));
     }
 
     private void performSemanticAnalysis() {
         String code = codeTextArea.getText().trim();
 
         if (code.isEmpty()) {
-            resultTextArea.setText("No code to analyze.");
+            resultPane.setText("No code to analyze.");
             return;
         }
 
-        SemanticAnalyzer semanticAnalyzer = new SemanticAnalyzer(code);
-        String semanticResult = semanticAnalyzer.analyze();
-        resultTextArea.setText(semanticResult);
+        startAnalysis(worker -> pipelineCache.semantic(code), AnalysisResult::getDiagnostics,
+                (AnalysisResult<CompilationUnit> semanticResult) -> { });
+    }
+
+    private void runCode() {
+        String code = codeTextArea.getText().trim();
+        ProgramRunner.Mode mode = interpretMenuItem.isSelected() ? ProgramRunner.Mode.INTERPRET : ProgramRunner.Mode.COMPILE;
+        PhaseMetrics metrics = metricsMenuItem.isSelected() ? new PhaseMetrics() : null;
+        startAnalysis(worker -> new CodeRunner(code, pipelineCache).execute(worker::phaseStarted,
+                new ProgramRunner((text, error) -> worker.stream(text), mode), metrics), RunResult::getDiagnostics,
+                (RunResult result) -> {
+                    updateAnalysisButtons(result);
+                    if (metrics != null) {
+                        resultPane.append("\n\nPhase Metrics:\n" + metrics.render());
+                    }
+                }, metrics);
+    }
+
+    private <T extends Renderable> void startAnalysis(AnalysisWorker.Task<T> task,
+                                                      Function<T, List<Diagnostic>> diagnostics,
+                                                      Consumer<T> onFinished) {
+        startAnalysis(task, diagnostics, onFinished, null);
+    }
+
+    // Any analysis still running is stale once a new one starts or the code changes
+    private <T extends Renderable> void startAnalysis(AnalysisWorker.Task<T> task,
+                                                      Function<T, List<Diagnostic>> diagnostics,
+                                                      Consumer<T> onFinished, PhaseMetrics metrics) {
+        cancelAnalysis();
+        resultPane.clear();
+        progressBar.setValue(0);
+        progressBar.setString("Analyzing...");
+        progressBar.setVisible(true);
+
+        AnalysisWorker<T> worker = new AnalysisWorker<>(task, diagnostics, result -> {
+            progressBar.setVisible(false);
+            onFinished.accept(result);
+        }, resultPane, metrics);
+        worker.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                progressBar.setValue((Integer) e.getNewValue());
+            } else if ("phase".equals(e.getPropertyName())) {
+                progressBar.setString(describe((Phase) e.getNewValue()));
+            }
+        });
+        currentWorker = worker;
+        worker.execute();
+    }
+
+    // Analyses see the code without its leading whitespace, so their lines are counted from the first
+    // non-blank character of the editor
+    private void showInEditor(Diagnostic diagnostic) {
+        String text = codeTextArea.getText();
+        int skipped = 0;
+        while (skipped < text.length() && text.charAt(skipped) <= ' ') {
+            skipped++;
+        }
+        int offset = skipped;
+        for (int line = 1; line < diagnostic.getLine() && offset >= 0; line++) {
+            offset = text.indexOf('\n', offset);
+            offset = offset < 0 ? -1 : offset + 1;
+        }
+        if (offset < 0) {
+            return;
+        }
+        int lineEnd = text.indexOf('\n', offset);
+        lineEnd = lineEnd < 0 ? text.length() : lineEnd;
+        codeTextArea.requestFocusInWindow();
+        codeTextArea.setCaretPosition(Math.min(offset + Math.max(diagnostic.getColumn() - 1, 0), lineEnd));
+    }
+
+    private static String describe(Phase phase) {
+        switch (phase) {
+            case GENERATION:
+                return "Generating code...";
+            case EXECUTION:
+                return "Running program...";
+            default:
+                return phase.getDisplayName() + " analysis...";
+        }
+    }
+
+    private boolean cancelAnalysis() {
+        progressBar.setVisible(false);
+        if (currentWorker == null || currentWorker.isDone()) {
+            return false;
+        }
+        currentWorker.cancel(true);
+        currentWorker = null;
+        return true;
+    }
+
+    // Replaces the editor contents in one document operation; the load itself is not undoable
+    public void loadSource(CharSequence source) {
+        codeTextArea.setText(source.toString());
+        codeTextArea.setCaretPosition(0);
+        undoManager.discardAllEdits();
     }
 
     public JTextArea getCodeTextArea() {
         return codeTextArea;
     }
         
-    public JTextArea getResultTextArea() {
-        return resultTextArea;
+    public ResultPane getResultPane() {
+        return resultPane;
     }
 }
\ No newline at end of file
@@ -0,0 +1,146 @@
+package ui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.AbstractListModel;
+
+// The lines of the report in the result pane. The text is kept in the Strings it arrived in, with
+// the offset at which each line starts, so a report of many megabytes is neither copied nor split
+// into an object per line; the list asks only for the lines it paints, and only those are cut out.
+class ReportListModel extends AbstractListModel<String> {
+
+    // A run of report text and the offsets of its lines; indexed off the Event Dispatch Thread
+    static final class Piece {
+        final String text;
+        final int[] lineStarts;
+        final int lineCount;
+        // The text of the last line ends here
+        final int end;
+        final int longestLine;
+
+        private Piece(String text, int[] lineStarts, int lineCount, int end, int longestLine) {
+            this.text = text;
+            this.lineStarts = lineStarts;
+            this.lineCount = lineCount;
+            this.end = end;
+            this.longestLine = longestLine;
+        }
+
+        static Piece of(String text) {
+            int[] starts = new int[16];
+            int count = 0;
+            int longest = 0;
+            int start = 0;
+            while (start < text.length()) {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = start;
+                int lineEnd = text.indexOf('\n', start);
+                if (lineEnd < 0) {
+                    lineEnd = text.length();
+                }
+                longest = Math.max(longest, lineEnd - start);
+                start = lineEnd + 1;
+            }
+            return new Piece(text, starts, count, text.length(), longest);
+        }
+
+        // Whether the last line has no line break yet, so text appended later continues it
+        boolean isOpen() {
+            return lineCount > 0 && text.charAt(end - 1) != '\n';
+        }
+
+        String line(int index) {
+            int start = lineStarts[index];
+            int lineEnd = index + 1 < lineCount ? lineStarts[index + 1] : end;
+            if (lineEnd > start && text.charAt(lineEnd - 1) == '\n') {
+                lineEnd--;
+            }
+            if (lineEnd > start && text.charAt(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            return text.substring(start, lineEnd);
+        }
+
+        // The piece without its last line
+        Piece withoutLastLine() {
+            return new Piece(text, lineStarts, lineCount - 1, lineStarts[lineCount - 1], longestLine);
+        }
+    }
+
+    private final List<Piece> pieces = new ArrayList<>();
+    // The row of the first line of each piece
+    private int[] firstRows = new int[8];
+    private int size;
+    private int longestLine;
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public String getElementAt(int row) {
+        int piece = Arrays.binarySearch(firstRows, 0, pieces.size(), row);
+        if (piece < 0) {
+            piece = -piece - 2;
+        }
+        return pieces.get(piece).line(row - firstRows[piece]);
+    }
+
+    // The length in characters of the longest line, for sizing the list without measuring every row
+    public int getLongestLine() {
+        return longestLine;
+    }
+
+    public void clear() {
+        int oldSize = size;
+        pieces.clear();
+        size = 0;
+        longestLine = 0;
+        if (oldSize > 0) {
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+    }
+
+    public void append(String text) {
+        append(Piece.of(text));
+    }
+
+    // Text appended to an open last line continues it, as in a text area; only that line is copied
+    public void append(Piece piece) {
+        if (piece.lineCount == 0) {
+            return;
+        }
+        int oldSize = size;
+        boolean continued = !pieces.isEmpty() && pieces.get(pieces.size() - 1).isOpen();
+        if (continued) {
+            Piece last = pieces.remove(pieces.size() - 1);
+            size -= last.lineCount;
+            if (last.lineCount > 1) {
+                add(last.withoutLastLine());
+            }
+            piece = Piece.of(last.line(last.lineCount - 1) + piece.text);
+        }
+        add(piece);
+        if (continued) {
+            fireContentsChanged(this, oldSize - 1, oldSize - 1);
+        }
+        if (size > oldSize) {
+            fireIntervalAdded(this, oldSize, size - 1);
+        }
+    }
+
+    private void add(Piece piece) {
+        if (pieces.size() == firstRows.length) {
+            firstRows = Arrays.copyOf(firstRows, firstRows.length * 2);
+        }
+        firstRows[pieces.size()] = size;
+        pieces.add(piece);
+        size += piece.lineCount;
+        longestLine = Math.max(longestLine, piece.longestLine);
+    }
+}
@@ -0,0 +1,152 @@
+package ui;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTabbedPane;
+import javax.swing.JTable;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import common.Diagnostic;
+import common.Phase;
+import common.Severity;
+
+// The analysis results: the report as a list of lines, and the diagnostics as a table that can be
+// filtered by severity and by phase. Both views are virtualized, asking their models only for the
+// rows on screen, so the report of a million-line input opens as quickly as that of a short one.
+public class ResultPane extends JTabbedPane {
+
+    private static final int PROBLEMS_TAB = 1;
+
+    private final ReportListModel report = new ReportListModel();
+    private final JList<String> reportList = new JList<>(report);
+    private final DiagnosticTableModel problems = new DiagnosticTableModel();
+    private final JTable problemsTable = new JTable(problems);
+    private final JComboBox<String> severityFilter = new JComboBox<>();
+    private final JComboBox<String> phaseFilter = new JComboBox<>();
+    private final JLabel problemsCount = new JLabel();
+    private Consumer<Diagnostic> diagnosticListener = diagnostic -> { };
+
+    public ResultPane() {
+        // Rows of one fixed size let the list lay out a million lines without measuring them
+        reportList.setFont(new Font("Courier New", Font.PLAIN, 16));
+        reportList.setFixedCellHeight(reportList.getFontMetrics(reportList.getFont()).getHeight());
+        report.addListDataListener(new ListDataListener() {
+            public void intervalAdded(ListDataEvent e) {
+                updateReportWidth();
+            }
+
+            public void intervalRemoved(ListDataEvent e) {
+                updateReportWidth();
+            }
+
+            public void contentsChanged(ListDataEvent e) {
+                updateReportWidth();
+            }
+        });
+        updateReportWidth();
+
+        severityFilter.addItem("All severities");
+        for (Severity severity : Severity.values()) {
+            severityFilter.addItem(severity.name().toLowerCase());
+        }
+        phaseFilter.addItem("All phases");
+        for (Phase phase : Phase.values()) {
+            phaseFilter.addItem(phase.getDisplayName());
+        }
+        severityFilter.addActionListener(e -> applyFilter());
+        phaseFilter.addActionListener(e -> applyFilter());
+
+        problemsTable.setFillsViewportHeight(true);
+        problemsTable.getColumnModel().getColumn(5).setPreferredWidth(500);
+        problemsTable.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = problemsTable.rowAtPoint(e.getPoint());
+                if (e.getClickCount() == 2 && row >= 0) {
+                    diagnosticListener.accept(problems.getDiagnostic(row));
+                }
+            }
+        });
+
+        JPanel filters = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filters.add(new JLabel("Show:"));
+        filters.add(severityFilter);
+        filters.add(phaseFilter);
+        filters.add(problemsCount);
+        JPanel problemsPanel = new JPanel(new BorderLayout());
+        problemsPanel.add(filters, BorderLayout.NORTH);
+        problemsPanel.add(new JScrollPane(problemsTable), BorderLayout.CENTER);
+
+        addTab("Report", new JScrollPane(reportList));
+        addTab("Problems", problemsPanel);
+        updateProblemsCount();
+    }
+
+    // Called with the diagnostic of a row that is double-clicked
+    public void setDiagnosticListener(Consumer<Diagnostic> listener) {
+        this.diagnosticListener = listener;
+    }
+
+    // Replaces the results with a message
+    public void setText(String text) {
+        clear();
+        report.append(text);
+    }
+
+    public void append(String text) {
+        report.append(text);
+    }
+
+    public void clear() {
+        report.clear();
+        setDiagnostics(Collections.<Diagnostic>emptyList());
+    }
+
+    public void setDiagnostics(List<Diagnostic> diagnostics) {
+        problems.setDiagnostics(diagnostics);
+        updateProblemsCount();
+    }
+
+    void clearReport() {
+        report.clear();
+    }
+
+    void append(ReportListModel.Piece piece) {
+        report.append(piece);
+    }
+
+    private void applyFilter() {
+        int severity = severityFilter.getSelectedIndex();
+        int phase = phaseFilter.getSelectedIndex();
+        problems.setFilter(severity <= 0 ? null : Severity.values()[severity - 1],
+                phase <= 0 ? null : Phase.values()[phase - 1]);
+        updateProblemsCount();
+    }
+
+    private void updateProblemsCount() {
+        int total = problems.getDiagnosticCount();
+        setTitleAt(PROBLEMS_TAB, total == 0 ? "Problems" : "Problems (" + total + ")");
+        problemsCount.setText(problems.getRowCount() + " of " + total + " shown");
+    }
+
+    // Every row is as wide as the longest line, which the model tracks, so no row is measured
+    private void updateReportWidth() {
+        FontMetrics metrics = reportList.getFontMetrics(reportList.getFont());
+        reportList.setFixedCellWidth(Math.max(1, report.getLongestLine() * metrics.charWidth('W') + 8));
+        reportList.revalidate();
+    }
+}
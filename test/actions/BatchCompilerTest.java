@@ -0,0 +1,97 @@
+package actions;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import common.Diagnostic;
+
+// Results reach the listener in input order and are the same however many workers analyze the
+// files; a file that breaks the pipeline gets an error of its own and leaves the others alone
+class BatchCompilerTest {
+
+    private static final int FILES = 40;
+
+    @TempDir
+    Path root;
+
+    @Test
+    void parallelResultsMatchASingleWorkerInInputOrder() throws IOException {
+        List<Path> sources = createSources();
+        List<String> sequential = compile(sources, new BatchCompiler.Options().parallelism(1));
+        List<String> parallel = compile(sources, new BatchCompiler.Options().parallelism(4));
+
+        Assertions.assertEquals(FILES, parallel.size());
+        for (int i = 0; i < FILES; i++) {
+            Assertions.assertTrue(parallel.get(i).startsWith(sources.get(i) + " "), parallel.get(i));
+        }
+        Assertions.assertEquals(sequential, parallel);
+    }
+
+    @Test
+    void aFileThatBreaksThePipelineIsContained() throws IOException {
+        List<Path> sources = createSources();
+        Path broken = sources.get(FILES / 2);
+        SourceReader reader = new SourceReader() {
+            @Override
+            public CharSequence read(Path path) throws IOException {
+                if (path.equals(broken)) {
+                    throw new IllegalStateException("reader failure");
+                }
+                return super.read(path);
+            }
+        };
+        List<String> expected = compile(sources, new BatchCompiler.Options().parallelism(1));
+        List<String> actual = compile(sources, new BatchCompiler.Options().parallelism(4).reader(reader));
+
+        Assertions.assertEquals(FILES, actual.size());
+        for (int i = 0; i < FILES; i++) {
+            if (i == FILES / 2) {
+                Assertions.assertTrue(actual.get(i).startsWith(broken + " LEXICAL [internal-error@1:1"),
+                        actual.get(i));
+            } else {
+                Assertions.assertEquals(expected.get(i), actual.get(i));
+            }
+        }
+    }
+
+    // The first files are the longest, so with several workers later files finish before them;
+    // every third file has an error
+    private List<Path> createSources() throws IOException {
+        List<Path> sources = new ArrayList<>();
+        for (int i = 0; i < FILES; i++) {
+            StringBuilder code = new StringBuilder("int x = ").append(i).append(";\n");
+            int statements = i < 4 ? 20_000 : 10;
+            for (int j = 0; j < statements; j++) {
+                code.append("x = x + ").append(j % 7).append(";\n");
+            }
+            if (i % 3 == 0) {
+                code.append("boolean b").append(i).append(" = x;\n");
+            }
+            Path source = root.resolve("File" + i + ".java");
+            Files.write(source, code.toString().getBytes(StandardCharsets.UTF_8));
+            sources.add(source);
+        }
+        return sources;
+    }
+
+    private static List<String> compile(List<Path> sources, BatchCompiler.Options options) {
+        List<String> results = new ArrayList<>();
+        new BatchCompiler(options).compile(sources, result -> {
+            List<String> diagnostics = new ArrayList<>();
+            for (Diagnostic diagnostic : result.getDiagnostics()) {
+                diagnostics.add(diagnostic.getCode() + "@" + diagnostic.getLine() + ":" + diagnostic.getColumn()
+                        + " " + diagnostic.getMessage());
+            }
+            results.add(result.getSource() + " " + result.getFailedPhase() + " " + diagnostics);
+        });
+        return results;
+    }
+}
@@ -0,0 +1,80 @@
+package actions;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import common.Diagnostic;
+import common.Phase;
+
+// The compiled main class must print what the interpreter prints for the same unit, however long
+// the program, up to the class file limits it reports
+class CodeGeneratorTest {
+
+    @Test
+    void compiledAndInterpretedOutputsMatch() {
+        for (String program : Programs.SAMPLES) {
+            assertModesAgree(program);
+        }
+    }
+
+    @Test
+    void longProgramsAreSplitAcrossMethods() {
+        StringBuilder program = new StringBuilder("int x = 0;\n");
+        for (int i = 0; i < 6000; i++) {
+            program.append("int v").append(i).append(" = x + ").append(i).append(";\n");
+        }
+        for (int i = 0; i < 20000; i++) {
+            program.append("x = x + ").append(i % 7).append(";\n");
+        }
+        assertModesAgree(program.toString());
+    }
+
+    @Test
+    void branchesBeyondAShortOffsetUseWideJumps() {
+        StringBuilder program = new StringBuilder("int x = 1;\nint i = 0;\n");
+        program.append("boolean all = x > 0");
+        for (int i = 1; i < 4000; i++) {
+            program.append(" && x > ").append(-i);
+        }
+        program.append(";\nwhile (i < 3) {\n    i = i + 1;\n");
+        for (int i = 0; i < 5000; i++) {
+            program.append("    x = x + ").append(i % 7).append(";\n");
+        }
+        program.append("}\n");
+        assertModesAgree(program.toString());
+    }
+
+    @Test
+    void failureInALaterMethodReportsItsLine() {
+        StringBuilder program = new StringBuilder("int x = 0;\n");
+        for (int i = 0; i < 5000; i++) {
+            program.append("x = x + 1;\n");
+        }
+        program.append("int y = x / (x - x);\n");
+        for (ProgramRunner.Mode mode : ProgramRunner.Mode.values()) {
+            List<Diagnostic> diagnostics = new CodeRunner(program.toString())
+                    .execute(phase -> { }, new ProgramRunner((text, error) -> { }, mode)).getDiagnostics();
+            Assertions.assertEquals(1, diagnostics.size(), mode::toString);
+            Assertions.assertEquals("uncaught-exception", diagnostics.get(0).getCode(), mode::toString);
+            Assertions.assertEquals(5002, diagnostics.get(0).getLine(), mode::toString);
+        }
+    }
+
+    @Test
+    void tooManyVariablesForTheConstantPoolIsReported() {
+        StringBuilder program = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            program.append("int v").append(i).append(" = ").append(i).append(";\n");
+        }
+        RunResult result = new CodeRunner(program.toString()).execute();
+        Assertions.assertEquals(Phase.GENERATION, result.getFailedPhase());
+        Assertions.assertEquals("class-file-limit", result.getDiagnostics().get(0).getCode());
+    }
+
+    private static void assertModesAgree(String program) {
+        String compiled = Programs.run(program, ProgramRunner.Mode.COMPILE);
+        Assertions.assertEquals(compiled, Programs.run(program, ProgramRunner.Mode.INTERPRET), program);
+    }
+}
@@ -0,0 +1,143 @@
+package actions;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import common.Diagnostic;
+import common.Phase;
+
+// An entry is served only for the same path, content, analyzer version and entry format; anything
+// else, including an entry cut short or overwritten, is a miss
+class DiskCacheTest {
+
+    private static final String CODE = "int a = 1;\nboolean b = a;\n";
+
+    @TempDir
+    Path root;
+
+    @Test
+    void unchangedContentHits() throws IOException {
+        DiskCache cache = new DiskCache(root.resolve("cache"), DiskCache.DEFAULT_MAX_BYTES);
+        Path source = root.resolve("Main.java");
+        cache.store(source, CODE, result(source));
+
+        FileResult cached = cache.lookup(source, new StringBuilder(CODE));
+        Assertions.assertNotNull(cached);
+        Assertions.assertEquals(Phase.SEMANTIC, cached.getFailedPhase());
+        Assertions.assertEquals(1, cached.getDiagnostics().size());
+        Diagnostic diagnostic = cached.getDiagnostics().get(0);
+        Assertions.assertEquals("type-mismatch", diagnostic.getCode());
+        Assertions.assertEquals(2, diagnostic.getLine());
+        Assertions.assertEquals(13, diagnostic.getColumn());
+        Assertions.assertEquals("Cannot assign int to boolean.", diagnostic.getMessage());
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    void changedContentOrPathMisses() throws IOException {
+        DiskCache cache = new DiskCache(root.resolve("cache"), DiskCache.DEFAULT_MAX_BYTES);
+        Path source = root.resolve("Main.java");
+        cache.store(source, CODE, result(source));
+
+        Assertions.assertNull(cache.lookup(source, CODE.replace('1', '2')));
+        Assertions.assertNull(cache.lookup(source, CODE + " "));
+        Assertions.assertNull(cache.lookup(root.resolve("Other.java"), CODE));
+        Assertions.assertEquals(0, cache.getHits());
+        Assertions.assertEquals(3, cache.getMisses());
+    }
+
+    // The entry starts with the magic number, the format version and the analyzer version
+    @Test
+    void otherFormatOrAnalyzerVersionMisses() throws IOException {
+        for (int offset : new int[] {4, 8}) {
+            DiskCache cache = new DiskCache(root.resolve("cache" + offset), DiskCache.DEFAULT_MAX_BYTES);
+            Path source = root.resolve("Main.java");
+            cache.store(source, CODE, result(source));
+            Path entry = entries(cache).get(0);
+            byte[] bytes = Files.readAllBytes(entry);
+            bytes[offset] ^= 1;
+            Files.write(entry, bytes);
+            Assertions.assertNull(cache.lookup(source, CODE), "byte " + offset);
+        }
+    }
+
+    @Test
+    void truncatedOrCorruptEntryMisses() throws IOException {
+        DiskCache cache = new DiskCache(root.resolve("cache"), DiskCache.DEFAULT_MAX_BYTES);
+        Path source = root.resolve("Main.java");
+        cache.store(source, CODE, result(source));
+        Path entry = entries(cache).get(0);
+        long length = Files.size(entry);
+
+        try (RandomAccessFile file = new RandomAccessFile(entry.toFile(), "rw")) {
+            file.setLength(length - 5);
+        }
+        Assertions.assertNull(cache.lookup(source, CODE));
+
+        byte[] garbage = new byte[(int) length];
+        for (int i = 0; i < garbage.length; i++) {
+            garbage[i] = (byte) (i * 31 + 7);
+        }
+        Files.write(entry, garbage);
+        Assertions.assertNull(cache.lookup(source, CODE));
+        Assertions.assertEquals(2, cache.getMisses());
+
+        cache.store(source, CODE, result(source));
+        Assertions.assertNotNull(cache.lookup(source, CODE));
+    }
+
+    @Test
+    void trimEvictsTheLeastRecentlyUsedEntries() throws IOException {
+        Path directory = root.resolve("cache");
+        DiskCache sizing = new DiskCache(directory, DiskCache.DEFAULT_MAX_BYTES);
+        List<Path> sources = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Path source = root.resolve("File" + i + ".java");
+            sources.add(source);
+            sizing.store(source, CODE, result(source));
+        }
+        long entrySize = Files.size(entries(sizing).get(0));
+        long now = System.currentTimeMillis();
+        for (Path entry : entries(sizing)) {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(now - 60_000));
+        }
+        DiskCache cache = new DiskCache(directory, 2 * entrySize);
+        // Touch File2, then File0, so File1 and File3 are the least recently used
+        Assertions.assertNotNull(cache.lookup(sources.get(2), CODE));
+        Assertions.assertNotNull(cache.lookup(sources.get(0), CODE));
+
+        cache.trim();
+        Assertions.assertEquals(2, entries(cache).size());
+        Assertions.assertNotNull(cache.lookup(sources.get(0), CODE));
+        Assertions.assertNotNull(cache.lookup(sources.get(2), CODE));
+        Assertions.assertNull(cache.lookup(sources.get(1), CODE));
+        Assertions.assertNull(cache.lookup(sources.get(3), CODE));
+    }
+
+    private static FileResult result(Path source) {
+        return new FileResult(source, Collections.singletonList(Diagnostic.error(Phase.SEMANTIC, "type-mismatch",
+                2, 13, "Cannot assign int to boolean.")), Phase.SEMANTIC, null);
+    }
+
+    private static List<Path> entries(DiskCache cache) throws IOException {
+        List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cache.getDirectory(), "*.bin")) {
+            for (Path entry : stream) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+}
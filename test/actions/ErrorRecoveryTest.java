@@ -0,0 +1,53 @@
+package actions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import common.Diagnostic;
+
+// One run reports each error once: a statement that fails must not make later lines fail with it
+class ErrorRecoveryTest {
+
+    @Test
+    void declarationWithUnknownTokenStaysDeclared() {
+        assertDiagnostics("int e = 1 # 2;\nint f = e;\n", "lexical/unknown-token@1:11");
+    }
+
+    @Test
+    void declarationMissingSemicolonStaysDeclared() {
+        assertDiagnostics("int g 5;\nint h = g;\n", "syntax/expected-token@1:7");
+    }
+
+    @Test
+    void declarationWithBrokenInitializerStaysDeclared() {
+        assertDiagnostics("int k = (5 + ;\nint m = k;\n", "syntax/expected-expression@1:14");
+    }
+
+    @Test
+    void statementsAfterAnErrorAreStillChecked() {
+        assertDiagnostics("int a = 1 @ 2;\nint b = a;\nboolean c = b;\n",
+                "lexical/unknown-token@1:11", "semantic/type-mismatch@3:1");
+    }
+
+    @Test
+    void sourceHoldingOnlyCommentsPasses() {
+        for (String code : new String[] {"// x\n", "/* x */", "  \n"}) {
+            RunResult result = new CodeRunner(code).execute();
+            Assertions.assertNull(result.getFailedPhase(), code);
+            Assertions.assertTrue(result.getDiagnostics().isEmpty(), code);
+        }
+    }
+
+    private static void assertDiagnostics(String code, String... expected) {
+        List<String> actual = new ArrayList<>();
+        for (Diagnostic diagnostic : new CodeRunner(code).execute().getDiagnostics()) {
+            actual.add(diagnostic.getPhase().name().toLowerCase() + "/" + diagnostic.getCode() + "@"
+                    + diagnostic.getLine() + ":" + diagnostic.getColumn());
+        }
+        Assertions.assertEquals(Arrays.asList(expected), actual);
+    }
+}
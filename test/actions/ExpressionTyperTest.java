@@ -0,0 +1,80 @@
+package actions;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import common.TokenType;
+import common.ast.CompilationUnit;
+import common.ast.Expression;
+import common.ast.Node;
+import common.ast.VariableDeclaration;
+
+// Expressions built from literals only are typed and folded as Java would fold them: int arithmetic
+// wraps, operands are promoted to the wider type, and a division by zero is left to run
+class ExpressionTyperTest {
+
+    @Test
+    void foldsIntArithmetic() {
+        CompilationUnit unit = Programs.checked("int x = 2 * 3 + 1;\nint y = (7 - 10) / 2 % 5;\n");
+        assertFolded(unit, "x", TokenType.INT, 7);
+        assertFolded(unit, "y", TokenType.INT, -1);
+    }
+
+    @Test
+    void intOverflowWraps() {
+        CompilationUnit unit = Programs.checked("int big = 2147483647 + 1;\nint min = -2147483648 * -1;\n"
+                + "long wide = 2147483647L + 1;\n");
+        assertFolded(unit, "big", TokenType.INT, Integer.MIN_VALUE);
+        assertFolded(unit, "min", TokenType.INT, Integer.MIN_VALUE);
+        assertFolded(unit, "wide", TokenType.LONG, 2147483648L);
+    }
+
+    @Test
+    void integerDivisionByZeroIsNotFolded() {
+        CompilationUnit unit = Programs.checked("int q = 1 / 0;\nlong r = 5L % 0;\ndouble d = 1.0 / 0;\n");
+        for (String name : new String[] {"q", "r"}) {
+            Expression value = initializer(unit, name);
+            Assertions.assertFalse(value.isConstant(), name);
+        }
+        Assertions.assertEquals(TokenType.INT, initializer(unit, "q").getType().getKeyword());
+        Assertions.assertEquals(TokenType.LONG, initializer(unit, "r").getType().getKeyword());
+        // Floating-point division by zero does not throw, so it folds
+        assertFolded(unit, "d", TokenType.DOUBLE, Double.POSITIVE_INFINITY);
+    }
+
+    @Test
+    void operandsArePromotedToTheWiderType() {
+        CompilationUnit unit = Programs.checked("long l = 1 + 2L;\nfloat f = 1 + 2.5f;\nfloat g = 1L + 0.5f;\n"
+                + "double d = 2.5f + 1.0;\nint c = 'a' + 1;\n");
+        assertFolded(unit, "l", TokenType.LONG, 3L);
+        assertFolded(unit, "f", TokenType.FLOAT, 3.5f);
+        assertFolded(unit, "g", TokenType.FLOAT, 1.5f);
+        assertFolded(unit, "d", TokenType.DOUBLE, 3.5);
+        assertFolded(unit, "c", TokenType.INT, 98);
+    }
+
+    @Test
+    void foldsStringConcatenationLeftToRight() {
+        CompilationUnit unit = Programs.checked("String s = \"a\" + 1 + 2;\nString t = 1 + 2 + \"a\";\n"
+                + "String u = \"x\" + 1.5f + 'c' + true + 2L + 0.25;\n");
+        assertFolded(unit, "s", TokenType.STRING, "a12");
+        assertFolded(unit, "t", TokenType.STRING, "3a");
+        assertFolded(unit, "u", TokenType.STRING, "x1.5ctrue20.25");
+    }
+
+    private static void assertFolded(CompilationUnit unit, String name, TokenType type, Object constant) {
+        Expression value = initializer(unit, name);
+        Assertions.assertEquals(type, value.getType().getKeyword(), name);
+        Assertions.assertTrue(value.isConstant(), name);
+        Assertions.assertEquals(constant, value.getConstant(), name);
+    }
+
+    private static Expression initializer(CompilationUnit unit, String name) {
+        for (Node item : unit.getItems()) {
+            if (item instanceof VariableDeclaration && ((VariableDeclaration) item).getName().equals(name)) {
+                return ((VariableDeclaration) item).getInitializer();
+            }
+        }
+        throw new AssertionError("No variable " + name);
+    }
+}
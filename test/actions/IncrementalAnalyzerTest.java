@@ -0,0 +1,79 @@
+package actions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import common.Diagnostic;
+
+// After any sequence of edits the live check reports exactly what a full analysis of the text does
+class IncrementalAnalyzerTest {
+
+    private static final String START = "int a = 1;\n"
+            + "long b = a + 2;\n"
+            + "class Box { int size = 3; int get() { return size; } }\n"
+            + "if (a > 0) {\n    b = b * 2;\n} else {\n    b = 0;\n}\n"
+            + "String s = \"n\" + a;\n"
+            + "/* a comment */\n"
+            + "while (a < 10) { a = a + 1; }\n"
+            + "boolean c = b > a;\n";
+
+    private static final String[] INSERTS = {"int ", "x", "a", " = ", "1", "2L", ";", "\n", ";\n", "{", "}",
+        "if (a > 1) ", "else ", "while (c) ", "@", "\"", "/*", "*/", " + b", "byte y = 300;\n", "class C { }\n",
+        "double d = 1.5;\n", "return;\n", "(", ")"};
+
+    @Test
+    void randomEditsMatchAFullAnalysis() {
+        for (long seed = 1; seed <= 4; seed++) {
+            Random random = new Random(seed);
+            IncrementalAnalyzer analyzer = new IncrementalAnalyzer();
+            analyzer.reset(START);
+            StringBuilder text = new StringBuilder(START);
+            for (int edit = 0; edit < 150; edit++) {
+                int offset = random.nextInt(text.length() + 1);
+                int removed = Math.min(random.nextInt(4) == 0 ? random.nextInt(12) : 0, text.length() - offset);
+                String inserted = random.nextInt(5) == 0 ? "" : INSERTS[random.nextInt(INSERTS.length)];
+                text.replace(offset, offset + removed, inserted);
+                analyzer.edit(offset, removed, inserted);
+
+                String current = text.toString();
+                Assertions.assertEquals(current, analyzer.getText());
+                Assertions.assertEquals(describe(full(current)), describe(analyzer.getDiagnostics()),
+                        "seed " + seed + ", edit " + edit + " of:\n" + current);
+            }
+        }
+    }
+
+    @Test
+    void editReusesTheSegmentsItDoesNotTouch() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append("int v").append(i).append(" = ").append(i).append(";\n");
+        }
+        IncrementalAnalyzer analyzer = new IncrementalAnalyzer();
+        analyzer.reset(text);
+        int offset = text.indexOf("int v100");
+        analyzer.edit(offset, 0, "byte w = 300;\n");
+        Assertions.assertTrue(analyzer.getLastReanalyzedChars() < 100, () -> "" + analyzer.getLastReanalyzedChars());
+        Assertions.assertTrue(analyzer.getLastReusedSegments() >= 190, () -> "" + analyzer.getLastReusedSegments());
+        Assertions.assertEquals(describe(full(analyzer.getText())), describe(analyzer.getDiagnostics()));
+    }
+
+    private static List<Diagnostic> full(String text) {
+        return new CodeRunner(text).execute().getDiagnostics();
+    }
+
+    private static List<String> describe(List<Diagnostic> diagnostics) {
+        List<String> described = new ArrayList<>();
+        for (Diagnostic diagnostic : diagnostics) {
+            described.add(diagnostic.getLine() + ":" + diagnostic.getColumn() + " " + diagnostic.getPhase() + "/"
+                    + diagnostic.getCode() + " " + diagnostic.getMessage());
+        }
+        Collections.sort(described);
+        return described;
+    }
+}
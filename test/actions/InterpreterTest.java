@@ -0,0 +1,95 @@
+package actions;
+
+import java.util.BitSet;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import actions.ThreeAddressCode.Instruction;
+
+// Every comparison opcode, run by the interpreter on unoptimized code, folded by the Optimizer when
+// its operands are constants, and compiled, must agree with Java's own comparison
+class InterpreterTest {
+
+    private static final String[] OPERATORS = { "==", "!=", "<", ">=", ">", "<=" };
+
+    private static final int[] COMPARISONS = {
+        ThreeAddressCode.IF_EQ_L, ThreeAddressCode.IF_NE_L, ThreeAddressCode.IF_LT_L,
+        ThreeAddressCode.IF_GE_L, ThreeAddressCode.IF_GT_L, ThreeAddressCode.IF_LE_L,
+        ThreeAddressCode.IF_EQ_D, ThreeAddressCode.IF_NE_D, ThreeAddressCode.IF_LT_D,
+        ThreeAddressCode.IF_GE_D, ThreeAddressCode.IF_GT_D, ThreeAddressCode.IF_LE_D,
+        ThreeAddressCode.IF_EQ_A, ThreeAddressCode.IF_NE_A,
+    };
+
+    @Test
+    void everyComparisonAgreesWithJava() throws InterruptedException {
+        BitSet used = new BitSet();
+        assertComparisons("int", new String[] { "-3", "0", "5" }, new double[] { -3, 0, 5 }, used);
+        assertComparisons("long", new String[] { "-9000000000L", "2L", "9000000000L" },
+                new double[] { -9000000000L, 2, 9000000000L }, used);
+        assertComparisons("char", new String[] { "'a'", "'b'" }, new double[] { 'a', 'b' }, used);
+        assertComparisons("float", new String[] { "-1.5f", "0.25f", "0.0f / 0.0f" },
+                new double[] { -1.5f, 0.25f, Float.NaN }, used);
+        assertComparisons("double", new String[] { "-0.5", "0.0", "1e300", "0.0 / 0.0" },
+                new double[] { -0.5, 0.0, 1e300, Double.NaN }, used);
+
+        String references = "String s = \"x\";\nString t = s;\nString u = s + \"y\";\nString n = null;\n"
+                + "boolean same = s == t;\nboolean differ = s != u;\nboolean none = n == null;\n"
+                + "boolean some = u != null;\nboolean wrong = s == u || n != null;\n";
+        String output = assertModesAgree(references, used);
+        for (String line : new String[] { "same = true", "differ = true", "none = true", "some = true", "wrong = false" }) {
+            Assertions.assertTrue(output.contains(line + "\n"), () -> line + " in " + output);
+        }
+
+        for (int opcode : COMPARISONS) {
+            Assertions.assertTrue(used.get(opcode), "no program used opcode " + opcode);
+        }
+    }
+
+    // Compares every pair of values with every operator, both as a value and as a branch condition
+    private static void assertComparisons(String type, String[] values, double[] exact, BitSet used)
+            throws InterruptedException {
+        StringBuilder program = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            program.append(type).append(" v").append(i).append(" = ").append(values[i]).append(";\n");
+        }
+        int count = 0;
+        for (int i = 0; i < values.length; i++) {
+            for (int j = 0; j < values.length; j++) {
+                for (int op = 0; op < OPERATORS.length; op++) {
+                    String condition = "v" + i + " " + OPERATORS[op] + " v" + j;
+                    boolean result = compare(op, exact[i], exact[j]);
+                    program.append("boolean r").append(count).append(" = ").append(condition).append(";\n");
+                    program.append("int b").append(count).append(" = 0;\nif (").append(condition).append(") {\n")
+                            .append("    b").append(count).append(" = 1;\n}\n");
+                    expected.append("r").append(count).append(" = ").append(result).append('\n');
+                    expected.append("b").append(count).append(" = ").append(result ? 1 : 0).append('\n');
+                    count++;
+                }
+            }
+        }
+        String output = assertModesAgree(program.toString(), used);
+        Assertions.assertTrue(output.endsWith(expected.toString()), () -> type + ": " + output);
+    }
+
+    private static boolean compare(int op, double a, double b) {
+        switch (op) {
+            case 0: return a == b;
+            case 1: return a != b;
+            case 2: return a < b;
+            case 3: return a >= b;
+            case 4: return a > b;
+            default: return a <= b;
+        }
+    }
+
+    // Records the opcodes of the program's unoptimized intermediate code, which the interpreter runs
+    // as they are
+    private static String assertModesAgree(String program, BitSet used) throws InterruptedException {
+        for (Instruction instruction : Programs.translate(program).instructions) {
+            used.set(instruction.opcode);
+        }
+        return Programs.assertRunsAlike(program);
+    }
+}
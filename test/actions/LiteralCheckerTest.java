@@ -0,0 +1,104 @@
+package actions;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import common.ast.VariableDeclaration;
+
+// The range edges of every type, as javac draws them
+class LiteralCheckerTest {
+
+    @Test
+    void intEdges() {
+        assertVerdict(LiteralChecker.Verdict.VALID, "int", "2147483647");
+        assertVerdict(LiteralChecker.Verdict.OUT_OF_RANGE, "int", "2147483648");
+        assertVerdict(LiteralChecker.Verdict.VALID, "int", "-2147483648");
+        assertVerdict(LiteralChecker.Verdict.OUT_OF_RANGE, "int", "-2147483649");
+        assertVerdict(LiteralChecker.Verdict.OUT_OF_RANGE, "int", "- -2147483648");
+        assertVerdict(LiteralChecker.Verdict.VALID, "int", "017777777777");
+        assertVerdict(LiteralChecker.Verdict.OUT_OF_RANGE, "int", "020000000000");
+        assertVerdict(LiteralChecker.Verdict.VALID, "int", "-020000000000");
+        assertVerdict(LiteralChecker.Verdict.MALFORMED, "int", "08");
+        assertVerdict(LiteralChecker.Verdict.NOT_VALID, "int", "1L");
+    }
+
+    @Test
+    void longEdges() {
+        assertVerdict(LiteralChecker.Verdict.VALID, "long", "9223372036854775807L");
+        assertVerdict(LiteralChecker.Verdict.OUT_OF_RANGE, "long", "9223372036854775808L");
+        assertVerdict(LiteralChecker.Verdict.VALID, "long", "-9223372036854775808L");
+        assertVerdict(LiteralChecker.Verdict.OUT_OF_RANGE, "long", "-9223372036854775809L");
+        // Without the suffix the literal is an int, whose range ends much sooner
+        assertVerdict(LiteralChecker.Verdict.OUT_OF_RANGE, "long", "-9223372036854775808");
+        assertVerdict(LiteralChecker.Verdict.VALID, "long", "-2147483648");
+    }
+
+    @Test
+    void narrowIntegralEdges() {
+        assertVerdict(LiteralChecker.Verdict.VALID, "byte", "127");
+        assertVerdict(LiteralChecker.Verdict.OUT_OF_RANGE, "byte", "128");
+        assertVerdict(LiteralChecker.Verdict.VALID, "byte", "-128");
+        assertVerdict(LiteralChecker.Verdict.OUT_OF_RANGE, "byte", "-129");
+        assertVerdict(LiteralChecker.Verdict.VALID, "short", "-32768");
+        assertVerdict(LiteralChecker.Verdict.OUT_OF_RANGE, "short", "32768");
+        assertVerdict(LiteralChecker.Verdict.VALID, "char", "65535");
+        assertVerdict(LiteralChecker.Verdict.OUT_OF_RANGE, "char", "65536");
+        assertVerdict(LiteralChecker.Verdict.OUT_OF_RANGE, "char", "-1");
+    }
+
+    @Test
+    void floatEdges() {
+        assertVerdict(LiteralChecker.Verdict.VALID, "float", "3.4028235e38f");
+        assertVerdict(LiteralChecker.Verdict.OUT_OF_RANGE, "float", "3.4028236e38f");
+        assertVerdict(LiteralChecker.Verdict.OUT_OF_RANGE, "float", "1e39");
+        assertVerdict(LiteralChecker.Verdict.VALID, "float", "-3.4028235e38f");
+        assertVerdict(LiteralChecker.Verdict.VALID, "float", "1.4e-45f");
+        assertVerdict(LiteralChecker.Verdict.OUT_OF_RANGE, "float", "1e-46f");
+        assertVerdict(LiteralChecker.Verdict.VALID, "float", "0.0f");
+        assertVerdict(LiteralChecker.Verdict.NOT_VALID, "float", "1.5d");
+    }
+
+    @Test
+    void doubleEdges() {
+        assertVerdict(LiteralChecker.Verdict.VALID, "double", "1.7976931348623157e308");
+        assertVerdict(LiteralChecker.Verdict.OUT_OF_RANGE, "double", "1.8e308");
+        assertVerdict(LiteralChecker.Verdict.VALID, "double", "4.9e-324");
+        assertVerdict(LiteralChecker.Verdict.OUT_OF_RANGE, "double", "1e-400");
+        assertVerdict(LiteralChecker.Verdict.VALID, "double", "0e999999");
+        assertVerdict(LiteralChecker.Verdict.VALID, "double", "9223372036854775807L");
+    }
+
+    // Random decimal literals near and past every boundary agree with exact BigInteger arithmetic
+    @Test
+    void randomIntegersAgreeWithExactArithmetic() {
+        String[] types = {"byte", "short", "char", "int", "long"};
+        BigInteger[] mins = {BigInteger.valueOf(Byte.MIN_VALUE), BigInteger.valueOf(Short.MIN_VALUE), BigInteger.ZERO,
+            BigInteger.valueOf(Integer.MIN_VALUE), BigInteger.valueOf(Long.MIN_VALUE)};
+        BigInteger[] maxes = {BigInteger.valueOf(Byte.MAX_VALUE), BigInteger.valueOf(Short.MAX_VALUE),
+            BigInteger.valueOf(Character.MAX_VALUE), BigInteger.valueOf(Integer.MAX_VALUE),
+            BigInteger.valueOf(Long.MAX_VALUE)};
+        Random random = new Random(13);
+        for (int i = 0; i < 5_000; i++) {
+            int t = random.nextInt(types.length);
+            BigInteger edge = random.nextBoolean() ? mins[t] : maxes[t];
+            BigInteger value = edge.add(BigInteger.valueOf(random.nextInt(5) - 2));
+            if (random.nextInt(4) == 0) {
+                value = value.multiply(BigInteger.TEN).add(BigInteger.valueOf(random.nextInt(10)));
+            }
+            String suffix = t == 4 ? "L" : "";
+            boolean fits = value.compareTo(mins[t]) >= 0 && value.compareTo(maxes[t]) <= 0;
+            assertVerdict(fits ? LiteralChecker.Verdict.VALID : LiteralChecker.Verdict.OUT_OF_RANGE,
+                    types[t], value + suffix);
+        }
+    }
+
+    private static void assertVerdict(LiteralChecker.Verdict expected, String type, String value) {
+        VariableDeclaration declaration = (VariableDeclaration) new Parser(
+                new Lexer(type + " x = " + value + ";").tokenize()).parse().getItems().get(0);
+        Assertions.assertEquals(expected, LiteralChecker.check(declaration.getType(), declaration.getInitializer()),
+                type + " x = " + value);
+    }
+}
@@ -0,0 +1,64 @@
+package actions;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+// The passes must never change what a program prints, nor add instructions to it, and their cost
+// must grow with the program, not with its square
+class OptimizerTest {
+
+    private static final Duration LIMIT = Duration.ofSeconds(30);
+
+    @Test
+    void optimizingDoesNotChangeOutput() throws InterruptedException {
+        for (String program : Programs.SAMPLES) {
+            assertOptimizesAlike(program);
+        }
+    }
+
+    // A long block of declarations, a long chain in one block, and a long && chain of many blocks
+    // over a variable the passes cannot know
+    @Test
+    void largeProgramsOptimizeQuickly() {
+        StringBuilder declarations = new StringBuilder("int v0 = 1;\n");
+        for (int i = 1; i < 20_000; i++) {
+            declarations.append("int v").append(i).append(" = v").append(i - 1).append(" + ").append(i).append(";\n");
+        }
+        StringBuilder differences = new StringBuilder("int x = 3;\nint y = x");
+        StringBuilder conditions = new StringBuilder("int a = 1;\nwhile (a < 3) {\n    a = a + 1;\n}\nboolean b = a > 0");
+        for (int i = 1; i < 50_000; i++) {
+            differences.append(" - x");
+            conditions.append(" && a + ").append(i).append(" > 0");
+        }
+        for (String program : new String[] {declarations.toString(), differences + ";\n", conditions + ";\n"}) {
+            Assertions.assertTimeout(LIMIT, () -> assertOptimizesAlike(program));
+        }
+    }
+
+    // Too many variables live across too many blocks for the facts of every block to be kept; each
+    // block then starts knowing nothing of them
+    @Test
+    void manyVariablesAcrossManyBlocksStillOptimize() {
+        StringBuilder program = new StringBuilder();
+        for (int i = 0; i < 3_000; i++) {
+            program.append("int v").append(i).append(" = ").append(i % 7).append(";\n");
+        }
+        program.append("int k = 0;\nwhile (k < 2) {\n");
+        for (int i = 0; i < 3_000; i++) {
+            program.append("    if (v").append(i).append(" > 3) {\n        v").append(i).append(" = v").append(i)
+                    .append(" + k;\n    }\n");
+        }
+        program.append("    k = k + 1;\n}\n");
+        Assertions.assertTimeout(LIMIT, () -> assertOptimizesAlike(program.toString()));
+    }
+
+    private static void assertOptimizesAlike(String program) throws InterruptedException {
+        ThreeAddressCode optimized = Programs.translate(program);
+        int before = optimized.size();
+        new Optimizer().optimize(optimized);
+        Assertions.assertTrue(optimized.size() <= before, program);
+        Assertions.assertEquals(Programs.interpret(Programs.translate(program)), Programs.interpret(optimized), program);
+    }
+}
@@ -0,0 +1,71 @@
+package actions;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import common.ast.BinaryExpression;
+import common.ast.CompilationUnit;
+import common.ast.Expression;
+import common.ast.VariableDeclaration;
+
+// A chain of operators in one expression is not nesting, however long it is; only parentheses,
+// blocks and prefix operators count towards the nesting limit
+class ParserTest {
+
+    private static final int TERMS = 10_000;
+
+    @Test
+    void acceptsAFlatChainOfTenThousandTerms() {
+        Parser parser = new Parser(new Lexer("int x = " + chain("1", " + ", TERMS) + ";\n").tokenize());
+        CompilationUnit unit = parser.parse();
+        Assertions.assertEquals(0, parser.getDiagnostics().size(), () -> parser.getDiagnostics().toString());
+
+        int operators = 0;
+        Expression value = ((VariableDeclaration) unit.getItems().get(0)).getInitializer();
+        while (value instanceof BinaryExpression) {
+            operators++;
+            value = ((BinaryExpression) value).getLeft();
+        }
+        Assertions.assertEquals(TERMS - 1, operators);
+    }
+
+    // Each chain is run on its own, and kept within the JVM's limits on the code of one method
+    @Test
+    void longChainsPassEveryPhase() {
+        assertRuns("int a = 1;\nint x = " + chain("a", " + ", TERMS) + ";\n", "x = " + TERMS);
+        assertRuns("int a = 1;\nString s = " + chain("\"s\"", " + a + ", 4_000) + ";\n", "1s1s");
+        assertRuns("int a = 1;\nboolean b = " + chain("a > 0", " && ", 4_000) + ";\n", "b = true");
+    }
+
+    private static void assertRuns(String code, String expected) {
+        for (ProgramRunner.Mode mode : ProgramRunner.Mode.values()) {
+            RunResult result = new CodeRunner(code).execute(phase -> { }, new ProgramRunner((text, error) -> { }, mode));
+            Assertions.assertTrue(result.isSuccessful(), () -> mode + ": " + result.getDiagnostics());
+            String output = result.getExecution().getPayload().getOutput();
+            Assertions.assertTrue(output.contains(expected), () -> mode + ": " + output);
+        }
+    }
+
+    @Test
+    void deepParenthesesAreStillLimited() {
+        StringBuilder code = new StringBuilder("int x = ");
+        for (int i = 0; i < 1_000; i++) {
+            code.append('(');
+        }
+        code.append('1');
+        for (int i = 0; i < 1_000; i++) {
+            code.append(')');
+        }
+        Parser parser = new Parser(new Lexer(code.append(";\n")).tokenize());
+        parser.parse();
+        Assertions.assertEquals("too-deeply-nested", parser.getDiagnostics().get(0).getCode());
+    }
+
+    private static String chain(String term, String operator, int terms) {
+        StringBuilder text = new StringBuilder(term);
+        for (int i = 1; i < terms; i++) {
+            text.append(operator).append(term);
+        }
+        return text.toString();
+    }
+}
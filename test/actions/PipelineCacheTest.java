@@ -0,0 +1,71 @@
+package actions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import common.AnalysisResult;
+import common.ast.CompilationUnit;
+
+// Threads missing on the same source at once must each get a correct semantic result, and never
+// write to a tree another result holds
+class PipelineCacheTest {
+
+    private static final int DECLARATIONS = 2_000;
+
+    @Test
+    void concurrentSemanticMissesOnOneSourceAgree() throws Exception {
+        StringBuilder code = new StringBuilder();
+        for (int i = 0; i < DECLARATIONS; i++) {
+            code.append("int a").append(i).append(" = ").append(i).append(";\n");
+            code.append("byte b").append(i).append(" = a").append(i).append(" + 1;\n");
+        }
+        PipelineCache cache = new PipelineCache();
+        String source = code.toString();
+        CompilationUnit parsed = cache.syntax(source).getPayload();
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<List<Integer>>> runs = new ArrayList<>();
+            for (int thread = 0; thread < 2; thread++) {
+                runs.add(pool.submit((Callable<List<Integer>>) () -> {
+                    List<Integer> counts = new ArrayList<>();
+                    for (int run = 0; run < 20; run++) {
+                        cache.getSemanticCache().clear();
+                        AnalysisResult<CompilationUnit> result = cache.semantic(source);
+                        Assertions.assertNotSame(parsed, result.getPayload());
+                        counts.add(result.getDiagnostics().size());
+                    }
+                    return counts;
+                }));
+            }
+            for (Future<List<Integer>> run : runs) {
+                for (int count : run.get()) {
+                    Assertions.assertEquals(DECLARATIONS, count);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void resultsOfInterruptedThreadsAreNotCached() {
+        PipelineCache cache = new PipelineCache();
+        Thread.currentThread().interrupt();
+        try {
+            cache.lexical("int a = 1;\n");
+        } finally {
+            Thread.interrupted();
+        }
+        Assertions.assertEquals(0, cache.getLexicalCache().size());
+        cache.lexical("int a = 1;\n");
+        Assertions.assertEquals(1, cache.getLexicalCache().size());
+    }
+}
@@ -0,0 +1,109 @@
+package actions;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import common.AnalysisResult;
+import common.Diagnostic;
+
+// Programs run under the time limits, and a run that exceeds them is stopped and reported
+class ProgramRunnerTest {
+
+    private static final String ENDLESS = "int i = 0;\nwhile (true) {\n    i = i + 1;\n}\n";
+    // Long enough that only the limit under test can stop the program
+    private static final long NO_LIMIT_MILLIS = 60_000;
+
+    @Test
+    void wallClockLimitStopsAnEndlessLoop() {
+        for (ProgramRunner.Mode mode : ProgramRunner.Mode.values()) {
+            ProgramRunner runner = new ProgramRunner((text, error) -> { }, mode, 200, NO_LIMIT_MILLIS);
+            AnalysisResult<ProgramOutput> result = Assertions.assertTimeout(Duration.ofSeconds(10),
+                    () -> run(ENDLESS, runner));
+            assertCode("timeout", result);
+            Assertions.assertTrue(result.getDiagnostics().get(0).getMessage().contains("200 ms wall-clock"),
+                    mode::toString);
+        }
+    }
+
+    @Test
+    void cpuLimitStopsAnEndlessLoop() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadCpuTimeSupported() || !threads.isThreadCpuTimeEnabled()) {
+            return;  // Only the wall-clock limit applies on this JVM
+        }
+        for (ProgramRunner.Mode mode : ProgramRunner.Mode.values()) {
+            ProgramRunner runner = new ProgramRunner((text, error) -> { }, mode, NO_LIMIT_MILLIS, 200);
+            AnalysisResult<ProgramOutput> result = Assertions.assertTimeout(Duration.ofSeconds(10),
+                    () -> run(ENDLESS, runner));
+            assertCode("timeout", result);
+            Assertions.assertTrue(result.getDiagnostics().get(0).getMessage().contains("200 ms CPU"),
+                    mode::toString);
+        }
+    }
+
+    // Interrupting the thread that runs the program cancels the run and stops the program's thread
+    @Test
+    void interruptingTheCallerStopsAnEndlessLoop() throws InterruptedException {
+        for (ProgramRunner.Mode mode : ProgramRunner.Mode.values()) {
+            ProgramRunner runner = new ProgramRunner((text, error) -> { }, mode, NO_LIMIT_MILLIS, NO_LIMIT_MILLIS);
+            AtomicReference<Throwable> thrown = new AtomicReference<>();
+            Thread caller = new Thread(() -> {
+                try {
+                    run(ENDLESS, runner);
+                } catch (RuntimeException ex) {
+                    thrown.set(ex);
+                }
+            });
+            caller.start();
+            Thread.sleep(300);
+            caller.interrupt();
+            caller.join(5_000);
+            Assertions.assertFalse(caller.isAlive(), mode::toString);
+            Assertions.assertTrue(thrown.get() instanceof CancellationException, () -> mode + ": " + thrown.get());
+            Assertions.assertTrue(programThreadsStop(), mode::toString);
+        }
+    }
+
+    // Lowering a long program for the interpreter is part of the run, so it counts against the limit
+    @Test
+    void loweringForTheInterpreterIsTimed() {
+        StringBuilder program = new StringBuilder("int a = 1;\nwhile (a < 3) {\n    a = a + 1;\n}\nboolean b = a > 0");
+        for (int i = 1; i < 30_000; i++) {
+            program.append(" && a + ").append(i).append(" > 0");
+        }
+        ProgramRunner runner = new ProgramRunner((text, error) -> { }, ProgramRunner.Mode.INTERPRET, 20, 20);
+        AnalysisResult<ProgramOutput> result = runner.interpret(Programs.checked(program.append(";\n").toString()));
+        assertCode("timeout", result);
+    }
+
+    private static AnalysisResult<ProgramOutput> run(String program, ProgramRunner runner) {
+        RunResult result = new CodeRunner(program).execute(phase -> { }, runner);
+        Assertions.assertNotNull(result.getExecution(), () -> result.getDiagnostics().toString());
+        return result.getExecution();
+    }
+
+    // Whether every thread ProgramRunner started has ended within a second
+    private static boolean programThreadsStop() throws InterruptedException {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("program-")) {
+                thread.join(1_000);
+                if (thread.isAlive()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void assertCode(String code, AnalysisResult<ProgramOutput> result) {
+        Assertions.assertEquals(1, result.getDiagnostics().size(), () -> result.getDiagnostics().toString());
+        Diagnostic diagnostic = result.getDiagnostics().get(0);
+        Assertions.assertEquals(code, diagnostic.getCode(), diagnostic::toString);
+    }
+}
@@ -0,0 +1,74 @@
+package actions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+
+import org.junit.jupiter.api.Assertions;
+
+import common.AnalysisResult;
+import common.ast.CompilationUnit;
+
+// Runs checked programs the ways the back-end tests compare: compiled, through the interpreter, or
+// from intermediate code with or without the Optimizer passes
+final class Programs {
+
+    // Programs covering the arithmetic of every type, string concatenation, branches, loops,
+    // repeated subexpressions and assignments inside expressions
+    static final String[] SAMPLES = {
+        "int a = 7;\nint b = a * 3 - 4 / 2;\nint c = a % 3 + (b - 2) * -b;\nint d = -a / 2 + c % -4;\n",
+        "long big = 9000000000L;\nlong half = big / 2 + 1;\nint narrowed = 3;\nlong mixed = narrowed * big;\n",
+        "float f = 1.5f;\ndouble d = f * 2.25;\ndouble q = d / 0.0;\nfloat g = f - 0.25f;\n",
+        "char c = 'a';\nint code = c + 1;\nbyte b = 12;\nshort s = 300;\nint sum = b + s;\n",
+        "boolean t = true;\nboolean f = !t || 3 > 2 && 1 != 1;\nboolean both = t && !f;\n",
+        "String s = \"x\" + 1 + 2.5 + 'c' + true;\nString n = s + null;\nint len = 4;\nString m = len + 1 + s;\n",
+        "int i = 0;\nint total = 0;\nwhile (i < 10) {\n    if (i % 2 == 0) {\n        total = total + i;\n    } else {\n"
+                + "        total = total - 1;\n    }\n    i = i + 1;\n}\n",
+        "int x = 5;\nint y = x;\nint z = x + y;\nint w = x + y;\nx = 6;\nint v = x + y;\ny = 2;\ny = 3;\n",
+        "int n = 1;\nint fact = 1;\nwhile (n <= 10) {\n    fact = fact * n;\n    n = n + 1;\n}\nlong wide = fact * 1000L;\n",
+        "int a = 1;\nint b = (a = a + 1) * (a = a + 1);\nboolean c = a > 2 || (a = 10) > 0;\nint d = a;\n",
+    };
+
+    private Programs() {
+    }
+
+    // The output of the whole pipeline in the given mode; the program must pass every phase
+    static String run(String program, ProgramRunner.Mode mode) {
+        RunResult result = new CodeRunner(program).execute(phase -> { }, new ProgramRunner((text, error) -> { }, mode));
+        Assertions.assertTrue(result.isSuccessful(), () -> mode + ": " + result.getDiagnostics());
+        return result.getExecution().getPayload().getOutput();
+    }
+
+    // The checked tree of a program that must pass semantic analysis
+    static CompilationUnit checked(String program) {
+        AnalysisResult<CompilationUnit> checked = new PipelineCache().semantic(program);
+        Assertions.assertEquals(0, checked.getDiagnostics().size(), () -> checked.getDiagnostics().toString());
+        return checked.getPayload();
+    }
+
+    // The unoptimized intermediate code of a program that must pass semantic analysis
+    static ThreeAddressCode translate(String program) {
+        return ThreeAddressTranslator.translate(checked(program));
+    }
+
+    // The output of the program's unoptimized intermediate code, once its optimized code and the
+    // compiled program are checked to print the same
+    static String assertRunsAlike(String program) throws InterruptedException {
+        String output = interpret(translate(program));
+        ThreeAddressCode optimized = translate(program);
+        new Optimizer().optimize(optimized);
+        Assertions.assertEquals(output, interpret(optimized), program);
+        Assertions.assertEquals(output, run(program, ProgramRunner.Mode.COMPILE), program);
+        return output;
+    }
+
+    static String interpret(ThreeAddressCode code) throws InterruptedException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (PrintStream out = new PrintStream(bytes, true, "UTF-8")) {
+            new Interpreter(code).run(out);
+            return bytes.toString("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
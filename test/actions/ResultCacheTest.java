@@ -0,0 +1,76 @@
+package actions;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ResultCacheTest {
+
+    // Two texts whose hashes collide must not share a result
+    @Test
+    void collidingKeyWithOtherTextMisses() {
+        ResultCache<String> cache = new ResultCache<>(1_000);
+        cache.put(42, "int a = 1;", "first", 10);
+        Assertions.assertNull(cache.get(42, "int b = 2;"));
+        Assertions.assertEquals("first", cache.get(42, new StringBuilder("int a = 1;")));
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+
+        cache.put(42, "int b = 2;", "second", 10);
+        Assertions.assertEquals("second", cache.get(42, "int b = 2;"));
+        Assertions.assertNull(cache.get(42, "int a = 1;"));
+        Assertions.assertEquals(10, cache.getWeight());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntriesOverTheBound() {
+        ResultCache<String> cache = new ResultCache<>(30);
+        cache.put(1, "a", "A", 10);
+        cache.put(2, "b", "B", 10);
+        cache.put(3, "c", "C", 10);
+        Assertions.assertEquals("A", cache.get(1, "a"));  // Now b is the least recently used
+
+        cache.put(4, "d", "D", 10);
+        Assertions.assertNull(cache.get(2, "b"));
+        Assertions.assertEquals("A", cache.get(1, "a"));
+        Assertions.assertEquals("C", cache.get(3, "c"));
+        Assertions.assertEquals("D", cache.get(4, "d"));
+        Assertions.assertEquals(1, cache.getEvictions());
+        Assertions.assertEquals(3, cache.size());
+        Assertions.assertEquals(30, cache.getWeight());
+
+        cache.put(5, "e", "E", 25);
+        Assertions.assertEquals(1, cache.size());
+        Assertions.assertEquals("E", cache.get(5, "e"));
+        Assertions.assertEquals(4, cache.getEvictions());
+    }
+
+    @Test
+    void countsHitsAndMisses() {
+        ResultCache<String> cache = new ResultCache<>(100);
+        Assertions.assertNull(cache.get(7, "x"));
+        cache.put(7, "x", "X", 1);
+        cache.get(7, "x");
+        cache.get(7, "x");
+        cache.get(8, "y");
+        Assertions.assertEquals(2, cache.getHits());
+        Assertions.assertEquals(2, cache.getMisses());
+        Assertions.assertEquals("Test: 2 hit(s), 2 miss(es), 0 eviction(s), 1 entry, 1 of 0 KB", cache.describe("Test"));
+    }
+
+    @Test
+    void replacingAnEntryKeepsTheWeightExact() {
+        ResultCache<String> cache = new ResultCache<>(100);
+        cache.put(1, "a", "A", 40);
+        cache.put(1, "a", "A2", 20);
+        Assertions.assertEquals(20, cache.getWeight());
+        Assertions.assertEquals(1, cache.size());
+    }
+
+    @Test
+    void valuesHeavierThanTheBoundAreNotCached() {
+        ResultCache<String> cache = new ResultCache<>(10);
+        cache.put(1, "a", "A", 11);
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertNull(cache.get(1, "a"));
+    }
+}
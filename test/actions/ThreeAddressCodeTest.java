@@ -0,0 +1,31 @@
+package actions;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+// The listing must name every label a jump goes to, including those at the very end of the program
+class ThreeAddressCodeTest {
+
+    @Test
+    void listsTheExitLabelRightBeforeTheEndLine() {
+        String listing = Programs.translate("int i = 0;\nwhile (i < 3) {\n    i = i + 1;\n}\n").dump();
+        String[] lines = listing.split("\n");
+        Assertions.assertEquals("end", lines[lines.length - 1].trim(), listing);
+
+        String exit = null;
+        for (String line : lines) {
+            if (line.contains("if.ge.l")) {
+                exit = line.substring(line.indexOf("-> ") + 3);
+            }
+        }
+        Assertions.assertNotNull(exit, listing);
+        Set<String> trailing = new HashSet<>();
+        for (int i = lines.length - 2; i >= 0 && lines[i].endsWith(":"); i--) {
+            trailing.add(lines[i].substring(0, lines[i].length() - 1));
+        }
+        Assertions.assertTrue(trailing.contains(exit), listing);
+    }
+}
@@ -0,0 +1,83 @@
+package common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+// Interning and naming, including threads racing to add words while the table grows
+class IdentifierPoolTest {
+
+    private static final int THREADS = 4;
+    // Far more than the first table holds, so the table grows several times while threads intern
+    private static final int WORDS = 20_000;
+
+    @Test
+    void keywordsHoldTheFirstIds() {
+        IdentifierPool pool = new IdentifierPool();
+        int id = pool.intern("while");
+        Assertions.assertEquals(TokenType.WHILE, IdentifierPool.keyword(id));
+        Assertions.assertNull(IdentifierPool.keyword(pool.intern("whilst")));
+    }
+
+    @Test
+    void internsRangesOfASource() {
+        IdentifierPool pool = new IdentifierPool();
+        String source = "alpha beta alpha";
+        int first = pool.intern(source, 0, 5);
+        Assertions.assertEquals(first, pool.intern(source, 11, 16));
+        Assertions.assertNotEquals(first, pool.intern(source, 6, 10));
+        Assertions.assertSame(pool.name(first), pool.name(pool.intern("alpha")));
+    }
+
+    // Every thread sees one id per word and the right word for every id, while others add words
+    // and the table is replaced under them
+    @Test
+    void concurrentInternAndNameAgreeAcrossGrowth() throws Exception {
+        IdentifierPool pool = new IdentifierPool();
+        int keywords = pool.size();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<int[]>> runs = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                final int seed = thread;
+                runs.add(executor.submit((Callable<int[]>) () -> {
+                    List<Integer> order = new ArrayList<>();
+                    for (int i = 0; i < WORDS; i++) {
+                        order.add(i);
+                    }
+                    Collections.shuffle(order, new Random(seed));
+                    int[] ids = new int[WORDS];
+                    start.await();
+                    for (int word : order) {
+                        ids[word] = pool.intern("w" + word);
+                        Assertions.assertEquals("w" + word, pool.name(ids[word]));
+                    }
+                    return ids;
+                }));
+            }
+            start.countDown();
+            int[] expected = runs.get(0).get();
+            for (Future<int[]> run : runs) {
+                Assertions.assertArrayEquals(expected, run.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertEquals(keywords + WORDS, pool.size());
+        for (int word = 0; word < WORDS; word++) {
+            int id = pool.intern("w" + word);
+            Assertions.assertTrue(id >= keywords && id < keywords + WORDS);
+            Assertions.assertEquals("w" + word, pool.name(id));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TokenBufferTest {
+
+    @Test
+    void growsPastItsInitialCapacity() {
+        TokenBuffer buffer = new TokenBuffer("");
+        for (int i = 0; i < 1_000; i++) {
+            buffer.add(TokenType.SEMICOLON, i, i + 1, i / 10 + 1, i % 10 + 1);
+        }
+        Assertions.assertEquals(1_000, buffer.size());
+        for (int i = 0; i < 1_000; i++) {
+            assertToken(buffer, i);
+        }
+    }
+
+    @Test
+    void trimKeepsEveryTokenAndStillGrows() {
+        TokenBuffer buffer = new TokenBuffer("");
+        for (int i = 0; i < 100; i++) {
+            buffer.add(TokenType.SEMICOLON, i, i + 1, i / 10 + 1, i % 10 + 1);
+        }
+        buffer.trimToSize();
+        for (int i = 0; i < 100; i++) {
+            assertToken(buffer, i);
+        }
+        buffer.add(TokenType.SEMICOLON, 100, 101, 11, 1);
+        Assertions.assertEquals(101, buffer.size());
+        Assertions.assertEquals(TokenType.SEMICOLON, buffer.getType(100));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> buffer.getType(101));
+    }
+
+    @Test
+    void emptyBufferGrowsAfterTrim() {
+        TokenBuffer buffer = new TokenBuffer("");
+        buffer.trimToSize();
+        buffer.add(TokenType.EOF, 0, 0, 1, 1);
+        Assertions.assertEquals(1, buffer.size());
+        Assertions.assertEquals(TokenType.EOF, buffer.getType(0));
+    }
+
+    @Test
+    void copiesTokenListsOfAnyLength() {
+        List<Token> tokens = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            tokens.add(new Token(TokenType.IDENTIFIER, "n" + i, i * 3, 1, i * 3 + 1));
+        }
+        TokenBuffer buffer = TokenBuffer.of(tokens);
+        Assertions.assertEquals(200, buffer.size());
+        for (int i = 0; i < 200; i++) {
+            Assertions.assertEquals("n" + i, buffer.getText(i));
+            Assertions.assertEquals(i * 3, buffer.getOffset(i));
+            Assertions.assertEquals(buffer.getPool().intern("n" + i), buffer.getNameId(i));
+        }
+        Assertions.assertSame(buffer, TokenBuffer.of(buffer));
+    }
+
+    private static void assertToken(TokenBuffer buffer, int i) {
+        Assertions.assertEquals(TokenType.SEMICOLON, buffer.getType(i));
+        Assertions.assertEquals(";", buffer.getText(i));
+        Assertions.assertEquals(i, buffer.getOffset(i));
+        Assertions.assertEquals(i + 1, buffer.getEndOffset(i));
+        Assertions.assertEquals(i / 10 + 1, buffer.getLine(i));
+        Assertions.assertEquals(i % 10 + 1, buffer.getColumn(i));
+    }
+}
@@ -0,0 +1,51 @@
+package main;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Glob inputs: "**/" matches zero or more directories, as in most shells and build tools
+class CommandLineCompilerTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void doubleStarIncludesTopLevelFiles() throws IOException {
+        create("Main.java", "corp/Top.java", "corp/a/Nested.java", "corp/a/b/Deep.java", "corp/notes.txt");
+        Assertions.assertEquals(Arrays.asList("corp/Top.java", "corp/a/Nested.java", "corp/a/b/Deep.java"),
+                sources("corp/**/*.java"));
+    }
+
+    @Test
+    void doubleStarInTheMiddleMatchesNoDirectory() throws IOException {
+        create("corp/a/Direct.java", "corp/x/a/Below.java", "corp/Other.java");
+        Assertions.assertEquals(Arrays.asList("corp/a/Direct.java", "corp/x/a/Below.java"),
+                sources("corp/**/a/*.java"));
+    }
+
+    private void create(String... files) throws IOException {
+        for (String file : files) {
+            Path path = root.resolve(file);
+            Files.createDirectories(path.getParent());
+            Files.write(path, new byte[0]);
+        }
+    }
+
+    private List<String> sources(String pattern) throws IOException {
+        List<String> actual = new ArrayList<>();
+        for (Path source : CommandLineCompiler.collectSources(Collections.singletonList(root + "/" + pattern))) {
+            actual.add(root.relativize(source).toString().replace('\\', '/'));
+        }
+        Collections.sort(actual);
+        return actual;
+    }
+}